@@ -0,0 +1,162 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures lock lookup and locking throughput of the {@link ObjectLockRepository} implementations
+ * under an increasing number of threads.  The {@code synchronized} repository is the former implementation
+ * of the {@link ReentrantObjectLockRepository}, where every lookup synchronized on the repository.
+ * <p/>
+ * The {@code lockWithWork} benchmark keeps the lock while doing a small amount of work, so threads
+ * locking the same key contend for it.  With a single key all threads contend for the same lock.
+ * <p/>
+ * The default run uses 4 threads.  To measure how contention grows, {@link #main(String[])} runs the benchmark
+ * for 1 to 64 threads, doubling the number of threads every run:
+ * {@code java -cp target/benchmarks.jar com.foreach.common.concurrent.locks.ObjectLockRepositoryBenchmark}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class ObjectLockRepositoryBenchmark
+{
+	/**
+	 * Amount of work done while holding the lock, in JMH {@link Blackhole#consumeCPU(long)} tokens.
+	 */
+	private static final long WORK_WHILE_LOCKED = 100;
+
+	private static final int[] THREAD_COUNTS = { 1, 2, 4, 8, 16, 32, 64 };
+
+	@Param({ "synchronized", "reentrant", "striped" })
+	public String repository;
+
+	@Param({ "1", "16", "100000" })
+	public int keys;
+
+	private ObjectLockRepository<String> lockRepository;
+	private String[] lockKeys;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		switch ( repository ) {
+			case "synchronized":
+				lockRepository = new SynchronizedObjectLockRepository<>();
+				break;
+			case "striped":
+				lockRepository = new StripedObjectLockRepository<>();
+				break;
+			default:
+				lockRepository = new ReentrantObjectLockRepository<>();
+		}
+
+		lockKeys = new String[keys];
+		for ( int i = 0; i < keys; i++ ) {
+			lockKeys[i] = "key-" + i;
+		}
+	}
+
+	@Benchmark
+	public ObjectLock<String> getLock() {
+		return lockRepository.getLock( randomKey() );
+	}
+
+	@Benchmark
+	public void lockAndUnlock() {
+		ObjectLock<String> lock = lockRepository.getLock( randomKey() );
+		lock.lock();
+		lock.unlock();
+	}
+
+	@Benchmark
+	public void lockWithWork() {
+		try (CloseableObjectLock<String> ignore = lockRepository.lock( randomKey() )) {
+			Blackhole.consumeCPU( WORK_WHILE_LOCKED );
+		}
+	}
+
+	private String randomKey() {
+		return lockKeys[ThreadLocalRandom.current().nextInt( lockKeys.length )];
+	}
+
+	/**
+	 * Runs the benchmark for every number of threads in {@link #THREAD_COUNTS}, the result of every run is written
+	 * to {@code object-lock-repository-<threads>-threads.json}.  Other JMH options can be passed as arguments,
+	 * a benchmark regex selects the benchmarks of this class to run, eg. {@code ObjectLockRepositoryBenchmark.lockWithWork}.
+	 */
+	public static void main( String[] args ) throws Exception {
+		CommandLineOptions commandLineOptions = new CommandLineOptions( args );
+
+		for ( int threads : THREAD_COUNTS ) {
+			ChainedOptionsBuilder options = new OptionsBuilder()
+					.parent( commandLineOptions )
+					.threads( threads )
+					.resultFormat( ResultFormatType.JSON )
+					.result( "object-lock-repository-" + threads + "-threads.json" );
+
+			if ( commandLineOptions.getIncludes().isEmpty() ) {
+				options.include( ObjectLockRepositoryBenchmark.class.getName() );
+			}
+
+			new Runner( options.build() ).run();
+		}
+	}
+
+	/**
+	 * Previous implementation of the {@link ReentrantObjectLockRepository}, kept as baseline.
+	 */
+	static class SynchronizedObjectLockRepository<T> implements ObjectLockRepository<T>
+	{
+		private final Map<T, WeakReference<ObjectLock<T>>> locks = new WeakHashMap<>();
+
+		@Override
+		public synchronized ObjectLock<T> getLock( T key ) {
+			WeakReference<ObjectLock<T>> lockReference = locks.get( key );
+
+			ObjectLock<T> lock = lockReference != null ? lockReference.get() : null;
+
+			if ( lock == null ) {
+				lock = new ReentrantObjectLock<>( key );
+				locks.put( key, new WeakReference<>( lock ) );
+			}
+
+			return lock;
+		}
+
+		@Override
+		public CloseableObjectLock<T> lock( T key ) {
+			CloseableObjectLock<T> lock = new CloseableObjectLock<>( getLock( key ) );
+			lock.lock();
+			return lock;
+		}
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates an in-memory HSQLDB database with a lock table for the distributed lock benchmarks.
+ * Every call creates a new database, so benchmark trials do not share state.
+ */
+final class BenchmarkDatabase
+{
+	static final String TABLE_NAME = "benchmark_locks";
+
+	private static final AtomicInteger DATABASE_COUNTER = new AtomicInteger();
+
+	private BenchmarkDatabase() {
+	}
+
+	static BasicDataSource createDataSource() {
+		BasicDataSource dataSource = new BasicDataSource();
+		dataSource.setDriverClassName( "org.hsqldb.jdbc.JDBCDriver" );
+		dataSource.setUrl( "jdbc:hsqldb:mem:/hsql-mem/benchmark-" + DATABASE_COUNTER.incrementAndGet() );
+		dataSource.setUsername( "sa" );
+		dataSource.setPassword( "" );
+		dataSource.setMaxTotal( 32 );
+
+		createTables( dataSource );
+
+		return dataSource;
+	}
+
+	static SqlBasedDistributedLockConfiguration createConfiguration() {
+		return new SqlBasedDistributedLockConfiguration( TABLE_NAME );
+	}
+
+	private static void createTables( DataSource dataSource ) {
+		JdbcTemplate jdbcTemplate = new JdbcTemplate( dataSource );
+		jdbcTemplate.execute( "CREATE TABLE " + TABLE_NAME + " ("
+				                      + "lock_id VARCHAR(120) NOT NULL PRIMARY KEY, "
+				                      + "owner_id VARCHAR(120), "
+				                      + "created BIGINT NOT NULL, "
+				                      + "updated BIGINT NOT NULL, "
+				                      + "holds INTEGER DEFAULT 0 NOT NULL)" );
+		jdbcTemplate.execute( "CREATE TABLE " + TABLE_NAME + "_queue ("
+				                      + "lock_id VARCHAR(120) NOT NULL, "
+				                      + "ticket BIGINT NOT NULL, "
+				                      + "owner_id VARCHAR(120) NOT NULL, "
+				                      + "updated BIGINT NOT NULL, "
+				                      + "PRIMARY KEY (lock_id, ticket))" );
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares throughput and wait times of a single contended lock in fair and default mode.  Several lock managers
+ * sharing the same in-memory HSQLDB database simulate separate nodes, every benchmark thread is an owner on one
+ * of the nodes, continuously acquiring and releasing the same lock while doing some work in between.
+ * <p/>
+ * Fair mode trades throughput for predictable wait times: the sample time percentiles show the tail of the wait
+ * times, which are expected to be much lower in fair mode.  The fairness guarantees themselves are verified by
+ * {@code ITDistributedLockFairness} in the {@code common-concurrent} module.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class DistributedLockFairnessBenchmark
+{
+	private static final int NODES = 4;
+	private static final String LOCK_KEY = "fairness";
+
+	@Param({ "false", "true" })
+	public boolean fair;
+
+	private BasicDataSource dataSource;
+	private SqlBasedDistributedLockManager[] lockManagers;
+	private DistributedLockRepository[] lockRepositories;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		dataSource = BenchmarkDatabase.createDataSource();
+
+		SqlBasedDistributedLockConfiguration configuration = BenchmarkDatabase.createConfiguration();
+		configuration.setRetryInterval( 50 );
+		configuration.setFair( fair );
+
+		lockManagers = new SqlBasedDistributedLockManager[NODES];
+		lockRepositories = new DistributedLockRepository[NODES];
+		for ( int node = 0; node < NODES; node++ ) {
+			lockManagers[node] = new SqlBasedDistributedLockManager( dataSource, configuration );
+			lockRepositories[node] = new DistributedLockRepositoryImpl( lockManagers[node], "node-" + node );
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws SQLException {
+		for ( SqlBasedDistributedLockManager lockManager : lockManagers ) {
+			lockManager.close();
+		}
+		dataSource.close();
+	}
+
+	@State(Scope.Thread)
+	public static class Owner
+	{
+		private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+		DistributedLock lock;
+
+		@Setup(Level.Trial)
+		public void setUp( DistributedLockFairnessBenchmark benchmark ) {
+			int thread = THREAD_COUNTER.incrementAndGet();
+			lock = benchmark.lockRepositories[thread % NODES].createSharedLock( "owner-" + thread, LOCK_KEY );
+		}
+	}
+
+	@Benchmark
+	public void lockWithWork( Owner owner ) {
+		DistributedLock lock = owner.lock;
+		lock.lock();
+		try {
+			Blackhole.consumeCPU( 1000 );
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures lock and unlock throughput of thread based locks of a {@link DistributedLockRepositoryImpl}
+ * backed by a {@link SqlBasedDistributedLockManager} and an in-memory HSQLDB database.  Every lock and unlock
+ * executes at least one statement, so this mostly measures the statements and the bookkeeping of the manager.
+ * <p/>
+ * With a single key all threads contend for the same lock and waiting threads are woken up by the
+ * notifier of the manager, with many keys the threads rarely wait for each other.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class DistributedLockRepositoryBenchmark
+{
+	@Param({ "1", "1000" })
+	public int keys;
+
+	private BasicDataSource dataSource;
+	private SqlBasedDistributedLockManager lockManager;
+	private DistributedLockRepository lockRepository;
+	private String[] lockKeys;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		dataSource = BenchmarkDatabase.createDataSource();
+		lockManager = new SqlBasedDistributedLockManager( dataSource, BenchmarkDatabase.createConfiguration() );
+		lockRepository = new DistributedLockRepositoryImpl( lockManager, "benchmark" );
+
+		lockKeys = new String[keys];
+		for ( int i = 0; i < keys; i++ ) {
+			lockKeys[i] = "key-" + i;
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws SQLException {
+		lockManager.close();
+		dataSource.close();
+	}
+
+	@Benchmark
+	public void lockAndUnlock() {
+		DistributedLock lock = lockRepository.getLock( lockKeys[ThreadLocalRandom.current().nextInt( keys )] );
+		lock.lock();
+		lock.unlock();
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures acquire and release throughput while a growing number of other locks is being held, as well as
+ * the cost of a single run of the lock monitor.
+ * <p/>
+ * The {@code registry} benchmark only exercises the {@link SqlBasedDistributedLockMonitor} bookkeeping that is
+ * done on every acquire and release, the {@code acquireAndRelease} benchmark goes through the
+ * {@link SqlBasedDistributedLockManager} and an in-memory HSQLDB database.  Neither should degrade
+ * when the number of held locks increases.  The {@code monitorRun} benchmark verifies all held locks
+ * against the database, its cost is expected to grow linearly with the number of held locks.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class SqlBasedDistributedLockMonitorBenchmark
+{
+	@Param({ "10", "1000", "10000" })
+	public int heldLocks;
+
+	private BasicDataSource dataSource;
+	private SqlBasedDistributedLockManager lockManager;
+	private DistributedLockRepository lockRepository;
+	private SqlBasedDistributedLockMonitor monitor;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		dataSource = BenchmarkDatabase.createDataSource();
+		lockManager = new SqlBasedDistributedLockManager( dataSource, BenchmarkDatabase.createConfiguration() );
+		lockRepository = new DistributedLockRepositoryImpl( lockManager, "benchmark" );
+
+		SqlBasedDistributedLockConfiguration configuration = BenchmarkDatabase.createConfiguration();
+		monitor = new SqlBasedDistributedLockMonitor( lockManager,
+		                                              configuration.getVerifyInterval() * 2,
+		                                              configuration.getMaxIdleBeforeSteal() );
+
+		for ( int i = 0; i < heldLocks; i++ ) {
+			DistributedLock lock = lockRepository.createSharedLock( "holder", "held-" + i );
+			lockManager.acquire( lock );
+			monitor.addLock( lock.getOwnerId(), lock );
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws SQLException {
+		lockManager.close();
+		dataSource.close();
+	}
+
+	@State(Scope.Thread)
+	public static class ThreadLock
+	{
+		private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+		DistributedLock lock;
+
+		@Setup(Level.Trial)
+		public void setUp( SqlBasedDistributedLockMonitorBenchmark benchmark ) {
+			int thread = THREAD_COUNTER.incrementAndGet();
+			lock = benchmark.lockRepository.createSharedLock( "owner-" + thread, "benchmark-" + thread );
+		}
+	}
+
+	@Benchmark
+	public void registry( ThreadLock threadLock, Blackhole blackhole ) {
+		DistributedLock lock = threadLock.lock;
+		monitor.addLock( lock.getOwnerId(), lock );
+		blackhole.consume( monitor.getOwnerForLock( lock.getKey() ) );
+		blackhole.consume( monitor.removeLock( lock.getOwnerId(), lock.getKey() ) );
+	}
+
+	@Benchmark
+	@Threads(1)
+	@BenchmarkMode(Mode.AverageTime)
+	public void monitorRun() {
+		monitor.run();
+	}
+
+	@Benchmark
+	public void acquireAndRelease( ThreadLock threadLock, Blackhole blackhole ) {
+		DistributedLock lock = threadLock.lock;
+		lockManager.acquire( lock );
+		blackhole.consume( lockManager.isLockedByOwner( lock.getOwnerId(), lock.getKey() ) );
+		lockManager.release( lock );
+	}
+}
@@ -0,0 +1,409 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Asynchronous {@link ExecutorService} with a fixed maximum number of threads and a bounded queue, meant as
+ * the asynchronous alternative to the {@link SynchronousTaskExecutor} for background work such as sending mails.
+ * <p/>
+ * Tasks are queued until a thread is available.  When the queue is full, the {@link OverflowPolicy} determines
+ * what happens with a new task: by default it is executed on the submitting thread, which slows down the
+ * submitters instead of building an unbounded backlog.  A dropped task that was submitted as a {@link Future}
+ * is cancelled, so callers waiting for it do not wait forever.
+ * <p/>
+ * Exceptions thrown by tasks passed to {@link #execute(Runnable)} are logged, exceptions of submitted tasks are
+ * available through their {@link Future}.  Idle threads are stopped after a minute.  Use {@link #close()} to
+ * shut down the executor gracefully: queued tasks are still executed, but running tasks are interrupted if they
+ * do not finish within the shutdown timeout.
+ * <p/>
+ * Threads are daemon platform threads by default, use {@link #virtualThreadFactory(String)} to execute the tasks
+ * on virtual threads when running on Java 21 or higher.  The number of threads still limits the number of tasks
+ * executing concurrently.
+ * <p/>
+ * Example spring configuration:
+ * <pre>
+ * {@code
+ *  <bean class="com.foreach.common.concurrent.BoundedTaskExecutor" destroy-method="close">
+ *      <constructor-arg index="0" value="mail"/>
+ *      <constructor-arg index="1" value="2"/>
+ *      <constructor-arg index="2" value="500"/>
+ *  </bean>
+ * }
+ * </pre>
+ */
+public class BoundedTaskExecutor extends ThreadPoolExecutor implements AutoCloseable
+{
+	private static final Logger LOG = LoggerFactory.getLogger( BoundedTaskExecutor.class );
+
+	public static final long DEFAULT_SHUTDOWN_TIMEOUT = 30000;
+
+	/**
+	 * Determines what happens with a new task if the queue is full.  A task submitted after the executor has
+	 * been shut down is always rejected with a {@link RejectedExecutionException}.
+	 */
+	public enum OverflowPolicy
+	{
+		/**
+		 * Execute the task on the submitting thread.
+		 */
+		CALLER_RUNS,
+
+		/**
+		 * Silently drop the new task.
+		 */
+		DROP,
+
+		/**
+		 * Drop the oldest queued task and queue the new one.
+		 */
+		DROP_OLDEST,
+
+		/**
+		 * Throw a {@link RejectedExecutionException}.
+		 */
+		ABORT
+	}
+
+	/**
+	 * Receives the measurements of a {@link BoundedTaskExecutor}.  Called on the thread executing or rejecting
+	 * the task, implementations should be fast and should not throw exceptions.
+	 */
+	public interface MetricsListener
+	{
+		/**
+		 * A task has been executed.
+		 *
+		 * @param waitNanos time spent in the queue, 0 if executed directly
+		 * @param runNanos  time spent executing the task
+		 * @param failed    {@code true} if the task threw an exception
+		 */
+		default void taskExecuted( long waitNanos, long runNanos, boolean failed ) {
+		}
+
+		/**
+		 * A task could not be queued because the queue was full.
+		 *
+		 * @param policy applied to the task
+		 */
+		default void queueFull( OverflowPolicy policy ) {
+		}
+	}
+
+	private final String name;
+	private final OverflowPolicy overflowPolicy;
+
+	private final LongAdder callerRunsCount = new LongAdder();
+	private final LongAdder droppedTaskCount = new LongAdder();
+
+	private volatile long shutdownTimeout = DEFAULT_SHUTDOWN_TIMEOUT;
+	private volatile MetricsListener metricsListener = new MetricsListener()
+	{
+	};
+
+	/**
+	 * Create an executor that executes tasks on the submitting thread if the queue is full.
+	 *
+	 * @param name          used for thread names and logging
+	 * @param threads       maximum number of tasks executing concurrently
+	 * @param queueCapacity maximum number of tasks waiting for a thread
+	 */
+	public BoundedTaskExecutor( String name, int threads, int queueCapacity ) {
+		this( name, threads, queueCapacity, OverflowPolicy.CALLER_RUNS );
+	}
+
+	/**
+	 * @param name           used for thread names and logging
+	 * @param threads        maximum number of tasks executing concurrently
+	 * @param queueCapacity  maximum number of tasks waiting for a thread
+	 * @param overflowPolicy applied to new tasks if the queue is full
+	 */
+	public BoundedTaskExecutor( String name, int threads, int queueCapacity, OverflowPolicy overflowPolicy ) {
+		this( name, threads, queueCapacity, overflowPolicy, platformThreadFactory( name ) );
+	}
+
+	/**
+	 * @param name           used for logging
+	 * @param threads        maximum number of tasks executing concurrently
+	 * @param queueCapacity  maximum number of tasks waiting for a thread
+	 * @param overflowPolicy applied to new tasks if the queue is full
+	 * @param threadFactory  creating the threads executing the tasks
+	 */
+	public BoundedTaskExecutor( String name,
+	                            int threads,
+	                            int queueCapacity,
+	                            OverflowPolicy overflowPolicy,
+	                            ThreadFactory threadFactory ) {
+		super( threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>( queueCapacity ), threadFactory );
+
+		if ( overflowPolicy == null ) {
+			throw new IllegalArgumentException( "overflowPolicy must not be null" );
+		}
+
+		this.name = name;
+		this.overflowPolicy = overflowPolicy;
+
+		allowCoreThreadTimeOut( true );
+		setRejectedExecutionHandler( ( task, executor ) -> queueFull( task ) );
+	}
+
+	/**
+	 * Creates daemon platform threads named after the executor.
+	 *
+	 * @param name prefix of the thread names
+	 * @return thread factory
+	 */
+	public static ThreadFactory platformThreadFactory( String name ) {
+		AtomicInteger threadCounter = new AtomicInteger();
+
+		return task -> {
+			Thread thread = new Thread( task, name + "-" + threadCounter.incrementAndGet() );
+			thread.setDaemon( true );
+			return thread;
+		};
+	}
+
+	/**
+	 * Creates virtual threads named after the executor.
+	 *
+	 * @param name prefix of the thread names
+	 * @return thread factory
+	 * @throws UnsupportedOperationException if virtual threads are not supported by the running JVM
+	 */
+	public static ThreadFactory virtualThreadFactory( String name ) {
+		try {
+			Class<?> builderClass = Class.forName( "java.lang.Thread$Builder" );
+			Object builder = Thread.class.getMethod( "ofVirtual" ).invoke( null );
+			builder = builderClass.getMethod( "name", String.class, long.class ).invoke( builder, name + "-", 1L );
+
+			return (ThreadFactory) builderClass.getMethod( "factory" ).invoke( builder );
+		}
+		catch ( ReflectiveOperationException | LinkageError e ) {
+			throw new UnsupportedOperationException( "Virtual threads are not supported by this JVM", e );
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public OverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	/**
+	 * @return number of milliseconds {@link #close()} waits for the tasks to finish
+	 */
+	public long getShutdownTimeout() {
+		return shutdownTimeout;
+	}
+
+	/**
+	 * Set the number of milliseconds {@link #close()} waits for the queued and running tasks to finish before
+	 * interrupting the running tasks.  Defaults to {@link #DEFAULT_SHUTDOWN_TIMEOUT}.
+	 *
+	 * @param shutdownTimeout number of milliseconds
+	 */
+	public void setShutdownTimeout( long shutdownTimeout ) {
+		if ( shutdownTimeout < 0 ) {
+			throw new IllegalArgumentException( "shutdownTimeout cannot be negative" );
+		}
+		this.shutdownTimeout = shutdownTimeout;
+	}
+
+	public MetricsListener getMetricsListener() {
+		return metricsListener;
+	}
+
+	/**
+	 * Set the listener that should receive the wait and run time of every task and the overflows of the queue.
+	 *
+	 * @param metricsListener instance
+	 */
+	public void setMetricsListener( MetricsListener metricsListener ) {
+		if ( metricsListener == null ) {
+			throw new IllegalArgumentException( "metricsListener must not be null" );
+		}
+		this.metricsListener = metricsListener;
+	}
+
+	/**
+	 * @return number of tasks waiting for a thread
+	 */
+	public int getQueueDepth() {
+		return getQueue().size();
+	}
+
+	/**
+	 * @return number of tasks executed on the submitting thread because the queue was full
+	 */
+	public long getCallerRunsCount() {
+		return callerRunsCount.sum();
+	}
+
+	/**
+	 * @return number of tasks dropped because the queue was full
+	 */
+	public long getDroppedTaskCount() {
+		return droppedTaskCount.sum();
+	}
+
+	@Override
+	public void execute( Runnable command ) {
+		if ( command == null ) {
+			throw new NullPointerException();
+		}
+		super.execute( new TimedTask( command ) );
+	}
+
+	/**
+	 * Shuts down the executor, executing the queued tasks.  Waits for the tasks to finish during the shutdown
+	 * timeout, after which the running tasks are interrupted and the remaining queued tasks are dropped.
+	 * Dropped tasks that were submitted as a {@link Future} are cancelled.
+	 */
+	@Override
+	public void close() {
+		shutdown();
+
+		try {
+			if ( !awaitTermination( shutdownTimeout, TimeUnit.MILLISECONDS ) ) {
+				List<Runnable> dropped = dropQueuedTasks();
+				LOG.warn( "Executor {} did not finish within {} ms - interrupted running tasks and dropped {} queued tasks",
+				          name, shutdownTimeout, dropped.size() );
+			}
+		}
+		catch ( InterruptedException ie ) {
+			dropQueuedTasks();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private List<Runnable> dropQueuedTasks() {
+		List<Runnable> dropped = shutdownNow();
+		for ( Runnable task : dropped ) {
+			if ( task instanceof Future ) {
+				( (Future<?>) task ).cancel( false );
+			}
+		}
+		return dropped;
+	}
+
+	/**
+	 * @return the tasks that were never executed, as passed to the executor
+	 */
+	@Override
+	public List<Runnable> shutdownNow() {
+		List<Runnable> queued = super.shutdownNow();
+		List<Runnable> tasks = new ArrayList<>( queued.size() );
+
+		for ( Runnable task : queued ) {
+			tasks.add( task instanceof TimedTask ? ( (TimedTask) task ).task : task );
+		}
+
+		return tasks;
+	}
+
+	private void queueFull( Runnable task ) {
+		if ( isShutdown() ) {
+			throw new RejectedExecutionException( "Executor " + name + " has been shut down" );
+		}
+
+		metricsListener.queueFull( overflowPolicy );
+
+		switch ( overflowPolicy ) {
+			case CALLER_RUNS:
+				callerRunsCount.increment();
+				task.run();
+				break;
+			case DROP:
+				drop( task );
+				break;
+			case DROP_OLDEST:
+				Runnable oldest = getQueue().poll();
+				if ( oldest != null ) {
+					drop( oldest );
+				}
+				super.execute( task );
+				break;
+			default:
+				throw new RejectedExecutionException( "Queue of executor " + name + " is full" );
+		}
+	}
+
+	private void drop( Runnable task ) {
+		droppedTaskCount.increment();
+		LOG.debug( "Queue of executor {} is full - dropping task", name );
+
+		Runnable dropped = task instanceof TimedTask ? ( (TimedTask) task ).task : task;
+		if ( dropped instanceof Future ) {
+			( (Future<?>) dropped ).cancel( false );
+		}
+	}
+
+	/**
+	 * Measures the time a task spent waiting and running, logs the exception if the task fails.
+	 */
+	private final class TimedTask implements Runnable
+	{
+		private final Runnable task;
+		private final long submitted = System.nanoTime();
+
+		TimedTask( Runnable task ) {
+			this.task = task;
+		}
+
+		@Override
+		public void run() {
+			long started = System.nanoTime();
+			boolean failed = false;
+
+			try {
+				task.run();
+				failed = task instanceof Future && hasFailed( (Future<?>) task );
+			}
+			catch ( RuntimeException e ) {
+				failed = true;
+				LOG.error( "Exception executing task on executor {}", name, e );
+			}
+			finally {
+				metricsListener.taskExecuted( started - submitted, System.nanoTime() - started, failed );
+			}
+		}
+
+		private boolean hasFailed( Future<?> future ) {
+			if ( future.isDone() && !future.isCancelled() ) {
+				try {
+					future.get();
+				}
+				catch ( ExecutionException ee ) {
+					return true;
+				}
+				catch ( InterruptedException ie ) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			return false;
+		}
+	}
+}
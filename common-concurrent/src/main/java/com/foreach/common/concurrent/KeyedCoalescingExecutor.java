@@ -0,0 +1,278 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Executes background tasks per key, merging tasks for the same key that have not yet been started.  Useful for
+ * work where only the last request matters, for example reloading a cache after a modification: a burst of
+ * modifications results in a single reload instead of one per modification.
+ * <p/>
+ * If a task for a key is waiting to be started, a new task for the same key replaces it and the submitters of
+ * both tasks share the same {@link CompletableFuture}.  Tasks for the same key never run concurrently: a task
+ * submitted while another task for the key is running, is started once the running task has finished.
+ * <p/>
+ * An optional debounce window delays the start of a task, so more tasks can be merged into it.  The window
+ * starts with the first task that is merged, so a steady stream of submissions still results in one task
+ * per window.  The tasks are executed by the {@link Executor} passed to the constructor, the debounce timer
+ * only hands the tasks over to that executor.
+ * <p/>
+ * The executor receives every task as a {@link Future}.  If it rejects the task, or cancels it without running it
+ * (like a {@link BoundedTaskExecutor} does for dropped tasks, or a caller does with the tasks returned by
+ * {@link ExecutorService#shutdownNow()}), the future of the task completes exceptionally and the next task for
+ * the key is started as if the key was idle.
+ *
+ * @param <K> type of the keys, should implement {@link Object#equals(Object)} and {@link Object#hashCode()}
+ */
+public class KeyedCoalescingExecutor<K>
+{
+	private static final Logger LOG = LoggerFactory.getLogger( KeyedCoalescingExecutor.class );
+
+	private static final ScheduledExecutorService DEBOUNCE_TIMER = createDebounceTimer();
+
+	private final ConcurrentMap<K, KeyState> keys = new ConcurrentHashMap<>();
+	private final LongAdder coalescedTaskCount = new LongAdder();
+
+	private final Executor executor;
+	private final long debounceNanos;
+
+	/**
+	 * Create an executor that starts a task as soon as the previous task for the key has finished.
+	 *
+	 * @param executor executing the tasks
+	 */
+	public KeyedCoalescingExecutor( Executor executor ) {
+		this( executor, 0, TimeUnit.MILLISECONDS );
+	}
+
+	/**
+	 * @param executor       executing the tasks
+	 * @param debounceWindow minimum time between the first submission and the start of a task
+	 * @param unit           the time unit of the {@code debounceWindow} argument
+	 */
+	public KeyedCoalescingExecutor( Executor executor, long debounceWindow, TimeUnit unit ) {
+		if ( executor == null ) {
+			throw new IllegalArgumentException( "executor must not be null" );
+		}
+		if ( debounceWindow < 0 ) {
+			throw new IllegalArgumentException( "debounceWindow cannot be negative" );
+		}
+
+		this.executor = executor;
+		this.debounceNanos = unit.toNanos( debounceWindow );
+	}
+
+	/**
+	 * Submit a task for the key.  If a task for the key is waiting to be started, it is replaced by this task.
+	 *
+	 * @param key  of the task
+	 * @param task to execute
+	 * @return future completed once the task (or the task that replaced it) has been executed
+	 */
+	public CompletableFuture<Void> submit( K key, Runnable task ) {
+		if ( key == null || task == null ) {
+			throw new NullPointerException();
+		}
+
+		PendingTask[] merged = new PendingTask[1];
+		PendingTask[] scheduled = new PendingTask[1];
+
+		keys.compute( key, ( k, state ) -> {
+			if ( state == null ) {
+				state = new KeyState();
+			}
+
+			if ( state.pending != null ) {
+				state.pending.task = task;
+				coalescedTaskCount.increment();
+			}
+			else {
+				state.pending = new PendingTask( task );
+
+				if ( !state.running ) {
+					scheduled[0] = state.pending;
+				}
+			}
+
+			merged[0] = state.pending;
+			return state;
+		} );
+
+		if ( scheduled[0] != null ) {
+			schedule( key, scheduled[0] );
+		}
+
+		return merged[0].future;
+	}
+
+	/**
+	 * @return number of tasks that replaced a task waiting to be started
+	 */
+	public long getCoalescedTaskCount() {
+		return coalescedTaskCount.sum();
+	}
+
+	/**
+	 * @return number of keys with a task waiting or running
+	 */
+	public int getActiveKeyCount() {
+		return keys.size();
+	}
+
+	private void schedule( K key, PendingTask pendingTask ) {
+		long delay = pendingTask.submitted + debounceNanos - System.nanoTime();
+
+		if ( delay > 0 ) {
+			DEBOUNCE_TIMER.schedule( () -> start( key, pendingTask ), delay, TimeUnit.NANOSECONDS );
+		}
+		else {
+			start( key, pendingTask );
+		}
+	}
+
+	private void start( K key, PendingTask pendingTask ) {
+		try {
+			executor.execute( new StartTask( key, pendingTask ) );
+		}
+		catch ( RuntimeException e ) {
+			discard( key, pendingTask, e );
+		}
+	}
+
+	/**
+	 * Removes a task that will not be started, if it is still waiting.
+	 */
+	private void discard( K key, PendingTask pendingTask, Throwable cause ) {
+		boolean[] discarded = new boolean[1];
+
+		keys.computeIfPresent( key, ( k, state ) -> {
+			if ( state.pending == pendingTask ) {
+				discarded[0] = true;
+				state.pending = null;
+			}
+			return state.pending != null || state.running ? state : null;
+		} );
+
+		if ( discarded[0] ) {
+			LOG.debug( "Task for key {} was not started by the executor", key );
+			pendingTask.future.completeExceptionally( cause );
+		}
+	}
+
+	private void run( K key, PendingTask pendingTask ) {
+		PendingTask[] started = new PendingTask[1];
+
+		keys.computeIfPresent( key, ( k, state ) -> {
+			if ( state.pending == pendingTask ) {
+				started[0] = pendingTask;
+				state.pending = null;
+				state.running = true;
+			}
+			return state;
+		} );
+
+		PendingTask task = started[0];
+
+		if ( task == null ) {
+			// discarded in the meantime
+			return;
+		}
+
+		try {
+			task.task.run();
+			task.future.complete( null );
+		}
+		catch ( RuntimeException e ) {
+			LOG.error( "Exception executing task for key {}", key, e );
+			task.future.completeExceptionally( e );
+		}
+		finally {
+			PendingTask[] next = new PendingTask[1];
+
+			keys.computeIfPresent( key, ( k, state ) -> {
+				state.running = false;
+				next[0] = state.pending;
+				return next[0] != null ? state : null;
+			} );
+
+			if ( next[0] != null ) {
+				schedule( key, next[0] );
+			}
+		}
+	}
+
+	private static ScheduledExecutorService createDebounceTimer() {
+		ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor( 1, task -> {
+			Thread thread = new Thread( task, "keyed-coalescing-executor-timer" );
+			thread.setDaemon( true );
+			return thread;
+		} );
+		timer.setRemoveOnCancelPolicy( true );
+		return timer;
+	}
+
+	/**
+	 * Hands a pending task over to the executor, discards the pending task if the executor cancels it.
+	 */
+	private final class StartTask extends FutureTask<Void>
+	{
+		private final K key;
+		private final PendingTask pendingTask;
+
+		StartTask( K key, PendingTask pendingTask ) {
+			super( () -> KeyedCoalescingExecutor.this.run( key, pendingTask ), null );
+			this.key = key;
+			this.pendingTask = pendingTask;
+		}
+
+		@Override
+		protected void done() {
+			if ( isCancelled() ) {
+				discard( key, pendingTask, new CancellationException( "Task for key " + key + " was cancelled" ) );
+			}
+		}
+	}
+
+	/**
+	 * Task waiting to be started, merges the tasks submitted in the meantime.
+	 */
+	private static final class PendingTask
+	{
+		private final CompletableFuture<Void> future = new CompletableFuture<>();
+		private final long submitted = System.nanoTime();
+
+		// only modified while holding the map entry
+		private Runnable task;
+
+		PendingTask( Runnable task ) {
+			this.task = task;
+		}
+	}
+
+	/**
+	 * State of a single key, only accessed while holding the map entry.
+	 */
+	private static final class KeyState
+	{
+		private PendingTask pending;
+		private boolean running;
+	}
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent requests for the same key into a single computation.  The first caller for a key starts
+ * the computation, all callers arriving while it is in flight share its result instead of computing the value
+ * again.  Once the computation has finished, the next caller for the key starts a new one: values are never
+ * cached, combine with a cache lookup (and a re-check inside the loader) to avoid loading a value twice.
+ * <p/>
+ * Example replacing the lock - re-check - load pattern for an expensive load:
+ * <pre>
+ * Item item = cache.get( id );
+ * if ( item == null ) {
+ *     item = loads.get( id, () -&gt; {
+ *         Item loaded = cache.get( id );
+ *         if ( loaded == null ) {
+ *             loaded = repository.load( id );
+ *             cache.put( id, loaded );
+ *         }
+ *         return loaded;
+ *     } );
+ * }
+ * </pre>
+ * <p/>
+ * If the computation fails, all callers sharing it receive the same exception.  There is no global lock:
+ * callers for different keys never wait for each other.  A loader requesting its own key again results in an
+ * {@link IllegalStateException}, as it would otherwise wait for itself.
+ *
+ * @param <K> type of the keys, should implement {@link Object#equals(Object)} and {@link Object#hashCode()}
+ * @param <V> type of the values
+ * @see com.foreach.common.concurrent.locks.distributed.DistributedSingleFlight
+ */
+public class SingleFlight<K, V>
+{
+	private final ConcurrentMap<K, Flight<V>> flights = new ConcurrentHashMap<>();
+	private final LongAdder sharedCallCount = new LongAdder();
+
+	/**
+	 * Get the value for the key, computing it in the calling thread if no computation is in flight.
+	 * Exceptions thrown by the loader are rethrown to all callers sharing the computation.
+	 *
+	 * @param key    of the value
+	 * @param loader computing the value
+	 * @return value
+	 */
+	public V get( K key, Supplier<? extends V> loader ) {
+		Flight<V> flight = join( key );
+
+		if ( flight.start() ) {
+			return fly( key, flight, loader );
+		}
+
+		try {
+			return flight.future.join();
+		}
+		catch ( CompletionException ce ) {
+			throw unwrap( ce );
+		}
+	}
+
+	/**
+	 * Get the value for the key, waiting at most the given time for a computation started by another caller.
+	 * If there is no computation in flight, the value is computed in the calling thread and the timeout does
+	 * not apply.
+	 *
+	 * @param key     of the value
+	 * @param loader  computing the value
+	 * @param timeout the maximum time to wait for a computation in flight
+	 * @param unit    the time unit of the {@code timeout} argument
+	 * @return value
+	 * @throws InterruptedException if the current thread was interrupted while waiting
+	 * @throws TimeoutException     if the computation in flight did not finish in time
+	 */
+	public V get( K key, Supplier<? extends V> loader, long timeout, TimeUnit unit )
+			throws InterruptedException, TimeoutException {
+		Flight<V> flight = join( key );
+
+		if ( flight.start() ) {
+			return fly( key, flight, loader );
+		}
+
+		try {
+			return flight.future.get( timeout, unit );
+		}
+		catch ( ExecutionException ee ) {
+			throw unwrap( ee );
+		}
+	}
+
+	/**
+	 * Get the value for the key asynchronously.  If no computation is in flight, the loader is executed
+	 * using the executor.  Every caller receives its own future, so cancelling or timing out on it does
+	 * not affect the other callers.
+	 *
+	 * @param key      of the value
+	 * @param loader   computing the value
+	 * @param executor to execute the loader
+	 * @return future holding the value
+	 */
+	public CompletableFuture<V> getAsync( K key, Supplier<? extends V> loader, Executor executor ) {
+		Flight<V> flight = join( key );
+
+		if ( flight.start() ) {
+			try {
+				executor.execute( () -> {
+					try {
+						fly( key, flight, loader );
+					}
+					catch ( RuntimeException | Error ignore ) {
+						// already passed on to the future
+					}
+				} );
+			}
+			catch ( RuntimeException e ) {
+				flights.remove( key, flight );
+				flight.future.completeExceptionally( e );
+			}
+		}
+
+		return flight.future.thenApply( Function.identity() );
+	}
+
+	/**
+	 * @return number of calls that shared the result of a computation started by another caller
+	 */
+	public long getSharedCallCount() {
+		return sharedCallCount.sum();
+	}
+
+	/**
+	 * @return number of keys with a computation in flight
+	 */
+	public int getInFlightCount() {
+		return flights.size();
+	}
+
+	private Flight<V> join( K key ) {
+		if ( key == null ) {
+			throw new NullPointerException();
+		}
+
+		Flight<V> flight = flights.computeIfAbsent( key, k -> new Flight<>() );
+
+		if ( flight.creator != Thread.currentThread() || flight.started ) {
+			if ( flight.computing == Thread.currentThread() ) {
+				throw new IllegalStateException( "Loader requested its own key " + key );
+			}
+			sharedCallCount.increment();
+		}
+
+		return flight;
+	}
+
+	private V fly( K key, Flight<V> flight, Supplier<? extends V> loader ) {
+		flight.computing = Thread.currentThread();
+
+		try {
+			V value = loader.get();
+			flights.remove( key, flight );
+			flight.future.complete( value );
+			return value;
+		}
+		catch ( RuntimeException | Error e ) {
+			flights.remove( key, flight );
+			flight.future.completeExceptionally( e );
+			throw e;
+		}
+		finally {
+			flight.computing = null;
+		}
+	}
+
+	private static RuntimeException unwrap( Exception e ) {
+		Throwable cause = e.getCause();
+
+		if ( cause instanceof RuntimeException ) {
+			return (RuntimeException) cause;
+		}
+		if ( cause instanceof Error ) {
+			throw (Error) cause;
+		}
+
+		return new CompletionException( cause );
+	}
+
+	/**
+	 * A single computation shared by all callers.
+	 */
+	private static final class Flight<V>
+	{
+		private final CompletableFuture<V> future = new CompletableFuture<>();
+		private final Thread creator = Thread.currentThread();
+
+		// only accessed by the creator
+		private boolean started;
+
+		// thread executing the loader, used to detect a loader requesting its own key
+		private volatile Thread computing;
+
+		/**
+		 * @return true if the current thread created the flight and should start the computation
+		 */
+		boolean start() {
+			if ( creator == Thread.currentThread() && !started ) {
+				started = true;
+				return true;
+			}
+			return false;
+		}
+	}
+}
@@ -29,7 +29,8 @@ import java.util.concurrent.*;
  * On methods with timeout, the timeout values are ignored.
  * <p/>
  * Note that executing tasks synchronously may cause scaling issues if there is no upper bound
- * on the number of concurrent threads the executor instance is called from.
+ * on the number of concurrent threads the executor instance is called from.  Use a {@link BoundedTaskExecutor}
+ * to execute the tasks asynchronously.
  */
 public class SynchronousTaskExecutor implements ExecutorService
 {
@@ -115,7 +116,7 @@ public class SynchronousTaskExecutor implements ExecutorService
 			return new PreComputedFuture<T>( task.call(), null );
 		}
 		catch ( Exception e ) {
-			e.printStackTrace();
+			logger.warn( "Exception executing task", e );
 			return new PreComputedFuture<T>( null, e );
 		}
 	}
@@ -126,12 +127,14 @@ public class SynchronousTaskExecutor implements ExecutorService
 	 * otherwise a RejectedExecutionException is thrown.
 	 */
 	public final <T> Future<T> submit( Runnable task, T result ) {
+		checkNotStopped();
+
 		try {
 			task.run();
 			return new PreComputedFuture<T>( result, null );
 		}
 		catch ( Exception e ) {
-			e.printStackTrace();
+			logger.warn( "Exception executing task", e );
 			return new PreComputedFuture<T>( null, e );
 		}
 	}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks;
+
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * A pair of locks for a key of type T: the read lock can be held by several threads at the same time
+ * as long as no thread holds the write lock, the write lock is exclusive.
+ *
+ * @param <T> type of the key associated with this lock
+ * @see ObjectReadWriteLockRepository#getReadWriteLock(Object)
+ */
+public interface ObjectReadWriteLock<T> extends ReadWriteLock
+{
+	/**
+	 * @return The object that this lock is for.
+	 */
+	T getKey();
+
+	/**
+	 * @return the lock used for reading
+	 */
+	@Override
+	ObjectLock<T> readLock();
+
+	/**
+	 * @return the lock used for writing
+	 */
+	@Override
+	ObjectLock<T> writeLock();
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks;
+
+/**
+ * {@link ObjectLockRepository} that also provides read/write locks for the keys.
+ *
+ * @param <T> type of the key
+ */
+public interface ObjectReadWriteLockRepository<T> extends ObjectLockRepository<T>
+{
+	/**
+	 * Fetches the read/write lock with the specific key.  Will create an ObjectReadWriteLock if necessary.
+	 * The read/write lock is separate from the lock returned by {@link #getLock(Object)} for the same key.
+	 *
+	 * @param key Key for the ObjectReadWriteLock instance
+	 * @return ObjectReadWriteLock instance
+	 */
+	ObjectReadWriteLock<T> getReadWriteLock( T key );
+}
@@ -26,12 +26,17 @@ import java.util.concurrent.locks.ReentrantLock;
  */
 public class ReentrantObjectLock<T> implements ObjectLock<T>
 {
-	private final ReentrantLock lock = new ReentrantLock();
+	private final ReentrantLock lock;
 
 	private final T key;
 
 	ReentrantObjectLock( T key ) {
+		this( key, new ReentrantLock() );
+	}
+
+	ReentrantObjectLock( T key, ReentrantLock lock ) {
 		this.key = key;
+		this.lock = lock;
 	}
 
 	public T getKey() {
@@ -15,24 +15,24 @@
  */
 package com.foreach.common.concurrent.locks;
 
-import java.lang.ref.WeakReference;
-import java.util.Map;
-import java.util.WeakHashMap;
-
 /**
  * <p>
  * Provides a repository that maintains a lock for a key of type T.  The same lock will be returned as long as the key is equal.
  * The instance returned is of type ObjectLock<T> and will support reentrant locking.  This repository uses WeakReferences
- * to ensure that it does not keep existing lock keys indefinitely.
- * to manage itself.
+ * to ensure that it does not keep existing lock keys indefinitely: once a lock is no longer referenced, it can be
+ * garbage collected and its key will be removed from the repository.
  * </p>
- * <p>Access to the ReentrantObjectLockRepository is synchronized.</p>
+ * <p>Access to the ReentrantObjectLockRepository is thread-safe, fetching an existing lock does not block.
+ * If the number of distinct keys is very large and a bounded amount of memory is preferred over a separate
+ * lock per key, consider using a {@link StripedObjectLockRepository}.</p>
  *
  * @param <T> type of the key
+ * @see StripedObjectLockRepository
  */
-public class ReentrantObjectLockRepository<T> implements ObjectLockRepository<T>
+public class ReentrantObjectLockRepository<T> implements ObjectReadWriteLockRepository<T>
 {
-	private final Map<T, WeakReference<ObjectLock<T>>> locks = new WeakHashMap<>();
+	private final WeakLockMap<T, ObjectLock<T>> locks = new WeakLockMap<>();
+	private final WeakLockMap<T, ObjectReadWriteLock<T>> readWriteLocks = new WeakLockMap<>();
 
 	/**
 	 * Fetches the lock with the specific key.  Will create an ObjectLock if necessary.
@@ -41,17 +41,20 @@ public class ReentrantObjectLockRepository<T> implements ObjectLockRepository<T>
 	 * @return ObjectLock instance that can be locked
 	 */
 	@Override
-	public synchronized ObjectLock<T> getLock( T key ) {
-		WeakReference<ObjectLock<T>> lockReference = locks.get( key );
-
-		ObjectLock<T> lock = lockReference != null ? lockReference.get() : null;
-
-		if ( lock == null ) {
-			lock = new ReentrantObjectLock<T>( key );
-			locks.put( key, new WeakReference<>( lock ) );
-		}
+	public ObjectLock<T> getLock( T key ) {
+		return locks.get( key, ReentrantObjectLock::new );
+	}
 
-		return lock;
+	/**
+	 * Fetches the read/write lock with the specific key.  Will create a
+	 * {@link ReentrantObjectReadWriteLock} if necessary.
+	 *
+	 * @param key Key for the ObjectReadWriteLock instance
+	 * @return ObjectReadWriteLock instance
+	 */
+	@Override
+	public ObjectReadWriteLock<T> getReadWriteLock( T key ) {
+		return readWriteLocks.get( key, ReentrantObjectReadWriteLock::new );
 	}
 
 	/**
@@ -68,4 +71,11 @@ public class ReentrantObjectLockRepository<T> implements ObjectLockRepository<T>
 		lock.lock();
 		return lock;
 	}
+
+	/**
+	 * @return number of locks that are still referenced
+	 */
+	int size() {
+		return locks.size();
+	}
 }
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Provides a read/write lock object that is managed by a central repository and identified by a key of type T.
+ * Both locks are reentrant, the write lock can be downgraded to a read lock but a read lock cannot be upgraded.
+ *
+ * @param <T> type of the key associated with this lock
+ * @see ReentrantReadWriteLock
+ */
+public class ReentrantObjectReadWriteLock<T> implements ObjectReadWriteLock<T>
+{
+	private final ReentrantReadWriteLock lock;
+
+	private final T key;
+	private final ObjectLock<T> readLock, writeLock;
+
+	ReentrantObjectReadWriteLock( T key ) {
+		this( key, new ReentrantReadWriteLock() );
+	}
+
+	ReentrantObjectReadWriteLock( T key, ReentrantReadWriteLock lock ) {
+		this.key = key;
+		this.lock = lock;
+
+		readLock = new ReadLock();
+		writeLock = new WriteLock();
+	}
+
+	public T getKey() {
+		return key;
+	}
+
+	public ObjectLock<T> readLock() {
+		return readLock;
+	}
+
+	public ObjectLock<T> writeLock() {
+		return writeLock;
+	}
+
+	private abstract class LockView implements ObjectLock<T>
+	{
+		private final Lock target;
+
+		LockView( Lock target ) {
+			this.target = target;
+		}
+
+		public T getKey() {
+			return key;
+		}
+
+		public void lock() {
+			target.lock();
+		}
+
+		public void lockInterruptibly() throws InterruptedException {
+			target.lockInterruptibly();
+		}
+
+		public boolean tryLock() {
+			return target.tryLock();
+		}
+
+		public boolean tryLock( long time, TimeUnit unit ) throws InterruptedException {
+			return target.tryLock( time, unit );
+		}
+
+		public void unlock() {
+			target.unlock();
+		}
+
+		public Condition newCondition() {
+			return target.newCondition();
+		}
+	}
+
+	private final class ReadLock extends LockView
+	{
+		ReadLock() {
+			super( lock.readLock() );
+		}
+
+		/**
+		 * @return true if any thread holds the read lock
+		 */
+		public boolean isLocked() {
+			return lock.getReadLockCount() > 0;
+		}
+
+		public boolean isHeldByCurrentThread() {
+			return lock.getReadHoldCount() > 0;
+		}
+	}
+
+	private final class WriteLock extends LockView
+	{
+		WriteLock() {
+			super( lock.writeLock() );
+		}
+
+		public boolean isLocked() {
+			return lock.isWriteLocked();
+		}
+
+		public boolean isHeldByCurrentThread() {
+			return lock.isWriteLockedByCurrentThread();
+		}
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks;
+
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * <p>
+ * Provides a repository that maps every key of type T onto one of a fixed number of reentrant locks (stripes).
+ * Memory usage is bounded by the number of stripes regardless of the number of distinct keys and fetching a lock
+ * never blocks, but different keys can share the same stripe.  Locking two keys that share a stripe is safe as the
+ * stripes are reentrant, but holding the lock for one key will block other threads trying to lock the other key.
+ * </p>
+ * <p>
+ * The instances returned for the same key are not necessarily the same, but they will always use the same stripe.
+ * Locks for keys that need to be held at the same time should be acquired in a consistent order to avoid deadlocks.
+ * </p>
+ *
+ * @param <T> type of the key
+ * @see ReentrantObjectLockRepository
+ */
+public class StripedObjectLockRepository<T> implements ObjectReadWriteLockRepository<T>
+{
+	/**
+	 * Default number of stripes.
+	 */
+	public static final int DEFAULT_STRIPES = 1024;
+
+	private final ReentrantLock[] locks;
+	private final ReentrantReadWriteLock[] readWriteLocks;
+	private final int mask;
+
+	public StripedObjectLockRepository() {
+		this( DEFAULT_STRIPES );
+	}
+
+	/**
+	 * @param stripes minimum number of stripes, will be rounded up to a power of two
+	 */
+	public StripedObjectLockRepository( int stripes ) {
+		if ( stripes < 1 || stripes > 1 << 30 ) {
+			throw new IllegalArgumentException( "stripes must be between 1 and 2^30" );
+		}
+
+		int size = stripes > 1 ? Integer.highestOneBit( stripes - 1 ) << 1 : 1;
+		mask = size - 1;
+
+		locks = new ReentrantLock[size];
+		readWriteLocks = new ReentrantReadWriteLock[size];
+
+		for ( int i = 0; i < size; i++ ) {
+			locks[i] = new ReentrantLock();
+			readWriteLocks[i] = new ReentrantReadWriteLock();
+		}
+	}
+
+	/**
+	 * @return actual number of stripes
+	 */
+	public int getStripes() {
+		return locks.length;
+	}
+
+	/**
+	 * Fetches the lock for the specific key, backed by the stripe of that key.
+	 *
+	 * @param key Key for the ObjectLock instance
+	 * @return ObjectLock instance that can be locked
+	 */
+	@Override
+	public ObjectLock<T> getLock( T key ) {
+		return new ReentrantObjectLock<>( key, locks[stripe( key )] );
+	}
+
+	/**
+	 * Fetches the read/write lock for the specific key, backed by the stripe of that key.
+	 *
+	 * @param key Key for the ObjectReadWriteLock instance
+	 * @return ObjectReadWriteLock instance
+	 */
+	@Override
+	public ObjectReadWriteLock<T> getReadWriteLock( T key ) {
+		return new ReentrantObjectReadWriteLock<>( key, readWriteLocks[stripe( key )] );
+	}
+
+	@Override
+	public CloseableObjectLock<T> lock( T key ) {
+		CloseableObjectLock<T> lock = new CloseableObjectLock<>( getLock( key ) );
+		lock.lock();
+		return lock;
+	}
+
+	private int stripe( T key ) {
+		// spread the hash code, as done by HashMap
+		int hash = Objects.requireNonNull( key, "key must not be null" ).hashCode();
+		return ( hash ^ ( hash >>> 16 ) ) & mask;
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Concurrent map holding weak references to lock instances, used by the {@link ReentrantObjectLockRepository}.
+ * Looking up an existing lock does not block.  Entries of locks that have been garbage collected are removed
+ * using a {@link ReferenceQueue} on every lookup.
+ *
+ * @param <K> type of the key
+ * @param <L> type of the lock
+ */
+final class WeakLockMap<K, L>
+{
+	private final ConcurrentMap<K, LockReference<K, L>> locks = new ConcurrentHashMap<>();
+	private final ReferenceQueue<L> collectedLocks = new ReferenceQueue<>();
+
+	/**
+	 * Get the lock for the key, create it if it does not exist or has been garbage collected.
+	 * As long as a strong reference to the returned lock exists, the same instance is returned for the same key.
+	 */
+	L get( K key, Function<K, L> lockFactory ) {
+		expungeCollectedLocks();
+
+		LockReference<K, L> current = locks.get( key );
+		L lock = current != null ? current.get() : null;
+
+		while ( lock == null ) {
+			L created = lockFactory.apply( key );
+			LockReference<K, L> reference = new LockReference<>( key, created, collectedLocks );
+
+			if ( current == null ? locks.putIfAbsent( key, reference ) == null
+					: locks.replace( key, current, reference ) ) {
+				lock = created;
+			}
+			else {
+				current = locks.get( key );
+				lock = current != null ? current.get() : null;
+			}
+		}
+
+		return lock;
+	}
+
+	/**
+	 * @return number of locks that have not been garbage collected
+	 */
+	int size() {
+		expungeCollectedLocks();
+		locks.values().removeIf( reference -> reference.get() == null );
+		return locks.size();
+	}
+
+	private void expungeCollectedLocks() {
+		Reference<? extends L> reference;
+
+		while ( ( reference = collectedLocks.poll() ) != null ) {
+			LockReference<?, ?> lockReference = (LockReference<?, ?>) reference;
+			locks.remove( lockReference.key, lockReference );
+		}
+	}
+
+	private static final class LockReference<K, L> extends WeakReference<L>
+	{
+		private final K key;
+
+		LockReference( K key, L lock, ReferenceQueue<L> queue ) {
+			super( lock, queue );
+			this.key = key;
+		}
+	}
+}
@@ -0,0 +1,458 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Base class for a {@link DistributedLockManager} backed by a store other than a database.  Takes care of
+ * everything that does not depend on the actual store: waiting for a lock using a {@link DistributedLockRetryPolicy}
+ * and a {@link DistributedLockNotifier}, keeping track of the local holds of a lock, and monitoring the locks held
+ * through this manager.
+ * <p/>
+ * Only the first hold of an owner on a lock is taken in the store, additional holds of the same owner are only
+ * kept locally.  A single manager never tries to take a lock in the store that it holds for another owner.
+ * <p/>
+ * Every verify interval all held locks are verified in the store.  A lock that is no longer held by its owner
+ * is reported stolen.  If the store cannot be reached for more than twice the verify interval, the unstable
+ * callback is executed for every held lock on every subsequent verification that fails.
+ *
+ * @see InMemoryDistributedLockManager
+ * @see FileBasedDistributedLockManager
+ */
+public abstract class AbstractDistributedLockManager implements DistributedLockManager
+{
+	private static final Logger LOG = LoggerFactory.getLogger( AbstractDistributedLockManager.class );
+
+	private final ScheduledExecutorService monitorThread = Executors.newSingleThreadScheduledExecutor();
+	private final AsyncLockAcquirer asyncLockAcquirer = new AsyncLockAcquirer( 1 );
+	private final ConcurrentMap<String, ActiveLock> activeLocks = new ConcurrentHashMap<>();
+	private final long maxTimeBeforeUnstable;
+
+	private DistributedLockRetryPolicy retryPolicy =
+			DistributedLockRetryPolicy.fixed( SqlBasedDistributedLockConfiguration.DEFAULT_RETRY_INTERVAL );
+	private DistributedLockNotifier lockNotifier = new InMemoryDistributedLockNotifier();
+	private DistributedLock.LockStolenCallback defaultLockStolenCallback;
+	private DistributedLock.LockUnstableCallback defaultLockUnstableCallback;
+
+	private volatile boolean destroyed;
+
+	/**
+	 * @param verifyInterval number of milliseconds between verifications of the held locks
+	 */
+	protected AbstractDistributedLockManager( long verifyInterval ) {
+		Assert.isTrue( verifyInterval > 0, "verifyInterval must be at least 1" );
+
+		maxTimeBeforeUnstable = verifyInterval * 2;
+		monitorThread.scheduleWithFixedDelay( this::verifyActiveLocks, verifyInterval, verifyInterval,
+		                                      TimeUnit.MILLISECONDS );
+	}
+
+	/**
+	 * Takes the lock in the store for the owner.  Only called if the lock is not held through this manager.
+	 *
+	 * @param lockId  Id of the lock.
+	 * @param ownerId Id of the owner.
+	 * @return fencing token issued for the owner, {@code -1} if the lock is held by another owner
+	 * @throws DistributedLockException if the store could not be accessed
+	 */
+	protected abstract long takeLock( String lockId, String ownerId );
+
+	/**
+	 * Releases the lock in the store, called when the owner releases its last hold.
+	 *
+	 * @param lockId  Id of the lock.
+	 * @param ownerId Id of the owner.
+	 * @throws DistributedLockException if the store could not be accessed
+	 */
+	protected abstract void releaseLock( String lockId, String ownerId );
+
+	/**
+	 * Fetches the owner of a lock that is not held through this manager.
+	 *
+	 * @param lockId Id of the lock.
+	 * @return owner id or {@code null} if the lock is not held
+	 * @throws DistributedLockException if the store could not be accessed
+	 */
+	protected abstract String getLockOwner( String lockId );
+
+	/**
+	 * Verifies a number of locks that are supposed to be held by the same owner in the store.
+	 *
+	 * @param ownerId Id of the owner.
+	 * @param lockIds Ids of the locks.
+	 * @return subset of the lock ids that are still held by the owner
+	 * @throws DistributedLockException if the store could not be accessed
+	 */
+	protected abstract Set<String> verifyLocks( String ownerId, Collection<String> lockIds );
+
+	/**
+	 * @return Callback instance that will be executed if no specific instance configured on a lock.
+	 */
+	public DistributedLock.LockStolenCallback getDefaultLockStolenCallback() {
+		return defaultLockStolenCallback;
+	}
+
+	/**
+	 * Set the default callback instance to be executed if a lock is stolen but no callback instance
+	 * has been configured directly on the {@link DistributedLock}.
+	 *
+	 * @param defaultLockStolenCallback instance
+	 */
+	public void setDefaultLockStolenCallback( DistributedLock.LockStolenCallback defaultLockStolenCallback ) {
+		this.defaultLockStolenCallback = defaultLockStolenCallback;
+	}
+
+	/**
+	 * @return Callback instance that will be executed if no specific instance configured on a lock.
+	 */
+	public DistributedLock.LockUnstableCallback getDefaultLockUnstableCallback() {
+		return defaultLockUnstableCallback;
+	}
+
+	/**
+	 * Set the default callback instance to be executed if a lock goes unstable but no callback instance
+	 * has been configured directly on the {@link DistributedLock}.
+	 *
+	 * @param defaultLockUnstableCallback instance
+	 */
+	public void setDefaultLockUnstableCallback( DistributedLock.LockUnstableCallback defaultLockUnstableCallback ) {
+		this.defaultLockUnstableCallback = defaultLockUnstableCallback;
+	}
+
+	/**
+	 * @return Notifier used for waking up owners waiting on a lock.
+	 */
+	public DistributedLockNotifier getLockNotifier() {
+		return lockNotifier;
+	}
+
+	/**
+	 * Set the notifier that should be used for waking up owners waiting on a lock as soon as it gets released.
+	 * Waiting owners will never wait longer than the delay of the retry policy before trying again.
+	 *
+	 * @param lockNotifier instance
+	 */
+	public void setLockNotifier( DistributedLockNotifier lockNotifier ) {
+		Assert.notNull( lockNotifier, "lockNotifier must not be null" );
+		this.lockNotifier = lockNotifier;
+	}
+
+	/**
+	 * @return policy determining the wait time between attempts to acquire a lock
+	 */
+	public DistributedLockRetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+
+	/**
+	 * Set the policy that determines the wait time between attempts to acquire a lock.
+	 * Defaults to a fixed interval of {@link SqlBasedDistributedLockConfiguration#DEFAULT_RETRY_INTERVAL}.
+	 *
+	 * @param retryPolicy instance
+	 */
+	public void setRetryPolicy( DistributedLockRetryPolicy retryPolicy ) {
+		Assert.notNull( retryPolicy, "retryPolicy must not be null" );
+		this.retryPolicy = retryPolicy;
+	}
+
+	/**
+	 * Releases all locks held through this manager and stops the lock monitor.
+	 */
+	public void close() {
+		LOG.trace( "Destruction of the distributed lock manager requested" );
+
+		try {
+			LOG.info( "Destroying distributed lock manager - releasing {} held locks", activeLocks.size() );
+
+			for ( ActiveLock activeLock : new ArrayList<>( activeLocks.values() ) ) {
+				if ( activeLocks.remove( activeLock.lockId, activeLock ) ) {
+					releaseInStore( activeLock.lockId, activeLock.ownerId );
+				}
+			}
+
+			asyncLockAcquirer.close();
+
+			monitorThread.shutdown();
+		}
+		finally {
+			destroyed = true;
+		}
+	}
+
+	@Override
+	public void acquire( DistributedLock lock ) {
+		try {
+			acquireInterruptibly( lock );
+		}
+		catch ( InterruptedException ie ) {
+			throw new DistributedLockWaitException( ie );
+		}
+	}
+
+	@Override
+	public void acquireInterruptibly( DistributedLock lock ) throws InterruptedException {
+		checkDestroyed();
+
+		try (DistributedLockWait wait = new DistributedLockWait( getRetryPolicy() );
+		     DistributedLockNotifier.Subscription subscription = lockNotifier.subscribe( lock.getKey() )) {
+			wait.await( subscription, () -> tryAcquireOnce( lock ) );
+		}
+	}
+
+	@Override
+	public boolean tryAcquire( DistributedLock lock, long time, TimeUnit unit ) {
+		checkDestroyed();
+
+		long deadline = System.nanoTime() + unit.toNanos( time );
+
+		try (DistributedLockWait wait = new DistributedLockWait( getRetryPolicy() );
+		     DistributedLockNotifier.Subscription subscription = lockNotifier.subscribe( lock.getKey() )) {
+			return wait.await( subscription, () -> tryAcquireOnce( lock ), deadline );
+		}
+		catch ( InterruptedException ie ) {
+			throw new DistributedLockWaitException( ie );
+		}
+	}
+
+	@Override
+	public boolean tryAcquire( DistributedLock lock ) {
+		checkDestroyed();
+		return tryAcquireOnce( lock );
+	}
+
+	/**
+	 * Acquires the lock without occupying a thread while waiting.  The first attempt is done on the calling thread,
+	 * subsequent attempts are executed by a single thread of the manager, after the delay of the retry policy or
+	 * as soon as the lock notifier dispatches a release of the lock.
+	 */
+	@Override
+	public CompletableFuture<DistributedLock> acquireAsync( DistributedLock lock ) {
+		checkDestroyed();
+		Assert.hasText( lock.getKey(), "lock key must not be empty" );
+		Assert.hasText( lock.getOwnerId(), "owner id must not be empty" );
+
+		return asyncLockAcquirer.acquire( lock, lockNotifier, new DistributedLockWait( getRetryPolicy() ), () -> {
+			checkDestroyed();
+			return tryAcquireOnce( lock );
+		}, () -> release( lock ) );
+	}
+
+	private boolean tryAcquireOnce( DistributedLock lock ) {
+		String lockId = lock.getKey();
+		String ownerId = lock.getOwnerId();
+
+		Assert.hasText( lockId, "lock key must not be empty" );
+		Assert.hasText( ownerId, "owner id must not be empty" );
+
+		LOG.trace( "Owner {} is trying to acquire lock {}", ownerId, lockId );
+
+		boolean[] acquired = new boolean[1];
+
+		try {
+			activeLocks.compute( lockId, ( id, activeLock ) -> {
+				if ( activeLock != null ) {
+					if ( activeLock.ownerId.equals( ownerId ) ) {
+						activeLock.holds++;
+						acquired[0] = true;
+					}
+					return activeLock;
+				}
+
+				long token = takeLock( lockId, ownerId );
+
+				if ( token < 0 ) {
+					return null;
+				}
+
+				acquired[0] = true;
+				return new ActiveLock( lockId, ownerId, lock, token );
+			} );
+		}
+		catch ( DistributedLockException dle ) {
+			throw dle;
+		}
+		catch ( Exception e ) {
+			throw new DistributedLockException( "Exception when trying to acquire lock " + lockId, e );
+		}
+
+		return acquired[0];
+	}
+
+	@Override
+	public void release( DistributedLock lock ) {
+		checkDestroyed();
+
+		String lockId = lock.getKey();
+		String ownerId = lock.getOwnerId();
+
+		LOG.trace( "Owner {} is releasing lock {}", ownerId, lockId );
+
+		boolean[] released = new boolean[1];
+
+		activeLocks.computeIfPresent( lockId, ( id, activeLock ) -> {
+			if ( !activeLock.ownerId.equals( ownerId ) || --activeLock.holds > 0 ) {
+				return activeLock;
+			}
+			released[0] = true;
+			return null;
+		} );
+
+		if ( released[0] ) {
+			releaseInStore( lockId, ownerId );
+		}
+	}
+
+	private void releaseInStore( String lockId, String ownerId ) {
+		try {
+			releaseLock( lockId, ownerId );
+			lockNotifier.lockReleased( lockId );
+		}
+		catch ( Exception e ) {
+			LOG.warn( "Clean release of lock {} failed - lock might appear still taken", lockId, e );
+		}
+	}
+
+	/**
+	 * Returns the fencing token issued by the store when the owner took the lock.
+	 */
+	@Override
+	public long getFencingToken( DistributedLock lock ) {
+		ActiveLock activeLock = activeLocks.get( lock.getKey() );
+
+		if ( activeLock == null || !activeLock.ownerId.equals( lock.getOwnerId() ) ) {
+			throw new IllegalStateException(
+					"Lock " + lock.getKey() + " is not held by owner " + lock.getOwnerId() );
+		}
+
+		return activeLock.token;
+	}
+
+	@Override
+	public boolean isLocked( String lockId ) {
+		checkDestroyed();
+		return activeLocks.containsKey( lockId ) || getLockOwner( lockId ) != null;
+	}
+
+	@Override
+	public boolean isLockedByOwner( String ownerId, String lockId ) {
+		Assert.notNull( ownerId, "ownerId must not be null" );
+		checkDestroyed();
+
+		ActiveLock activeLock = activeLocks.get( lockId );
+
+		if ( activeLock != null ) {
+			return activeLock.ownerId.equals( ownerId );
+		}
+
+		return ownerId.equals( getLockOwner( lockId ) );
+	}
+
+	@Override
+	public boolean verifyLockedByOwner( String ownerId, String lockId ) {
+		checkDestroyed();
+		return verifyLocks( ownerId, Collections.singleton( lockId ) ).contains( lockId );
+	}
+
+	private void checkDestroyed() {
+		if ( destroyed ) {
+			throw new IllegalStateException(
+					"The DistributedLockManager has been destroyed - creating locks is impossible." );
+		}
+	}
+
+	private void verifyActiveLocks() {
+		try {
+			Map<String, List<ActiveLock>> locksByOwner = new HashMap<>();
+
+			for ( ActiveLock activeLock : activeLocks.values() ) {
+				locksByOwner.computeIfAbsent( activeLock.ownerId, ownerId -> new ArrayList<>() ).add( activeLock );
+			}
+
+			for ( Map.Entry<String, List<ActiveLock>> ownerLocks : locksByOwner.entrySet() ) {
+				verifyStillLocked( ownerLocks.getKey(), ownerLocks.getValue() );
+			}
+		}
+		catch ( Exception e ) {
+			LOG.error( "Exception trying to monitor locks", e );
+		}
+	}
+
+	private void verifyStillLocked( String ownerId, List<ActiveLock> ownerLocks ) {
+		List<String> lockIds = new ArrayList<>( ownerLocks.size() );
+		for ( ActiveLock activeLock : ownerLocks ) {
+			lockIds.add( activeLock.lockId );
+		}
+
+		LOG.trace( "Verifying {} locks are still owned by {}", lockIds.size(), ownerId );
+
+		Set<String> lockedByOwner;
+
+		try {
+			lockedByOwner = verifyLocks( ownerId, lockIds );
+		}
+		catch ( DistributedLockException dle ) {
+			LOG.warn( "Unable to verify {} locks of owner {} - locks might be unstable", lockIds.size(), ownerId );
+
+			for ( ActiveLock activeLock : ownerLocks ) {
+				if ( System.currentTimeMillis() - activeLock.lastVerified > maxTimeBeforeUnstable
+						&& activeLocks.get( activeLock.lockId ) == activeLock ) {
+					LOG.error( "Lock {} verification failed too many times - triggering lock unstable callback",
+					           activeLock.lockId );
+					DistributedLockCallbacks.reportUnstable( defaultLockUnstableCallback, activeLock.lastVerified,
+					                                         activeLock.lock, dle );
+				}
+			}
+
+			return;
+		}
+
+		long verified = System.currentTimeMillis();
+
+		for ( ActiveLock activeLock : ownerLocks ) {
+			if ( lockedByOwner.contains( activeLock.lockId ) ) {
+				activeLock.lastVerified = verified;
+			}
+			else if ( activeLocks.remove( activeLock.lockId, activeLock ) ) {
+				DistributedLockCallbacks.reportStolen( defaultLockStolenCallback, activeLock.lockId, ownerId,
+				                                       activeLock.lock );
+			}
+		}
+	}
+
+	private static final class ActiveLock
+	{
+		private final String lockId, ownerId;
+		private final DistributedLock lock;
+		private final long token;
+		private volatile long lastVerified = System.currentTimeMillis();
+
+		// only modified while holding the map entry
+		private int holds = 1;
+
+		ActiveLock( String lockId, String ownerId, DistributedLock lock, long token ) {
+			this.lockId = lockId;
+			this.ownerId = ownerId;
+			this.lock = lock;
+			this.token = token;
+		}
+	}
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Acquires locks without occupying a thread while waiting, shared by all lock managers.  The first attempt is done
+ * on the calling thread, subsequent attempts are scheduled on the threads of the acquirer, after the delay of the
+ * {@link DistributedLockWait} or as soon as the lock notifier dispatches a release of the lock.
+ */
+class AsyncLockAcquirer
+{
+	private static final Logger LOG = LoggerFactory.getLogger( AsyncLockAcquirer.class );
+
+	//NOTE: Scheduled tasks should NEVER throw exceptions!  The pool would live on, but the task would not...
+	private final ScheduledExecutorService scheduler;
+	private final Set<AsyncAcquire> asyncAcquires = ConcurrentHashMap.newKeySet();
+
+	AsyncLockAcquirer( int threads ) {
+		scheduler = Executors.newScheduledThreadPool( threads );
+	}
+
+	/**
+	 * @param lock     lock to acquire
+	 * @param notifier notifier dispatching the releases of the lock
+	 * @param wait     determines the delays between attempts, closed once the owner stops waiting
+	 * @param attempt  single attempt to acquire the lock
+	 * @param release  releases the lock if it was acquired after the owner stopped waiting
+	 * @return future completed with the lock once it has been acquired
+	 */
+	CompletableFuture<DistributedLock> acquire( DistributedLock lock,
+	                                            DistributedLockNotifier notifier,
+	                                            DistributedLockWait wait,
+	                                            BooleanSupplier attempt,
+	                                            Runnable release ) {
+		AsyncAcquire asyncAcquire = new AsyncAcquire( lock, notifier, wait, attempt, release );
+		asyncAcquires.add( asyncAcquire );
+		asyncAcquire.run();
+
+		return asyncAcquire.future;
+	}
+
+	/**
+	 * Stops all pending attempts, their futures are completed exceptionally.
+	 */
+	void close() {
+		scheduler.shutdownNow();
+		for ( AsyncAcquire asyncAcquire : asyncAcquires ) {
+			asyncAcquire.fail( new IllegalStateException( "The DistributedLockManager has been destroyed" ) );
+		}
+	}
+
+	/**
+	 * A single owner acquiring a lock asynchronously: every run is a single attempt, after a failed attempt
+	 * the next one is scheduled.  A release notification replaces the scheduled attempt by an immediate one.
+	 * The notification is consumed by the attempt, if the owner stops waiting before that attempt, the
+	 * notification is passed on to the next owner waiting for the lock.
+	 */
+	private final class AsyncAcquire implements Runnable
+	{
+		private final CompletableFuture<DistributedLock> future = new CompletableFuture<>();
+		private final DistributedLock lock;
+		private final DistributedLockWait wait;
+		private final BooleanSupplier attempt;
+		private final Runnable release;
+		private final DistributedLockNotifier.Subscription subscription;
+		private final AtomicBoolean finished = new AtomicBoolean();
+
+		// only modified while holding the monitor of this instance, null while an attempt is running
+		private ScheduledFuture<?> nextAttempt;
+		private boolean released;
+
+		AsyncAcquire( DistributedLock lock,
+		              DistributedLockNotifier notifier,
+		              DistributedLockWait wait,
+		              BooleanSupplier attempt,
+		              Runnable release ) {
+			this.lock = lock;
+			this.wait = wait;
+			this.attempt = attempt;
+			this.release = release;
+			subscription = notifier.subscribe( lock.getKey() );
+			subscription.onRelease( this::released );
+			future.whenComplete( ( acquiredLock, error ) -> stopped() );
+		}
+
+		@Override
+		public void run() {
+			synchronized ( this ) {
+				nextAttempt = null;
+			}
+
+			if ( future.isDone() ) {
+				LOG.trace( "Owner {} stopped waiting for lock {}", lock.getOwnerId(), lock.getKey() );
+				done();
+				return;
+			}
+
+			try {
+				consumeNotification();
+
+				if ( attempt.getAsBoolean() ) {
+					done();
+
+					if ( !future.complete( lock ) ) {
+						LOG.trace( "Owner {} stopped waiting for lock {} - releasing it", lock.getOwnerId(),
+						           lock.getKey() );
+						release.run();
+					}
+				}
+				else {
+					long delay = wait.nextDelay();
+
+					synchronized ( this ) {
+						if ( !future.isDone() ) {
+							nextAttempt = scheduler.schedule( this, released ? 0 : delay, TimeUnit.MILLISECONDS );
+							released = false;
+							return;
+						}
+					}
+
+					LOG.trace( "Owner {} stopped waiting for lock {}", lock.getOwnerId(), lock.getKey() );
+					done();
+				}
+			}
+			catch ( RuntimeException e ) {
+				fail( e );
+			}
+		}
+
+		/**
+		 * The lock has been released: try again right away, or as soon as the running attempt has failed.
+		 */
+		private synchronized void released() {
+			if ( nextAttempt != null && nextAttempt.cancel( false ) ) {
+				try {
+					nextAttempt = scheduler.schedule( this, 0, TimeUnit.MILLISECONDS );
+				}
+				catch ( RejectedExecutionException ree ) {
+					LOG.trace( "Manager is being destroyed - owner {} stops waiting for lock {}", lock.getOwnerId(),
+					           lock.getKey() );
+				}
+			}
+			else {
+				released = true;
+			}
+		}
+
+		/**
+		 * The future has been completed, if it was not by an attempt (cancelled or timed out) the scheduled
+		 * attempt is cancelled right away.  A running attempt stops by itself.
+		 */
+		private void stopped() {
+			synchronized ( this ) {
+				if ( nextAttempt == null || !nextAttempt.cancel( false ) ) {
+					return;
+				}
+				nextAttempt = null;
+			}
+
+			LOG.trace( "Owner {} stopped waiting for lock {}", lock.getOwnerId(), lock.getKey() );
+			done();
+		}
+
+		private void consumeNotification() {
+			try {
+				subscription.awaitRelease( 0, TimeUnit.MILLISECONDS );
+			}
+			catch ( InterruptedException ie ) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		void fail( RuntimeException e ) {
+			done();
+			future.completeExceptionally( e );
+		}
+
+		/**
+		 * Closing the subscription passes on a notification that has not been consumed.
+		 */
+		private void done() {
+			if ( finished.compareAndSet( false, true ) ) {
+				asyncAcquires.remove( this );
+				subscription.close();
+				wait.close();
+			}
+		}
+	}
+}
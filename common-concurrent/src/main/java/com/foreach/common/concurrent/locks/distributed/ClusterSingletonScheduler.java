@@ -0,0 +1,175 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Schedules periodic jobs that should run on a single node of the cluster.  The jobs are scheduled on every
+ * node, but only executed on the node that is the leader according to the {@link DistributedLeaderElection}.
+ * Checking the leadership does not access the lock manager, so a tick costs no database round-trips on any
+ * node, whatever the number of jobs.  This replaces acquiring a {@link DistributedLock} per job on every tick,
+ * where every node contends for the lock.
+ * <p/>
+ * A job that is running when the leadership is lost is not interrupted.  Long running jobs should check
+ * {@link #isLeader()} between steps, and use the fencing token of a separate lock if they must never
+ * overlap with a job on the new leader.  Exceptions thrown by a job are logged and do not prevent its next run.
+ * <p/>
+ * Example usage as a bean:
+ * <pre>
+ * &lt;bean id="clusterScheduler" class="com.foreach.common.concurrent.locks.distributed.ClusterSingletonScheduler"
+ *       destroy-method="close"&gt;
+ *     &lt;constructor-arg ref="distributedLockRepository"/&gt;
+ *     &lt;constructor-arg value="my-application-scheduler"/&gt;
+ * &lt;/bean&gt;
+ * </pre>
+ */
+public class ClusterSingletonScheduler implements AutoCloseable
+{
+	private static final Logger LOG = LoggerFactory.getLogger( ClusterSingletonScheduler.class );
+
+	private final List<ScheduledFuture<?>> jobs = new CopyOnWriteArrayList<>();
+	private final LongAdder skippedRunCount = new LongAdder();
+
+	private final DistributedLeaderElection leaderElection;
+	private final ScheduledExecutorService scheduler;
+	private final boolean ownsResources;
+
+	/**
+	 * Create a scheduler with its own leader election and a single scheduler thread.  The election is
+	 * started immediately, both are stopped when the scheduler is closed.
+	 *
+	 * @param lockRepository providing the leadership lock
+	 * @param leadershipKey  key of the leadership lock, shared by the schedulers on all nodes
+	 */
+	public ClusterSingletonScheduler( DistributedLockRepository lockRepository, String leadershipKey ) {
+		this.leaderElection = new DistributedLeaderElection( lockRepository, "scheduler", leadershipKey );
+		this.scheduler = Executors.newSingleThreadScheduledExecutor( task -> {
+			Thread thread = new Thread( task, "cluster-singleton-scheduler-" + leadershipKey );
+			thread.setDaemon( true );
+			return thread;
+		} );
+		this.ownsResources = true;
+
+		leaderElection.start();
+	}
+
+	/**
+	 * Create a scheduler using an existing election and scheduler.  The caller is responsible for starting
+	 * and closing both.
+	 *
+	 * @param leaderElection determining if this node is the leader
+	 * @param scheduler      executing the jobs
+	 */
+	public ClusterSingletonScheduler( DistributedLeaderElection leaderElection, ScheduledExecutorService scheduler ) {
+		Assert.notNull( leaderElection, "leaderElection cannot be null" );
+		Assert.notNull( scheduler, "scheduler cannot be null" );
+
+		this.leaderElection = leaderElection;
+		this.scheduler = scheduler;
+		this.ownsResources = false;
+	}
+
+	public DistributedLeaderElection getLeaderElection() {
+		return leaderElection;
+	}
+
+	/**
+	 * @return true if this node is the leader and executes the jobs
+	 */
+	public boolean isLeader() {
+		return leaderElection.isLeader();
+	}
+
+	/**
+	 * @return number of times a job was due but not executed because this node was not the leader
+	 */
+	public long getSkippedRunCount() {
+		return skippedRunCount.sum();
+	}
+
+	/**
+	 * Schedule a job to run periodically on the leader.
+	 *
+	 * @see ScheduledExecutorService#scheduleAtFixedRate(Runnable, long, long, TimeUnit)
+	 */
+	public ScheduledFuture<?> scheduleAtFixedRate( Runnable job, long initialDelay, long period, TimeUnit unit ) {
+		return register( scheduler.scheduleAtFixedRate( new LeaderOnlyJob( job ), initialDelay, period, unit ) );
+	}
+
+	/**
+	 * Schedule a job to run periodically on the leader.
+	 *
+	 * @see ScheduledExecutorService#scheduleWithFixedDelay(Runnable, long, long, TimeUnit)
+	 */
+	public ScheduledFuture<?> scheduleWithFixedDelay( Runnable job, long initialDelay, long delay, TimeUnit unit ) {
+		return register( scheduler.scheduleWithFixedDelay( new LeaderOnlyJob( job ), initialDelay, delay, unit ) );
+	}
+
+	/**
+	 * Cancel all jobs.  If the scheduler created its own election and scheduler thread, these are stopped
+	 * as well, allowing another node to take over the leadership.
+	 */
+	@Override
+	public void close() {
+		jobs.forEach( job -> job.cancel( false ) );
+		jobs.clear();
+
+		if ( ownsResources ) {
+			scheduler.shutdownNow();
+			leaderElection.close();
+		}
+	}
+
+	private ScheduledFuture<?> register( ScheduledFuture<?> job ) {
+		jobs.add( job );
+		return job;
+	}
+
+	/**
+	 * Executes the job only if this node is the leader.
+	 */
+	private final class LeaderOnlyJob implements Runnable
+	{
+		private final Runnable job;
+
+		LeaderOnlyJob( Runnable job ) {
+			Assert.notNull( job, "job cannot be null" );
+			this.job = job;
+		}
+
+		@Override
+		public void run() {
+			if ( !leaderElection.isLeader() ) {
+				skippedRunCount.increment();
+				return;
+			}
+
+			try {
+				job.run();
+			}
+			catch ( Exception e ) {
+				LOG.error( "Exception executing cluster singleton job {}", job, e );
+			}
+		}
+	}
+}
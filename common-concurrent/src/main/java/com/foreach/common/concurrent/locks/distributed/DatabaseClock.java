@@ -0,0 +1,201 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcOperations;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.*;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Clock used by a {@link SqlBasedDistributedLockManager} in lease mode: the time is taken from the database instead
+ * of the local system clock, so all nodes use the same reference time regardless of their clock drift.
+ * <p/>
+ * Querying the database for every timestamp would double the number of statements, instead the database time is
+ * fetched periodically and the time elapsed since is measured with {@link System#nanoTime()}, which is not affected
+ * by changes to the system clock.  Half of the query round trip is added to the database time.
+ * <p/>
+ * The query should return a single value: either a timestamp or a number of milliseconds since the epoch.
+ * If no query is configured, one is selected based on the database product.  Where the JDBC driver returns a
+ * vendor specific timestamp type (eg. Oracle {@code TIMESTAMP WITH TIME ZONE}), the default query computes the
+ * milliseconds since the epoch in the database instead.
+ *
+ * @see SqlBasedDistributedLockConfiguration#setLeaseMode(boolean)
+ */
+class DatabaseClock implements LongSupplier
+{
+	private static final Logger LOG = LoggerFactory.getLogger( DatabaseClock.class );
+
+	/**
+	 * Number of milliseconds after which the database time is fetched again.
+	 */
+	static final long SYNC_INTERVAL = 60000;
+
+	private final JdbcOperations jdbcTemplate;
+	private final ReentrantLock syncLock = new ReentrantLock();
+	private final long syncInterval;
+
+	private String timeQuery;
+	private volatile Sync sync;
+
+	DatabaseClock( JdbcOperations jdbcTemplate, String timeQuery, long syncInterval ) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.timeQuery = timeQuery;
+		this.syncInterval = TimeUnit.MILLISECONDS.toNanos( syncInterval );
+	}
+
+	/**
+	 * @return current database time in milliseconds since the epoch
+	 */
+	@Override
+	public long getAsLong() {
+		Sync current = sync;
+		long now = System.nanoTime();
+
+		if ( current == null || now - current.nanoTime > syncInterval ) {
+			current = synchronize( current );
+			now = System.nanoTime();
+		}
+
+		return current.databaseTime + TimeUnit.NANOSECONDS.toMillis( now - current.nanoTime );
+	}
+
+	private Sync synchronize( Sync current ) {
+		if ( current != null && !syncLock.tryLock() ) {
+			// another thread is fetching the database time already
+			return current;
+		}
+
+		if ( current == null ) {
+			syncLock.lock();
+		}
+
+		try {
+			if ( sync != current ) {
+				return sync;
+			}
+
+			if ( timeQuery == null ) {
+				timeQuery = jdbcTemplate.execute( (ConnectionCallback<String>) connection -> defaultTimeQuery(
+						connection.getMetaData().getDatabaseProductName() ) );
+			}
+
+			long start = System.nanoTime();
+			Long databaseTime = jdbcTemplate.queryForObject( timeQuery, ( rs, rowNum ) -> readMillis( rs ) );
+			long end = System.nanoTime();
+
+			sync = new Sync( databaseTime, start + ( end - start ) / 2 );
+			LOG.trace( "Synchronized with database time {}", sync.databaseTime );
+
+			return sync;
+		}
+		catch ( RuntimeException e ) {
+			if ( current == null ) {
+				throw new DistributedLockException( "Unable to fetch the database time", e );
+			}
+
+			LOG.warn( "Unable to synchronize with the database time - continuing with the previous time", e );
+			return current;
+		}
+		finally {
+			syncLock.unlock();
+		}
+	}
+
+	static String defaultTimeQuery( String databaseProductName ) {
+		String product = databaseProductName != null ? databaseProductName.toLowerCase() : "";
+
+		if ( product.contains( "hsql" ) || product.contains( "derby" ) || product.contains( "db2" ) ) {
+			return "VALUES CURRENT_TIMESTAMP";
+		}
+		if ( product.contains( "oracle" ) ) {
+			return "SELECT (CAST(SYS_EXTRACT_UTC(SYSTIMESTAMP) AS DATE) - DATE '1970-01-01') * 86400000"
+					+ " + TO_NUMBER(TO_CHAR(SYSTIMESTAMP, 'FF3')) FROM DUAL";
+		}
+		if ( product.contains( "sql server" ) ) {
+			return "SELECT DATEDIFF_BIG(millisecond, '1970-01-01', SYSUTCDATETIME())";
+		}
+		if ( product.contains( "mysql" ) || product.contains( "mariadb" ) ) {
+			return "SELECT CAST(UNIX_TIMESTAMP(CURRENT_TIMESTAMP(3)) * 1000 AS SIGNED)";
+		}
+		if ( product.contains( "postgres" ) ) {
+			return "SELECT CAST(EXTRACT(EPOCH FROM CURRENT_TIMESTAMP) * 1000 AS BIGINT)";
+		}
+
+		return "SELECT CURRENT_TIMESTAMP";
+	}
+
+	static long readMillis( ResultSet rs ) throws SQLException {
+		Object value = rs.getObject( 1 );
+
+		if ( value == null || isSupported( value ) ) {
+			return toMillis( value );
+		}
+
+		// vendor specific type, let the driver convert it
+		return toMillis( rs.getObject( 1, OffsetDateTime.class ) );
+	}
+
+	private static boolean isSupported( Object value ) {
+		return value instanceof Number || value instanceof Date || value instanceof OffsetDateTime
+				|| value instanceof ZonedDateTime || value instanceof Instant || value instanceof LocalDateTime;
+	}
+
+	/**
+	 * Converts a database time value to milliseconds since the epoch.  A {@link LocalDateTime} is interpreted
+	 * in the default time zone of the JVM, like JDBC drivers do for a {@link java.sql.Timestamp}.
+	 */
+	static long toMillis( Object value ) {
+		if ( value instanceof Number ) {
+			return ( (Number) value ).longValue();
+		}
+		if ( value instanceof Date ) {
+			return ( (Date) value ).getTime();
+		}
+		if ( value instanceof OffsetDateTime ) {
+			return ( (OffsetDateTime) value ).toInstant().toEpochMilli();
+		}
+		if ( value instanceof ZonedDateTime ) {
+			return ( (ZonedDateTime) value ).toInstant().toEpochMilli();
+		}
+		if ( value instanceof Instant ) {
+			return ( (Instant) value ).toEpochMilli();
+		}
+		if ( value instanceof LocalDateTime ) {
+			return ( (LocalDateTime) value ).atZone( ZoneId.systemDefault() ).toInstant().toEpochMilli();
+		}
+
+		throw new IllegalArgumentException( "Unsupported database time value: " + value );
+	}
+
+	private static final class Sync
+	{
+		private final long databaseTime, nanoTime;
+
+		Sync( long databaseTime, long nanoTime ) {
+			this.databaseTime = databaseTime;
+			this.nanoTime = nanoTime;
+		}
+	}
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Elects a single leader among all nodes using the same leadership key.  The leader is the node holding the
+ * {@link DistributedLock} for the key: the lock is held for as long as the node is leader and kept alive by the
+ * lock manager, that verifies it along with all other locks held by the node.  Other nodes campaign by trying
+ * to acquire the lock once every election interval, without waiting.
+ * <p/>
+ * A cluster using leader election costs one lock verification per verify interval for the leader and one
+ * acquire attempt per election interval for every other node, regardless of the number of tasks depending
+ * on the leadership.  If the leader goes down, another node can only take over once the lock has not been
+ * verified for the maximum idle time before stealing, unless the leader stepped down by calling {@link #close()}.
+ * <p/>
+ * The node steps down if the lock gets stolen or becomes unstable: an unstable lock can no longer be verified,
+ * so another node might take over at any time.  The {@link LeadershipListener}s are notified whenever the
+ * node gets elected or steps down, from the election thread or the thread of the lock monitor.  Listeners
+ * should return quickly.
+ *
+ * @see ClusterSingletonScheduler
+ */
+public class DistributedLeaderElection implements AutoCloseable
+{
+	private static final Logger LOG = LoggerFactory.getLogger( DistributedLeaderElection.class );
+
+	/**
+	 * Default number of milliseconds between attempts to become leader.
+	 */
+	public static final long DEFAULT_ELECTION_INTERVAL = 5000;
+
+	private final List<LeadershipListener> listeners = new CopyOnWriteArrayList<>();
+	private final AtomicBoolean leader = new AtomicBoolean();
+
+	private final DistributedLock lock;
+
+	private long electionInterval = DEFAULT_ELECTION_INTERVAL;
+	private ScheduledExecutorService electionThread;
+	private boolean closed;
+
+	/**
+	 * Create an election with a unique owner id for this node.
+	 *
+	 * @param lockRepository providing the leadership lock
+	 * @param leadershipKey  key of the leadership lock, shared by all candidates
+	 */
+	public DistributedLeaderElection( DistributedLockRepository lockRepository, String leadershipKey ) {
+		this( lockRepository, "leader", leadershipKey );
+	}
+
+	/**
+	 * Create an election with a unique owner id for this node.  For descriptive purposes the owner name will
+	 * be used as prefix for the owner id.
+	 *
+	 * @param lockRepository providing the leadership lock
+	 * @param ownerName      name of this node
+	 * @param leadershipKey  key of the leadership lock, shared by all candidates
+	 */
+	public DistributedLeaderElection( DistributedLockRepository lockRepository,
+	                                  String ownerName,
+	                                  String leadershipKey ) {
+		Assert.notNull( lockRepository, "lockRepository cannot be null" );
+		Assert.hasText( ownerName, "ownerName must not be empty" );
+
+		lock = lockRepository.createSharedLock( ownerName + "@" + UUID.randomUUID(), leadershipKey );
+		lock.setStolenCallback( ( lockKey, ownerId, stolenLock ) -> {
+			LOG.warn( "Leadership lock {} was stolen from {}", lockKey, ownerId );
+			stepDown( false );
+		} );
+		lock.setUnstableCallback( ( lockKey, ownerId, unstableLock, lastVerified, t ) -> {
+			LOG.warn( "Leadership lock {} of {} is unstable - stepping down", lockKey, ownerId, t );
+			stepDown( true );
+		} );
+	}
+
+	/**
+	 * @return number of milliseconds between attempts to become leader
+	 */
+	public long getElectionInterval() {
+		return electionInterval;
+	}
+
+	/**
+	 * Set the number of milliseconds between attempts to become leader.  A shorter interval means a faster
+	 * take-over when the leader steps down, at the cost of an acquire attempt per interval for every node.
+	 *
+	 * @param electionInterval number of milliseconds
+	 */
+	public void setElectionInterval( long electionInterval ) {
+		Assert.isTrue( electionInterval > 0, "electionInterval must be positive" );
+		this.electionInterval = electionInterval;
+	}
+
+	public void addListener( LeadershipListener listener ) {
+		Assert.notNull( listener, "listener cannot be null" );
+		listeners.add( listener );
+	}
+
+	public void removeListener( LeadershipListener listener ) {
+		listeners.remove( listener );
+	}
+
+	/**
+	 * @return key of the leadership lock
+	 */
+	public String getLeadershipKey() {
+		return lock.getKey();
+	}
+
+	/**
+	 * @return owner id this node uses for the leadership lock
+	 */
+	public String getOwnerId() {
+		return lock.getOwnerId();
+	}
+
+	/**
+	 * Check if this node is currently the leader.  Does not access the lock manager, a node stops being leader
+	 * as soon as the lock manager reports the leadership lock as stolen or unstable.
+	 *
+	 * @return true if this node is the leader
+	 */
+	public boolean isLeader() {
+		return leader.get();
+	}
+
+	/**
+	 * Start campaigning for leadership.  The first attempt is done immediately.
+	 */
+	public synchronized void start() {
+		Assert.state( electionThread == null, "Leader election has already been started" );
+
+		closed = false;
+		electionThread = Executors.newSingleThreadScheduledExecutor( task -> {
+			Thread thread = new Thread( task, "leader-election-" + lock.getKey() );
+			thread.setDaemon( true );
+			return thread;
+		} );
+		electionThread.scheduleWithFixedDelay( this::campaign, 0, electionInterval, TimeUnit.MILLISECONDS );
+	}
+
+	/**
+	 * Stop campaigning and step down if this node is the leader, allowing another node to take over
+	 * on its next attempt.  A campaign attempt that is still running releases the lock if it acquires it.
+	 */
+	@Override
+	public synchronized void close() {
+		closed = true;
+
+		if ( electionThread != null ) {
+			electionThread.shutdownNow();
+			electionThread = null;
+		}
+
+		stepDown( true );
+	}
+
+	private void campaign() {
+		if ( leader.get() ) {
+			return;
+		}
+
+		try {
+			if ( lock.tryLock() ) {
+				elected();
+			}
+		}
+		catch ( DistributedLockException dle ) {
+			LOG.warn( "Unable to campaign for leadership lock {}", lock.getKey(), dle );
+		}
+	}
+
+	private synchronized void elected() {
+		if ( closed ) {
+			LOG.debug( "Election for {} has been closed while campaigning - releasing the lock", lock.getKey() );
+			try {
+				lock.unlock();
+			}
+			catch ( RuntimeException e ) {
+				LOG.warn( "Unable to release leadership lock {}", lock.getKey(), e );
+			}
+			return;
+		}
+
+		if ( leader.compareAndSet( false, true ) ) {
+			LOG.info( "{} has been elected leader for {}", lock.getOwnerId(), lock.getKey() );
+			listeners.forEach( listener -> notify( listener, true ) );
+		}
+	}
+
+	private void stepDown( boolean release ) {
+		if ( leader.compareAndSet( true, false ) ) {
+			LOG.info( "{} is no longer leader for {}", lock.getOwnerId(), lock.getKey() );
+			listeners.forEach( listener -> notify( listener, false ) );
+
+			if ( release ) {
+				try {
+					lock.unlock();
+				}
+				catch ( RuntimeException e ) {
+					LOG.warn( "Unable to release leadership lock {}", lock.getKey(), e );
+				}
+			}
+		}
+	}
+
+	private void notify( LeadershipListener listener, boolean elected ) {
+		try {
+			if ( elected ) {
+				listener.elected( lock.getKey() );
+			}
+			else {
+				listener.revoked( lock.getKey() );
+			}
+		}
+		catch ( Exception e ) {
+			LOG.error( "Exception executing leadership listener for {}", lock.getKey(), e );
+		}
+	}
+
+	/**
+	 * Notified when the node gets elected and when it stops being the leader.
+	 */
+	public interface LeadershipListener
+	{
+		void elected( String leadershipKey );
+
+		void revoked( String leadershipKey );
+	}
+}
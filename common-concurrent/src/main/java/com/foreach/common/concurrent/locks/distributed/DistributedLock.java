@@ -17,6 +17,7 @@ package com.foreach.common.concurrent.locks.distributed;
 
 import com.foreach.common.concurrent.locks.ObjectLock;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -62,6 +63,34 @@ public interface DistributedLock extends ObjectLock<String>
 	 */
 	boolean tryLock( long time, TimeUnit unit );
 
+	/**
+	 * Will try to obtain the lock without blocking the calling thread while waiting.  The future completes
+	 * with a lock instance that has the owner id of this lock at the time of the call, and that should be used
+	 * to release the lock.  Because that owner id is fixed, the lock can be released from any thread.
+	 * <p/>
+	 * Cancelling the future stops waiting for the lock, the lock is released if it was acquired in the meantime.
+	 *
+	 * @return future that completes once the lock is acquired
+	 * @throws UnsupportedOperationException if the implementation does not support acquiring asynchronously
+	 */
+	default CompletableFuture<DistributedLock> acquireAsync() {
+		throw new UnsupportedOperationException( getClass().getName() + " does not support acquireAsync()" );
+	}
+
+	/**
+	 * Returns the fencing token of the current acquisition of the lock by the owner.  A new token is issued every
+	 * time the lock is acquired by a new owner, and it is always higher than the tokens issued before.  A resource
+	 * protected by the lock can reject any request with a token lower than the highest one it has seen, so a
+	 * request from an owner that has lost the lock in the meantime is not accepted.
+	 *
+	 * @return fencing token
+	 * @throws IllegalStateException         if the lock is not held by the owner
+	 * @throws UnsupportedOperationException if the implementation does not issue fencing tokens
+	 */
+	default long getFencingToken() {
+		throw new UnsupportedOperationException( getClass().getName() + " does not issue fencing tokens" );
+	}
+
 	/**
 	 * Queries if this lock is held by anyone.
 	 * <p/>
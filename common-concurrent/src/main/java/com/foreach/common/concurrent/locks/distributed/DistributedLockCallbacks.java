@@ -0,0 +1,73 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes the stolen and unstable callbacks of a lock, falling back to the default callback of the lock manager
+ * if none is set on the lock itself.  Exceptions thrown by a callback are logged and never propagated.
+ */
+final class DistributedLockCallbacks
+{
+	private static final Logger LOG = LoggerFactory.getLogger( DistributedLockCallbacks.class );
+
+	private DistributedLockCallbacks() {
+	}
+
+	static void reportStolen( DistributedLock.LockStolenCallback defaultCallback,
+	                          String lockId,
+	                          String ownerId,
+	                          DistributedLock lock ) {
+		LOG.trace( "Lock {} was supposed to be owned by {}, but it appears to be stolen", lockId, ownerId );
+
+		DistributedLock.LockStolenCallback callback = lock.getStolenCallback();
+
+		if ( callback == null ) {
+			callback = defaultCallback;
+		}
+
+		if ( callback != null ) {
+			try {
+				callback.stolen( lockId, ownerId, lock );
+			}
+			catch ( Exception e ) {
+				LOG.error( "Exception executing stolen callback for lock {}", lockId, e );
+			}
+		}
+	}
+
+	static void reportUnstable( DistributedLock.LockUnstableCallback defaultCallback,
+	                            long lastVerified,
+	                            DistributedLock lock,
+	                            Throwable t ) {
+		DistributedLock.LockUnstableCallback callback = lock.getUnstableCallback();
+
+		if ( callback == null ) {
+			callback = defaultCallback;
+		}
+
+		if ( callback != null ) {
+			try {
+				callback.unstable( lock.getKey(), lock.getOwnerId(), lock, lastVerified, t );
+			}
+			catch ( Exception e ) {
+				LOG.error( "Exception executing unstable callback for lock {}", lock.getKey(), e );
+			}
+		}
+	}
+}
@@ -15,6 +15,10 @@
  */
 package com.foreach.common.concurrent.locks.distributed;
 
+import org.springframework.util.Assert;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -43,6 +47,20 @@ public interface DistributedLockManager
 	 */
 	void acquireInterruptibly( DistributedLock lock ) throws InterruptedException;
 
+	/**
+	 * Will try and acquire the lock without blocking the calling thread while waiting.
+	 * The owner id of the lock should not depend on the calling thread, as it is not known on which thread
+	 * the attempts are done.  If the future gets cancelled, the manager stops trying to acquire the lock.
+	 *
+	 * @param lock Lock instance to acquire.
+	 * @return future that completes with the lock instance once it has been acquired
+	 * @throws UnsupportedOperationException if the manager does not support acquiring asynchronously
+	 * @see DistributedLock#acquireAsync()
+	 */
+	default CompletableFuture<DistributedLock> acquireAsync( DistributedLock lock ) {
+		throw new UnsupportedOperationException( getClass().getName() + " does not support acquireAsync()" );
+	}
+
 	/**
 	 * Will release the lock.
 	 *
@@ -50,6 +68,19 @@ public interface DistributedLockManager
 	 */
 	void release( DistributedLock lock );
 
+	/**
+	 * Returns the fencing token issued when the lock was acquired by its current owner.
+	 *
+	 * @param lock Lock instance held by the owner.
+	 * @return fencing token
+	 * @throws IllegalStateException         if the lock is not held by the owner
+	 * @throws UnsupportedOperationException if the manager does not issue fencing tokens
+	 * @see DistributedLock#getFencingToken()
+	 */
+	default long getFencingToken( DistributedLock lock ) {
+		throw new UnsupportedOperationException( getClass().getName() + " does not issue fencing tokens" );
+	}
+
 	/**
 	 * Will try and acquire the lock a single time and will return immediately after trying.
 	 * The return value determines if the acquiring succeeded or failed.
@@ -70,6 +101,77 @@ public interface DistributedLockManager
 	 */
 	boolean tryAcquire( DistributedLock lock, long time, TimeUnit unit );
 
+	/**
+	 * Will try and acquire all locks and will keep trying until the specified time has passed.
+	 * Either all locks are acquired or none of them: if not all locks could be acquired in time, the locks
+	 * that had been acquired already are released again.
+	 * <p/>
+	 * The locks are always acquired in the natural order of their keys, so owners acquiring overlapping sets of
+	 * locks do not deadlock.  The default implementation acquires the locks one by one, implementations can
+	 * provide a more efficient way to acquire multiple locks at once.
+	 *
+	 * @param locks Lock instances to acquire, every lock key can only be present once.
+	 * @param time  the maximum time to wait for all locks
+	 * @param unit  the time unit of the {@code time} argument
+	 * @return {@code true} if all locks were acquired and {@code false} if the waiting time elapsed before all locks were acquired
+	 */
+	default boolean tryAcquireAll( Collection<? extends DistributedLock> locks, long time, TimeUnit unit ) {
+		List<DistributedLock> ordered = sortByKey( locks );
+		long deadline = System.nanoTime() + unit.toNanos( time );
+
+		Deque<DistributedLock> acquired = new ArrayDeque<>( ordered.size() );
+
+		try {
+			for ( DistributedLock lock : ordered ) {
+				if ( !tryAcquire( lock, Math.max( 0, deadline - System.nanoTime() ), TimeUnit.NANOSECONDS ) ) {
+					releaseAll( acquired );
+					return false;
+				}
+				acquired.push( lock );
+			}
+		}
+		catch ( RuntimeException re ) {
+			releaseAll( acquired );
+			throw re;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Will release all locks, in the reverse order of their keys.
+	 *
+	 * @param locks Lock instances to release.
+	 */
+	default void releaseAll( Collection<? extends DistributedLock> locks ) {
+		List<DistributedLock> ordered = sortByKey( locks );
+		Collections.reverse( ordered );
+
+		for ( DistributedLock lock : ordered ) {
+			release( lock );
+		}
+	}
+
+	/**
+	 * Creates a list of the locks sorted by their key, the order used for acquiring multiple locks.
+	 *
+	 * @param locks Lock instances to sort.
+	 * @return new list
+	 */
+	static List<DistributedLock> sortByKey( Collection<? extends DistributedLock> locks ) {
+		Assert.notNull( locks, "locks must not be null" );
+
+		List<DistributedLock> ordered = new ArrayList<>( locks );
+		ordered.sort( Comparator.comparing( DistributedLock::getKey ) );
+
+		for ( int i = 1; i < ordered.size(); i++ ) {
+			Assert.isTrue( !ordered.get( i - 1 ).getKey().equals( ordered.get( i ).getKey() ),
+			               "lock key can only be present once: " + ordered.get( i ).getKey() );
+		}
+
+		return ordered;
+	}
+
 	/**
 	 * Checks if the lock is held by anybody.
 	 *
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+/**
+ * Receives the measurements of a {@link SqlBasedDistributedLockManager}, to be published to a metrics system.
+ * All methods have an empty default implementation, so a listener only implements the measurements it is
+ * interested in.  The listener is called on the thread that performs the operation - often the thread
+ * acquiring a lock or the lock monitor thread - so implementations should be fast and should not throw exceptions.
+ * <p/>
+ * The lock key is passed as is, using it directly as a tag will create a time series for every lock.
+ * Use {@link #keyPrefix(String)} to group the locks by the part of the key before the first {@code :}, for example
+ * when publishing to a Micrometer {@code MeterRegistry}:
+ * <pre>
+ * public void lockAcquired( String lockKey, long waitNanos, int attempts ) {
+ *     registry.timer( "locks.acquire", "prefix", keyPrefix( lockKey ) ).record( waitNanos, TimeUnit.NANOSECONDS );
+ *     registry.summary( "locks.acquire.attempts", "prefix", keyPrefix( lockKey ) ).record( attempts );
+ * }
+ * </pre>
+ * The number of locks held can be published as a gauge using {@link SqlBasedDistributedLockManager#getHeldLockCount()}.
+ *
+ * @see SqlBasedDistributedLockManager#setMetricsListener(DistributedLockMetricsListener)
+ */
+public interface DistributedLockMetricsListener
+{
+	/**
+	 * Listener that ignores all measurements.
+	 */
+	DistributedLockMetricsListener NONE = new DistributedLockMetricsListener()
+	{
+	};
+
+	/**
+	 * An owner has acquired a lock (or an additional hold on it).
+	 *
+	 * @param lockKey   key of the lock
+	 * @param waitNanos time spent between the first attempt and acquiring the lock
+	 * @param attempts  number of attempts, including the successful one
+	 */
+	default void lockAcquired( String lockKey, long waitNanos, int attempts ) {
+	}
+
+	/**
+	 * An owner gave up acquiring a lock, because a single attempt failed or the maximum wait time has passed.
+	 *
+	 * @param lockKey   key of the lock
+	 * @param waitNanos time spent between the first attempt and giving up
+	 * @param attempts  number of failed attempts
+	 */
+	default void lockNotAcquired( String lockKey, long waitNanos, int attempts ) {
+	}
+
+	/**
+	 * An owner of this manager has stolen a lock from another owner that was idle for too long.
+	 *
+	 * @param lockKey key of the lock
+	 */
+	default void lockStolen( String lockKey ) {
+	}
+
+	/**
+	 * An owner of this manager has lost a lock it was holding, the stolen callback of the lock is being executed.
+	 *
+	 * @param lockKey key of the lock
+	 */
+	default void lockLost( String lockKey ) {
+	}
+
+	/**
+	 * The lock monitor was unable to verify a lock for too long, the unstable callback of the lock is being executed.
+	 *
+	 * @param lockKey key of the lock
+	 */
+	default void lockUnstable( String lockKey ) {
+	}
+
+	/**
+	 * The lock monitor has verified (or tried to verify) a batch of locks held by an owner.
+	 *
+	 * @param lockCount     number of locks in the batch
+	 * @param durationNanos time spent verifying the batch
+	 * @param success       {@code false} if the locks could not be verified
+	 */
+	default void locksVerified( int lockCount, long durationNanos, boolean success ) {
+	}
+
+	/**
+	 * A cleanup run of unused locks has ended.
+	 *
+	 * @param recordsDeleted number of unused lock records deleted
+	 * @param chunks         number of statements executed
+	 * @param durationMillis time between the start and the end of the run, including the pauses between chunks
+	 * @param success        {@code false} if the run ended because of an exception
+	 */
+	default void cleanupCompleted( long recordsDeleted, int chunks, long durationMillis, boolean success ) {
+	}
+
+	/**
+	 * Returns the part of the lock key before the first {@code :}, or the entire key if it does not contain
+	 * a {@code :}.  Keys without prefix are expected to be a limited set of fixed names, whereas dynamic
+	 * keys - for example containing an entity id - are expected to start with a fixed prefix.
+	 *
+	 * @param lockKey key of the lock
+	 * @return prefix to use as metrics tag
+	 */
+	static String keyPrefix( String lockKey ) {
+		int index = lockKey.indexOf( ':' );
+		return index >= 0 ? lockKey.substring( 0, index ) : lockKey;
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Channel used by a {@link DistributedLockManager} to wake up owners waiting for a lock as soon as it is released,
+ * instead of waiting for the next retry interval.  A notification is only a hint that the lock might be available:
+ * the waiting owner still has to acquire it through the manager.
+ * <p/>
+ * Notifications are best effort, a manager should never wait longer than its retry interval for a notification,
+ * so a lost notification simply results in the lock being polled again.
+ *
+ * @see InMemoryDistributedLockNotifier
+ * @see PollingDistributedLockNotifier
+ */
+public interface DistributedLockNotifier
+{
+	/**
+	 * Notify an owner waiting for the lock that it has been released.  Implementations should wake up a single
+	 * waiting owner per notification: only one owner can take the lock, waking up all of them makes them all
+	 * try to take it at the same time.  Owners that are not woken up keep waiting for the next notification,
+	 * or try again after their retry interval.
+	 *
+	 * @param lockKey Key of the lock that has been released.
+	 */
+	void lockReleased( String lockKey );
+
+	/**
+	 * Register interest in release notifications for a lock.  A release notification delivered to the subscription
+	 * is kept, even if it is sent before {@link Subscription#awaitRelease(long, TimeUnit)} gets called.
+	 * The subscription should always be closed.
+	 *
+	 * @param lockKey Key of the lock.
+	 * @return subscription instance
+	 */
+	Subscription subscribe( String lockKey );
+
+	/**
+	 * Subscription on release notifications of a single lock.
+	 */
+	interface Subscription extends AutoCloseable
+	{
+		/**
+		 * Waits for a release notification of the lock.
+		 *
+		 * @param time the maximum time to wait
+		 * @param unit the time unit of the {@code time} argument
+		 * @return {@code true} if a release notification was received, {@code false} if the waiting time elapsed
+		 * @throws InterruptedException thrown if Thread was interrupted during wait
+		 */
+		boolean awaitRelease( long time, TimeUnit unit ) throws InterruptedException;
+
+		/**
+		 * Executes the callback for every release notification received from now on, instead of waking up
+		 * {@link #awaitRelease(long, TimeUnit)}.  Used by owners that do not block a thread while waiting.
+		 * The callback is executed on the thread sending the notification and should return quickly.
+		 * <p/>
+		 * The notification is still kept by the subscription: the owner should consume it by calling
+		 * {@link #awaitRelease(long, TimeUnit)} without waiting, right before it tries to acquire the lock.
+		 * A subscription closed without consuming its notification passes it on to another owner.
+		 *
+		 * @param callback to execute when a release notification is received
+		 */
+		void onRelease( Runnable callback );
+
+		/**
+		 * Stop receiving notifications.
+		 */
+		@Override
+		void close();
+	}
+}
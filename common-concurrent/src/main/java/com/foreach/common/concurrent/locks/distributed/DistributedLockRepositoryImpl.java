@@ -52,6 +52,13 @@ public class DistributedLockRepositoryImpl implements DistributedLockRepository
 		this.defaultOwnerName = defaultOwnerName;
 	}
 
+	/**
+	 * @return owner name used for the locks created without an explicit owner
+	 */
+	protected String getDefaultOwnerName() {
+		return defaultOwnerName;
+	}
+
 	@Override
 	public DistributedLock getLock( String key ) {
 		return getLock( defaultOwnerName, key );
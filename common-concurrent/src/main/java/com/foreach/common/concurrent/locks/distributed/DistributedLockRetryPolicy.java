@@ -0,0 +1,163 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import org.springframework.util.Assert;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Determines how long an owner waiting for a {@link DistributedLock} should wait before trying to acquire
+ * the lock again.  A policy is consulted after every failed attempt and receives information about the
+ * previous attempts and the current holder of the lock (if known).
+ * <p/>
+ * The built-in policies can be created using {@link #fixed(long)}, {@link #exponential(long, long)}
+ * and {@link #decorrelatedJitter(long, long)}.  All built-in policies will never wait longer than the
+ * time left before the current holder's lock can be stolen.
+ *
+ * @see SqlBasedDistributedLockConfiguration#setRetryPolicy(DistributedLockRetryPolicy)
+ */
+@FunctionalInterface
+public interface DistributedLockRetryPolicy
+{
+	/**
+	 * @param attempt information on the attempt that just failed
+	 * @return number of milliseconds to wait before trying again, should be at least 1
+	 */
+	long getRetryDelay( FailedAttempt attempt );
+
+	/**
+	 * Always wait the same interval before retrying.  This is the default behaviour using the
+	 * {@link SqlBasedDistributedLockConfiguration#getRetryInterval()}.
+	 *
+	 * @param interval number of milliseconds between attempts
+	 * @return policy instance
+	 */
+	static DistributedLockRetryPolicy fixed( long interval ) {
+		Assert.isTrue( interval > 0, "interval must be positive" );
+		return attempt -> attempt.capToStealable( interval );
+	}
+
+	/**
+	 * Doubles the wait time after every failed attempt, starting from the initial delay and never
+	 * exceeding the maximum delay.
+	 *
+	 * @param initialDelay number of milliseconds to wait after the first failed attempt
+	 * @param maxDelay     maximum number of milliseconds to wait
+	 * @return policy instance
+	 */
+	static DistributedLockRetryPolicy exponential( long initialDelay, long maxDelay ) {
+		Assert.isTrue( initialDelay > 0, "initialDelay must be positive" );
+		Assert.isTrue( maxDelay >= initialDelay, "maxDelay cannot be less than initialDelay" );
+
+		return attempt -> {
+			int doublings = attempt.getAttempts() - 1;
+			long delay = doublings < Long.numberOfLeadingZeros( initialDelay ) - 1
+					? initialDelay << doublings : maxDelay;
+
+			return attempt.capToStealable( Math.min( delay, maxDelay ) );
+		};
+	}
+
+	/**
+	 * Randomized exponential backoff where every delay is a random value between the base delay and three times
+	 * the previous delay, never exceeding the maximum delay.  Spreads the retries of competing owners, avoiding
+	 * bursts of simultaneous attempts on a contended lock.
+	 *
+	 * @param baseDelay minimum number of milliseconds to wait
+	 * @param maxDelay  maximum number of milliseconds to wait
+	 * @return policy instance
+	 */
+	static DistributedLockRetryPolicy decorrelatedJitter( long baseDelay, long maxDelay ) {
+		Assert.isTrue( baseDelay > 0, "baseDelay must be positive" );
+		Assert.isTrue( maxDelay >= baseDelay, "maxDelay cannot be less than baseDelay" );
+
+		return attempt -> {
+			long upper = Math.min( maxDelay, Math.max( baseDelay, attempt.getPreviousDelay() ) * 3 );
+			long delay = upper > baseDelay ? ThreadLocalRandom.current().nextLong( baseDelay, upper + 1 ) : baseDelay;
+
+			return attempt.capToStealable( delay );
+		};
+	}
+
+	/**
+	 * Information about a failed attempt to acquire a lock.
+	 */
+	final class FailedAttempt
+	{
+		private final int attempts;
+		private final long previousDelay;
+		private final long heldFor;
+		private final long idleFor;
+		private final long maxIdleBeforeSteal;
+
+		public FailedAttempt( int attempts, long previousDelay, long heldFor, long idleFor, long maxIdleBeforeSteal ) {
+			this.attempts = attempts;
+			this.previousDelay = previousDelay;
+			this.heldFor = heldFor;
+			this.idleFor = idleFor;
+			this.maxIdleBeforeSteal = maxIdleBeforeSteal;
+		}
+
+		/**
+		 * @return number of failed attempts so far, including this one
+		 */
+		public int getAttempts() {
+			return attempts;
+		}
+
+		/**
+		 * @return delay (ms) that was used before this attempt, 0 if this was the first attempt
+		 */
+		public long getPreviousDelay() {
+			return previousDelay;
+		}
+
+		/**
+		 * @return number of milliseconds the current holder has held the lock, -1 if unknown
+		 */
+		public long getHeldFor() {
+			return heldFor;
+		}
+
+		/**
+		 * @return number of milliseconds since the lock was last updated by its holder, -1 if unknown
+		 */
+		public long getIdleFor() {
+			return idleFor;
+		}
+
+		/**
+		 * @return number of milliseconds before the lock can be stolen from its current holder,
+		 * {@link Long#MAX_VALUE} if unknown
+		 */
+		public long getTimeUntilStealable() {
+			return idleFor < 0 ? Long.MAX_VALUE : Math.max( 0, maxIdleBeforeSteal - idleFor );
+		}
+
+		/**
+		 * Limits the delay to just after the moment the lock can be stolen, in case the holder stopped
+		 * updating it.  The returned value is always at least 1.
+		 *
+		 * @param delay requested delay
+		 * @return delay to use
+		 */
+		public long capToStealable( long delay ) {
+			long untilStealable = getTimeUntilStealable();
+			return Math.max( 1, untilStealable < delay ? untilStealable + 1 : delay );
+		}
+	}
+}
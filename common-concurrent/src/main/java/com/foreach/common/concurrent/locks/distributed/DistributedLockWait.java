@@ -0,0 +1,114 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A single owner waiting for a lock: determines the delays between attempts using a {@link DistributedLockRetryPolicy}
+ * and waits for a release notification in between.  Shared by all lock managers, subclasses can add information
+ * to the failed attempts and adjust the delays.
+ */
+class DistributedLockWait implements AutoCloseable
+{
+	private final DistributedLockRetryPolicy retryPolicy;
+
+	private int attempts;
+	private long previousDelay;
+	private boolean notified;
+
+	DistributedLockWait( DistributedLockRetryPolicy retryPolicy ) {
+		this.retryPolicy = retryPolicy;
+	}
+
+	/**
+	 * @return number of failed attempts, every failed attempt has requested a delay
+	 */
+	int getAttempts() {
+		return attempts;
+	}
+
+	/**
+	 * @return true if the last wait ended because of a release notification
+	 */
+	boolean isNotified() {
+		return notified;
+	}
+
+	/**
+	 * Registers a failed attempt.
+	 *
+	 * @return number of milliseconds to wait before the next attempt, at least 1
+	 */
+	long nextDelay() {
+		attempts++;
+		long delay = adjustDelay( Math.max( 1, retryPolicy.getRetryDelay( failedAttempt( attempts, previousDelay ) ) ) );
+		previousDelay = delay;
+		return delay;
+	}
+
+	protected DistributedLockRetryPolicy.FailedAttempt failedAttempt( int attempt, long previousDelay ) {
+		return new DistributedLockRetryPolicy.FailedAttempt( attempt, previousDelay, -1, -1, -1 );
+	}
+
+	protected long adjustDelay( long delay ) {
+		return delay;
+	}
+
+	/**
+	 * Executes attempts until one succeeds, waiting for a release notification or the next delay in between.
+	 */
+	void await( DistributedLockNotifier.Subscription subscription, BooleanSupplier attempt ) throws InterruptedException {
+		boolean acquired = attempt.getAsBoolean();
+
+		while ( !acquired ) {
+			notified = subscription.awaitRelease( nextDelay(), TimeUnit.MILLISECONDS );
+			acquired = attempt.getAsBoolean();
+		}
+	}
+
+	/**
+	 * Executes attempts until one succeeds or the deadline has passed, waiting for a release notification
+	 * or the next delay in between.
+	 *
+	 * @param deadline {@link System#nanoTime()} after which no new attempt should be made
+	 * @return true if an attempt succeeded
+	 */
+	boolean await( DistributedLockNotifier.Subscription subscription,
+	               BooleanSupplier attempt,
+	               long deadline ) throws InterruptedException {
+		boolean acquired = attempt.getAsBoolean();
+		long timeRemaining = deadline - System.nanoTime();
+
+		while ( !acquired && timeRemaining > 0 ) {
+			long delay = TimeUnit.MILLISECONDS.toNanos( nextDelay() );
+			notified = subscription.awaitRelease( Math.min( delay, timeRemaining ), TimeUnit.NANOSECONDS );
+			acquired = attempt.getAsBoolean();
+
+			timeRemaining = deadline - System.nanoTime();
+		}
+
+		return acquired;
+	}
+
+	/**
+	 * Called when the owner stops waiting, whether the lock was acquired or not.
+	 */
+	@Override
+	public void close() {
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DistributedLockManager} that also manages permits shared by all nodes: the permits of a
+ * {@link DistributedSemaphore} and the tokens of a {@link DistributedRateLimiter}.
+ *
+ * @see DistributedPermitRepository
+ */
+public interface DistributedPermitManager extends DistributedLockManager
+{
+	/**
+	 * Will try and acquire a number of permits of a semaphore a single time.  The permits are acquired for the
+	 * owner of the lock, the key of the lock is the key of the semaphore.  Permits are kept alive and can be
+	 * stolen the same way as read locks.
+	 *
+	 * @param lock       Lock instance representing the owner and the semaphore.
+	 * @param permits    number of permits to acquire at once
+	 * @param maxPermits total number of permits of the semaphore
+	 * @return {@code true} if the permits were acquired and {@code false} otherwise
+	 * @see DistributedSemaphore
+	 */
+	boolean tryAcquirePermits( DistributedLock lock, int permits, int maxPermits );
+
+	/**
+	 * Will try and acquire a number of permits of a semaphore and will keep trying until the specified time
+	 * has passed.  Either all permits are acquired or none of them.
+	 *
+	 * @param lock       Lock instance representing the owner and the semaphore.
+	 * @param permits    number of permits to acquire at once
+	 * @param maxPermits total number of permits of the semaphore
+	 * @param time       the maximum time to wait for the permits
+	 * @param unit       the time unit of the {@code time} argument
+	 * @return {@code true} if the permits were acquired and {@code false} if the waiting time elapsed
+	 */
+	boolean tryAcquirePermits( DistributedLock lock, int permits, int maxPermits, long time, TimeUnit unit );
+
+	/**
+	 * Will release a number of permits of a semaphore held by the owner of the lock.
+	 *
+	 * @param lock    Lock instance representing the owner and the semaphore.
+	 * @param permits number of permits to release
+	 */
+	void releasePermits( DistributedLock lock, int permits );
+
+	/**
+	 * @param lockKey    Id of the semaphore.
+	 * @param maxPermits total number of permits of the semaphore
+	 * @return number of permits that are currently not held by any owner
+	 */
+	int getAvailablePermits( String lockKey, int maxPermits );
+
+	/**
+	 * Will try and take a number of tokens from a token bucket shared by all nodes, a single time.  The bucket
+	 * is refilled at a constant rate and holds at most {@code capacity} tokens, which is the maximum burst.
+	 *
+	 * @param lockKey         Id of the token bucket.
+	 * @param tokens          number of tokens to take at once
+	 * @param tokensPerSecond rate at which the bucket is refilled
+	 * @param capacity        maximum number of tokens in the bucket
+	 * @return 0 if the tokens were taken, otherwise the estimated number of nanoseconds before enough tokens
+	 * will be available
+	 * @see DistributedRateLimiter
+	 */
+	long tryAcquireTokens( String lockKey, int tokens, double tokensPerSecond, int capacity );
+}
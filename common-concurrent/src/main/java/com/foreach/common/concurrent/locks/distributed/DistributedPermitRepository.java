@@ -0,0 +1,55 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+/**
+ * Central repository for creating distributed locks as well as semaphores and rate limiters shared by all nodes.
+ *
+ * @see SqlBasedDistributedLockRepository
+ */
+public interface DistributedPermitRepository extends DistributedLockRepository
+{
+	/**
+	 * Creates a new DistributedSemaphore with a unique owner id.  The owner id is generated based on the
+	 * default owner name of the repository, every semaphore instance gets its own owner id.
+	 *
+	 * @param key     Unique id of the semaphore.
+	 * @param permits Total number of permits of the semaphore.
+	 * @return DistributedSemaphore instance.
+	 */
+	DistributedSemaphore getSemaphore( String key, int permits );
+
+	/**
+	 * Creates a new DistributedSemaphore with the specified owner id.
+	 *
+	 * @param ownerId Unique id of the owner for this semaphore.
+	 * @param key     Unique id of the semaphore.
+	 * @param permits Total number of permits of the semaphore.
+	 * @return DistributedSemaphore instance.
+	 */
+	DistributedSemaphore createSharedSemaphore( String ownerId, String key, int permits );
+
+	/**
+	 * Creates a new DistributedRateLimiter.  All rate limiters with the same key share the same permits,
+	 * they should be created with the same rate and burst.
+	 *
+	 * @param key              Unique id of the rate limiter.
+	 * @param permitsPerSecond Number of permits per second.
+	 * @param burst            Maximum number of permits that can be acquired at once after a quiet period.
+	 * @return DistributedRateLimiter instance.
+	 */
+	DistributedRateLimiter getRateLimiter( String key, double permitsPerSecond, int burst );
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import org.springframework.util.Assert;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Token bucket rate limiter shared by all nodes using the same key, for example "at most 100 S3 writes per second
+ * across the cluster".  The bucket is refilled at a constant rate and holds at most the burst number of permits,
+ * so after a quiet period the burst can be used at once.
+ * <p/>
+ * Every attempt that cannot be served locally is a single round-trip to the lock manager.  To reduce the number
+ * of round-trips, a batch size can be configured: permits are then taken from the shared bucket per batch and
+ * handed out locally.  Permits taken in a batch are no longer available to other nodes, so the batch size should
+ * be small compared to the rate.  If a full batch is not available, only the permits requested are taken.
+ * <p/>
+ * Waiting for permits is done in the calling thread, sleeping for the time the bucket needs to refill.  No lock
+ * is held during the round-trips, so local callers are not blocked by the ones waiting for the lock manager.
+ *
+ * @see DistributedPermitRepository#getRateLimiter(String, double, int)
+ */
+public class DistributedRateLimiter
+{
+	private final DistributedPermitManager lockManager;
+	private final String key;
+	private final double permitsPerSecond;
+	private final int burst;
+
+	private final AtomicInteger localPermits = new AtomicInteger();
+
+	private volatile int batchSize = 1;
+
+	DistributedRateLimiter( DistributedPermitManager lockManager, String key, double permitsPerSecond, int burst ) {
+		Assert.hasText( key, "key must not be empty" );
+		Assert.isTrue( permitsPerSecond > 0, "permitsPerSecond must be positive" );
+		Assert.isTrue( burst > 0, "burst must be positive" );
+
+		this.lockManager = lockManager;
+		this.key = key;
+		this.permitsPerSecond = permitsPerSecond;
+		this.burst = burst;
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	/**
+	 * @return number of permits added to the bucket per second
+	 */
+	public double getPermitsPerSecond() {
+		return permitsPerSecond;
+	}
+
+	/**
+	 * @return maximum number of permits in the bucket
+	 */
+	public int getBurst() {
+		return burst;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * @param batchSize number of permits taken from the shared bucket at once, cannot exceed the burst
+	 */
+	public void setBatchSize( int batchSize ) {
+		Assert.isTrue( batchSize > 0 && batchSize <= burst, "batchSize must be between 1 and " + burst );
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * @return number of permits taken from the shared bucket that have not been handed out yet
+	 */
+	public int getLocalPermits() {
+		return localPermits.get();
+	}
+
+	/**
+	 * Acquire a single permit, waiting as long as it takes.
+	 */
+	public void acquire() {
+		acquire( 1 );
+	}
+
+	/**
+	 * Acquire a number of permits at once, waiting as long as it takes.
+	 *
+	 * @param permits number of permits, cannot exceed the burst
+	 * @throws DistributedLockWaitException if the thread was interrupted while waiting
+	 */
+	public void acquire( int permits ) {
+		long wait = takePermits( permits );
+
+		while ( wait > 0 ) {
+			sleep( wait );
+			wait = takePermits( permits );
+		}
+	}
+
+	public boolean tryAcquire() {
+		return tryAcquire( 1 );
+	}
+
+	/**
+	 * Try to acquire a number of permits at once, without waiting.
+	 *
+	 * @param permits number of permits, cannot exceed the burst
+	 * @return {@code true} if the permits were acquired
+	 */
+	public boolean tryAcquire( int permits ) {
+		return takePermits( permits ) == 0;
+	}
+
+	/**
+	 * Try to acquire a number of permits at once, waiting at most the given time.  Returns immediately if the
+	 * bucket will not have enough permits in time.
+	 *
+	 * @param permits number of permits, cannot exceed the burst
+	 * @param time    the maximum time to wait for the permits
+	 * @param unit    the time unit of the {@code time} argument
+	 * @return {@code true} if the permits were acquired
+	 * @throws DistributedLockWaitException if the thread was interrupted while waiting
+	 */
+	public boolean tryAcquire( int permits, long time, TimeUnit unit ) {
+		long deadline = System.nanoTime() + unit.toNanos( time );
+		long wait = takePermits( permits );
+
+		while ( wait > 0 ) {
+			if ( wait > deadline - System.nanoTime() ) {
+				return false;
+			}
+
+			sleep( wait );
+			wait = takePermits( permits );
+		}
+
+		return true;
+	}
+
+	/**
+	 * @return 0 if the permits were taken, otherwise the number of nanoseconds to wait
+	 */
+	private long takePermits( int permits ) {
+		Assert.isTrue( permits > 0 && permits <= burst, "permits must be between 1 and " + burst );
+
+		int claimed = claimLocalPermits( permits );
+		if ( claimed == permits ) {
+			return 0;
+		}
+
+		int missing = permits - claimed;
+		int batch = Math.min( burst, Math.max( missing, batchSize ) );
+
+		long wait = lockManager.tryAcquireTokens( key, batch, permitsPerSecond, burst );
+
+		if ( wait > 0 && batch > missing ) {
+			batch = missing;
+			wait = lockManager.tryAcquireTokens( key, batch, permitsPerSecond, burst );
+		}
+
+		// keep the remainder of the batch, or give back the local permits if not enough could be taken
+		localPermits.addAndGet( wait == 0 ? batch - missing : claimed );
+
+		return wait;
+	}
+
+	/**
+	 * @return number of local permits taken, at most the number requested
+	 */
+	private int claimLocalPermits( int permits ) {
+		int available;
+		int claimed;
+
+		do {
+			available = localPermits.get();
+			claimed = Math.min( available, permits );
+		}
+		while ( claimed > 0 && !localPermits.compareAndSet( available, available - claimed ) );
+
+		return claimed;
+	}
+
+	private void sleep( long nanos ) {
+		try {
+			TimeUnit.NANOSECONDS.sleep( nanos );
+		}
+		catch ( InterruptedException ie ) {
+			throw new DistributedLockWaitException( ie );
+		}
+	}
+}
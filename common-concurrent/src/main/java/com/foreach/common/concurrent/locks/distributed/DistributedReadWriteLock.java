@@ -0,0 +1,46 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import com.foreach.common.concurrent.locks.ObjectReadWriteLock;
+
+/**
+ * Distributed read/write lock: the read lock can be held by several owners at the same time,
+ * as long as no owner holds the write lock.  The write lock is exclusive and shares the key with the
+ * regular {@link DistributedLock} for the same key: holding one means holding the other.
+ * <p/>
+ * Both locks are reentrant and have their own callbacks.  An owner holding the write lock can acquire the
+ * read lock as well, but the read lock cannot be upgraded: an owner holding only the read lock gets an
+ * {@link IllegalStateException} when acquiring the write lock.  The owner id of both locks is determined the
+ * same way as for the lock instances created by the {@link DistributedLockRepository}.
+ * Neither lock can be acquired asynchronously, and only the write lock has a fencing token.
+ *
+ * @see DistributedReadWriteLockRepository#getReadWriteLock(String)
+ */
+public interface DistributedReadWriteLock extends ObjectReadWriteLock<String>
+{
+	/**
+	 * @return the lock that can be held by several owners at the same time
+	 */
+	@Override
+	DistributedLock readLock();
+
+	/**
+	 * @return the exclusive lock that can only be acquired if no other owners hold the read lock
+	 */
+	@Override
+	DistributedLock writeLock();
+}
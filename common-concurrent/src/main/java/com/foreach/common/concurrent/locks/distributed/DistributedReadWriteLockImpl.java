@@ -0,0 +1,207 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+
+/**
+ * Implementation of {@link DistributedReadWriteLock} that dispatches to the read and write methods
+ * of the {@link DistributedReadWriteLockManager}.  The owner id of both locks is determined by the regular
+ * {@link DistributedLock} passed in, either a {@link ThreadBasedDistributedLock} or a {@link SharedDistributedLock}.
+ *
+ * @see DistributedReadWriteLockRepository#getReadWriteLock(String)
+ * @see DistributedReadWriteLockRepository#createSharedReadWriteLock(String, String)
+ */
+public class DistributedReadWriteLockImpl implements DistributedReadWriteLock
+{
+	private final DistributedLock owner;
+	private final DistributedLock readLock, writeLock;
+
+	DistributedReadWriteLockImpl( DistributedReadWriteLockManager lockManager, DistributedLock owner ) {
+		this.owner = owner;
+
+		readLock = new ReadLock( lockManager );
+		writeLock = new WriteLock( lockManager );
+	}
+
+	@Override
+	public String getKey() {
+		return owner.getKey();
+	}
+
+	@Override
+	public DistributedLock readLock() {
+		return readLock;
+	}
+
+	@Override
+	public DistributedLock writeLock() {
+		return writeLock;
+	}
+
+	private abstract class LockView implements DistributedLock
+	{
+		protected final DistributedReadWriteLockManager lockManager;
+
+		private LockStolenCallback stolenCallback;
+		private LockUnstableCallback unstableCallback;
+
+		LockView( DistributedReadWriteLockManager lockManager ) {
+			this.lockManager = lockManager;
+		}
+
+		@Override
+		public String getOwnerId() {
+			return owner.getOwnerId();
+		}
+
+		@Override
+		public String getKey() {
+			return owner.getKey();
+		}
+
+		@Override
+		public void lock() {
+			try {
+				lockInterruptibly();
+			}
+			catch ( InterruptedException ie ) {
+				throw new DistributedLockWaitException( ie );
+			}
+		}
+
+		@Override
+		public Condition newCondition() {
+			throw new UnsupportedOperationException(
+					"newCondition() is not supported on this DistributedLock implementation." );
+		}
+
+		@Override
+		public CompletableFuture<DistributedLock> acquireAsync() {
+			throw new UnsupportedOperationException(
+					"acquireAsync() is not supported on the locks of a DistributedReadWriteLock." );
+		}
+
+		@Override
+		public LockStolenCallback getStolenCallback() {
+			return stolenCallback;
+		}
+
+		@Override
+		public void setStolenCallback( LockStolenCallback stolenCallback ) {
+			this.stolenCallback = stolenCallback;
+		}
+
+		@Override
+		public LockUnstableCallback getUnstableCallback() {
+			return unstableCallback;
+		}
+
+		@Override
+		public void setUnstableCallback( LockUnstableCallback unstableCallback ) {
+			this.unstableCallback = unstableCallback;
+		}
+	}
+
+	private final class ReadLock extends LockView
+	{
+		ReadLock( DistributedReadWriteLockManager lockManager ) {
+			super( lockManager );
+		}
+
+		@Override
+		public void lockInterruptibly() throws InterruptedException {
+			lockManager.acquireReadInterruptibly( this );
+		}
+
+		@Override
+		public boolean tryLock() {
+			return lockManager.tryAcquireRead( this );
+		}
+
+		@Override
+		public boolean tryLock( long time, TimeUnit unit ) {
+			return lockManager.tryAcquireRead( this, time, unit );
+		}
+
+		/**
+		 * @return true if any owner holds the read lock
+		 */
+		@Override
+		public boolean isLocked() {
+			return lockManager.isReadLocked( getKey() );
+		}
+
+		@Override
+		public boolean isHeldByCurrentThread() {
+			return lockManager.isReadLockedByOwner( getOwnerId(), getKey() );
+		}
+
+		@Override
+		public long getFencingToken() {
+			throw new UnsupportedOperationException( "The read lock of a DistributedReadWriteLock has no fencing token." );
+		}
+
+		@Override
+		public void unlock() {
+			lockManager.releaseRead( this );
+		}
+	}
+
+	private final class WriteLock extends LockView
+	{
+		WriteLock( DistributedReadWriteLockManager lockManager ) {
+			super( lockManager );
+		}
+
+		@Override
+		public void lockInterruptibly() throws InterruptedException {
+			lockManager.acquireWriteInterruptibly( this );
+		}
+
+		@Override
+		public boolean tryLock() {
+			return lockManager.tryAcquireWrite( this );
+		}
+
+		@Override
+		public boolean tryLock( long time, TimeUnit unit ) {
+			return lockManager.tryAcquireWrite( this, time, unit );
+		}
+
+		@Override
+		public boolean isLocked() {
+			return lockManager.isLocked( getKey() );
+		}
+
+		@Override
+		public boolean isHeldByCurrentThread() {
+			return lockManager.isLockedByOwner( getOwnerId(), getKey() );
+		}
+
+		@Override
+		public long getFencingToken() {
+			return lockManager.getFencingToken( this );
+		}
+
+		@Override
+		public void unlock() {
+			lockManager.release( this );
+		}
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DistributedLockManager} that also supports read/write locks: the read lock can be held by several
+ * owners at the same time, the write lock is the regular exclusive lock with the same key.
+ *
+ * @see DistributedReadWriteLock
+ * @see DistributedReadWriteLockRepository
+ */
+public interface DistributedReadWriteLockManager extends DistributedLockManager
+{
+	/**
+	 * Will try and acquire the read lock and will block the thread until this succeeds.
+	 * The read lock can be held by several owners at the same time, but not while another owner holds
+	 * the (write) lock with the same key.
+	 *
+	 * @param lock Lock instance to acquire in read mode.
+	 * @throws InterruptedException thrown if Thread was interrupted during wait
+	 * @see DistributedReadWriteLock
+	 */
+	void acquireReadInterruptibly( DistributedLock lock ) throws InterruptedException;
+
+	/**
+	 * Will try and acquire the read lock a single time and will return immediately after trying.
+	 *
+	 * @param lock Lock instance to acquire in read mode.
+	 * @return {@code true} if the read lock was acquired and {@code false} otherwise
+	 */
+	boolean tryAcquireRead( DistributedLock lock );
+
+	/**
+	 * Will try and acquire the read lock and will keep trying until the specified time has passed.
+	 *
+	 * @param lock Lock instance to acquire in read mode.
+	 * @param time the maximum time to wait for the lock
+	 * @param unit the time unit of the {@code time} argument
+	 * @return {@code true} if the read lock was acquired and {@code false} if the waiting time elapsed
+	 */
+	boolean tryAcquireRead( DistributedLock lock, long time, TimeUnit unit );
+
+	/**
+	 * Will release a single hold on the read lock.
+	 *
+	 * @param lock Lock instance to release in read mode.
+	 */
+	void releaseRead( DistributedLock lock );
+
+	/**
+	 * Will try and acquire the write lock and will block the thread until this succeeds.  The write lock
+	 * is the exclusive lock with the same key, but it is only acquired once no other owners hold the read lock.
+	 * The write lock is released using {@link #release(DistributedLock)}.
+	 *
+	 * @param lock Lock instance to acquire in write mode.
+	 * @throws InterruptedException  thrown if Thread was interrupted during wait
+	 * @throws IllegalStateException if the owner holds the read lock but not the write lock
+	 * @see DistributedReadWriteLock
+	 */
+	void acquireWriteInterruptibly( DistributedLock lock ) throws InterruptedException;
+
+	/**
+	 * Will try and acquire the write lock a single time and will return immediately after trying.
+	 *
+	 * @param lock Lock instance to acquire in write mode.
+	 * @return {@code true} if the write lock was acquired and {@code false} otherwise
+	 */
+	boolean tryAcquireWrite( DistributedLock lock );
+
+	/**
+	 * Will try and acquire the write lock and will keep trying until the specified time has passed.
+	 *
+	 * @param lock Lock instance to acquire in write mode.
+	 * @param time the maximum time to wait for the lock
+	 * @param unit the time unit of the {@code time} argument
+	 * @return {@code true} if the write lock was acquired and {@code false} if the waiting time elapsed
+	 */
+	boolean tryAcquireWrite( DistributedLock lock, long time, TimeUnit unit );
+
+	/**
+	 * Checks if the read lock is held by anybody.
+	 *
+	 * @param lockKey Id of the lock to check.
+	 * @return {@code true} if at least one owner holds the read lock
+	 */
+	boolean isReadLocked( String lockKey );
+
+	/**
+	 * Checks if the read lock is held by a specific owner.
+	 *
+	 * @param ownerId Id of the owner.
+	 * @param lockKey Id of the lock to check.
+	 * @return {@code true} if the read lock is held by that owner
+	 */
+	boolean isReadLockedByOwner( String ownerId, String lockKey );
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import com.foreach.common.concurrent.locks.ObjectReadWriteLockRepository;
+
+/**
+ * Central repository for creating distributed locks as well as distributed read/write locks.
+ *
+ * @see SqlBasedDistributedLockRepository
+ */
+public interface DistributedReadWriteLockRepository
+		extends DistributedLockRepository, ObjectReadWriteLockRepository<String>
+{
+	/**
+	 * Creates a new DistributedReadWriteLock with a unique owner id, the owner id is generated the same
+	 * way as for {@link DistributedLockRepository#getLock(String)}.
+	 *
+	 * @param key Unique id of the lock.
+	 * @return DistributedReadWriteLock instance.
+	 */
+	@Override
+	DistributedReadWriteLock getReadWriteLock( String key );
+
+	/**
+	 * Creates a new DistributedReadWriteLock with a unique owner id, the owner id is generated the same
+	 * way as for {@link DistributedLockRepository#getLock(String, String)}.
+	 *
+	 * @param ownerName Name of the owner, will be used as part of the unique owner id.
+	 * @param key       Unique id of the lock.
+	 * @return DistributedReadWriteLock instance.
+	 */
+	DistributedReadWriteLock getReadWriteLock( String ownerName, String key );
+
+	/**
+	 * Creates a new shared distributed read/write lock with the specified owner id.
+	 *
+	 * @param ownerId Unique id of the owner for this lock.
+	 * @param lockKey Unique id of the lock.
+	 * @return DistributedReadWriteLock instance.
+	 * @see DistributedLockRepository#createSharedLock(String, String)
+	 */
+	DistributedReadWriteLock createSharedReadWriteLock( String ownerId, String lockKey );
+}
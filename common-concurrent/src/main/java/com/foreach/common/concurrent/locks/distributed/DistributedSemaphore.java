@@ -0,0 +1,172 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import org.springframework.util.Assert;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counting semaphore shared by all nodes using the same key, limiting the number of permits in use across the
+ * cluster, for example "at most 4 concurrent exports".  The permits are held by the owner of the semaphore
+ * instance, not by a thread: permits acquired by one thread can be released by another.
+ * <p/>
+ * Permits are kept alive by the lock manager the same way as locks.  If an owner does not keep its permits alive
+ * for longer than the maximum idle time, another owner acquiring permits removes them and the stolen callback of
+ * the semaphore is executed.  Several permits can be acquired at once, either all of them or none.
+ * <p/>
+ * The key of a semaphore cannot be used for a regular lock, and all instances must use the same number of permits.
+ *
+ * @see DistributedPermitRepository#getSemaphore(String, int)
+ * @see DistributedPermitRepository#createSharedSemaphore(String, String, int)
+ */
+public class DistributedSemaphore
+{
+	private final DistributedPermitManager lockManager;
+	private final DistributedLock holder;
+	private final int permits;
+	private final AtomicInteger heldPermits = new AtomicInteger();
+
+	DistributedSemaphore( DistributedPermitManager lockManager, String ownerId, String key, int permits ) {
+		Assert.isTrue( permits > 0, "permits must be positive" );
+
+		this.lockManager = lockManager;
+		this.holder = new SharedDistributedLock( lockManager, ownerId, key );
+		this.permits = permits;
+	}
+
+	public String getKey() {
+		return holder.getKey();
+	}
+
+	public String getOwnerId() {
+		return holder.getOwnerId();
+	}
+
+	/**
+	 * @return total number of permits of the semaphore
+	 */
+	public int getPermits() {
+		return permits;
+	}
+
+	/**
+	 * @return number of permits held by this instance, according to the acquire and release calls
+	 */
+	public int getHeldPermits() {
+		return heldPermits.get();
+	}
+
+	/**
+	 * @return number of permits currently not held by any owner
+	 */
+	public int getAvailablePermits() {
+		return lockManager.getAvailablePermits( getKey(), permits );
+	}
+
+	/**
+	 * Acquire a single permit, waiting as long as it takes.
+	 */
+	public void acquire() {
+		acquire( 1 );
+	}
+
+	/**
+	 * Acquire a number of permits at once, waiting as long as it takes.
+	 *
+	 * @param permits number of permits
+	 * @throws DistributedLockWaitException if the thread was interrupted while waiting
+	 */
+	public void acquire( int permits ) {
+		boolean acquired = false;
+
+		while ( !acquired ) {
+			acquired = tryAcquire( permits, 1, TimeUnit.MINUTES );
+		}
+	}
+
+	public boolean tryAcquire() {
+		return tryAcquire( 1 );
+	}
+
+	/**
+	 * Try to acquire a number of permits at once, without waiting.
+	 *
+	 * @param permits number of permits
+	 * @return {@code true} if the permits were acquired
+	 */
+	public boolean tryAcquire( int permits ) {
+		return acquired( permits, lockManager.tryAcquirePermits( holder, permits, this.permits ) );
+	}
+
+	/**
+	 * Try to acquire a number of permits at once, waiting at most the given time.
+	 *
+	 * @param permits number of permits
+	 * @param time    the maximum time to wait for the permits
+	 * @param unit    the time unit of the {@code time} argument
+	 * @return {@code true} if the permits were acquired
+	 */
+	public boolean tryAcquire( int permits, long time, TimeUnit unit ) {
+		return acquired( permits, lockManager.tryAcquirePermits( holder, permits, this.permits, time, unit ) );
+	}
+
+	public void release() {
+		release( 1 );
+	}
+
+	/**
+	 * Release a number of permits held by this instance.
+	 *
+	 * @param permits number of permits
+	 */
+	public void release( int permits ) {
+		Assert.isTrue( permits > 0, "permits must be positive" );
+
+		heldPermits.updateAndGet( held -> Math.max( 0, held - permits ) );
+		lockManager.releasePermits( holder, permits );
+	}
+
+	public DistributedLock.LockStolenCallback getStolenCallback() {
+		return holder.getStolenCallback();
+	}
+
+	/**
+	 * @param callback executed if the permits of this instance were removed by another owner
+	 */
+	public void setStolenCallback( DistributedLock.LockStolenCallback callback ) {
+		holder.setStolenCallback( callback );
+	}
+
+	public DistributedLock.LockUnstableCallback getUnstableCallback() {
+		return holder.getUnstableCallback();
+	}
+
+	/**
+	 * @param callback executed if the permits of this instance could not be kept alive
+	 */
+	public void setUnstableCallback( DistributedLock.LockUnstableCallback callback ) {
+		holder.setUnstableCallback( callback );
+	}
+
+	private boolean acquired( int permits, boolean acquired ) {
+		if ( acquired ) {
+			heldPermits.addAndGet( permits );
+		}
+		return acquired;
+	}
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import com.foreach.common.concurrent.SingleFlight;
+import org.springframework.util.Assert;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Collapses requests for the same key across a cluster, so a single node computes the value.  Callers on the
+ * same node share a single computation using a {@link SingleFlight}, the nodes themselves take turns using a
+ * {@link DistributedLock} per key.
+ * <p/>
+ * Because a value computed on one node is not sent to the other nodes, every request takes a lookup that
+ * checks the shared storage (usually a distributed cache or the database) and a loader that computes the value
+ * and puts it in that storage.  The lookup is done before and after acquiring the lock: a node that waited
+ * for the lock finds the value stored by the node that held it, and does not compute it again.
+ * <pre>
+ * Report report = reports.get( "monthly:" + month,
+ *                              () -&gt; reportCache.get( month ),
+ *                              () -&gt; {
+ *                                  Report generated = generator.generate( month );
+ *                                  reportCache.put( month, generated );
+ *                                  return generated;
+ *                              } );
+ * </pre>
+ * The lock key is the key prefixed with the lock key prefix, which should keep it within the maximum length
+ * of the lock id column.  The lock is kept alive by the lock manager while the value is being computed.
+ *
+ * @see SingleFlight
+ */
+public class DistributedSingleFlight<V>
+{
+	/**
+	 * Prefix of the lock keys if none is specified.
+	 */
+	public static final String DEFAULT_LOCK_KEY_PREFIX = "single-flight:";
+
+	private final SingleFlight<String, V> localFlights = new SingleFlight<>();
+	private final LongAdder loadCount = new LongAdder();
+
+	private final DistributedLockRepository lockRepository;
+	private final String lockKeyPrefix;
+
+	public DistributedSingleFlight( DistributedLockRepository lockRepository ) {
+		this( lockRepository, DEFAULT_LOCK_KEY_PREFIX );
+	}
+
+	/**
+	 * @param lockRepository providing the locks
+	 * @param lockKeyPrefix  prepended to every key to create the lock key
+	 */
+	public DistributedSingleFlight( DistributedLockRepository lockRepository, String lockKeyPrefix ) {
+		Assert.notNull( lockRepository, "lockRepository cannot be null" );
+		Assert.notNull( lockKeyPrefix, "lockKeyPrefix cannot be null" );
+
+		this.lockRepository = lockRepository;
+		this.lockKeyPrefix = lockKeyPrefix;
+	}
+
+	/**
+	 * Get the value for the key, waiting as long as it takes for the lock.
+	 *
+	 * @param key    of the value
+	 * @param lookup returning the value from the shared storage, {@code null} if not present
+	 * @param loader computing the value and storing it in the shared storage
+	 * @return value
+	 */
+	public V get( String key, Supplier<? extends V> lookup, Supplier<? extends V> loader ) {
+		return localFlights.get( key, () -> {
+			V value = lookup.get();
+
+			if ( value == null ) {
+				DistributedLock lock = lockRepository.getLock( lockKeyPrefix + key );
+				lock.lock();
+
+				try {
+					value = lookupOrLoad( lookup, loader );
+				}
+				finally {
+					lock.unlock();
+				}
+			}
+
+			return value;
+		} );
+	}
+
+	/**
+	 * Get the value for the key, waiting at most the given time for a computation in flight on this node
+	 * and the same time for the lock.  All callers sharing a computation that could not acquire the lock in
+	 * time receive a {@link TimeoutException}.
+	 *
+	 * @param key     of the value
+	 * @param lookup  returning the value from the shared storage, {@code null} if not present
+	 * @param loader  computing the value and storing it in the shared storage
+	 * @param timeout the maximum time to wait
+	 * @param unit    the time unit of the {@code timeout} argument
+	 * @return value
+	 * @throws InterruptedException if the current thread was interrupted while waiting
+	 * @throws TimeoutException     if the value could not be retrieved in time
+	 */
+	public V get( String key, Supplier<? extends V> lookup, Supplier<? extends V> loader, long timeout, TimeUnit unit )
+			throws InterruptedException, TimeoutException {
+		try {
+			return localFlights.get( key, () -> {
+				V value = lookup.get();
+
+				if ( value == null ) {
+					DistributedLock lock = lockRepository.getLock( lockKeyPrefix + key );
+
+					if ( !lock.tryLock( timeout, unit ) ) {
+						throw new LockTimeoutException( key );
+					}
+
+					try {
+						value = lookupOrLoad( lookup, loader );
+					}
+					finally {
+						lock.unlock();
+					}
+				}
+
+				return value;
+			}, timeout, unit );
+		}
+		catch ( LockTimeoutException lte ) {
+			TimeoutException te = new TimeoutException( lte.getMessage() );
+			te.initCause( lte );
+			throw te;
+		}
+	}
+
+	/**
+	 * @return number of calls that shared the result of a computation started by another caller on this node
+	 */
+	public long getSharedCallCount() {
+		return localFlights.getSharedCallCount();
+	}
+
+	/**
+	 * @return number of times the value was computed on this node
+	 */
+	public long getLoadCount() {
+		return loadCount.sum();
+	}
+
+	private V lookupOrLoad( Supplier<? extends V> lookup, Supplier<? extends V> loader ) {
+		// another node might have computed the value while waiting for the lock
+		V value = lookup.get();
+
+		if ( value == null ) {
+			loadCount.increment();
+			value = loader.get();
+		}
+
+		return value;
+	}
+
+	/**
+	 * Unchecked exception passing the timeout to all callers sharing the computation.
+	 */
+	private static final class LockTimeoutException extends RuntimeException
+	{
+		LockTimeoutException( String key ) {
+			super( "Unable to acquire the lock for key " + key + " in time" );
+		}
+	}
+}
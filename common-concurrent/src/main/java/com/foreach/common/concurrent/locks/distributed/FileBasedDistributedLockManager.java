@@ -0,0 +1,361 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link DistributedLockManager} for processes on the same host, using {@link FileChannel#tryLock(long, long, boolean)}
+ * on lock files in a shared directory.  Every lock key has its own lock file, named after the SHA-256 hash of the key.
+ * The lock files are never deleted by the manager.
+ * <p/>
+ * Within a single JVM every lock file is opened only once, managers for the same directory in the same JVM
+ * share the lock files and exclude each other without going through the file system.  Like with the other
+ * managers, the same owner id is considered the same owner, even when acquiring through different managers.
+ * <p/>
+ * The operating system releases the file locks of a process as soon as it terminates, so there is no need to steal
+ * idle locks.  The monitor reports a lock as stolen if its file lock is no longer valid, or if its lock file has been
+ * deleted or replaced: another process could then lock the new file.  If the lock file cannot be checked,
+ * the lock becomes unstable.
+ * <p/>
+ * While held, the lock file contains the fencing token, the owner id and the lock key on separate lines.  The
+ * file lock itself is taken on a single byte far beyond the content, the content can always be read by other
+ * processes.  Checking if a lock held by another process is locked briefly tries to lock the file, competing with
+ * owners trying to acquire the lock at that moment.
+ * <p/>
+ * Note that a {@link FileChannel} is closed if a thread performing I/O on it is interrupted, so a lock can be lost
+ * if the thread acquiring or releasing it gets interrupted.
+ */
+public class FileBasedDistributedLockManager extends AbstractDistributedLockManager
+{
+	private static final Logger LOG = LoggerFactory.getLogger( FileBasedDistributedLockManager.class );
+
+	private static final long LOCK_POSITION = Long.MAX_VALUE - 1;
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	/**
+	 * All lock files locked in this JVM, by absolute path.  Closing any channel on a file can release all locks the
+	 * JVM holds on that file, so every lock file is only opened once and channels on a path are only opened or
+	 * closed while holding the entry for that path.
+	 */
+	private static final ConcurrentMap<Path, LockFile> LOCK_FILES = new ConcurrentHashMap<>();
+
+	private final Path directory;
+	private final ConcurrentMap<String, LockFile> lockFiles = new ConcurrentHashMap<>();
+
+	public FileBasedDistributedLockManager( Path directory ) {
+		this( directory, SqlBasedDistributedLockConfiguration.DEFAULT_VERIFY_INTERVAL );
+	}
+
+	/**
+	 * @param directory      directory holding the lock files, created if it does not exist
+	 * @param verifyInterval number of milliseconds between the verifications of the held locks
+	 */
+	public FileBasedDistributedLockManager( Path directory, long verifyInterval ) {
+		super( verifyInterval );
+
+		Assert.notNull( directory, "directory must not be null" );
+
+		try {
+			this.directory = Files.createDirectories( directory ).toAbsolutePath().normalize();
+		}
+		catch ( IOException ioe ) {
+			close();
+			throw new DistributedLockException( "Unable to create lock directory " + directory, ioe );
+		}
+	}
+
+	public Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * @param lockKey key of the lock
+	 * @return path of the lock file for the key
+	 */
+	public Path getLockFile( String lockKey ) {
+		try {
+			byte[] hash = MessageDigest.getInstance( "SHA-256" ).digest( lockKey.getBytes( StandardCharsets.UTF_8 ) );
+			StringBuilder fileName = new StringBuilder( hash.length * 2 + 5 );
+			for ( byte b : hash ) {
+				fileName.append( HEX[( b >> 4 ) & 0xF] ).append( HEX[b & 0xF] );
+			}
+			return directory.resolve( fileName.append( ".lock" ).toString() );
+		}
+		catch ( NoSuchAlgorithmException nsae ) {
+			throw new IllegalStateException( nsae );
+		}
+	}
+
+	@Override
+	protected long takeLock( String lockId, String ownerId ) {
+		Path path = getLockFile( lockId );
+
+		LockFile[] taken = new LockFile[1];
+
+		try {
+			LOCK_FILES.compute( path, ( p, current ) -> {
+				if ( current == null ) {
+					taken[0] = openLockFile( p, ownerId, lockId );
+					return taken[0];
+				}
+				if ( current.ownerId.equals( ownerId ) && current.fileLock.isValid() ) {
+					// same owner through another manager in this JVM
+					current.holders++;
+					taken[0] = current;
+				}
+				return current;
+			} );
+		}
+		catch ( UncheckedIOException uioe ) {
+			throw new DistributedLockException( "Exception when trying to acquire lock " + lockId, uioe.getCause() );
+		}
+
+		if ( taken[0] == null ) {
+			return -1;
+		}
+
+		lockFiles.put( lockId, taken[0] );
+		return taken[0].token;
+	}
+
+	private LockFile openLockFile( Path path, String ownerId, String lockId ) {
+		FileChannel channel = null;
+
+		try {
+			channel = FileChannel.open( path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+			                            StandardOpenOption.WRITE );
+			FileLock fileLock = channel.tryLock( LOCK_POSITION, 1, false );
+
+			if ( fileLock == null ) {
+				channel.close();
+				return null;
+			}
+
+			long token = nextToken( readContent( channel ) );
+			writeContent( channel, token, ownerId, lockId );
+
+			return new LockFile( channel, fileLock, fileKey( path ), ownerId, token );
+		}
+		catch ( IOException ioe ) {
+			closeQuietly( channel );
+			throw new UncheckedIOException( ioe );
+		}
+	}
+
+	/**
+	 * The token is kept in the lock file after release, a new lock file is seeded with the current time
+	 * multiplied by 1000 so tokens remain increasing if a lock file is deleted.
+	 */
+	private long nextToken( String[] content ) {
+		try {
+			if ( content.length > 0 && !content[0].isEmpty() ) {
+				return Long.parseLong( content[0] ) + 1;
+			}
+		}
+		catch ( NumberFormatException nfe ) {
+			LOG.warn( "Invalid fencing token in lock file - starting a new sequence" );
+		}
+		return System.currentTimeMillis() * 1000;
+	}
+
+	@Override
+	protected void releaseLock( String lockId, String ownerId ) {
+		LockFile lockFile = lockFiles.remove( lockId );
+
+		if ( lockFile != null ) {
+			IOException failure = closeLockFile( lockId, lockFile, true );
+
+			if ( failure != null ) {
+				throw new DistributedLockException( "Exception when releasing lock " + lockId, failure );
+			}
+		}
+	}
+
+	/**
+	 * Removes a hold of a manager on the lock file, the file is unlocked once no more managers hold it.
+	 *
+	 * @return exception that occurred clearing the owner from the lock file
+	 */
+	private IOException closeLockFile( String lockId, LockFile lockFile, boolean clearOwner ) {
+		IOException[] failure = new IOException[1];
+
+		LOCK_FILES.computeIfPresent( getLockFile( lockId ), ( path, current ) -> {
+			if ( current != lockFile || --current.holders > 0 ) {
+				return current;
+			}
+			try {
+				if ( clearOwner && lockFile.fileLock.isValid() ) {
+					writeContent( lockFile.channel, lockFile.token, "", lockId );
+				}
+			}
+			catch ( IOException ioe ) {
+				failure[0] = ioe;
+			}
+			closeQuietly( lockFile.channel );
+			return null;
+		} );
+
+		return failure[0];
+	}
+
+	/**
+	 * If the lock is held in this JVM the owner is read from the lock file directly, otherwise the lock file
+	 * is briefly locked to determine if another process holds it.
+	 */
+	@Override
+	protected String getLockOwner( String lockId ) {
+		String[] owner = new String[1];
+
+		try {
+			LOCK_FILES.compute( getLockFile( lockId ), ( path, current ) -> {
+				owner[0] = current != null ? current.ownerId : probeLockOwner( path );
+				return current;
+			} );
+		}
+		catch ( UncheckedIOException uioe ) {
+			throw new DistributedLockException( "Unable to fetch lock info for lock " + lockId, uioe.getCause() );
+		}
+
+		return owner[0];
+	}
+
+	private String probeLockOwner( Path path ) {
+		try (FileChannel channel = FileChannel.open( path, StandardOpenOption.READ, StandardOpenOption.WRITE )) {
+			FileLock fileLock = channel.tryLock( LOCK_POSITION, 1, false );
+
+			if ( fileLock != null ) {
+				fileLock.release();
+				return null;
+			}
+
+			String[] content = readContent( channel );
+			return content.length > 1 ? content[1] : "";
+		}
+		catch ( NoSuchFileException nsfe ) {
+			return null;
+		}
+		catch ( IOException ioe ) {
+			throw new UncheckedIOException( ioe );
+		}
+	}
+
+	@Override
+	protected Set<String> verifyLocks( String ownerId, Collection<String> lockIds ) {
+		Set<String> verified = new HashSet<>( lockIds.size() );
+
+		for ( String lockId : lockIds ) {
+			LockFile lockFile = lockFiles.get( lockId );
+
+			if ( lockFile != null && lockFile.ownerId.equals( ownerId ) ) {
+				if ( lockFile.fileLock.isValid() && isSameFile( lockId, lockFile ) ) {
+					verified.add( lockId );
+				}
+				else if ( lockFiles.remove( lockId, lockFile ) ) {
+					closeLockFile( lockId, lockFile, false );
+				}
+			}
+		}
+
+		return verified;
+	}
+
+	private boolean isSameFile( String lockId, LockFile lockFile ) {
+		try {
+			Object fileKey = fileKey( getLockFile( lockId ) );
+			return lockFile.fileKey == null || lockFile.fileKey.equals( fileKey );
+		}
+		catch ( NoSuchFileException nsfe ) {
+			return false;
+		}
+		catch ( IOException ioe ) {
+			throw new DistributedLockException( "Unable to verify lock file of lock " + lockId, ioe );
+		}
+	}
+
+	private static Object fileKey( Path path ) throws IOException {
+		return Files.readAttributes( path, BasicFileAttributes.class ).fileKey();
+	}
+
+	private static String[] readContent( FileChannel channel ) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate( (int) Math.min( channel.size(), 4096 ) );
+		while ( buffer.hasRemaining() && channel.read( buffer, buffer.position() ) > 0 ) {
+			// keep reading until the buffer is full
+		}
+		String content = new String( buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8 );
+		return content.isEmpty() ? new String[0] : content.split( "\n", -1 );
+	}
+
+	private static void writeContent( FileChannel channel, long token, String ownerId, String lockId )
+			throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(
+				( token + "\n" + ownerId + "\n" + lockId ).getBytes( StandardCharsets.UTF_8 ) );
+		channel.truncate( 0 );
+		while ( buffer.hasRemaining() ) {
+			channel.write( buffer, buffer.position() );
+		}
+	}
+
+	private static void closeQuietly( FileChannel channel ) {
+		if ( channel != null ) {
+			try {
+				channel.close();
+			}
+			catch ( IOException ioe ) {
+				LOG.warn( "Unable to close lock file channel", ioe );
+			}
+		}
+	}
+
+	private static final class LockFile
+	{
+		private final FileChannel channel;
+		private final FileLock fileLock;
+		private final Object fileKey;
+		private final String ownerId;
+		private final long token;
+
+		// only modified while holding the entry in LOCK_FILES
+		private int holders = 1;
+
+		LockFile( FileChannel channel, FileLock fileLock, Object fileKey, String ownerId, long token ) {
+			this.channel = channel;
+			this.fileLock = fileLock;
+			this.fileKey = fileKey;
+			this.ownerId = ownerId;
+			this.token = token;
+		}
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import org.springframework.util.Assert;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Simulates a cluster of nodes sharing distributed locks inside a single JVM.  The cluster holds the shared lock
+ * state that would otherwise be kept in a database, every node is an {@link InMemoryDistributedLockManager}
+ * created using {@link #createNode(String)}.  Nodes can be given a latency for every access to the shared state,
+ * or disconnected from the cluster altogether, making the cluster useful for benchmarks and for testing how an
+ * application deals with stolen and unstable locks.
+ * <p/>
+ * The locks behave the same way as the locks of a {@link SqlBasedDistributedLockManager}: a lock that has not been
+ * verified by its node for longer than the maximum idle time can be stolen by another node.  Fencing tokens are
+ * issued from a single sequence for the entire cluster.  Releasing a lock on one node wakes up the owners waiting
+ * for it on all nodes.
+ */
+public class InMemoryDistributedLockCluster
+{
+	private final ConcurrentMap<String, LockRecord> locks = new ConcurrentHashMap<>();
+	private final AtomicLong tokenSequence = new AtomicLong();
+	private final DistributedLockNotifier lockNotifier = new InMemoryDistributedLockNotifier();
+	private final List<InMemoryDistributedLockManager> nodes = new CopyOnWriteArrayList<>();
+
+	private final long verifyInterval;
+	private final long maxIdleBeforeSteal;
+
+	public InMemoryDistributedLockCluster() {
+		this( SqlBasedDistributedLockConfiguration.DEFAULT_VERIFY_INTERVAL,
+		      SqlBasedDistributedLockConfiguration.DEFAULT_MAX_IDLE_BEFORE_STEAL );
+	}
+
+	/**
+	 * @param verifyInterval     number of milliseconds between the verifications of the locks held by a node
+	 * @param maxIdleBeforeSteal number of milliseconds a lock can go without verification before it can be stolen
+	 */
+	public InMemoryDistributedLockCluster( long verifyInterval, long maxIdleBeforeSteal ) {
+		Assert.isTrue( verifyInterval > 0, "verifyInterval must be at least 1" );
+		Assert.isTrue( maxIdleBeforeSteal > verifyInterval, "maxIdleBeforeSteal must be larger than verifyInterval" );
+
+		this.verifyInterval = verifyInterval;
+		this.maxIdleBeforeSteal = maxIdleBeforeSteal;
+	}
+
+	public long getVerifyInterval() {
+		return verifyInterval;
+	}
+
+	public long getMaxIdleBeforeSteal() {
+		return maxIdleBeforeSteal;
+	}
+
+	/**
+	 * Adds a new node to the cluster.
+	 *
+	 * @param nodeName descriptive name of the node
+	 * @return lock manager of the node
+	 */
+	public InMemoryDistributedLockManager createNode( String nodeName ) {
+		InMemoryDistributedLockManager node = new InMemoryDistributedLockManager( this, nodeName );
+		node.setLockNotifier( lockNotifier );
+		nodes.add( node );
+		return node;
+	}
+
+	/**
+	 * @return the nodes created in this cluster
+	 */
+	public List<InMemoryDistributedLockManager> getNodes() {
+		return Collections.unmodifiableList( nodes );
+	}
+
+	/**
+	 * Closes all nodes of the cluster.
+	 */
+	public void close() {
+		for ( InMemoryDistributedLockManager node : nodes ) {
+			node.close();
+		}
+		nodes.clear();
+	}
+
+	long take( String lockId, String ownerId ) {
+		long timestamp = System.currentTimeMillis();
+
+		LockRecord record = locks.compute( lockId, ( id, current ) -> {
+			if ( current == null || timestamp - current.updated > maxIdleBeforeSteal ) {
+				return new LockRecord( ownerId, tokenSequence.incrementAndGet(), timestamp );
+			}
+			if ( current.ownerId.equals( ownerId ) ) {
+				// same owner through another node
+				current.holds++;
+				current.updated = timestamp;
+			}
+			return current;
+		} );
+
+		return record.ownerId.equals( ownerId ) ? record.token : -1;
+	}
+
+	void release( String lockId, String ownerId ) {
+		locks.computeIfPresent( lockId, ( id, current ) -> {
+			if ( current.ownerId.equals( ownerId ) && --current.holds == 0 ) {
+				return null;
+			}
+			return current;
+		} );
+	}
+
+	String getOwner( String lockId ) {
+		LockRecord record = locks.get( lockId );
+		return record != null ? record.ownerId : null;
+	}
+
+	Set<String> verify( String ownerId, Collection<String> lockIds ) {
+		long timestamp = System.currentTimeMillis();
+		Set<String> verified = new HashSet<>( lockIds.size() );
+
+		for ( String lockId : lockIds ) {
+			locks.computeIfPresent( lockId, ( id, current ) -> {
+				if ( current.ownerId.equals( ownerId ) ) {
+					current.updated = timestamp;
+					verified.add( lockId );
+				}
+				return current;
+			} );
+		}
+
+		return verified;
+	}
+
+	private static final class LockRecord
+	{
+		private final String ownerId;
+		private final long token;
+
+		// only modified while holding the map entry
+		private long updated;
+		private int holds = 1;
+
+		LockRecord( String ownerId, long token, long updated ) {
+			this.ownerId = ownerId;
+			this.token = token;
+			this.updated = updated;
+		}
+	}
+}
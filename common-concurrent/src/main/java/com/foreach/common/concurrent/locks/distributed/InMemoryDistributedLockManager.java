@@ -0,0 +1,128 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import org.springframework.util.Assert;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A single node of an {@link InMemoryDistributedLockCluster}.  Every access to the lock state shared by the
+ * cluster is delayed with the configured latency, simulating a round trip to a remote store.  A node that is
+ * disconnected from the cluster can no longer acquire or verify locks: its held locks become unstable and can be
+ * stolen by other nodes once idle for long enough.  When the node is connected again, its monitor reports the
+ * locks that have been taken by other nodes as stolen.
+ *
+ * @see InMemoryDistributedLockCluster#createNode(String)
+ */
+public class InMemoryDistributedLockManager extends AbstractDistributedLockManager
+{
+	private final InMemoryDistributedLockCluster cluster;
+	private final String nodeName;
+
+	private volatile long latencyNanos;
+	private volatile boolean connected = true;
+
+	InMemoryDistributedLockManager( InMemoryDistributedLockCluster cluster, String nodeName ) {
+		super( cluster.getVerifyInterval() );
+
+		Assert.hasText( nodeName, "nodeName must not be empty" );
+
+		this.cluster = cluster;
+		this.nodeName = nodeName;
+	}
+
+	public String getNodeName() {
+		return nodeName;
+	}
+
+	/**
+	 * @return latency of every access to the cluster state in nanoseconds
+	 */
+	public long getLatencyNanos() {
+		return latencyNanos;
+	}
+
+	/**
+	 * Set the simulated latency of every access to the lock state of the cluster.
+	 *
+	 * @param latency the latency
+	 * @param unit    the time unit of the {@code latency} argument
+	 */
+	public void setLatency( long latency, TimeUnit unit ) {
+		Assert.isTrue( latency >= 0, "latency cannot be negative" );
+		this.latencyNanos = unit.toNanos( latency );
+	}
+
+	public boolean isConnected() {
+		return connected;
+	}
+
+	/**
+	 * Connect or disconnect the node from the cluster.  While disconnected, every access to the lock state
+	 * of the cluster fails with a {@link DistributedLockException}.
+	 *
+	 * @param connected false to simulate a network partition
+	 */
+	public void setConnected( boolean connected ) {
+		this.connected = connected;
+	}
+
+	@Override
+	protected long takeLock( String lockId, String ownerId ) {
+		roundTrip();
+		return cluster.take( lockId, ownerId );
+	}
+
+	@Override
+	protected void releaseLock( String lockId, String ownerId ) {
+		roundTrip();
+		cluster.release( lockId, ownerId );
+	}
+
+	@Override
+	protected String getLockOwner( String lockId ) {
+		roundTrip();
+		return cluster.getOwner( lockId );
+	}
+
+	@Override
+	protected Set<String> verifyLocks( String ownerId, Collection<String> lockIds ) {
+		roundTrip();
+		return cluster.verify( ownerId, lockIds );
+	}
+
+	private void roundTrip() {
+		if ( !connected ) {
+			throw new DistributedLockException( "Node " + nodeName + " is disconnected from the cluster" );
+		}
+
+		long latency = latencyNanos;
+
+		if ( latency > 0 ) {
+			long deadline = System.nanoTime() + latency;
+			long remaining = latency;
+
+			while ( remaining > 0 ) {
+				LockSupport.parkNanos( remaining );
+				remaining = deadline - System.nanoTime();
+			}
+		}
+	}
+}
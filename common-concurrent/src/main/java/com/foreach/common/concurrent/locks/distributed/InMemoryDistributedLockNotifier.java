@@ -0,0 +1,202 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implementation of {@link DistributedLockNotifier} that only dispatches notifications within the same JVM.
+ * Owners waiting on a lock that is released by a manager sharing the same notifier instance are woken up
+ * immediately, owners waiting on a lock released by another node will pick it up on their next retry.
+ * <p/>
+ * Every notification wakes up a single subscriber: the oldest one that has not yet received a notification.
+ * If a subscription is closed without having waited for the notification it received, the notification is
+ * passed on to the next subscriber.  A subscriber with a release callback receives the notification through its
+ * callback, which is executed on the releasing thread.  It keeps the notification until it is consumed with
+ * {@link Subscription#awaitRelease(long, TimeUnit)}, so a subscriber that stops waiting before it has used the
+ * notification passes it on as well.
+ * <p/>
+ * This is the default notifier of a {@link SqlBasedDistributedLockManager}.  A single instance can be shared
+ * between several managers in the same JVM.
+ */
+public class InMemoryDistributedLockNotifier implements DistributedLockNotifier
+{
+	private final ConcurrentMap<String, Channel> channels = new ConcurrentHashMap<>();
+
+	@Override
+	public void lockReleased( String lockKey ) {
+		Channel channel = channels.get( lockKey );
+
+		if ( channel != null ) {
+			channel.signal();
+		}
+	}
+
+	@Override
+	public Subscription subscribe( String lockKey ) {
+		ChannelSubscription[] subscription = new ChannelSubscription[1];
+
+		channels.compute( lockKey, ( key, existing ) -> {
+			Channel channel = existing != null ? existing : new Channel();
+			subscription[0] = channel.add( lockKey );
+			return channel;
+		} );
+
+		return subscription[0];
+	}
+
+	private void unsubscribe( ChannelSubscription subscription ) {
+		channels.computeIfPresent( subscription.lockKey,
+		                           ( key, channel ) -> channel.remove( subscription ) ? channel : null );
+	}
+
+	private final class Channel
+	{
+		private final ReentrantLock lock = new ReentrantLock();
+
+		// subscriptions in the order they were created, only modified while holding the lock
+		private final Deque<ChannelSubscription> subscriptions = new ArrayDeque<>();
+
+		ChannelSubscription add( String lockKey ) {
+			lock.lock();
+			try {
+				ChannelSubscription subscription = new ChannelSubscription( lockKey, this );
+				subscriptions.add( subscription );
+				return subscription;
+			}
+			finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * @return true if there are subscriptions left
+		 */
+		boolean remove( ChannelSubscription subscription ) {
+			lock.lock();
+			try {
+				subscriptions.remove( subscription );
+
+				if ( subscription.released ) {
+					signal();
+				}
+
+				return !subscriptions.isEmpty();
+			}
+			finally {
+				lock.unlock();
+			}
+		}
+
+		void signal() {
+			Runnable callback = null;
+
+			lock.lock();
+			try {
+				for ( ChannelSubscription subscription : subscriptions ) {
+					if ( !subscription.released ) {
+						subscription.released = true;
+
+						if ( subscription.callback != null ) {
+							callback = subscription.callback;
+						}
+						else {
+							subscription.condition.signal();
+						}
+						break;
+					}
+				}
+			}
+			finally {
+				lock.unlock();
+			}
+
+			if ( callback != null ) {
+				callback.run();
+			}
+		}
+	}
+
+	private final class ChannelSubscription implements Subscription
+	{
+		private final String lockKey;
+		private final Channel channel;
+		private final Condition condition;
+
+		// only modified while holding the channel lock
+		private boolean released;
+		private Runnable callback;
+
+		private boolean closed;
+
+		ChannelSubscription( String lockKey, Channel channel ) {
+			this.lockKey = lockKey;
+			this.channel = channel;
+
+			condition = channel.lock.newCondition();
+		}
+
+		@Override
+		public boolean awaitRelease( long time, TimeUnit unit ) throws InterruptedException {
+			channel.lock.lock();
+			try {
+				long nanos = unit.toNanos( time );
+				while ( !released && nanos > 0 ) {
+					nanos = condition.awaitNanos( nanos );
+				}
+
+				boolean received = released;
+				released = false;
+				return received;
+			}
+			finally {
+				channel.lock.unlock();
+			}
+		}
+
+		@Override
+		public void onRelease( Runnable callback ) {
+			boolean received;
+
+			channel.lock.lock();
+			try {
+				this.callback = callback;
+				received = released;
+			}
+			finally {
+				channel.lock.unlock();
+			}
+
+			if ( received ) {
+				callback.run();
+			}
+		}
+
+		@Override
+		public void close() {
+			if ( !closed ) {
+				closed = true;
+				unsubscribe( this );
+			}
+		}
+	}
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implementation of {@link DistributedLockNotifier} that never sends any notifications.
+ * Waiting owners will simply sleep for the entire wait time and poll the lock again afterwards.
+ * This was the behaviour of the {@link SqlBasedDistributedLockManager} before notifiers were introduced.
+ */
+public final class PollingDistributedLockNotifier implements DistributedLockNotifier
+{
+	/**
+	 * Shared instance, the polling notifier is stateless.
+	 */
+	public static final PollingDistributedLockNotifier INSTANCE = new PollingDistributedLockNotifier();
+
+	private static final Subscription SUBSCRIPTION = new Subscription()
+	{
+		@Override
+		public boolean awaitRelease( long time, TimeUnit unit ) throws InterruptedException {
+			unit.sleep( time );
+			return false;
+		}
+
+		@Override
+		public void onRelease( Runnable callback ) {
+		}
+
+		@Override
+		public void close() {
+		}
+	};
+
+	private PollingDistributedLockNotifier() {
+	}
+
+	@Override
+	public void lockReleased( String lockKey ) {
+	}
+
+	@Override
+	public Subscription subscribe( String lockKey ) {
+		return SUBSCRIPTION;
+	}
+}
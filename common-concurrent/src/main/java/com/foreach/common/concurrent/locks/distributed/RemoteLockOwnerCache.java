@@ -0,0 +1,139 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of the owners of locks that are held by other nodes, used by the
+ * {@link SqlBasedDistributedLockManager} to avoid a database query for every lock check.
+ * Only the fact that a lock is held is cached, a lock that is not held is always looked up.
+ * Entries expire after a fixed time, regardless of how often they are used.
+ * <p/>
+ * Once the cache is full, the expired entries are removed and if that is not enough, arbitrary entries are
+ * removed until the cache is filled for three quarters.  Evicting in batches keeps the full scan of the entries
+ * away from most lookups that miss.
+ *
+ * @see SqlBasedDistributedLockConfiguration#setRemoteOwnerCacheTime(long)
+ */
+class RemoteLockOwnerCache
+{
+	private final ConcurrentMap<String, CachedOwner> owners = new ConcurrentHashMap<>();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicBoolean evicting = new AtomicBoolean();
+
+	private final long timeToLive;
+	private final int maxSize, sizeAfterEviction;
+
+	RemoteLockOwnerCache( long timeToLive, int maxSize ) {
+		this.timeToLive = TimeUnit.MILLISECONDS.toNanos( timeToLive );
+		this.maxSize = maxSize;
+		sizeAfterEviction = maxSize - Math.max( 1, maxSize / 4 );
+	}
+
+	/**
+	 * @return cached owner or {@code null} if not cached
+	 */
+	String getOwner( String lockId ) {
+		CachedOwner cachedOwner = owners.get( lockId );
+
+		if ( cachedOwner != null ) {
+			if ( !cachedOwner.isExpired( System.nanoTime() ) ) {
+				hits.incrementAndGet();
+				return cachedOwner.ownerId;
+			}
+
+			owners.remove( lockId, cachedOwner );
+		}
+
+		misses.incrementAndGet();
+		return null;
+	}
+
+	void put( String lockId, String ownerId ) {
+		if ( owners.size() >= maxSize && !owners.containsKey( lockId ) ) {
+			evict();
+		}
+
+		owners.put( lockId, new CachedOwner( ownerId, System.nanoTime() + timeToLive ) );
+	}
+
+	void invalidate( String lockId ) {
+		owners.remove( lockId );
+	}
+
+	void invalidateAll( Collection<String> lockIds ) {
+		for ( String lockId : lockIds ) {
+			owners.remove( lockId );
+		}
+	}
+
+	long getHitCount() {
+		return hits.get();
+	}
+
+	long getMissCount() {
+		return misses.get();
+	}
+
+	int size() {
+		return owners.size();
+	}
+
+	/**
+	 * Only a single thread evicts at a time, others add their entry right away: the cache can briefly
+	 * exceed its maximum size.
+	 */
+	private void evict() {
+		if ( evicting.compareAndSet( false, true ) ) {
+			try {
+				long now = System.nanoTime();
+				owners.values().removeIf( cachedOwner -> cachedOwner.isExpired( now ) );
+
+				Iterator<String> lockIds = owners.keySet().iterator();
+				while ( owners.size() > sizeAfterEviction && lockIds.hasNext() ) {
+					lockIds.next();
+					lockIds.remove();
+				}
+			}
+			finally {
+				evicting.set( false );
+			}
+		}
+	}
+
+	private static final class CachedOwner
+	{
+		private final String ownerId;
+		private final long expires;
+
+		CachedOwner( String ownerId, long expires ) {
+			this.ownerId = ownerId;
+			this.expires = expires;
+		}
+
+		boolean isExpired( long now ) {
+			return now - expires >= 0;
+		}
+	}
+}
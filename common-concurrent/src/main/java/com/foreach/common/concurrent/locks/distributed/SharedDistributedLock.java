@@ -41,4 +41,9 @@ public class SharedDistributedLock extends ThreadBasedDistributedLock
 	public String getOwnerId() {
 		return ownerId;
 	}
+
+	@Override
+	DistributedLock withCurrentOwner() {
+		return this;
+	}
 }
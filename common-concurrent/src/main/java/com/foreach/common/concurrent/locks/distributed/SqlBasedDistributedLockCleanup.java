@@ -0,0 +1,143 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcOperations;
+
+/**
+ * Deletes the unused lock records for a {@link SqlBasedDistributedLockManager}.  A single statement deleting all
+ * unused records can hold row locks on a large part of the lock table for a long time, stalling owners trying to
+ * acquire a lock.  Instead the records are deleted in chunks of a limited number of records, every chunk in its own
+ * statement (and transaction when auto-committing).
+ * <p/>
+ * Limiting the number of deleted records is not standard SQL, the statement is selected based on the database
+ * product: {@code LIMIT} for MySQL, MariaDB, H2 and HSQLDB, {@code TOP} for SQL Server, {@code ROWNUM} for Oracle
+ * and a sub-select with {@code SKIP LOCKED} for PostgreSQL.  On other databases all records are deleted using
+ * a single statement.
+ *
+ * @see SqlBasedDistributedLockConfiguration#setCleanupChunkSize(int)
+ */
+class SqlBasedDistributedLockCleanup
+{
+	private static final Logger LOG = LoggerFactory.getLogger( SqlBasedDistributedLockCleanup.class );
+
+	private static final String SQL_CLEANUP = "DELETE FROM %1$s WHERE owner_id IS NULL AND updated < ?";
+	private static final String SQL_CLEANUP_LIMIT = SQL_CLEANUP + " LIMIT %2$d";
+	private static final String SQL_CLEANUP_TOP = "DELETE TOP (%2$d) FROM %1$s WITH (READPAST) " +
+			"WHERE owner_id IS NULL AND updated < ?";
+	private static final String SQL_CLEANUP_ROWNUM = SQL_CLEANUP + " AND ROWNUM <= %2$d";
+	private static final String SQL_CLEANUP_SKIP_LOCKED = "DELETE FROM %1$s WHERE owner_id IS NULL AND lock_id IN (" +
+			"SELECT lock_id FROM %1$s WHERE owner_id IS NULL AND updated < ? LIMIT %2$d FOR UPDATE SKIP LOCKED)";
+
+	private final JdbcOperations jdbcTemplate;
+	private final String tableName;
+	private final int chunkSize;
+
+	private String sqlCleanup;
+	private boolean chunked;
+
+	/**
+	 * @param chunkSize maximum number of records deleted per statement, 0 to delete all records at once
+	 */
+	SqlBasedDistributedLockCleanup( JdbcOperations jdbcTemplate, String tableName, int chunkSize ) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.tableName = tableName;
+		this.chunkSize = chunkSize;
+
+		if ( chunkSize == 0 ) {
+			sqlCleanup = String.format( SQL_CLEANUP, tableName );
+		}
+	}
+
+	/**
+	 * Deletes the next chunk of records that have not been updated since the stale records timestamp
+	 * of the cleanup run.
+	 *
+	 * @param progress of the cleanup run
+	 * @return {@code true} if there might be more records to delete
+	 */
+	boolean deleteChunk( Progress progress ) {
+		if ( sqlCleanup == null ) {
+			sqlCleanup = jdbcTemplate.execute( (ConnectionCallback<String>) connection -> cleanupStatement(
+					connection.getMetaData().getDatabaseProductName(), tableName, chunkSize ) );
+			chunked = !sqlCleanup.equals( String.format( SQL_CLEANUP, tableName ) );
+			LOG.debug( "Cleaning up unused locks using: {}", sqlCleanup );
+		}
+
+		int deleted = jdbcTemplate.update( sqlCleanup, progress.staleRecordsTimestamp );
+		progress.chunks++;
+		progress.recordsDeleted += deleted;
+
+		return chunked && deleted >= chunkSize;
+	}
+
+	static String cleanupStatement( String databaseProductName, String tableName, int chunkSize ) {
+		String product = databaseProductName != null ? databaseProductName.toLowerCase() : "";
+
+		if ( product.contains( "mysql" ) || product.contains( "mariadb" ) || product.contains( "hsql" )
+				|| product.equals( "h2" ) ) {
+			return String.format( SQL_CLEANUP_LIMIT, tableName, chunkSize );
+		}
+		if ( product.contains( "sql server" ) ) {
+			return String.format( SQL_CLEANUP_TOP, tableName, chunkSize );
+		}
+		if ( product.contains( "oracle" ) ) {
+			return String.format( SQL_CLEANUP_ROWNUM, tableName, chunkSize );
+		}
+		if ( product.contains( "postgresql" ) ) {
+			return String.format( SQL_CLEANUP_SKIP_LOCKED, tableName, chunkSize );
+		}
+
+		LOG.info( "Deleting unused locks in chunks is not supported for {} - deleting all at once",
+		          databaseProductName );
+		return String.format( SQL_CLEANUP, tableName );
+	}
+
+	/**
+	 * Progress of a single cleanup run.
+	 */
+	static final class Progress
+	{
+		private final long staleRecordsTimestamp;
+		private final long start = System.currentTimeMillis();
+
+		private int chunks;
+		private long recordsDeleted;
+
+		Progress( long staleRecordsTimestamp ) {
+			this.staleRecordsTimestamp = staleRecordsTimestamp;
+		}
+
+		long getStaleRecordsTimestamp() {
+			return staleRecordsTimestamp;
+		}
+
+		int getChunks() {
+			return chunks;
+		}
+
+		long getRecordsDeleted() {
+			return recordsDeleted;
+		}
+
+		long getDuration() {
+			return System.currentTimeMillis() - start;
+		}
+	}
+}
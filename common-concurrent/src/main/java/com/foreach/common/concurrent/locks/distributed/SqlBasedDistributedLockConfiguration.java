@@ -25,7 +25,7 @@ import org.springframework.util.Assert;
 public class SqlBasedDistributedLockConfiguration
 {
 	/**
-	 * Number of milliseconds between tries for acquiring a lock.
+	 * Number of milliseconds between tries for acquiring a lock, if no custom retry policy is configured.
 	 */
 	public static final long DEFAULT_RETRY_INTERVAL = 533;
 
@@ -34,6 +34,11 @@ public class SqlBasedDistributedLockConfiguration
 	 */
 	public static final long DEFAULT_VERIFY_INTERVAL = 3000;
 
+	/**
+	 * Maximum number of locks of a single owner that the monitor will update in a single statement.
+	 */
+	public static final int DEFAULT_VERIFY_BATCH_SIZE = 500;
+
 	/**
 	 * Number of milliseconds that a held lock can go without update before another owner can steal it.
 	 */
@@ -49,6 +54,26 @@ public class SqlBasedDistributedLockConfiguration
 	 */
 	public static final long DEFAULT_CLEANUP_INTERVAL = 900000;
 
+	/**
+	 * Maximum number of unused lock records deleted by a single cleanup statement.
+	 */
+	public static final int DEFAULT_CLEANUP_CHUNK_SIZE = 1000;
+
+	/**
+	 * Number of milliseconds between the statements deleting the next chunk of unused lock records.
+	 */
+	public static final long DEFAULT_CLEANUP_CHUNK_PAUSE = 100;
+
+	/**
+	 * Maximum number of remote lock owners kept in the cache, if the cache is enabled.
+	 */
+	public static final int DEFAULT_REMOTE_OWNER_CACHE_SIZE = 1000;
+
+	/**
+	 * Number of threads doing the attempts for locks that are acquired asynchronously.
+	 */
+	public static final int DEFAULT_ASYNC_ACQUIRE_THREADS = 1;
+
 	/**
 	 * Maximum length for a valid lock key.
 	 */
@@ -63,11 +88,23 @@ public class SqlBasedDistributedLockConfiguration
 
 	private long retryInterval = DEFAULT_RETRY_INTERVAL;
 	private long verifyInterval = DEFAULT_VERIFY_INTERVAL;
+	private int verifyBatchSize = DEFAULT_VERIFY_BATCH_SIZE;
 	private long maxIdleBeforeSteal = DEFAULT_MAX_IDLE_BEFORE_STEAL;
 	private long cleanupInterval = DEFAULT_CLEANUP_INTERVAL;
 	private long cleanupAge = DEFAULT_MIN_AGE_BEFORE_DELETE;
+	private int cleanupChunkSize = DEFAULT_CLEANUP_CHUNK_SIZE;
+	private long cleanupChunkPause = DEFAULT_CLEANUP_CHUNK_PAUSE;
 	private long maxKeyLength = DEFAULT_MAX_LOCK_KEY_LENGTH;
 	private long maxOwnerIdLength = DEFAULT_MAX_OWNER_ID_LENGTH;
+	private DistributedLockRetryPolicy retryPolicy;
+	private boolean fair;
+	private boolean leaseMode;
+	private String databaseTimeQuery;
+	private long remoteOwnerCacheTime;
+	private int remoteOwnerCacheSize = DEFAULT_REMOTE_OWNER_CACHE_SIZE;
+	private int asyncAcquireThreads = DEFAULT_ASYNC_ACQUIRE_THREADS;
+	private String queueTableName;
+	private String readerTableName;
 
 	public SqlBasedDistributedLockConfiguration( String tableName ) {
 		Assert.notNull( tableName );
@@ -80,6 +117,88 @@ public class SqlBasedDistributedLockConfiguration
 		return tableName;
 	}
 
+	/**
+	 * @return true if locks should be granted in order of arrival
+	 */
+	public boolean isFair() {
+		return fair;
+	}
+
+	/**
+	 * Enable fair mode: owners waiting for a lock will be granted the lock in order of arrival.
+	 * Fair mode requires an additional queue table to be present,
+	 * see {@link SqlBasedDistributedLockManager} for more information.
+	 *
+	 * @param fair true if locks should be granted in order of arrival
+	 */
+	public void setFair( boolean fair ) {
+		this.fair = fair;
+	}
+
+	/**
+	 * @return true if lease mode is enabled
+	 */
+	public boolean isLeaseMode() {
+		return leaseMode;
+	}
+
+	/**
+	 * Enable lease mode: all lock timestamps are taken from the database clock instead of the system clock of the
+	 * application server, and every time a lock is acquired by a new owner a fencing token is issued
+	 * (see {@link DistributedLock#getFencingToken()}).  Lease mode requires an additional {@code token} column
+	 * in the lock table, see {@link SqlBasedDistributedLockManager} for more information.
+	 *
+	 * @param leaseMode true if the database clock should be used and fencing tokens issued
+	 */
+	public void setLeaseMode( boolean leaseMode ) {
+		this.leaseMode = leaseMode;
+	}
+
+	/**
+	 * @return query returning the current database time, {@code null} if determined based on the database product
+	 */
+	public String getDatabaseTimeQuery() {
+		return databaseTimeQuery;
+	}
+
+	/**
+	 * Set the query used to fetch the current time from the database in lease mode.  The query should return
+	 * a single value: either a timestamp with time zone or the number of milliseconds since the epoch.
+	 * If not set, a query based on {@code CURRENT_TIMESTAMP} is determined from the database product.
+	 * Use a query returning milliseconds if the database returns timestamps without time zone information,
+	 * eg. for MySQL: {@code SELECT ROUND(UNIX_TIMESTAMP(CURRENT_TIMESTAMP(3)) * 1000)}.
+	 *
+	 * @param databaseTimeQuery query returning the current database time
+	 */
+	public void setDatabaseTimeQuery( String databaseTimeQuery ) {
+		this.databaseTimeQuery = databaseTimeQuery;
+	}
+
+	/**
+	 * @return name of the table holding the tickets of waiting owners in fair mode,
+	 * defaults to the table name with suffix {@code _queue}
+	 */
+	public String getQueueTableName() {
+		return queueTableName != null ? queueTableName : tableName + "_queue";
+	}
+
+	public void setQueueTableName( String queueTableName ) {
+		this.queueTableName = queueTableName;
+	}
+
+	/**
+	 * @return name of the table holding the owners of read locks,
+	 * defaults to the table name with suffix {@code _readers}
+	 * @see DistributedReadWriteLock
+	 */
+	public String getReaderTableName() {
+		return readerTableName != null ? readerTableName : tableName + "_readers";
+	}
+
+	public void setReaderTableName( String readerTableName ) {
+		this.readerTableName = readerTableName;
+	}
+
 	public long getRetryInterval() {
 		return retryInterval;
 	}
@@ -88,6 +207,24 @@ public class SqlBasedDistributedLockConfiguration
 		this.retryInterval = retryInterval;
 	}
 
+	/**
+	 * @return policy determining the wait time between attempts to acquire a lock,
+	 * a fixed policy using the {@link #getRetryInterval()} if none set explicitly
+	 */
+	public DistributedLockRetryPolicy getRetryPolicy() {
+		return retryPolicy != null ? retryPolicy : DistributedLockRetryPolicy.fixed( retryInterval );
+	}
+
+	/**
+	 * Set the policy that determines the wait time between attempts to acquire a lock.
+	 * If set, the {@link #getRetryInterval()} is no longer used.
+	 *
+	 * @param retryPolicy instance, {@code null} to use a fixed interval
+	 */
+	public void setRetryPolicy( DistributedLockRetryPolicy retryPolicy ) {
+		this.retryPolicy = retryPolicy;
+	}
+
 	public long getVerifyInterval() {
 		return verifyInterval;
 	}
@@ -96,6 +233,15 @@ public class SqlBasedDistributedLockConfiguration
 		this.verifyInterval = verifyInterval;
 	}
 
+	public int getVerifyBatchSize() {
+		return verifyBatchSize;
+	}
+
+	public void setVerifyBatchSize( int verifyBatchSize ) {
+		Assert.isTrue( verifyBatchSize > 0, "verifyBatchSize must be at least 1" );
+		this.verifyBatchSize = verifyBatchSize;
+	}
+
 	public long getMaxIdleBeforeSteal() {
 		return maxIdleBeforeSteal;
 	}
@@ -120,6 +266,82 @@ public class SqlBasedDistributedLockConfiguration
 		this.cleanupAge = cleanupAge;
 	}
 
+	public int getCleanupChunkSize() {
+		return cleanupChunkSize;
+	}
+
+	/**
+	 * Set the maximum number of unused lock records deleted by a single statement during cleanup.  Deleting in
+	 * chunks keeps the row locks taken by the cleanup short-lived, so owners acquiring locks are not stalled.
+	 * Chunked deletes are supported for MySQL, MariaDB, PostgreSQL, SQL Server, Oracle, H2 and HSQLDB,
+	 * on other databases all records are deleted at once.  An index on {@code (owner_id, updated)} is
+	 * recommended, see {@link SqlBasedDistributedLockManager}.
+	 *
+	 * @param cleanupChunkSize number of records, 0 to delete all records with a single statement
+	 */
+	public void setCleanupChunkSize( int cleanupChunkSize ) {
+		Assert.isTrue( cleanupChunkSize >= 0, "cleanupChunkSize cannot be negative" );
+		this.cleanupChunkSize = cleanupChunkSize;
+	}
+
+	public long getCleanupChunkPause() {
+		return cleanupChunkPause;
+	}
+
+	/**
+	 * @param cleanupChunkPause number of milliseconds to wait before deleting the next chunk of unused records
+	 */
+	public void setCleanupChunkPause( long cleanupChunkPause ) {
+		Assert.isTrue( cleanupChunkPause >= 0, "cleanupChunkPause cannot be negative" );
+		this.cleanupChunkPause = cleanupChunkPause;
+	}
+
+	public long getRemoteOwnerCacheTime() {
+		return remoteOwnerCacheTime;
+	}
+
+	/**
+	 * Set the number of milliseconds that the owner of a lock held by another node can be cached.
+	 * When enabled, checking if a lock held by another node is locked will not always hit the database.
+	 * The cached owner is removed as soon as the lock is acquired or released through this node.
+	 * <p/>
+	 * The cache time will never exceed half the maximum idle time before stealing.
+	 * Defaults to 0, meaning the cache is disabled.
+	 *
+	 * @param remoteOwnerCacheTime number of milliseconds
+	 */
+	public void setRemoteOwnerCacheTime( long remoteOwnerCacheTime ) {
+		this.remoteOwnerCacheTime = remoteOwnerCacheTime;
+	}
+
+	public int getRemoteOwnerCacheSize() {
+		return remoteOwnerCacheSize;
+	}
+
+	/**
+	 * @param remoteOwnerCacheSize maximum number of remote lock owners to cache
+	 */
+	public void setRemoteOwnerCacheSize( int remoteOwnerCacheSize ) {
+		Assert.isTrue( remoteOwnerCacheSize > 0, "remoteOwnerCacheSize must be at least 1" );
+		this.remoteOwnerCacheSize = remoteOwnerCacheSize;
+	}
+
+	public int getAsyncAcquireThreads() {
+		return asyncAcquireThreads;
+	}
+
+	/**
+	 * Set the number of threads shared by all owners acquiring a lock asynchronously.  The threads only perform
+	 * the single attempts to acquire a lock, waiting in between attempts does not occupy a thread.
+	 *
+	 * @param asyncAcquireThreads number of threads
+	 * @see DistributedLock#acquireAsync()
+	 */
+	public void setAsyncAcquireThreads( int asyncAcquireThreads ) {
+		Assert.isTrue( asyncAcquireThreads > 0, "asyncAcquireThreads must be at least 1" );
+		this.asyncAcquireThreads = asyncAcquireThreads;
+	}
+
 	public long getMaxKeyLength() {
 		return maxKeyLength;
 	}
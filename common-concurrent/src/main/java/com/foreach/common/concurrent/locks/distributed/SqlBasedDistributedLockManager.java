@@ -18,20 +18,23 @@ package com.foreach.common.concurrent.locks.distributed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.DeadlockLoserDataAccessException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcOperations;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.util.Assert;
 
 import javax.sql.DataSource;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.Map;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
 
 /**
  * <p>
@@ -78,10 +81,12 @@ import java.util.concurrent.TimeUnit;
  * A time drift that is larger than the configured verify interval can already cause problems and a drift larger than the
  * maximum idle time before lock steals will render the entire lock repository useless.  If time synchronization is not
  * possible, the stealing of locks should be disabled (by setting an insanely high max idle time).  This means in case of
- * application crash a manual release should be done of all unreleased locks.
+ * application crash a manual release should be done of all unreleased locks.  Alternatively lease mode can be
+ * enabled, in which case the database clock is used.
  * </li>
- * <li>This DistributedLock implementation has no concept of fairness.  In environments with high
- * contention, it is possible lock starvation occurs.</li>
+ * <li>Unless fair mode is enabled, this DistributedLock implementation has no concept of fairness.  In environments
+ * with high contention, it is possible lock starvation occurs.  Configuring a randomized
+ * {@link DistributedLockRetryPolicy} can reduce bursts of simultaneous attempts by all waiting owners.</li>
  * <li>The DistributedLocks are reentrant: the same owner can enter the lock multiple times and have
  * multiple holds on the same lock. For every lock() there must be an unlock() call to release the lock again!
  * A lock will only be released once all holds have been released.</li>
@@ -97,20 +102,107 @@ import java.util.concurrent.TimeUnit;
  * <p>
  * Includes the monitor implementation that notifies the central lock repository on
  * which locks are still being used, as well as the cleanup thread that deletes old
- * unused locks from the database.</p>
+ * unused locks from the database.  The cleanup deletes the unused locks in chunks
+ * (see {@link SqlBasedDistributedLockConfiguration#setCleanupChunkSize(int)}), for which an index on
+ * {@code owner_id} and {@code updated} is recommended:
+ * <pre>
+ *         <createIndex tableName="distributed_locks" indexName="ix_distributed_locks_unused">
+ * 	        <column name="owner_id"/>
+ * 	        <column name="updated"/>
+ *         </createIndex>
+ * </pre>
+ * On PostgreSQL a partial index {@code CREATE INDEX ix_distributed_locks_unused ON distributed_locks (updated)
+ * WHERE owner_id IS NULL} is smaller and only contains the records the cleanup is looking for.</p>
  * <p>This distributed lock manager supports stealing of locks and the concept of an unstable lock that can no
  * longer be verified against the backing database.  Usually a lock would only go unstable if database exceptions
  * occur.  See {@link DistributedLock.LockStolenCallback} and {@link DistributedLock.LockUnstableCallback} for
  * more information.  Callbacks can be set on the lock instance level but defaults can be configured on the manager.
  * </p>
+ * <p>
+ * Optionally the manager can run in fair mode (see {@link SqlBasedDistributedLockConfiguration#setFair(boolean)}).
+ * Owners that fail to acquire a lock immediately will then draw a ticket in a separate queue table, and the lock
+ * will only be granted to the owner holding the lowest ticket that is still being refreshed.  Reentrant acquiring
+ * by the current holder, lock stealing and keep-alive behave the same as in the default mode, but a single
+ * {@link #tryAcquire(DistributedLock)} will fail if other owners are waiting.  Example liquibase script for creating
+ * the queue table:
+ * <pre>
+ *         <createTable tableName="distributed_locks_queue">
+ * 	        <column name="lock_id" type="java.sql.Types.VARCHAR(150)">
+ * 		        <constraints nullable="false" primaryKey="true"/>
+ * 	        </column>
+ * 	        <column name="ticket" type="java.sql.Types.BIGINT">
+ * 		        <constraints nullable="false" primaryKey="true"/>
+ * 	        </column>
+ * 	        <column name="owner_id" type="java.sql.Types.VARCHAR(150)">
+ * 		        <constraints nullable="false"/>
+ * 	        </column>
+ * 	        <column name="updated" type="java.sql.Types.BIGINT">
+ * 		        <constraints nullable="false"/>
+ * 	        </column>
+ *         </createTable>
+ * </pre>
+ * </p>
+ * <p>
+ * In lease mode (see {@link SqlBasedDistributedLockConfiguration#setLeaseMode(boolean)}) all timestamps are taken from
+ * the database clock, making the locks independent of the system clocks of the application servers.  Every time a
+ * lock is taken by a new owner - including a steal - a higher fencing token is issued, which the owner can pass to
+ * the resources it protects (see {@link DistributedLock#getFencingToken()}).  A resource rejecting requests with an
+ * outdated token is safe even if a lock gets stolen from an owner that is still active, so the maximum idle time
+ * can be raised together with the verify interval to reduce the number of keep-alive statements.
+ * Lease mode requires an additional column in the lock table:
+ * <pre>
+ * 	        <column name="token" type="java.sql.Types.BIGINT" defaultValueNumeric="0">
+ * 		        <constraints nullable="false"/>
+ * 	        </column>
+ * </pre>
+ * </p>
+ * <p>
+ * Read/write locks (see {@link DistributedReadWriteLockRepository#getReadWriteLock(String)}) require an additional
+ * reader table.  The write lock is the regular lock with the same key, the owner holding it waits until all other
+ * readers have released their read lock.  A read lock can only be acquired as long as no other owner holds the
+ * regular lock, so a waiting writer gets preference over new readers.  Readers are kept alive by the monitor and can
+ * be removed by a writer if they are idle for too long, in which case the lock stolen callback of the reader is
+ * executed.  Use a {@link SqlBasedDistributedLockRepository} to create read/write locks.
+ * Example liquibase script for creating the reader table:
+ * <pre>
+ *         <createTable tableName="distributed_locks_readers">
+ * 	        <column name="lock_id" type="java.sql.Types.VARCHAR(150)">
+ * 		        <constraints nullable="false" primaryKey="true"/>
+ * 	        </column>
+ * 	        <column name="owner_id" type="java.sql.Types.VARCHAR(150)">
+ * 		        <constraints nullable="false" primaryKey="true"/>
+ * 	        </column>
+ * 	        <column name="created" type="java.sql.Types.BIGINT">
+ * 		        <constraints nullable="false"/>
+ * 	        </column>
+ * 	        <column name="updated" type="java.sql.Types.BIGINT">
+ * 		        <constraints nullable="false"/>
+ * 	        </column>
+ * 	        <column name="holds" type="java.sql.Types.INTEGER" defaultValueNumeric="0">
+ * 		        <constraints nullable="false"/>
+ * 	        </column>
+ *         </createTable>
+ * </pre>
+ * </p>
+ * <p>
+ * The permits of a {@link DistributedSemaphore} are stored in the reader table as well, every owner has a single
+ * record holding the number of permits it acquired.  The records are kept alive by the monitor, permits of an
+ * owner that has been idle for too long are removed by the next owner acquiring permits.  A
+ * {@link DistributedRateLimiter} only uses the lock table: its token bucket is a record without owner, taking
+ * tokens is a single update statement.  The keys of semaphores and rate limiters cannot be used for regular locks.
+ * </p>
+ * <p>Owners waiting for a lock will retry at the configured retry interval, but will be woken up sooner if the
+ * lock gets released and a {@link DistributedLockNotifier} dispatches the release.  By default only releases
+ * done through the same manager are dispatched, see {@link #setLockNotifier(DistributedLockNotifier)}.</p>
  *
  * @see com.foreach.common.concurrent.locks.distributed.DistributedLock
  * @see com.foreach.common.concurrent.locks.distributed.ThreadBasedDistributedLock
  * @see com.foreach.common.concurrent.locks.distributed.SharedDistributedLock
  * @see com.foreach.common.concurrent.locks.distributed.SqlBasedDistributedLockConfiguration
  * @see com.foreach.common.concurrent.locks.distributed.DistributedLockRepository
+ * @see com.foreach.common.concurrent.locks.distributed.SqlBasedDistributedLockRepository
  */
-public class SqlBasedDistributedLockManager implements DistributedLockManager
+public class SqlBasedDistributedLockManager implements DistributedReadWriteLockManager, DistributedPermitManager
 {
 	private static final Logger LOG = LoggerFactory.getLogger( SqlBasedDistributedLockManager.class );
 
@@ -129,29 +221,98 @@ public class SqlBasedDistributedLockManager implements DistributedLockManager
 	private static final String SQL_RELEASE_LOCK = "UPDATE %s " +
 			"SET owner_id = NULL, holds = 0 " +
 			"WHERE lock_id = ? AND owner_id = ? AND holds = 1";
+	private static final String SQL_RELEASE_ALL_HOLDS = "UPDATE %s " +
+			"SET owner_id = NULL, holds = 0 " +
+			"WHERE lock_id = ? AND owner_id = ?";
 	private static final String SQL_DECREASE_HOLD = "UPDATE %s " +
 			"SET holds = holds - 1 " +
 			"WHERE lock_id = ? AND owner_id = ? AND holds > 1";
 	private static final String SQL_VERIFY_LOCK = "UPDATE %s " +
 			"SET updated = ? " +
 			"WHERE lock_id = ? AND owner_id = ?";
-	private static final String SQL_CLEANUP = "DELETE FROM %s WHERE owner_id IS NULL AND updated < ?";
+	private static final String SQL_VERIFY_OWNER_LOCKS = "UPDATE %s " +
+			"SET updated = ? " +
+			"WHERE owner_id = ? AND lock_id IN (%s)";
+	private static final String SQL_SELECT_OWNER_LOCKS = "SELECT lock_id " +
+			"FROM %s " +
+			"WHERE owner_id = ? AND lock_id IN (%s)";
+
+	// Multiple locks: used for acquiring (and reverting) a set of locks for the same owner
+	private static final String SQL_TAKE_LOCKS = "UPDATE %s " +
+			"SET owner_id = ?, created = ?, updated = ?, holds = holds + 1 " +
+			"WHERE (owner_id IS NULL OR owner_id = ?) AND lock_id IN (%s)";
+	private static final String SQL_SELECT_LOCKS = "SELECT lock_id, owner_id, created, updated, holds " +
+			"FROM %s " +
+			"WHERE lock_id IN (%s)";
+	private static final String SQL_RELEASE_OWNER_LOCKS = "UPDATE %s " +
+			"SET owner_id = NULL, holds = 0 " +
+			"WHERE owner_id = ? AND holds = 1 AND lock_id IN (%s)";
+	private static final String SQL_DECREASE_OWNER_HOLDS = "UPDATE %s " +
+			"SET holds = holds - 1 " +
+			"WHERE owner_id = ? AND holds > 1 AND lock_id IN (%s)";
+
+	// Fair mode: the lock can only be taken if no other owner holds an earlier live ticket
+	private static final String SQL_FAIR_TAKE_LOCK = "UPDATE %1$s " +
+			"SET owner_id = ?, created = ?, updated = ?, holds = holds + 1 " +
+			"WHERE lock_id = ? AND (owner_id = ? OR (owner_id IS NULL AND NOT EXISTS (" +
+			"SELECT 1 FROM %2$s WHERE lock_id = ? AND ticket < ? AND updated > ?)))";
+	private static final String SQL_FAIR_STEAL_LOCK = "UPDATE %1$s " +
+			"SET owner_id = ?, created = ?, updated = ?, holds = 1 " +
+			"WHERE lock_id = ? AND (owner_id IS NULL OR (owner_id = ? AND updated = ?)) AND NOT EXISTS (" +
+			"SELECT 1 FROM %2$s WHERE lock_id = ? AND ticket < ? AND updated > ?)";
+	private static final String SQL_INSERT_FREE_LOCK = "INSERT INTO %s (lock_id, owner_id, created, updated, holds) " +
+			"VALUES (?,NULL,?,?,0)";
+
+	// Lease mode: the fencing token is increased every time the lock is taken by a new owner,
+	// new records start from a token based on the current time so tokens keep increasing after a cleanup.
+	// The token is always assigned first, as some databases evaluate the assignments from left to right.
+	private static final String SQL_TOKEN_NEW_OWNER = "token = CASE WHEN holds = 0 THEN token + 1 ELSE token END, ";
+	private static final String SQL_TOKEN_STOLEN = "token = token + 1, ";
+	private static final String SQL_INSERT_LEASE_LOCK = "INSERT INTO %s " +
+			"(lock_id, owner_id, created, updated, holds, token) " +
+			"VALUES (?,?,?,?,1,?)";
+	private static final String SQL_INSERT_FREE_LEASE_LOCK = "INSERT INTO %s " +
+			"(lock_id, owner_id, created, updated, holds, token) " +
+			"VALUES (?,NULL,?,?,0,?)";
+	private static final String SQL_SELECT_TOKEN = "SELECT token FROM %s WHERE lock_id = ? AND owner_id = ?";
+	private static final String SQL_SELECT_OWNER_TOKENS = "SELECT lock_id, token " +
+			"FROM %s " +
+			"WHERE owner_id = ? AND lock_id IN (%s)";
+
+	// Read locks: a reader can release the lock of an idle writer, but does not take the lock itself
+	private static final String SQL_RELEASE_IDLE_LOCK = "UPDATE %s " +
+			"SET owner_id = NULL, holds = 0 " +
+			"WHERE lock_id = ? AND owner_id = ? AND updated = ?";
 
 	private final String sqlTakeLock, sqlStealLock, sqlSelectLock, sqlInsertLock, sqlReleaseLock, sqlDecreaseHold,
-			sqlVerifyLock,
-			sqlCleanup;
+			sqlVerifyLock;
+	private final String sqlFairTakeLock, sqlFairStealLock, sqlInsertFreeLock, sqlReleaseAllHolds, sqlReleaseIdleLock;
+	private final String sqlSelectToken;
 
-	private final ScheduledExecutorService monitorThread = Executors.newSingleThreadScheduledExecutor();
+	private final ScheduledThreadPoolExecutor monitorThread = new ScheduledThreadPoolExecutor( 1 );
+	private final AsyncLockAcquirer asyncLockAcquirer;
+	private final Map<String, LocalTurns> localTurns = new ConcurrentHashMap<>();
 
 	private final SqlBasedDistributedLockConfiguration configuration;
 	private final JdbcOperations jdbcTemplate;
 	private final SqlBasedDistributedLockMonitor lockMonitor;
+	private final SqlBasedDistributedLockQueue lockQueue;
+	private final SqlBasedDistributedLockReaders lockReaders;
+	private final SqlBasedDistributedRateLimits rateLimits;
+	private final SqlBasedDistributedLockCleanup lockCleanup;
+	private final SqlBasedDistributedReadLockMonitor readLockMonitor;
+	private final RemoteLockOwnerCache remoteOwnerCache;
+	private final LongSupplier clock;
 
 	private boolean destroyed = false;
+	private volatile boolean readLocksUsed = false;
 
 	private DistributedLock.LockStolenCallback defaultLockStolenCallback;
 	private DistributedLock.LockUnstableCallback defaultLockUnstableCallback;
 
+	private DistributedLockNotifier lockNotifier = new InMemoryDistributedLockNotifier();
+	private volatile DistributedLockMetricsListener metricsListener = DistributedLockMetricsListener.NONE;
+
 	public SqlBasedDistributedLockManager( DataSource dataSource, SqlBasedDistributedLockConfiguration configuration ) {
 		this( new JdbcTemplate( dataSource ), configuration );
 	}
@@ -160,23 +321,55 @@ public class SqlBasedDistributedLockManager implements DistributedLockManager
 	                                       SqlBasedDistributedLockConfiguration configuration ) {
 		this.configuration = configuration;
 
-		sqlTakeLock = sql( SQL_TAKE_LOCK );
-		sqlStealLock = sql( SQL_STEAL_LOCK );
+		sqlTakeLock = fenced( sql( SQL_TAKE_LOCK ), SQL_TOKEN_NEW_OWNER );
+		sqlStealLock = fenced( sql( SQL_STEAL_LOCK ), SQL_TOKEN_STOLEN );
 		sqlSelectLock = sql( SQL_SELECT_LOCK );
-		sqlInsertLock = sql( SQL_INSERT_LOCK );
+		sqlInsertLock = sql( configuration.isLeaseMode() ? SQL_INSERT_LEASE_LOCK : SQL_INSERT_LOCK );
 		sqlReleaseLock = sql( SQL_RELEASE_LOCK );
 		sqlDecreaseHold = sql( SQL_DECREASE_HOLD );
 		sqlVerifyLock = sql( SQL_VERIFY_LOCK );
-		sqlCleanup = sql( SQL_CLEANUP );
+
+		sqlFairTakeLock = fenced( String.format( SQL_FAIR_TAKE_LOCK, configuration.getTableName(),
+		                                         configuration.getQueueTableName() ), SQL_TOKEN_NEW_OWNER );
+		sqlFairStealLock = fenced( String.format( SQL_FAIR_STEAL_LOCK, configuration.getTableName(),
+		                                          configuration.getQueueTableName() ), SQL_TOKEN_STOLEN );
+		sqlInsertFreeLock = sql( configuration.isLeaseMode() ? SQL_INSERT_FREE_LEASE_LOCK : SQL_INSERT_FREE_LOCK );
+		sqlSelectToken = sql( SQL_SELECT_TOKEN );
+		sqlReleaseAllHolds = sql( SQL_RELEASE_ALL_HOLDS );
+		sqlReleaseIdleLock = sql( SQL_RELEASE_IDLE_LOCK );
 
 		this.jdbcTemplate = jdbcTemplate;
+		clock = configuration.isLeaseMode()
+				? new DatabaseClock( jdbcTemplate, configuration.getDatabaseTimeQuery(), DatabaseClock.SYNC_INTERVAL )
+				: System::currentTimeMillis;
+		lockQueue = configuration.isFair()
+				? new SqlBasedDistributedLockQueue( jdbcTemplate, configuration.getQueueTableName(), clock ) : null;
+		lockReaders = new SqlBasedDistributedLockReaders( jdbcTemplate, configuration.getTableName(),
+		                                                  configuration.getReaderTableName() );
+		rateLimits = new SqlBasedDistributedRateLimits( jdbcTemplate, configuration.getTableName() );
+		lockCleanup = new SqlBasedDistributedLockCleanup( jdbcTemplate, configuration.getTableName(),
+		                                                  configuration.getCleanupChunkSize() );
+
+		long remoteOwnerCacheTime = Math.min( configuration.getRemoteOwnerCacheTime(),
+		                                      configuration.getMaxIdleBeforeSteal() / 2 );
+		remoteOwnerCache = remoteOwnerCacheTime > 0
+				? new RemoteLockOwnerCache( remoteOwnerCacheTime, configuration.getRemoteOwnerCacheSize() ) : null;
 		lockMonitor = new SqlBasedDistributedLockMonitor( this,
 		                                                  configuration.getVerifyInterval() * 2,
 		                                                  configuration.getMaxIdleBeforeSteal() );
+		readLockMonitor = new SqlBasedDistributedReadLockMonitor( this,
+		                                                          configuration.getVerifyInterval() * 2,
+		                                                          configuration.getMaxIdleBeforeSteal() );
+
+		// a pending cleanup chunk should not be executed once the manager is closed
+		monitorThread.setExecuteExistingDelayedTasksAfterShutdownPolicy( false );
+
+		asyncLockAcquirer = new AsyncLockAcquirer( configuration.getAsyncAcquireThreads() );
 
-		//NOTE: Scheduled tasks should NEVER throw exceptions!  The pool would live on, but the task would not...
 		monitorThread.scheduleWithFixedDelay( lockMonitor, configuration.getVerifyInterval(),
 		                                      configuration.getVerifyInterval(), TimeUnit.MILLISECONDS );
+		monitorThread.scheduleWithFixedDelay( readLockMonitor, configuration.getVerifyInterval(),
+		                                      configuration.getVerifyInterval(), TimeUnit.MILLISECONDS );
 		monitorThread.scheduleWithFixedDelay( new CleanupMonitor(), 0, configuration.getCleanupInterval(),
 		                                      TimeUnit.MILLISECONDS );
 	}
@@ -185,24 +378,102 @@ public class SqlBasedDistributedLockManager implements DistributedLockManager
 		return String.format( template, configuration.getTableName() );
 	}
 
+	private String sql( String template, int parameterCount ) {
+		return sql( template, configuration.getTableName(), parameterCount );
+	}
+
+	private String sql( String template, String tableName, int parameterCount ) {
+		return String.format( template, tableName, String.join( ",", Collections.nCopies( parameterCount, "?" ) ) );
+	}
+
+	/**
+	 * In lease mode, adds the fencing token assignment to a statement taking a lock.
+	 */
+	private String fenced( String takeLockSql, String tokenAssignment ) {
+		return configuration.isLeaseMode() ? takeLockSql.replaceFirst( "SET ", "SET " + tokenAssignment ) : takeLockSql;
+	}
+
+	/**
+	 * @return current time in milliseconds used for all lock timestamps, the database time in lease mode
+	 */
+	private long now() {
+		return clock.getAsLong();
+	}
+
+	/**
+	 * Deletes unused lock records in chunks: after every chunk the next one is scheduled after the configured pause,
+	 * so the lock monitor can keep the held locks alive in between.  A new cleanup run is only started once the
+	 * previous one has finished.  Stale readers and tickets are deleted at the start of every cleanup interval.
+	 */
 	class CleanupMonitor implements Runnable
 	{
+		// only accessed from the monitor thread
+		private SqlBasedDistributedLockCleanup.Progress progress;
+
 		@Override
 		public void run() {
+			if ( progress == null ) {
+				progress = new SqlBasedDistributedLockCleanup.Progress( now() - configuration.getCleanupAge() );
+				deleteChunk();
+			}
+			else {
+				LOG.debug( "Previous cleanup run is still busy - deleted {} locks in {} chunks so far",
+				           progress.getRecordsDeleted(), progress.getChunks() );
+			}
+
+			if ( readLocksUsed ) {
+				try {
+					int readersDeleted = lockReaders.cleanup(
+							now() - configuration.getMaxIdleBeforeSteal() * 2 );
+					LOG.debug( "Deleted {} stale readers", readersDeleted );
+				}
+				catch ( Exception e ) {
+					LOG.error( "Exception trying to cleanup stale readers", e );
+				}
+			}
+
+			if ( lockQueue != null ) {
+				try {
+					int ticketsDeleted = lockQueue.cleanup(
+							now() - configuration.getMaxIdleBeforeSteal() * 2 );
+					LOG.debug( "Deleted {} stale tickets of waiting owners", ticketsDeleted );
+				}
+				catch ( Exception e ) {
+					LOG.error( "Exception trying to cleanup stale tickets", e );
+				}
+			}
+		}
+
+		private void deleteChunk() {
+			if ( destroyed ) {
+				progress = null;
+				return;
+			}
+
 			try {
-				long cleanupStart = System.currentTimeMillis();
-				long staleRecordsTimestamp = cleanupStart - configuration.getCleanupAge();
-				int recordsDeleted = jdbcTemplate.update( sqlCleanup, staleRecordsTimestamp );
+				if ( lockCleanup.deleteChunk( progress ) ) {
+					LOG.debug( "Deleted {} unused locks in {} chunks so far - next chunk in {} ms",
+					           progress.getRecordsDeleted(), progress.getChunks(), configuration.getCleanupChunkPause() );
+					monitorThread.schedule( this::deleteChunk, configuration.getCleanupChunkPause(),
+					                        TimeUnit.MILLISECONDS );
+					return;
+				}
 
 				LOG.info(
-						"Deleted {} locks that have been unused for {} ms - cleanup time was {} ms, next run in {} ms",
-						recordsDeleted,
-						configuration.getCleanupAge(), System.currentTimeMillis() - cleanupStart,
-						configuration.getCleanupInterval() );
+						"Deleted {} locks that have been unused for {} ms in {} chunks - cleanup time was {} ms, next run in {} ms",
+						progress.getRecordsDeleted(), configuration.getCleanupAge(), progress.getChunks(),
+						progress.getDuration(), configuration.getCleanupInterval() );
+				metricsListener.cleanupCompleted( progress.getRecordsDeleted(), progress.getChunks(),
+				                                  progress.getDuration(), true );
 			}
 			catch ( Exception e ) {
-				LOG.error( "Exception trying to cleanup unused locks", e );
+				LOG.error( "Exception trying to cleanup unused locks - deleted {} locks in {} chunks",
+				           progress.getRecordsDeleted(), progress.getChunks(), e );
+				metricsListener.cleanupCompleted( progress.getRecordsDeleted(), progress.getChunks(),
+				                                  progress.getDuration(), false );
 			}
+
+			progress = null;
 		}
 	}
 
@@ -240,6 +511,69 @@ public class SqlBasedDistributedLockManager implements DistributedLockManager
 		this.defaultLockUnstableCallback = defaultLockUnstableCallback;
 	}
 
+	/**
+	 * @return Notifier used for waking up owners waiting on a lock.
+	 */
+	public DistributedLockNotifier getLockNotifier() {
+		return lockNotifier;
+	}
+
+	/**
+	 * Set the notifier that should be used for waking up owners waiting on a lock as soon as it gets released.
+	 * Waiting owners will never wait longer than the configured retry interval before trying again, the notifier
+	 * only allows them to try sooner.  Defaults to an {@link InMemoryDistributedLockNotifier} that only wakes up
+	 * owners waiting through this manager.
+	 *
+	 * @param lockNotifier instance
+	 * @see PollingDistributedLockNotifier
+	 */
+	public void setLockNotifier( DistributedLockNotifier lockNotifier ) {
+		Assert.notNull( lockNotifier, "lockNotifier must not be null" );
+		this.lockNotifier = lockNotifier;
+	}
+
+	/**
+	 * @return Listener receiving the measurements of this manager.
+	 */
+	public DistributedLockMetricsListener getMetricsListener() {
+		return metricsListener;
+	}
+
+	/**
+	 * Set the listener that should receive the measurements of this manager: acquire latency and attempts,
+	 * stolen and lost locks, unstable locks, the duration of the lock verification and of the cleanup runs.
+	 * Defaults to {@link DistributedLockMetricsListener#NONE}.
+	 *
+	 * @param metricsListener instance
+	 */
+	public void setMetricsListener( DistributedLockMetricsListener metricsListener ) {
+		Assert.notNull( metricsListener, "metricsListener must not be null" );
+		this.metricsListener = metricsListener;
+	}
+
+	/**
+	 * @return number of locks currently held through this manager, read locks included
+	 */
+	public int getHeldLockCount() {
+		return lockMonitor.getActiveLockCount() + readLockMonitor.getActiveLockCount();
+	}
+
+	/**
+	 * @return number of lock checks answered by the remote owner cache, 0 if the cache is disabled
+	 * @see SqlBasedDistributedLockConfiguration#setRemoteOwnerCacheTime(long)
+	 */
+	public long getRemoteOwnerCacheHitCount() {
+		return remoteOwnerCache != null ? remoteOwnerCache.getHitCount() : 0;
+	}
+
+	/**
+	 * @return number of lock checks that could not be answered by the remote owner cache, 0 if the cache is disabled
+	 * @see SqlBasedDistributedLockConfiguration#setRemoteOwnerCacheTime(long)
+	 */
+	public long getRemoteOwnerCacheMissCount() {
+		return remoteOwnerCache != null ? remoteOwnerCache.getMissCount() : 0;
+	}
+
 	public void close() {
 		LOG.trace( "Destruction of the distributed lock manager requested" );
 
@@ -249,9 +583,15 @@ public class SqlBasedDistributedLockManager implements DistributedLockManager
 			LOG.info( "Destroying distributed lock manager - releasing {} held locks", activeLocks.size() );
 
 			for ( SqlBasedDistributedLockMonitor.ActiveLock activeLock : activeLocks.keySet() ) {
-				release( activeLock.getOwnerId(), activeLock.getLockId() );
+				releaseAllHolds( activeLock.getOwnerId(), activeLock.getLockId() );
 			}
 
+			for ( Map.Entry<String, String> readLock : readLockMonitor.getActiveLocks() ) {
+				releaseAllReadHolds( readLock.getValue(), readLock.getKey() );
+			}
+
+			asyncLockAcquirer.close();
+
 			monitorThread.shutdown();
 
 			try {
@@ -280,11 +620,18 @@ public class SqlBasedDistributedLockManager implements DistributedLockManager
 	public void acquireInterruptibly( DistributedLock lock ) throws InterruptedException {
 		checkDestroyed();
 
-		boolean acquired = tryAcquire( lock );
+		try (LockWait wait = new LockWait( lock )) {
+			if ( tryAcquire( lock, wait ) ) {
+				return;
+			}
+
+			try (LocalTurn turn = new LocalTurn( lock.getKey() )) {
+				turn.await();
 
-		while ( !acquired ) {
-			Thread.sleep( configuration.getRetryInterval() );
-			acquired = tryAcquire( lock );
+				try (DistributedLockNotifier.Subscription subscription = lockNotifier.subscribe( lock.getKey() )) {
+					wait.await( subscription, () -> tryAcquire( lock, wait ) );
+				}
+			}
 		}
 	}
 
@@ -292,148 +639,591 @@ public class SqlBasedDistributedLockManager implements DistributedLockManager
 	public boolean tryAcquire( DistributedLock lock, long time, TimeUnit unit ) {
 		checkDestroyed();
 
-		boolean acquired = tryAcquire( lock );
+		long deadline = System.nanoTime() + unit.toNanos( time );
 
-		long delay = configuration.getRetryInterval();
-		long timeRemaining = unit.toMillis( time );
+		try (LockWait wait = new LockWait( lock );
+		     LocalTurn turn = new LocalTurn( lock.getKey() )) {
+			boolean acquired = tryAcquire( lock, wait );
 
-		try {
-			while ( !acquired && timeRemaining > 0 ) {
-				if ( timeRemaining < delay ) {
-					delay = timeRemaining;
+			if ( !acquired && turn.await( deadline - System.nanoTime() ) ) {
+				try (DistributedLockNotifier.Subscription subscription = lockNotifier.subscribe( lock.getKey() )) {
+					acquired = wait.await( subscription, () -> tryAcquire( lock, wait ), deadline );
 				}
+			}
 
-				Thread.sleep( delay );
-				acquired = tryAcquire( lock );
-
-				timeRemaining -= delay;
+			if ( !acquired ) {
+				wait.notAcquired();
 			}
+
+			return acquired;
 		}
 		catch ( InterruptedException ie ) {
 			throw new DistributedLockWaitException( ie );
 		}
-
-		return acquired;
 	}
 
 	@Override
 	public boolean tryAcquire( DistributedLock lock ) {
 		checkDestroyed();
+		return tryAcquire( lock, null );
+	}
 
-		String lockId = lock.getKey();
-		String ownerId = lock.getOwnerId();
+	/**
+	 * Acquires the lock without occupying a thread while waiting.  The first attempt is done on the calling thread,
+	 * subsequent attempts are scheduled according to the {@link DistributedLockRetryPolicy} and executed by the
+	 * threads configured with {@link SqlBasedDistributedLockConfiguration#setAsyncAcquireThreads(int)}.
+	 */
+	@Override
+	public CompletableFuture<DistributedLock> acquireAsync( DistributedLock lock ) {
+		checkDestroyed();
+		verify( lock.getKey(), lock.getOwnerId() );
 
-		verify( lockId, ownerId );
+		LockWait wait = new LockWait( lock );
 
-		try {
-			return tryAcquire( lockId, ownerId, lock );
+		return asyncLockAcquirer.acquire( lock, lockNotifier, wait, () -> {
+			checkDestroyed();
+			return tryAcquire( lock, wait );
+		}, () -> release( lock.getOwnerId(), lock.getKey() ) );
+	}
+
+	/**
+	 * Acquires a set of locks for the same owner using a single statement for all locks that are free or
+	 * already held by the owner.  Only if that statement does not acquire all locks, the state of the locks is
+	 * fetched with a single query and missing lock records are inserted in a single batch.  If a lock is held by
+	 * another owner, all locks acquired in the attempt are released again and the next attempt waits for the
+	 * configured {@link DistributedLockRetryPolicy} or until the blocking lock is released.
+	 * <p/>
+	 * The locks are acquired one by one in fair mode, if they have different owners or if there are more locks
+	 * than the configured {@link SqlBasedDistributedLockConfiguration#getVerifyBatchSize()}.
+	 */
+	@Override
+	public boolean tryAcquireAll( Collection<? extends DistributedLock> locks, long time, TimeUnit unit ) {
+		checkDestroyed();
+
+		List<DistributedLock> ordered = DistributedLockManager.sortByKey( locks );
+
+		if ( ordered.isEmpty() ) {
+			return true;
 		}
-		catch ( DistributedLockException dle ) {
-			throw dle;
+
+		String ownerId = ordered.get( 0 ).getOwnerId();
+
+		if ( lockQueue != null || ordered.size() == 1 || ordered.size() > configuration.getVerifyBatchSize()
+				|| !ordered.stream().allMatch( lock -> ownerId.equals( lock.getOwnerId() ) ) ) {
+			return DistributedReadWriteLockManager.super.tryAcquireAll( ordered, time, unit );
 		}
-		catch ( Exception e ) {
-			throw new DistributedLockException( "Exception when trying to acquire lock " + lockId, e );
+
+		for ( DistributedLock lock : ordered ) {
+			verify( lock.getKey(), ownerId );
 		}
-	}
 
-	private void verify( String lockId, String ownerId ) {
-		Assert.hasText( lockId, "lock key must not be empty" );
-		Assert.hasText( ownerId, "owner id must not be empty" );
-		Assert.isTrue( lockId.length() <= configuration.getMaxKeyLength(),
-		               "lock key cannot be longer than " + configuration.getMaxKeyLength() + " characters" );
-		Assert.isTrue( ownerId.length() <= configuration.getMaxOwnerIdLength(),
-		               "owner id cannot be longer than " + configuration.getMaxOwnerIdLength() + " characters" );
-	}
+		long deadline = System.nanoTime() + unit.toNanos( time );
 
-	private boolean tryAcquire( String lockId, String ownerId, DistributedLock lock ) {
-		boolean acquired = false;
+		try (LockWait wait = new LockWait( ordered.get( 0 ) )) {
+			LockInfo blockingLock = tryAcquireAll( ownerId, ordered );
+			long timeRemaining = deadline - System.nanoTime();
 
-		LOG.trace( "Owner {} is trying to acquire lock {}", ownerId, lockId );
+			while ( blockingLock != null && timeRemaining > 0 ) {
+				wait.observed( blockingLock );
+				long delay = TimeUnit.MILLISECONDS.toNanos( wait.nextDelay() );
 
-		long timestamp = System.currentTimeMillis();
-		try {
-			int updated;
+				// Wait for the lock that blocked the last attempt, any other lock is checked on the next attempt
+				try (DistributedLockNotifier.Subscription subscription
+						     = lockNotifier.subscribe( blockingLock.getLockId() )) {
+					subscription.awaitRelease( Math.min( delay, timeRemaining ), TimeUnit.NANOSECONDS );
+				}
 
-			try {
-				updated = jdbcTemplate.update( sqlTakeLock, ownerId, timestamp, timestamp, lockId, ownerId );
-			}
-			catch ( DeadlockLoserDataAccessException dle ) {
-				LOG.trace( "Deadlock loser for lock  {} - retrying once immediately", lockId );
-				updated = jdbcTemplate.update( sqlTakeLock, ownerId, timestamp, timestamp, lockId, ownerId );
+				blockingLock = tryAcquireAll( ownerId, ordered );
+				timeRemaining = deadline - System.nanoTime();
 			}
 
-			if ( updated > 1 ) {
-				throw new DistributedLockException(
-						"DistributedLockRepository table corrupt, more than one lock with id " + lockId );
+			for ( DistributedLock lock : ordered ) {
+				if ( blockingLock == null ) {
+					wait.acquired( lock.getKey() );
+				}
+				else {
+					wait.notAcquired( lock.getKey() );
+				}
 			}
 
-			if ( updated == 1 ) {
-				LOG.trace( "Owner {} directly acquired lock {}", ownerId, lockId );
-				acquired = true;
-			}
-			else {
-				LockInfo lockInfo = getLockInfo( lockId );
+			return blockingLock == null;
+		}
+		catch ( InterruptedException ie ) {
+			throw new DistributedLockWaitException( ie );
+		}
+	}
 
-				if ( lockInfo != null ) {
-					if ( ownerId.equals( lockInfo.getOwnerId() ) ) {
-						acquired = true;
-					}
-					else {
-						timestamp = System.currentTimeMillis();
-						long lastUpdateAge = timestamp - lockInfo.getUpdated();
-						if ( lastUpdateAge > configuration.getMaxIdleBeforeSteal() ) {
-							LOG.trace( "Lock {} was last updated {} ms ago - attempting to steal the lock",
-							           lockId, lastUpdateAge );
-							updated = jdbcTemplate.update( sqlStealLock, ownerId, timestamp, timestamp, lockId,
-							                               lockInfo.getOwnerId(), lockInfo.getUpdated() );
+	/**
+	 * Single attempt to acquire all locks.
+	 *
+	 * @return null if all locks have been acquired, the lock that could not be acquired otherwise
+	 */
+	private LockInfo tryAcquireAll( String ownerId, List<DistributedLock> locks ) {
+		List<String> lockIds = new ArrayList<>( locks.size() );
+		for ( DistributedLock lock : locks ) {
+			lockIds.add( lock.getKey() );
+		}
 
-							acquired = updated == 1;
-						}
-						else if ( LOG.isTraceEnabled() ) {
-							long duration = System.currentTimeMillis() - lockInfo.getCreated();
-							LOG.trace( "Lock {} is held by {} since {} ms", lockId, lockInfo.getOwnerId(),
-							           duration );
-						}
-					}
-				}
-				else {
-					LOG.trace( "Lock {} currently does not exist, creating", lockId );
+		LOG.trace( "Owner {} is trying to acquire locks {}", ownerId, lockIds );
 
-					int created;
+		if ( remoteOwnerCache != null ) {
+			remoteOwnerCache.invalidateAll( lockIds );
+		}
 
-					try {
-						timestamp = System.currentTimeMillis();
-						created = jdbcTemplate.update( sqlInsertLock, lockId, ownerId, timestamp, timestamp );
-					}
-					catch ( DataAccessException dae ) {
-						created = 0;
-					}
+		try {
+			long timestamp = now();
 
-					if ( created != 1 ) {
-						LOG.trace( "Failed to create lock record {} - was possibly created in the meantime",
-						           lockId );
-					}
-					else {
-						LOG.trace( "Lock {} created by {}", lockId, ownerId );
-						acquired = true;
-					}
+			List<Object> parameters = new ArrayList<>( lockIds.size() + 4 );
+			parameters.add( ownerId );
+			parameters.add( timestamp );
+			parameters.add( timestamp );
+			parameters.add( ownerId );
+			parameters.addAll( lockIds );
+
+			int updated = jdbcTemplate.update( fenced( sql( SQL_TAKE_LOCKS, lockIds.size() ), SQL_TOKEN_NEW_OWNER ),
+			                                   parameters.toArray() );
+
+			if ( updated != lockIds.size() ) {
+				LOG.trace( "Owner {} directly acquired {} out of {} locks", ownerId, updated, lockIds.size() );
+
+				LockInfo blockingLock = takeRemainingLocks( ownerId, lockIds );
+
+				if ( blockingLock != null ) {
+					return blockingLock;
 				}
 			}
 
-			if ( acquired ) {
+			LOG.trace( "Owner {} acquired locks {}", ownerId, lockIds );
+
+			for ( DistributedLock lock : locks ) {
 				lockMonitor.addLock( ownerId, lock );
 			}
-			else {
-				// Cleanup any stale record already, we're sure we no longer have the lock
-				lockMonitor.removeLock( ownerId, lockId );
+
+			if ( configuration.isLeaseMode() ) {
+				assignFencingTokens( ownerId, lockIds );
 			}
+
+			if ( remoteOwnerCache != null ) {
+				remoteOwnerCache.invalidateAll( lockIds );
+			}
+
+			return null;
 		}
 		catch ( DeadlockLoserDataAccessException dle ) {
-			LOG.debug( "Deadlock loser for lock {}", lockId, dle );
-		}
+			LOG.debug( "Deadlock loser for locks {}", lockIds, dle );
 
-		return acquired;
-	}
+			LockInfo blockingLock = new LockInfo();
+			blockingLock.setLockId( lockIds.get( 0 ) );
+			return blockingLock;
+		}
+		catch ( DistributedLockException dle ) {
+			throw dle;
+		}
+		catch ( Exception e ) {
+			throw new DistributedLockException( "Exception when trying to acquire locks " + lockIds, e );
+		}
+	}
+
+	/**
+	 * Called if not all locks could be taken directly: tries to steal idle locks and to create
+	 * the missing lock records.  If that fails, all locks taken are released again.
+	 */
+	private LockInfo takeRemainingLocks( String ownerId, List<String> lockIds ) {
+		Map<String, LockInfo> lockInfos = getLockInfos( lockIds );
+
+		List<String> owned = new ArrayList<>( lockIds.size() );
+		List<String> missing = new ArrayList<>();
+		LockInfo blockingLock = null;
+
+		try {
+			for ( String lockId : lockIds ) {
+				LockInfo lockInfo = lockInfos.get( lockId );
+				long timestamp = now();
+
+				if ( lockInfo == null ) {
+					missing.add( lockId );
+				}
+				else if ( ownerId.equals( lockInfo.getOwnerId() ) ) {
+					owned.add( lockId );
+				}
+				else if ( blockingLock != null ) {
+					continue;
+				}
+				else if ( lockInfo.getOwnerId() == null ) {
+					// Released since the first statement
+					if ( takeLock( lockId, ownerId, timestamp, Long.MAX_VALUE ) == 1 ) {
+						owned.add( lockId );
+					}
+					else {
+						blockingLock = lockInfo;
+					}
+				}
+				else {
+					long lastUpdateAge = timestamp - lockInfo.getUpdated();
+
+					if ( lastUpdateAge > configuration.getMaxIdleBeforeSteal()
+							&& stealLock( lockId, ownerId, timestamp, lockInfo, Long.MAX_VALUE ) == 1 ) {
+						LOG.trace( "Lock {} was last updated {} ms ago - stole the lock", lockId, lastUpdateAge );
+						metricsListener.lockStolen( lockId );
+						owned.add( lockId );
+					}
+					else {
+						blockingLock = lockInfo;
+					}
+				}
+			}
+
+			if ( blockingLock == null && !missing.isEmpty() ) {
+				Set<String> created = createLockRecords( ownerId, missing );
+
+				for ( String lockId : missing ) {
+					if ( created.contains( lockId ) ) {
+						owned.add( lockId );
+					}
+					else if ( blockingLock == null ) {
+						LOG.trace( "Failed to create lock record {} - was possibly created in the meantime", lockId );
+						blockingLock = new LockInfo();
+						blockingLock.setLockId( lockId );
+					}
+				}
+			}
+		}
+		catch ( RuntimeException re ) {
+			releaseLockRecords( ownerId, owned );
+			throw re;
+		}
+
+		if ( blockingLock != null ) {
+			LOG.trace( "Lock {} is held by {} - releasing the {} other locks taken", blockingLock.getLockId(),
+			           blockingLock.getOwnerId(), owned.size() );
+			releaseLockRecords( ownerId, owned );
+
+			if ( remoteOwnerCache != null && blockingLock.getOwnerId() != null ) {
+				remoteOwnerCache.put( blockingLock.getLockId(), blockingLock.getOwnerId() );
+			}
+		}
+
+		return blockingLock;
+	}
+
+	/**
+	 * Inserts the lock records in a single batch.  If the batch fails, the records are fetched
+	 * again to determine which ones have been created.
+	 *
+	 * @return lock ids of the records created for the owner
+	 */
+	private Set<String> createLockRecords( String ownerId, List<String> lockIds ) {
+		long timestamp = now();
+
+		List<Object[]> batchArgs = new ArrayList<>( lockIds.size() );
+		for ( String lockId : lockIds ) {
+			batchArgs.add( insertLockParameters( lockId, ownerId, timestamp ) );
+		}
+
+		try {
+			jdbcTemplate.batchUpdate( sqlInsertLock, batchArgs );
+			return new HashSet<>( lockIds );
+		}
+		catch ( DataAccessException dae ) {
+			LOG.trace( "Failed to create all lock records {} - checking which ones were created", lockIds );
+
+			Set<String> created = new HashSet<>( lockIds.size() );
+			for ( LockInfo lockInfo : getLockInfos( lockIds ).values() ) {
+				if ( ownerId.equals( lockInfo.getOwnerId() ) ) {
+					created.add( lockInfo.getLockId() );
+				}
+			}
+			return created;
+		}
+	}
+
+	/**
+	 * Removes a single hold of the owner on every lock in the database, without updating the monitor.
+	 * Used to revert a failed attempt to acquire multiple locks.
+	 */
+	private void releaseLockRecords( String ownerId, List<String> lockIds ) {
+		if ( lockIds.isEmpty() ) {
+			return;
+		}
+
+		List<Object> parameters = new ArrayList<>( lockIds.size() + 1 );
+		parameters.add( ownerId );
+		parameters.addAll( lockIds );
+
+		try {
+			// Release the locks held once before decreasing the others, a lock should not be decreased twice
+			if ( jdbcTemplate.update( sql( SQL_RELEASE_OWNER_LOCKS, lockIds.size() ), parameters.toArray() ) > 0 ) {
+				for ( String lockId : lockIds ) {
+					lockNotifier.lockReleased( lockId );
+				}
+			}
+			jdbcTemplate.update( sql( SQL_DECREASE_OWNER_HOLDS, lockIds.size() ), parameters.toArray() );
+		}
+		catch ( DataAccessException dae ) {
+			LOG.warn(
+					"Clean release of locks {} in database failed - locks appear still taken but can be stolen after the idle time.",
+					lockIds );
+		}
+	}
+
+	private boolean tryAcquire( DistributedLock lock, LockWait wait ) {
+		String lockId = lock.getKey();
+		String ownerId = lock.getOwnerId();
+
+		verify( lockId, ownerId );
+
+		long start = System.nanoTime();
+
+		try {
+			boolean acquired = tryAcquire( lockId, ownerId, lock, wait );
+			recordAttempt( lockId, wait, acquired, start );
+			return acquired;
+		}
+		catch ( DistributedLockException dle ) {
+			throw dle;
+		}
+		catch ( Exception e ) {
+			throw new DistributedLockException( "Exception when trying to acquire lock " + lockId, e );
+		}
+	}
+
+	/**
+	 * Reports a successful attempt to the metrics listener, a failed attempt only if it was a single attempt.
+	 * The outcome of a wait is reported by the {@link LockWait}.
+	 */
+	private void recordAttempt( String lockId, LockWait wait, boolean acquired, long start ) {
+		if ( wait != null ) {
+			if ( acquired ) {
+				wait.acquired( lockId );
+			}
+		}
+		else if ( acquired ) {
+			metricsListener.lockAcquired( lockId, System.nanoTime() - start, 1 );
+		}
+		else {
+			metricsListener.lockNotAcquired( lockId, System.nanoTime() - start, 1 );
+		}
+	}
+
+	private void verify( String lockId, String ownerId ) {
+		Assert.hasText( lockId, "lock key must not be empty" );
+		Assert.hasText( ownerId, "owner id must not be empty" );
+		Assert.isTrue( lockId.length() <= configuration.getMaxKeyLength(),
+		               "lock key cannot be longer than " + configuration.getMaxKeyLength() + " characters" );
+		Assert.isTrue( ownerId.length() <= configuration.getMaxOwnerIdLength(),
+		               "owner id cannot be longer than " + configuration.getMaxOwnerIdLength() + " characters" );
+	}
+
+	private boolean tryAcquire( String lockId, String ownerId, DistributedLock lock, LockWait wait ) {
+		boolean acquired = false;
+
+		LOG.trace( "Owner {} is trying to acquire lock {}", ownerId, lockId );
+
+		if ( remoteOwnerCache != null ) {
+			remoteOwnerCache.invalidate( lockId );
+		}
+
+		long ticket = wait != null ? wait.getTicket() : Long.MAX_VALUE;
+		long timestamp = now();
+		try {
+			int updated;
+
+			try {
+				updated = takeLock( lockId, ownerId, timestamp, ticket );
+			}
+			catch ( DeadlockLoserDataAccessException dle ) {
+				LOG.trace( "Deadlock loser for lock  {} - retrying once immediately", lockId );
+				updated = takeLock( lockId, ownerId, timestamp, ticket );
+			}
+
+			if ( updated > 1 ) {
+				throw new DistributedLockException(
+						"DistributedLockRepository table corrupt, more than one lock with id " + lockId );
+			}
+
+			if ( updated == 1 ) {
+				LOG.trace( "Owner {} directly acquired lock {}", ownerId, lockId );
+				acquired = true;
+			}
+			else {
+				LockInfo lockInfo = getLockInfo( lockId );
+
+				if ( wait != null ) {
+					wait.observed( lockInfo );
+				}
+
+				if ( remoteOwnerCache != null && lockInfo != null && lockInfo.getOwnerId() != null
+						&& !ownerId.equals( lockInfo.getOwnerId() ) ) {
+					remoteOwnerCache.put( lockId, lockInfo.getOwnerId() );
+				}
+
+				if ( lockInfo != null ) {
+					if ( ownerId.equals( lockInfo.getOwnerId() ) ) {
+						acquired = true;
+					}
+					else {
+						timestamp = now();
+						long lastUpdateAge = timestamp - lockInfo.getUpdated();
+						if ( lastUpdateAge > configuration.getMaxIdleBeforeSteal() ) {
+							LOG.trace( "Lock {} was last updated {} ms ago - attempting to steal the lock",
+							           lockId, lastUpdateAge );
+							updated = stealLock( lockId, ownerId, timestamp, lockInfo, ticket );
+
+							acquired = updated == 1;
+
+							if ( acquired ) {
+								metricsListener.lockStolen( lockId );
+							}
+						}
+						else if ( LOG.isTraceEnabled() ) {
+							long duration = now() - lockInfo.getCreated();
+							LOG.trace( "Lock {} is held by {} since {} ms", lockId, lockInfo.getOwnerId(),
+							           duration );
+						}
+					}
+				}
+				else {
+					LOG.trace( "Lock {} currently does not exist, creating", lockId );
+
+					int created;
+
+					try {
+						timestamp = now();
+						if ( lockQueue != null ) {
+							// Create the record without owner, the queue determines who gets it
+							insertFreeLock( lockId, timestamp );
+							created = takeLock( lockId, ownerId, timestamp, ticket );
+						}
+						else {
+							created = jdbcTemplate.update( sqlInsertLock, insertLockParameters( lockId, ownerId, timestamp ) );
+						}
+					}
+					catch ( DataAccessException dae ) {
+						created = 0;
+					}
+
+					if ( created != 1 ) {
+						LOG.trace( "Failed to create lock record {} - was possibly created in the meantime",
+						           lockId );
+					}
+					else {
+						LOG.trace( "Lock {} created by {}", lockId, ownerId );
+						acquired = true;
+					}
+				}
+			}
+
+			if ( acquired ) {
+				lockMonitor.addLock( ownerId, lock );
+
+				if ( configuration.isLeaseMode() ) {
+					assignFencingToken( ownerId, lockId );
+				}
+
+				if ( remoteOwnerCache != null ) {
+					remoteOwnerCache.invalidate( lockId );
+				}
+			}
+			else {
+				// Cleanup any stale record already, we're sure we no longer have the lock
+				lockMonitor.removeAllHolds( ownerId, lockId );
+			}
+		}
+		catch ( DeadlockLoserDataAccessException dle ) {
+			LOG.debug( "Deadlock loser for lock {}", lockId, dle );
+		}
+
+		return acquired;
+	}
+
+	private Object[] insertLockParameters( String lockId, String ownerId, long timestamp ) {
+		return configuration.isLeaseMode()
+				? new Object[] { lockId, ownerId, timestamp, timestamp, initialFencingToken( timestamp ) }
+				: new Object[] { lockId, ownerId, timestamp, timestamp };
+	}
+
+	private void insertFreeLock( String lockId, long timestamp ) {
+		if ( configuration.isLeaseMode() ) {
+			jdbcTemplate.update( sqlInsertFreeLock, lockId, timestamp, timestamp, initialFencingToken( timestamp ) );
+		}
+		else {
+			jdbcTemplate.update( sqlInsertFreeLock, lockId, timestamp, timestamp );
+		}
+	}
+
+	/**
+	 * A new lock record starts from a token based on the time, so a record that was cleaned up and
+	 * created again continues with higher tokens.  This holds as long as the lock has been acquired
+	 * less than 1000 times per millisecond on average.
+	 */
+	private long initialFencingToken( long timestamp ) {
+		return timestamp * 1000;
+	}
+
+	private int takeLock( String lockId, String ownerId, long timestamp, long ticket ) {
+		if ( lockQueue != null ) {
+			return jdbcTemplate.update( sqlFairTakeLock, ownerId, timestamp, timestamp, lockId, ownerId,
+			                            lockId, ticket, timestamp - configuration.getMaxIdleBeforeSteal() );
+		}
+
+		return jdbcTemplate.update( sqlTakeLock, ownerId, timestamp, timestamp, lockId, ownerId );
+	}
+
+	private int stealLock( String lockId, String ownerId, long timestamp, LockInfo lockInfo, long ticket ) {
+		if ( lockQueue != null ) {
+			return jdbcTemplate.update( sqlFairStealLock, ownerId, timestamp, timestamp, lockId,
+			                            lockInfo.getOwnerId(), lockInfo.getUpdated(),
+			                            lockId, ticket, timestamp - configuration.getMaxIdleBeforeSteal() );
+		}
+
+		return jdbcTemplate.update( sqlStealLock, ownerId, timestamp, timestamp, lockId,
+		                            lockInfo.getOwnerId(), lockInfo.getUpdated() );
+	}
+
+	/**
+	 * Fetch the fencing token of a lock that has just been acquired, unless the owner already held the lock.
+	 */
+	private void assignFencingToken( String ownerId, String lockId ) {
+		if ( lockMonitor.getFencingToken( ownerId, lockId ) < 0 ) {
+			Long token = jdbcTemplate.queryForObject( sqlSelectToken, Long.class, lockId, ownerId );
+			lockMonitor.setFencingToken( ownerId, lockId, token != null ? token : 0 );
+		}
+	}
+
+	private void assignFencingTokens( String ownerId, List<String> lockIds ) {
+		List<Object> parameters = new ArrayList<>( lockIds.size() + 1 );
+		parameters.add( ownerId );
+		parameters.addAll( lockIds );
+
+		jdbcTemplate.query( sql( SQL_SELECT_OWNER_TOKENS, lockIds.size() ), (RowCallbackHandler) rs -> {
+			String lockId = rs.getString( "lock_id" );
+			if ( lockMonitor.getFencingToken( ownerId, lockId ) < 0 ) {
+				lockMonitor.setFencingToken( ownerId, lockId, rs.getLong( "token" ) );
+			}
+		}, parameters.toArray() );
+	}
+
+	/**
+	 * Returns the fencing token of the lock, only available in lease mode.
+	 *
+	 * @see SqlBasedDistributedLockConfiguration#setLeaseMode(boolean)
+	 */
+	@Override
+	public long getFencingToken( DistributedLock lock ) {
+		checkDestroyed();
+
+		if ( !configuration.isLeaseMode() ) {
+			throw new IllegalStateException( "Fencing tokens are only issued in lease mode" );
+		}
+
+		long token = lockMonitor.getFencingToken( lock.getOwnerId(), lock.getKey() );
+
+		if ( token < 0 ) {
+			throw new IllegalStateException( "Lock " + lock.getKey() + " is not held by " + lock.getOwnerId() );
+		}
+
+		return token;
+	}
 
 	@Override
 	public boolean isLocked( String lockId ) {
@@ -443,7 +1233,7 @@ public class SqlBasedDistributedLockManager implements DistributedLockManager
 
 	@Override
 	public boolean isLockedByOwner( String ownerId, String lockId ) {
-		Assert.notNull( ownerId );
+		Assert.notNull( ownerId, "ownerId must not be null" );
 		checkDestroyed();
 		return ownerId.equals( getLockOwner( lockId ) );
 	}
@@ -451,12 +1241,20 @@ public class SqlBasedDistributedLockManager implements DistributedLockManager
 	private String getLockOwner( String lockId ) {
 		String ownerId = lockMonitor.getOwnerForLock( lockId );
 
+		if ( ownerId == null && remoteOwnerCache != null ) {
+			ownerId = remoteOwnerCache.getOwner( lockId );
+		}
+
 		if ( ownerId == null ) {
 			// Owner not found in current repository, dispatch to backend database
 			LockInfo lockInfo = getLockInfo( lockId );
 
 			if ( lockInfo != null ) {
 				ownerId = lockInfo.getOwnerId();
+
+				if ( ownerId != null && remoteOwnerCache != null ) {
+					remoteOwnerCache.put( lockId, ownerId );
+				}
 			}
 		}
 
@@ -477,35 +1275,115 @@ public class SqlBasedDistributedLockManager implements DistributedLockManager
 		}
 	}
 
+	private Map<String, LockInfo> getLockInfos( List<String> lockIds ) {
+		Map<String, LockInfo> lockInfos = new HashMap<>( lockIds.size() );
+		for ( LockInfo lockInfo : jdbcTemplate.query( sql( SQL_SELECT_LOCKS, lockIds.size() ), new LockInfoMapper(),
+		                                              lockIds.toArray() ) ) {
+			lockInfos.put( lockInfo.getLockId(), lockInfo );
+		}
+		return lockInfos;
+	}
+
 	@Override
 	public boolean verifyLockedByOwner( String ownerId, String lockId ) {
 		checkDestroyed();
 		try {
-			return jdbcTemplate.update( sqlVerifyLock, System.currentTimeMillis(), lockId, ownerId ) == 1;
+			return jdbcTemplate.update( sqlVerifyLock, now(), lockId, ownerId ) == 1;
 		}
 		catch ( Exception e ) {
 			throw new DistributedLockException( "Exception trying to update lock " + lockId, e );
 		}
 	}
 
-	@Override
-	public void release( DistributedLock lock ) {
+	/**
+	 * Verifies a number of locks that are supposed to be held by the same owner.  Instead of a separate update
+	 * for every lock, the last updated timestamp of all locks is refreshed using a single statement per batch
+	 * (see {@link SqlBasedDistributedLockConfiguration#getVerifyBatchSize()}).  Only if the number of updated
+	 * records does not match the expected number, an additional query is done to determine which locks are
+	 * no longer held by the owner.
+	 *
+	 * @param ownerId Id of the owner to verify.
+	 * @param lockIds Ids of the locks to verify.
+	 * @return subset of the lock ids that are still held by the owner
+	 */
+	public Set<String> verifyLocksByOwner( String ownerId, Collection<String> lockIds ) {
 		checkDestroyed();
-		release( lock.getOwnerId(), lock.getKey() );
+		return verifyByOwner( configuration.getTableName(), ownerId, lockIds );
 	}
 
-	private void checkDestroyed() {
-		if ( destroyed ) {
-			throw new IllegalStateException(
-					"The DistributedLockManager has been destroyed - creating locks is impossible." );
-		}
+	/**
+	 * Verifies a number of read locks that are supposed to be held by the same owner,
+	 * see {@link #verifyLocksByOwner(String, Collection)}.
+	 *
+	 * @return subset of the lock ids that are still read locked by the owner
+	 */
+	Set<String> verifyReadLocksByOwner( String ownerId, Collection<String> lockIds ) {
+		checkDestroyed();
+		return verifyByOwner( configuration.getReaderTableName(), ownerId, lockIds );
+	}
+
+	private Set<String> verifyByOwner( String tableName, String ownerId, Collection<String> lockIds ) {
+		List<String> remaining = new ArrayList<>( lockIds );
+		Set<String> verified = new HashSet<>( remaining.size() );
+		int batchSize = configuration.getVerifyBatchSize();
+
+		try {
+			for ( int start = 0; start < remaining.size(); start += batchSize ) {
+				List<String> batch = remaining.subList( start, Math.min( start + batchSize, remaining.size() ) );
+
+				List<Object> parameters = new ArrayList<>( batch.size() + 2 );
+				parameters.add( now() );
+				parameters.add( ownerId );
+				parameters.addAll( batch );
+
+				int updated = jdbcTemplate.update( sql( SQL_VERIFY_OWNER_LOCKS, tableName, batch.size() ),
+				                                   parameters.toArray() );
+
+				if ( updated == batch.size() ) {
+					verified.addAll( batch );
+				}
+				else {
+					LOG.trace( "Verified {} out of {} locks for owner {} - fetching the locks still held",
+					           updated, batch.size(), ownerId );
+					verified.addAll( jdbcTemplate.queryForList( sql( SQL_SELECT_OWNER_LOCKS, tableName, batch.size() ),
+					                                            String.class,
+					                                            parameters.subList( 1, parameters.size() )
+					                                                      .toArray() ) );
+				}
+			}
+		}
+		catch ( Exception e ) {
+			throw new DistributedLockException( "Exception trying to update locks of owner " + ownerId, e );
+		}
+
+		return verified;
+	}
+
+	@Override
+	public void release( DistributedLock lock ) {
+		checkDestroyed();
+		release( lock.getOwnerId(), lock.getKey() );
+	}
+
+	private void checkDestroyed() {
+		if ( destroyed ) {
+			throw new IllegalStateException(
+					"The DistributedLockManager has been destroyed - creating locks is impossible." );
+		}
 	}
 
 	private void release( String ownerId, String lockId ) {
 		LOG.trace( "Owner {} is releasing lock {}", ownerId, lockId );
 		lockMonitor.removeLock( ownerId, lockId );
+
+		if ( remoteOwnerCache != null ) {
+			remoteOwnerCache.invalidate( lockId );
+		}
 		try {
-			if ( jdbcTemplate.update( sqlReleaseLock, lockId, ownerId ) != 1 ) {
+			if ( jdbcTemplate.update( sqlReleaseLock, lockId, ownerId ) == 1 ) {
+				lockNotifier.lockReleased( lockId );
+			}
+			else {
 				LOG.trace( "Releasing lock {} failed - trying decreasing the holds", lockId );
 				if ( jdbcTemplate.update( sqlDecreaseHold, lockId, ownerId ) != 1 ) {
 					LOG.trace( "Releasing lock {} failed - possibly it was forcibly taken already", lockId );
@@ -519,6 +1397,638 @@ public class SqlBasedDistributedLockManager implements DistributedLockManager
 		}
 	}
 
+	/**
+	 * Release the lock entirely, regardless of the number of holds the owner has on it.
+	 */
+	private void releaseAllHolds( String ownerId, String lockId ) {
+		LOG.trace( "Owner {} is releasing all holds on lock {}", ownerId, lockId );
+		lockMonitor.removeAllHolds( ownerId, lockId );
+
+		try {
+			if ( jdbcTemplate.update( sqlReleaseAllHolds, lockId, ownerId ) == 1 ) {
+				lockNotifier.lockReleased( lockId );
+			}
+		}
+		catch ( DataAccessException dae ) {
+			LOG.warn(
+					"Clean release of lock {} in database failed - lock appears still taken but can be stolen after the idle time.",
+					lockId );
+		}
+	}
+
+	@Override
+	public void acquireReadInterruptibly( DistributedLock lock ) throws InterruptedException {
+		checkDestroyed();
+
+		try (LockWait wait = new LockWait( lock, false );
+		     DistributedLockNotifier.Subscription subscription = lockNotifier.subscribe( lock.getKey() )) {
+			wait.await( subscription, () -> tryAcquireRead( lock, wait ) );
+			passOnNotification( lock, wait.isNotified() );
+		}
+	}
+
+	@Override
+	public boolean tryAcquireRead( DistributedLock lock ) {
+		checkDestroyed();
+		return tryAcquireRead( lock, null );
+	}
+
+	@Override
+	public boolean tryAcquireRead( DistributedLock lock, long time, TimeUnit unit ) {
+		checkDestroyed();
+
+		long deadline = System.nanoTime() + unit.toNanos( time );
+
+		try (LockWait wait = new LockWait( lock, false );
+		     DistributedLockNotifier.Subscription subscription = lockNotifier.subscribe( lock.getKey() )) {
+			boolean acquired = wait.await( subscription, () -> tryAcquireRead( lock, wait ), deadline );
+
+			if ( acquired ) {
+				passOnNotification( lock, wait.isNotified() );
+			}
+			else {
+				wait.notAcquired();
+			}
+
+			return acquired;
+		}
+		catch ( InterruptedException ie ) {
+			throw new DistributedLockWaitException( ie );
+		}
+	}
+
+	private boolean tryAcquireRead( DistributedLock lock, LockWait wait ) {
+		String lockId = lock.getKey();
+		String ownerId = lock.getOwnerId();
+
+		verify( lockId, ownerId );
+		readLocksUsed = true;
+
+		long start = System.nanoTime();
+
+		try {
+			boolean acquired = tryAcquireRead( lockId, ownerId, lock, wait );
+			recordAttempt( lockId, wait, acquired, start );
+			return acquired;
+		}
+		catch ( DistributedLockException dle ) {
+			throw dle;
+		}
+		catch ( Exception e ) {
+			throw new DistributedLockException( "Exception when trying to acquire read lock " + lockId, e );
+		}
+	}
+
+	private boolean tryAcquireRead( String lockId, String ownerId, DistributedLock lock, LockWait wait ) {
+		LOG.trace( "Owner {} is trying to acquire read lock {}", ownerId, lockId );
+
+		boolean acquired = false;
+		long timestamp = now();
+
+		try {
+			acquired = lockReaders.addHold( lockId, ownerId, timestamp );
+
+			// A second attempt is done if the lock record was missing or held by an idle writer
+			for ( int attempt = 0; !acquired && attempt < 2; attempt++ ) {
+				try {
+					if ( lockReaders.register( lockId, ownerId, timestamp ) ) {
+						LOG.trace( "Owner {} registered as reader of lock {}", ownerId, lockId );
+						acquired = true;
+						break;
+					}
+				}
+				catch ( DataIntegrityViolationException dive ) {
+					LOG.trace( "Owner {} was registered as reader of lock {} in the meantime", ownerId, lockId );
+					acquired = lockReaders.addHold( lockId, ownerId, timestamp );
+					continue;
+				}
+
+				LockInfo lockInfo = getLockInfo( lockId );
+
+				if ( wait != null ) {
+					wait.observed( lockInfo );
+				}
+
+				timestamp = now();
+
+				if ( lockInfo == null ) {
+					LOG.trace( "Lock {} currently does not exist, creating", lockId );
+					try {
+						insertFreeLock( lockId, timestamp );
+					}
+					catch ( DataAccessException dae ) {
+						LOG.trace( "Failed to create lock record {} - was possibly created in the meantime", lockId );
+					}
+				}
+				else if ( lockInfo.getOwnerId() != null ) {
+					long lastUpdateAge = timestamp - lockInfo.getUpdated();
+
+					if ( lastUpdateAge <= configuration.getMaxIdleBeforeSteal() ) {
+						LOG.trace( "Lock {} is held by writer {}", lockId, lockInfo.getOwnerId() );
+						break;
+					}
+
+					LOG.trace( "Lock {} was last updated {} ms ago - releasing the lock of writer {}",
+					           lockId, lastUpdateAge, lockInfo.getOwnerId() );
+					if ( jdbcTemplate.update( sqlReleaseIdleLock, lockId, lockInfo.getOwnerId(),
+					                          lockInfo.getUpdated() ) == 1 ) {
+						metricsListener.lockStolen( lockId );
+					}
+				}
+			}
+
+			if ( acquired ) {
+				readLockMonitor.addLock( ownerId, lock );
+			}
+			else {
+				readLockMonitor.removeAllHolds( ownerId, lockId );
+			}
+		}
+		catch ( DeadlockLoserDataAccessException dle ) {
+			LOG.debug( "Deadlock loser for read lock {}", lockId, dle );
+		}
+
+		return acquired;
+	}
+
+	@Override
+	public void releaseRead( DistributedLock lock ) {
+		checkDestroyed();
+
+		String lockId = lock.getKey();
+		String ownerId = lock.getOwnerId();
+
+		LOG.trace( "Owner {} is releasing read lock {}", ownerId, lockId );
+		readLockMonitor.removeLock( ownerId, lockId );
+
+		try {
+			if ( lockReaders.release( lockId, ownerId ) ) {
+				lockNotifier.lockReleased( lockId );
+			}
+		}
+		catch ( DataAccessException dae ) {
+			LOG.warn(
+					"Clean release of read lock {} in database failed - reader appears still active but can be removed after the idle time.",
+					lockId );
+		}
+	}
+
+	/**
+	 * Release the read lock entirely, regardless of the number of holds the owner has on it.
+	 */
+	private void releaseAllReadHolds( String ownerId, String lockId ) {
+		LOG.trace( "Owner {} is releasing all holds on read lock {}", ownerId, lockId );
+		readLockMonitor.removeAllHolds( ownerId, lockId );
+
+		try {
+			if ( lockReaders.releaseAllHolds( lockId, ownerId ) ) {
+				lockNotifier.lockReleased( lockId );
+			}
+		}
+		catch ( DataAccessException dae ) {
+			LOG.warn(
+					"Clean release of read lock {} in database failed - reader appears still active but can be removed after the idle time.",
+					lockId );
+		}
+	}
+
+	/**
+	 * A release notification only wakes up a single owner, but a shared lock can be acquired by several owners.
+	 * An owner that acquired it after being notified passes the notification on to the next waiting owner.
+	 */
+	private void passOnNotification( DistributedLock lock, boolean notified ) {
+		if ( notified ) {
+			lockNotifier.lockReleased( lock.getKey() );
+		}
+	}
+
+	@Override
+	public boolean isReadLocked( String lockKey ) {
+		checkDestroyed();
+		return lockReaders.countReaders( lockKey, now() - configuration.getMaxIdleBeforeSteal() ) > 0;
+	}
+
+	@Override
+	public boolean isReadLockedByOwner( String ownerId, String lockKey ) {
+		Assert.notNull( ownerId, "ownerId must not be null" );
+		checkDestroyed();
+
+		return readLockMonitor.isHeldBy( ownerId, lockKey )
+				|| lockReaders.isReader( lockKey, ownerId,
+				                         now() - configuration.getMaxIdleBeforeSteal() );
+	}
+
+	@Override
+	public boolean tryAcquirePermits( DistributedLock lock, int permits, int maxPermits ) {
+		checkDestroyed();
+		return tryAcquirePermits( lock, permits, maxPermits, null );
+	}
+
+	@Override
+	public boolean tryAcquirePermits( DistributedLock lock, int permits, int maxPermits, long time, TimeUnit unit ) {
+		checkDestroyed();
+
+		long deadline = System.nanoTime() + unit.toNanos( time );
+
+		try (LockWait wait = new LockWait( lock, false );
+		     DistributedLockNotifier.Subscription subscription = lockNotifier.subscribe( lock.getKey() )) {
+			boolean acquired = wait.await( subscription, () -> tryAcquirePermits( lock, permits, maxPermits, wait ),
+			                               deadline );
+
+			if ( acquired ) {
+				passOnNotification( lock, wait.isNotified() );
+			}
+			else {
+				wait.notAcquired();
+			}
+
+			return acquired;
+		}
+		catch ( InterruptedException ie ) {
+			throw new DistributedLockWaitException( ie );
+		}
+	}
+
+	private boolean tryAcquirePermits( DistributedLock lock, int permits, int maxPermits, LockWait wait ) {
+		String lockId = lock.getKey();
+		String ownerId = lock.getOwnerId();
+
+		verify( lockId, ownerId );
+		Assert.isTrue( permits > 0 && permits <= maxPermits, "permits must be between 1 and " + maxPermits );
+		readLocksUsed = true;
+
+		long start = System.nanoTime();
+
+		try {
+			boolean acquired = tryAcquirePermits( lockId, ownerId, lock, permits, maxPermits );
+			recordAttempt( lockId, wait, acquired, start );
+			return acquired;
+		}
+		catch ( DistributedLockException dle ) {
+			throw dle;
+		}
+		catch ( Exception e ) {
+			throw new DistributedLockException( "Exception when trying to acquire permits of semaphore " + lockId, e );
+		}
+	}
+
+	private boolean tryAcquirePermits( String lockId,
+	                                   String ownerId,
+	                                   DistributedLock lock,
+	                                   int permits,
+	                                   int maxPermits ) {
+		LOG.trace( "Owner {} is trying to acquire {} permits of semaphore {}", ownerId, permits, lockId );
+
+		try {
+			for ( int attempt = 0; attempt < 2; attempt++ ) {
+				long timestamp = now();
+				SqlBasedDistributedLockReaders.PermitsResult result = lockReaders.acquirePermits(
+						lockId, ownerId, permits, maxPermits, timestamp,
+						timestamp - configuration.getMaxIdleBeforeSteal() );
+
+				if ( result != null ) {
+					for ( int i = 0; i < result.getStalePermitsRemoved(); i++ ) {
+						metricsListener.lockStolen( lockId );
+					}
+
+					if ( result.isAcquired() ) {
+						LOG.trace( "Owner {} acquired {} permits of semaphore {}", ownerId, permits, lockId );
+						readLockMonitor.addLock( ownerId, lock, permits );
+						return true;
+					}
+
+					LOG.trace( "Semaphore {} has {} of {} permits in use", lockId, result.getPermitsInUse(),
+					           maxPermits );
+					return false;
+				}
+
+				if ( getLockInfo( lockId ) != null ) {
+					throw new DistributedLockException( "Semaphore key " + lockId + " is held as a regular lock" );
+				}
+
+				LOG.trace( "Semaphore {} currently does not exist, creating", lockId );
+				try {
+					insertFreeLock( lockId, timestamp );
+				}
+				catch ( DataAccessException dae ) {
+					LOG.trace( "Failed to create semaphore record {} - was possibly created in the meantime", lockId );
+				}
+			}
+		}
+		catch ( DeadlockLoserDataAccessException dle ) {
+			LOG.debug( "Deadlock loser for semaphore {}", lockId, dle );
+		}
+
+		return false;
+	}
+
+	@Override
+	public void releasePermits( DistributedLock lock, int permits ) {
+		checkDestroyed();
+
+		String lockId = lock.getKey();
+		String ownerId = lock.getOwnerId();
+
+		LOG.trace( "Owner {} is releasing {} permits of semaphore {}", ownerId, permits, lockId );
+		readLockMonitor.removeLock( ownerId, lockId, permits );
+
+		try {
+			lockReaders.releasePermits( lockId, ownerId, permits );
+			lockNotifier.lockReleased( lockId );
+		}
+		catch ( DataAccessException dae ) {
+			LOG.warn(
+					"Clean release of permits of semaphore {} in database failed - permits appear still in use but can be removed after the idle time.",
+					lockId );
+		}
+	}
+
+	@Override
+	public int getAvailablePermits( String lockKey, int maxPermits ) {
+		checkDestroyed();
+		return Math.max( 0, maxPermits - lockReaders.countPermits( lockKey,
+		                                                           now() - configuration.getMaxIdleBeforeSteal() ) );
+	}
+
+	@Override
+	public long tryAcquireTokens( String lockKey, int tokens, double tokensPerSecond, int capacity ) {
+		checkDestroyed();
+		Assert.hasText( lockKey, "lock key must not be empty" );
+		Assert.isTrue( tokens > 0 && tokens <= capacity, "tokens must be between 1 and " + capacity );
+
+		long emissionInterval = Math.max( 1, Math.round( 1_000_000 / tokensPerSecond ) );
+
+		try {
+			long waitMicros = rateLimits.takeTokens( lockKey, tokens, emissionInterval, capacity, now() );
+			return TimeUnit.MICROSECONDS.toNanos( waitMicros );
+		}
+		catch ( DistributedLockException dle ) {
+			throw dle;
+		}
+		catch ( Exception e ) {
+			throw new DistributedLockException( "Exception when trying to take tokens of rate limiter " + lockKey, e );
+		}
+	}
+
+	/**
+	 * Acquires the regular lock and then waits for all other readers to release their read lock.
+	 * Because new readers are not registered as long as the regular lock is held, the readers will drain.
+	 * Readers that have not been updated for longer than the maximum idle time are removed.
+	 * An owner holding the read lock cannot upgrade it to the write lock: two owners doing so at the same time
+	 * would wait for each other forever.
+	 */
+	@Override
+	public void acquireWriteInterruptibly( DistributedLock lock ) throws InterruptedException {
+		verifyNoUpgrade( lock );
+		acquireInterruptibly( lock );
+		awaitReaders( lock, false, 0 );
+	}
+
+	@Override
+	public boolean tryAcquireWrite( DistributedLock lock ) {
+		verifyNoUpgrade( lock );
+
+		try {
+			return tryAcquire( lock ) && awaitReaders( lock, true, System.nanoTime() );
+		}
+		catch ( InterruptedException ie ) {
+			throw new DistributedLockWaitException( ie );
+		}
+	}
+
+	@Override
+	public boolean tryAcquireWrite( DistributedLock lock, long time, TimeUnit unit ) {
+		verifyNoUpgrade( lock );
+
+		long deadline = System.nanoTime() + unit.toNanos( time );
+
+		try {
+			return tryAcquire( lock, time, unit ) && awaitReaders( lock, true, deadline );
+		}
+		catch ( InterruptedException ie ) {
+			throw new DistributedLockWaitException( ie );
+		}
+	}
+
+	private void verifyNoUpgrade( DistributedLock lock ) {
+		String ownerId = lock.getOwnerId();
+
+		if ( readLockMonitor.hasLocalHold( ownerId, lock.getKey() )
+				&& !lockMonitor.hasLocalHold( ownerId, lock.getKey() ) ) {
+			throw new IllegalStateException(
+					"Owner " + ownerId + " holds the read lock " + lock.getKey() + " which cannot be upgraded" );
+		}
+	}
+
+	/**
+	 * Wait until the lock no longer has readers other than the owner, the lock itself is held by the owner.
+	 * If the readers do not drain, the hold on the lock is released again.
+	 *
+	 * @return true if there are no more readers
+	 */
+	private boolean awaitReaders( DistributedLock lock, boolean timed, long deadline ) throws InterruptedException {
+		boolean drained = false;
+
+		try (LockWait wait = new LockWait( lock, false );
+		     DistributedLockNotifier.Subscription subscription = lockNotifier.subscribe( lock.getKey() )) {
+			BooleanSupplier noOtherReaders = () -> !hasOtherReaders( lock.getKey(), lock.getOwnerId() );
+
+			if ( timed ) {
+				drained = wait.await( subscription, noOtherReaders, deadline );
+			}
+			else {
+				wait.await( subscription, noOtherReaders );
+				drained = true;
+			}
+
+			return drained;
+		}
+		finally {
+			if ( !drained ) {
+				LOG.trace( "Readers of lock {} are still active - owner {} releasing the lock", lock.getKey(),
+				           lock.getOwnerId() );
+				release( lock.getOwnerId(), lock.getKey() );
+			}
+		}
+	}
+
+	private boolean hasOtherReaders( String lockId, String ownerId ) {
+		try {
+			List<Long> readers = lockReaders.getOtherReaders( lockId, ownerId );
+
+			if ( readers.isEmpty() ) {
+				return false;
+			}
+
+			long staleReadersTimestamp = now() - configuration.getMaxIdleBeforeSteal();
+			long activeReaders = readers.stream().filter( updated -> updated >= staleReadersTimestamp ).count();
+
+			if ( activeReaders < readers.size() ) {
+				LOG.trace( "Removing {} idle readers of lock {}", readers.size() - activeReaders, lockId );
+				lockReaders.removeStaleReaders( lockId, staleReadersTimestamp );
+			}
+
+			return activeReaders > 0;
+		}
+		catch ( Exception e ) {
+			throw new DistributedLockException( "Exception when waiting for the readers of lock " + lockId, e );
+		}
+	}
+
+	/**
+	 * The turn of an owner to wait for a lock on the database.  Only a single owner per lock retries the lock
+	 * on the database, other owners waiting for the same lock through this manager wait locally for their turn,
+	 * in order of arrival.  In fair mode every owner waits on the database, as the queue table determines the order.
+	 */
+	private final class LocalTurn implements AutoCloseable
+	{
+		private final String lockId;
+		private final LocalTurns turns;
+
+		private boolean taken;
+
+		LocalTurn( String lockId ) {
+			this.lockId = lockId;
+			this.turns = lockQueue == null ? localTurns.compute( lockId, ( key, existing ) -> {
+				LocalTurns value = existing != null ? existing : new LocalTurns();
+				value.owners++;
+				return value;
+			} ) : null;
+		}
+
+		void await() throws InterruptedException {
+			if ( turns != null ) {
+				turns.lock.lockInterruptibly();
+			}
+			taken = true;
+		}
+
+		boolean await( long nanos ) throws InterruptedException {
+			taken = turns == null || turns.lock.tryLock( nanos, TimeUnit.NANOSECONDS );
+			return taken;
+		}
+
+		@Override
+		public void close() {
+			if ( turns != null ) {
+				if ( taken ) {
+					turns.lock.unlock();
+				}
+				localTurns.computeIfPresent( lockId, ( key, value ) -> --value.owners > 0 ? value : null );
+			}
+		}
+	}
+
+	private static final class LocalTurns
+	{
+		private final ReentrantLock lock = new ReentrantLock( true );
+
+		// guarded by the map entry
+		private int owners;
+	}
+
+	/**
+	 * Keeps track of the attempts of a single owner waiting for a lock, determines the delays using
+	 * the configured {@link DistributedLockRetryPolicy}.  In fair mode also manages the ticket of the owner.
+	 * Reports the outcome of the wait to the metrics listener.
+	 */
+	private final class LockWait extends DistributedLockWait
+	{
+		private final DistributedLock lock;
+		private final boolean queued;
+		private final long start = System.nanoTime();
+
+		private long heldFor = -1, idleFor = -1;
+		private long ticket = Long.MAX_VALUE;
+
+		LockWait( DistributedLock lock ) {
+			this( lock, lockQueue != null );
+		}
+
+		/**
+		 * @param queued true if the owner should take a ticket in the queue for the lock
+		 */
+		LockWait( DistributedLock lock, boolean queued ) {
+			super( configuration.getRetryPolicy() );
+			this.lock = lock;
+			this.queued = queued;
+		}
+
+		long getTicket() {
+			return ticket;
+		}
+
+		void acquired( String lockId ) {
+			// every failed attempt has requested a delay
+			metricsListener.lockAcquired( lockId, System.nanoTime() - start, getAttempts() + 1 );
+		}
+
+		void notAcquired() {
+			notAcquired( lock.getKey() );
+		}
+
+		void notAcquired( String lockId ) {
+			metricsListener.lockNotAcquired( lockId, System.nanoTime() - start, getAttempts() + 1 );
+		}
+
+		void observed( LockInfo lockInfo ) {
+			if ( lockInfo != null && lockInfo.getOwnerId() != null ) {
+				long timestamp = now();
+				heldFor = Math.max( 0, timestamp - lockInfo.getCreated() );
+				idleFor = Math.max( 0, timestamp - lockInfo.getUpdated() );
+			}
+			else {
+				heldFor = -1;
+				idleFor = -1;
+			}
+		}
+
+		@Override
+		protected DistributedLockRetryPolicy.FailedAttempt failedAttempt( int attempt, long previousDelay ) {
+			return new DistributedLockRetryPolicy.FailedAttempt( attempt, previousDelay, heldFor, idleFor,
+			                                                     configuration.getMaxIdleBeforeSteal() );
+		}
+
+		@Override
+		protected long adjustDelay( long delay ) {
+			if ( queued ) {
+				// Ensure the ticket is refreshed before it is considered stale
+				keepTicket();
+				return Math.min( delay, Math.max( 1, configuration.getMaxIdleBeforeSteal() / 2 ) );
+			}
+
+			return delay;
+		}
+
+		private void keepTicket() {
+			try {
+				if ( ticket == Long.MAX_VALUE || !lockQueue.refresh( lock.getKey(), ticket ) ) {
+					ticket = lockQueue.enqueue( lock.getKey(), lock.getOwnerId() );
+				}
+			}
+			catch ( DistributedLockException dle ) {
+				throw dle;
+			}
+			catch ( Exception e ) {
+				throw new DistributedLockException( "Exception when waiting in line for lock " + lock.getKey(), e );
+			}
+		}
+
+		@Override
+		public void close() {
+			if ( ticket != Long.MAX_VALUE ) {
+				try {
+					lockQueue.dequeue( lock.getKey(), ticket );
+				}
+				catch ( Exception e ) {
+					LOG.warn( "Unable to remove ticket {} for lock {} - it will expire after the idle time",
+					          ticket, lock.getKey() );
+				}
+				ticket = Long.MAX_VALUE;
+			}
+		}
+	}
+
 	private static final class LockInfo
 	{
 		private String lockId, ownerId;
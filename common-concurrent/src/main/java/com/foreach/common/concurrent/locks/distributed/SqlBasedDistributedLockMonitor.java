@@ -18,13 +18,16 @@ package com.foreach.common.concurrent.locks.distributed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Objects;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Monitor to be executed at regular intervals that will check if the
  * registered locks are still valid.
+ * <p/>
+ * The active locks are indexed by lock id in a concurrent map: looking up the owner of a lock does not
+ * require any locking, registering or removing a lock only locks the entry of that lock id.
  *
  * @author Arne Vandamme
  */
@@ -33,7 +36,7 @@ public class SqlBasedDistributedLockMonitor implements Runnable
 	private static final Logger LOG = LoggerFactory.getLogger( SqlBasedDistributedLockMonitor.class );
 
 	private final SqlBasedDistributedLockManager lockManager;
-	private final Map<ActiveLock, DistributedLock> activeLocks = new HashMap<>();
+	private final ConcurrentMap<String, ActiveLock> activeLocks = new ConcurrentHashMap<>();
 	private final long maxTimeBeforeUnstable;
 	private final long maxCacheTime;
 
@@ -45,37 +48,43 @@ public class SqlBasedDistributedLockMonitor implements Runnable
 		this.maxCacheTime = maxCacheTime;
 	}
 
-	public synchronized void addLock( String ownerId, DistributedLock lock ) {
+	/**
+	 * Register a successful acquire of the lock by the owner.  If the owner already held the lock, an additional
+	 * local hold is added.  If the lock was registered for another owner, that owner is reported to have its
+	 * lock stolen.
+	 */
+	public void addLock( String ownerId, DistributedLock lock ) {
 		String lockId = lock.getKey();
-		ActiveLock activeLock = findActiveLock( lockId );
+		ActiveLock[] previous = new ActiveLock[1];
+
+		activeLocks.compute( lockId, ( id, activeLock ) -> {
+			if ( activeLock != null && activeLock.getOwnerId().equals( ownerId ) ) {
+				activeLock.addLocalHold();
+				return activeLock;
+			}
 
-		if ( activeLock != null && !activeLock.getOwnerId().equals( ownerId ) ) {
+			previous[0] = activeLock;
+			return new ActiveLock( ownerId, lockId, lock );
+		} );
+
+		if ( previous[0] != null ) {
 			// This guy just had his lock stolen
-			reportStolen( activeLock.getOwnerId(), lockId );
-		}
-		else if ( activeLock != null ) {
-			activeLock.addLocalHold();
-		}
-		else {
-			activeLocks.put( new ActiveLock( ownerId, lockId ), lock );
+			reportStolen( previous[0] );
 		}
 	}
 
 	@Override
 	public void run() {
 		try {
-			for ( Map.Entry<ActiveLock, DistributedLock> activeLock : getActiveLocks().entrySet() ) {
-				ActiveLock key = activeLock.getKey();
+			Map<String, List<ActiveLock>> locksByOwner = new HashMap<>();
 
-				// Before checking, ensure that it is still supposed to be active
-				if ( activeLocks.containsKey( key ) ) {
-					LOG.trace( "Verifying lock {} is still owned by {}", key.getLockId(), key.getOwnerId() );
+			for ( ActiveLock activeLock : activeLocks.values() ) {
+				locksByOwner.computeIfAbsent( activeLock.getOwnerId(), ownerId -> new ArrayList<>() )
+				            .add( activeLock );
+			}
 
-					// If not active, report stolen
-					if ( !verifyStillLocked( key, activeLock.getValue() ) ) {
-						reportStolen( key.getOwnerId(), key.getLockId() );
-					}
-				}
+			for ( Map.Entry<String, List<ActiveLock>> ownerLocks : locksByOwner.entrySet() ) {
+				verifyStillLocked( ownerLocks.getKey(), ownerLocks.getValue() );
 			}
 		}
 		catch ( Exception e ) {
@@ -84,79 +93,124 @@ public class SqlBasedDistributedLockMonitor implements Runnable
 	}
 
 	/**
+	 * Verifies all locks of a single owner in one go.  Locks that are no longer held are reported stolen.
 	 * In case something goes wrong, the monitor assumes the state is unchanged but sends an unstable
-	 * callback if the lock state cannot be verified for too long
+	 * callback if the lock state cannot be verified for too long.
 	 */
-	private boolean verifyStillLocked( ActiveLock monitorInfo, DistributedLock original ) {
-		boolean lockedByOwner = true;
+	private void verifyStillLocked( String ownerId, List<ActiveLock> ownerLocks ) {
+		// Before checking, ensure that they are still supposed to be active
+		ownerLocks.removeIf( activeLock -> !isActive( activeLock ) );
 
-		try {
-			lockedByOwner = lockManager.verifyLockedByOwner( monitorInfo.getOwnerId(), monitorInfo.getLockId() );
-			monitorInfo.setLastVerified( System.currentTimeMillis() );
+		if ( ownerLocks.isEmpty() ) {
+			return;
 		}
-		catch ( DistributedLockException dle ) {
-			LOG.warn( "Unable to update lock {} - lock might be unstable", monitorInfo.getLockId() );
-			if ( isUnstable( monitorInfo ) ) {
-				LOG.error( "Lock verification failed too many times - triggering lock unstable callback" );
-				reportUnstable( monitorInfo.getLastVerified(), original, dle );
-			}
+
+		List<String> lockIds = new ArrayList<>( ownerLocks.size() );
+		for ( ActiveLock activeLock : ownerLocks ) {
+			lockIds.add( activeLock.getLockId() );
 		}
 
-		return lockedByOwner;
-	}
+		LOG.trace( "Verifying {} locks are still owned by {}", lockIds.size(), ownerId );
 
-	private void reportUnstable( long lastVerified, DistributedLock lock, DistributedLockException dle ) {
-		DistributedLock.LockUnstableCallback callback = lock.getUnstableCallback();
+		Set<String> lockedByOwner;
+		long start = System.nanoTime();
 
-		if ( callback == null ) {
-			callback = lockManager.getDefaultLockUnstableCallback();
+		try {
+			lockedByOwner = lockManager.verifyLocksByOwner( ownerId, lockIds );
+			lockManager.getMetricsListener().locksVerified( lockIds.size(), System.nanoTime() - start, true );
 		}
+		catch ( DistributedLockException dle ) {
+			lockManager.getMetricsListener().locksVerified( lockIds.size(), System.nanoTime() - start, false );
+			LOG.warn( "Unable to update {} locks of owner {} - locks might be unstable", lockIds.size(), ownerId );
+
+			for ( ActiveLock activeLock : ownerLocks ) {
+				if ( isUnstable( activeLock ) ) {
+					LOG.error( "Lock {} verification failed too many times - triggering lock unstable callback",
+					           activeLock.getLockId() );
+					reportUnstable( activeLock.getLastVerified(), activeLock.getLock(), dle );
+				}
+			}
+
+			return;
+		}
+
+		long verified = System.currentTimeMillis();
 
-		if ( callback != null ) {
-			try {
-				callback.unstable( lock.getKey(), lock.getOwnerId(), lock, lastVerified, dle );
+		for ( ActiveLock activeLock : ownerLocks ) {
+			if ( lockedByOwner.contains( activeLock.getLockId() ) ) {
+				activeLock.setLastVerified( verified );
 			}
-			catch ( Exception e ) {
-				LOG.error( "Exception executing unstable callback for lock {}", lock.getKey(), e );
+			else if ( activeLocks.remove( activeLock.getLockId(), activeLock ) ) {
+				// If not active, report stolen
+				reportStolen( activeLock );
 			}
 		}
 	}
 
-	private void reportStolen( String ownerId, String lockId ) {
-		// Remove the lock from the monitor -  it's possible this has happened already in the meantime
-		DistributedLock removedLock = removeLock( ownerId, lockId );
-
-		if ( removedLock != null ) {
-			LOG.trace( "Lock {} was supposed to be owned by {}, but it appears to be stolen",
-			           lockId, ownerId );
+	private void reportUnstable( long lastVerified, DistributedLock lock, DistributedLockException dle ) {
+		reportUnstable( lockManager, lastVerified, lock, dle );
+	}
 
-			// Execute the stolen callback if there is one
-			DistributedLock.LockStolenCallback callback = removedLock.getStolenCallback();
+	/**
+	 * Executes the unstable callback of the lock, or the default callback of the lock manager.
+	 */
+	static void reportUnstable( SqlBasedDistributedLockManager lockManager,
+	                            long lastVerified,
+	                            DistributedLock lock,
+	                            DistributedLockException dle ) {
+		lockManager.getMetricsListener().lockUnstable( lock.getKey() );
+		DistributedLockCallbacks.reportUnstable( lockManager.getDefaultLockUnstableCallback(), lastVerified, lock, dle );
+	}
 
-			if ( callback == null ) {
-				callback = lockManager.getDefaultLockStolenCallback();
-			}
+	/**
+	 * Executes the stolen callback for a lock that has already been removed from the active locks.
+	 */
+	private void reportStolen( ActiveLock stolenLock ) {
+		reportStolen( lockManager, stolenLock.getLockId(), stolenLock.getOwnerId(), stolenLock.getLock() );
+	}
 
-			if ( callback != null ) {
-				try {
-					callback.stolen( lockId, ownerId, removedLock );
-				}
-				catch ( Exception e ) {
-					LOG.error( "Exception executing stolen callback for lock {}", lockId, e );
-				}
-			}
-		}
+	/**
+	 * Executes the stolen callback of the lock, or the default callback of the lock manager.
+	 */
+	static void reportStolen( SqlBasedDistributedLockManager lockManager,
+	                          String lockId,
+	                          String ownerId,
+	                          DistributedLock lock ) {
+		lockManager.getMetricsListener().lockLost( lockId );
+		DistributedLockCallbacks.reportStolen( lockManager.getDefaultLockStolenCallback(), lockId, ownerId, lock );
 	}
 
 	/**
+	 * Removes a single local hold of the owner on the lock.
+	 *
 	 * @return instance only if it was the final remove (not a hold decrease)
 	 */
-	public synchronized DistributedLock removeLock( String ownerId, String lockId ) {
-		ActiveLock activeLock = findActiveLock( lockId );
+	public DistributedLock removeLock( String ownerId, String lockId ) {
+		ActiveLock[] removed = new ActiveLock[1];
 
-		if ( activeLock != null && activeLock.getOwnerId().equals( ownerId ) && activeLock.removeLocalHold() ) {
-			return activeLocks.remove( activeLock );
+		activeLocks.computeIfPresent( lockId, ( id, activeLock ) -> {
+			if ( activeLock.getOwnerId().equals( ownerId ) && activeLock.removeLocalHold() ) {
+				removed[0] = activeLock;
+				return null;
+			}
+			return activeLock;
+		} );
 
+		return removed[0] != null ? removed[0].getLock() : null;
+	}
+
+	/**
+	 * Removes all local holds of the owner on the lock, without executing any callback.
+	 * Used when the owner is known to no longer hold the lock in the backing store.
+	 *
+	 * @return instance if the owner was registered as holding the lock
+	 */
+	DistributedLock removeAllHolds( String ownerId, String lockId ) {
+		ActiveLock activeLock = activeLocks.get( lockId );
+
+		if ( activeLock != null && activeLock.getOwnerId().equals( ownerId )
+				&& activeLocks.remove( lockId, activeLock ) ) {
+			return activeLock.getLock();
 		}
 
 		return null;
@@ -166,8 +220,8 @@ public class SqlBasedDistributedLockMonitor implements Runnable
 	 * Get the lock owner according to the monitor thread.  The monitor caches the active locks for
 	 * performance.  If this method returns null, it simply means the monitor cannot reliably tell who the owner is.
 	 */
-	public synchronized String getOwnerForLock( String lockId ) {
-		ActiveLock activeLock = findActiveLock( lockId );
+	public String getOwnerForLock( String lockId ) {
+		ActiveLock activeLock = activeLocks.get( lockId );
 
 		if ( activeLock != null && isReliable( activeLock ) ) {
 			return activeLock.getOwnerId();
@@ -176,18 +230,52 @@ public class SqlBasedDistributedLockMonitor implements Runnable
 		return null;
 	}
 
-	private synchronized ActiveLock findActiveLock( String lockId ) {
-		for ( ActiveLock activeLock : activeLocks.keySet() ) {
-			if ( activeLock.getLockId().equals( lockId ) ) {
-				return activeLock;
-			}
+	/**
+	 * @return {@code true} if the owner has acquired the lock through this manager and not yet released it
+	 */
+	boolean hasLocalHold( String ownerId, String lockId ) {
+		ActiveLock activeLock = activeLocks.get( lockId );
+		return activeLock != null && activeLock.getOwnerId().equals( ownerId );
+	}
+
+	/**
+	 * @return fencing token of the lock if it is held by the owner, -1 if unknown
+	 */
+	long getFencingToken( String ownerId, String lockId ) {
+		ActiveLock activeLock = activeLocks.get( lockId );
+		return activeLock != null && activeLock.getOwnerId().equals( ownerId ) ? activeLock.fencingToken : -1;
+	}
+
+	/**
+	 * Register the fencing token of a lock held by the owner.
+	 */
+	void setFencingToken( String ownerId, String lockId, long fencingToken ) {
+		ActiveLock activeLock = activeLocks.get( lockId );
+		if ( activeLock != null && activeLock.getOwnerId().equals( ownerId ) ) {
+			activeLock.fencingToken = fencingToken;
 		}
+	}
 
-		return null;
+	/**
+	 * @return snapshot of the currently active locks
+	 */
+	public Map<ActiveLock, DistributedLock> getActiveLocks() {
+		Map<ActiveLock, DistributedLock> snapshot = new HashMap<>();
+		for ( ActiveLock activeLock : activeLocks.values() ) {
+			snapshot.put( activeLock, activeLock.getLock() );
+		}
+		return snapshot;
+	}
+
+	/**
+	 * @return number of currently active locks
+	 */
+	public int getActiveLockCount() {
+		return activeLocks.size();
 	}
 
-	public synchronized Map<ActiveLock, DistributedLock> getActiveLocks() {
-		return new HashMap<>( activeLocks );
+	private boolean isActive( ActiveLock activeLock ) {
+		return activeLocks.get( activeLock.getLockId() ) == activeLock;
 	}
 
 	private boolean isUnstable( ActiveLock activeLock ) {
@@ -200,13 +288,18 @@ public class SqlBasedDistributedLockMonitor implements Runnable
 
 	public static class ActiveLock
 	{
-		private String ownerId, lockId;
-		private long lastVerified;
+		private final String ownerId, lockId;
+		private final DistributedLock lock;
+		private volatile long lastVerified;
+		private volatile long fencingToken = -1;
+
+		// only modified while holding the map entry
 		private int localHolds;
 
-		ActiveLock( String ownerId, String lockId ) {
+		ActiveLock( String ownerId, String lockId, DistributedLock lock ) {
 			this.ownerId = ownerId;
 			this.lockId = lockId;
+			this.lock = lock;
 
 			localHolds = 1;
 			lastVerified = System.currentTimeMillis();
@@ -220,6 +313,10 @@ public class SqlBasedDistributedLockMonitor implements Runnable
 			return lockId;
 		}
 
+		DistributedLock getLock() {
+			return lock;
+		}
+
 		long getLastVerified() {
 			return lastVerified;
 		}
@@ -236,7 +333,7 @@ public class SqlBasedDistributedLockMonitor implements Runnable
 		 * @return true if the last hold has been removed
 		 */
 		boolean removeLocalHold() {
-			return --localHolds <= 1;
+			return --localHolds <= 0;
 		}
 
 		@Override
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcOperations;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Ticket queue used by a {@link SqlBasedDistributedLockManager} in fair mode.  Every owner that fails to acquire
+ * a lock on the first attempt draws a ticket that is one higher than the last ticket for that lock.  The lock
+ * manager will only grant the lock to the owner that has the lowest live ticket.
+ * <p/>
+ * A waiting owner refreshes its ticket on every retry.  Tickets that have not been refreshed for longer than the
+ * maximum idle time before stealing are ignored and eventually removed, so a crashed waiter can never block
+ * the queue indefinitely.
+ *
+ * @see SqlBasedDistributedLockConfiguration#setFair(boolean)
+ */
+class SqlBasedDistributedLockQueue
+{
+	private static final Logger LOG = LoggerFactory.getLogger( SqlBasedDistributedLockQueue.class );
+
+	/**
+	 * Number of times drawing a ticket is retried if another owner drew the same ticket.
+	 */
+	private static final int MAX_ENQUEUE_ATTEMPTS = 10;
+
+	private static final String SQL_SELECT_LAST_TICKET = "SELECT MAX(ticket) FROM %s WHERE lock_id = ?";
+	private static final String SQL_INSERT_TICKET = "INSERT INTO %s (lock_id, ticket, owner_id, updated) " +
+			"VALUES (?,?,?,?)";
+	private static final String SQL_REFRESH_TICKET = "UPDATE %s SET updated = ? WHERE lock_id = ? AND ticket = ?";
+	private static final String SQL_DELETE_TICKET = "DELETE FROM %s WHERE lock_id = ? AND ticket = ?";
+	private static final String SQL_CLEANUP = "DELETE FROM %s WHERE updated < ?";
+
+	private final String sqlSelectLastTicket, sqlInsertTicket, sqlRefreshTicket, sqlDeleteTicket, sqlCleanup;
+
+	private final JdbcOperations jdbcTemplate;
+	private final LongSupplier clock;
+
+	SqlBasedDistributedLockQueue( JdbcOperations jdbcTemplate, String queueTableName, LongSupplier clock ) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.clock = clock;
+
+		sqlSelectLastTicket = String.format( SQL_SELECT_LAST_TICKET, queueTableName );
+		sqlInsertTicket = String.format( SQL_INSERT_TICKET, queueTableName );
+		sqlRefreshTicket = String.format( SQL_REFRESH_TICKET, queueTableName );
+		sqlDeleteTicket = String.format( SQL_DELETE_TICKET, queueTableName );
+		sqlCleanup = String.format( SQL_CLEANUP, queueTableName );
+	}
+
+	/**
+	 * Draw a new ticket for the owner, placing it last in line for the lock.
+	 *
+	 * @return ticket number
+	 */
+	long enqueue( String lockId, String ownerId ) {
+		for ( int attempt = 1; ; attempt++ ) {
+			Long lastTicket = jdbcTemplate.queryForObject( sqlSelectLastTicket, Long.class, lockId );
+			long ticket = lastTicket != null ? lastTicket + 1 : 1;
+
+			try {
+				jdbcTemplate.update( sqlInsertTicket, lockId, ticket, ownerId, clock.getAsLong() );
+				LOG.trace( "Owner {} is waiting for lock {} with ticket {}", ownerId, lockId, ticket );
+				return ticket;
+			}
+			catch ( DataIntegrityViolationException dive ) {
+				if ( attempt >= MAX_ENQUEUE_ATTEMPTS ) {
+					throw new DistributedLockException( "Unable to draw a ticket for lock " + lockId, dive );
+				}
+				LOG.trace( "Ticket {} for lock {} was drawn by another owner - retrying", ticket, lockId );
+			}
+		}
+	}
+
+	/**
+	 * Keep the ticket alive.
+	 *
+	 * @return {@code false} if the ticket no longer exists and the owner lost its place in line
+	 */
+	boolean refresh( String lockId, long ticket ) {
+		return jdbcTemplate.update( sqlRefreshTicket, clock.getAsLong(), lockId, ticket ) == 1;
+	}
+
+	void dequeue( String lockId, long ticket ) {
+		jdbcTemplate.update( sqlDeleteTicket, lockId, ticket );
+	}
+
+	/**
+	 * Remove all tickets that have not been refreshed since the timestamp.
+	 *
+	 * @return number of tickets removed
+	 */
+	int cleanup( long staleTicketsTimestamp ) {
+		return jdbcTemplate.update( sqlCleanup, staleTicketsTimestamp );
+	}
+}
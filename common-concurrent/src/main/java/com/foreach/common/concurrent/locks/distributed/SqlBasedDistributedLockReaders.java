@@ -0,0 +1,399 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcOperations;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Reader table used by a {@link SqlBasedDistributedLockManager} for the read mode of a {@link DistributedReadWriteLock}.
+ * Every owner holding a read lock has a record with its number of holds, kept alive the same way as a regular lock.
+ * <p/>
+ * A reader is only registered if the regular lock record is free (or held by the reader itself).  The lock record
+ * is updated in the same transaction as the reader record is inserted, so an owner acquiring the write lock at
+ * the same time either waits for the registration to complete, or is seen by the registration.
+ * An owner holding the write lock waits until all reader records are gone or have not been updated for longer
+ * than the maximum idle time, the latter are removed (stolen).
+ * <p/>
+ * The permits of a {@link DistributedSemaphore} are stored the same way: every owner holding permits has a record
+ * with the number of permits as holds.  Permits are acquired in a transaction that first updates the lock record
+ * with the key of the semaphore, serializing all owners acquiring permits for the same semaphore.
+ */
+class SqlBasedDistributedLockReaders
+{
+	private static final String SQL_ADD_HOLD = "UPDATE %s " +
+			"SET holds = holds + 1, updated = ? " +
+			"WHERE lock_id = ? AND owner_id = ?";
+	private static final String SQL_INSERT_READER = "INSERT INTO %s (lock_id, owner_id, created, updated, holds) " +
+			"VALUES (?,?,?,?,1)";
+	private static final String SQL_REMOVE_READER = "DELETE FROM %s WHERE lock_id = ? AND owner_id = ? AND holds = 1";
+	private static final String SQL_DECREASE_HOLD = "UPDATE %s " +
+			"SET holds = holds - 1 " +
+			"WHERE lock_id = ? AND owner_id = ? AND holds > 1";
+	private static final String SQL_REMOVE_ALL_HOLDS = "DELETE FROM %s WHERE lock_id = ? AND owner_id = ?";
+	private static final String SQL_SELECT_OTHER_READERS = "SELECT updated FROM %s WHERE lock_id = ? AND owner_id <> ?";
+	private static final String SQL_REMOVE_STALE_READERS = "DELETE FROM %s WHERE lock_id = ? AND updated < ?";
+	private static final String SQL_COUNT_READERS = "SELECT COUNT(*) FROM %s WHERE lock_id = ? AND updated >= ?";
+	private static final String SQL_COUNT_OWNER_READERS = "SELECT COUNT(*) FROM %s " +
+			"WHERE lock_id = ? AND owner_id = ? AND updated >= ?";
+	private static final String SQL_CLEANUP = "DELETE FROM %s WHERE updated < ?";
+	private static final String SQL_ADD_PERMITS = "UPDATE %s " +
+			"SET holds = holds + ?, updated = ? " +
+			"WHERE lock_id = ? AND owner_id = ?";
+	private static final String SQL_INSERT_PERMITS = "INSERT INTO %s (lock_id, owner_id, created, updated, holds) " +
+			"VALUES (?,?,?,?,?)";
+	private static final String SQL_SUM_PERMITS = "SELECT COALESCE(SUM(holds), 0) FROM %s " +
+			"WHERE lock_id = ? AND updated >= ?";
+	private static final String SQL_REMOVE_PERMITS = "DELETE FROM %s WHERE lock_id = ? AND owner_id = ? AND holds <= ?";
+	private static final String SQL_DECREASE_PERMITS = "UPDATE %s " +
+			"SET holds = holds - ? " +
+			"WHERE lock_id = ? AND owner_id = ? AND holds > ?";
+
+	// Executed on the lock table: only succeeds if the lock is free or held by the reader
+	private static final String SQL_GUARD_LOCK = "UPDATE %s " +
+			"SET updated = ? " +
+			"WHERE lock_id = ? AND (owner_id IS NULL OR owner_id = ?)";
+
+	// Executed on the lock table: only succeeds if the semaphore record exists and is not held as a regular lock
+	private static final String SQL_GUARD_SEMAPHORE = "UPDATE %s " +
+			"SET updated = ? " +
+			"WHERE lock_id = ? AND owner_id IS NULL";
+
+	private final String sqlAddHold, sqlInsertReader, sqlRemoveReader, sqlDecreaseHold, sqlRemoveAllHolds,
+			sqlSelectOtherReaders, sqlRemoveStaleReaders, sqlCountReaders, sqlCountOwnerReaders, sqlCleanup,
+			sqlGuardLock, sqlAddPermits, sqlInsertPermits, sqlSumPermits, sqlRemovePermits, sqlDecreasePermits,
+			sqlGuardSemaphore;
+
+	private final JdbcOperations jdbcTemplate;
+
+	SqlBasedDistributedLockReaders( JdbcOperations jdbcTemplate, String tableName, String readerTableName ) {
+		this.jdbcTemplate = jdbcTemplate;
+
+		sqlAddHold = String.format( SQL_ADD_HOLD, readerTableName );
+		sqlInsertReader = String.format( SQL_INSERT_READER, readerTableName );
+		sqlRemoveReader = String.format( SQL_REMOVE_READER, readerTableName );
+		sqlDecreaseHold = String.format( SQL_DECREASE_HOLD, readerTableName );
+		sqlRemoveAllHolds = String.format( SQL_REMOVE_ALL_HOLDS, readerTableName );
+		sqlSelectOtherReaders = String.format( SQL_SELECT_OTHER_READERS, readerTableName );
+		sqlRemoveStaleReaders = String.format( SQL_REMOVE_STALE_READERS, readerTableName );
+		sqlCountReaders = String.format( SQL_COUNT_READERS, readerTableName );
+		sqlCountOwnerReaders = String.format( SQL_COUNT_OWNER_READERS, readerTableName );
+		sqlCleanup = String.format( SQL_CLEANUP, readerTableName );
+		sqlGuardLock = String.format( SQL_GUARD_LOCK, tableName );
+		sqlAddPermits = String.format( SQL_ADD_PERMITS, readerTableName );
+		sqlInsertPermits = String.format( SQL_INSERT_PERMITS, readerTableName );
+		sqlSumPermits = String.format( SQL_SUM_PERMITS, readerTableName );
+		sqlRemovePermits = String.format( SQL_REMOVE_PERMITS, readerTableName );
+		sqlDecreasePermits = String.format( SQL_DECREASE_PERMITS, readerTableName );
+		sqlGuardSemaphore = String.format( SQL_GUARD_SEMAPHORE, tableName );
+	}
+
+	/**
+	 * Add a hold for an owner that already has a reader record.
+	 *
+	 * @return {@code false} if the owner has no reader record
+	 */
+	boolean addHold( String lockId, String ownerId, long timestamp ) {
+		return jdbcTemplate.update( sqlAddHold, timestamp, lockId, ownerId ) == 1;
+	}
+
+	/**
+	 * Insert a reader record for the owner if the lock record is not held by another owner.
+	 * Throws a {@link org.springframework.dao.DataIntegrityViolationException} if the owner has a reader record already.
+	 *
+	 * @return {@code false} if the lock record is missing or held by another owner
+	 */
+	boolean register( String lockId, String ownerId, long timestamp ) {
+		Boolean registered = jdbcTemplate.execute( (ConnectionCallback<Boolean>) connection -> {
+			// Only manage the transaction if not participating in one already
+			boolean autoCommit = connection.getAutoCommit();
+
+			if ( autoCommit ) {
+				connection.setAutoCommit( false );
+			}
+
+			try {
+				boolean free;
+
+				try (PreparedStatement guard = connection.prepareStatement( sqlGuardLock )) {
+					guard.setLong( 1, timestamp );
+					guard.setString( 2, lockId );
+					guard.setString( 3, ownerId );
+					free = guard.executeUpdate() == 1;
+				}
+
+				if ( free ) {
+					try (PreparedStatement insert = connection.prepareStatement( sqlInsertReader )) {
+						insert.setString( 1, lockId );
+						insert.setString( 2, ownerId );
+						insert.setLong( 3, timestamp );
+						insert.setLong( 4, timestamp );
+						insert.executeUpdate();
+					}
+				}
+
+				if ( autoCommit ) {
+					connection.commit();
+				}
+
+				return free;
+			}
+			catch ( SQLException | RuntimeException e ) {
+				if ( autoCommit ) {
+					connection.rollback();
+				}
+				throw e;
+			}
+			finally {
+				if ( autoCommit ) {
+					connection.setAutoCommit( true );
+				}
+			}
+		} );
+
+		return Boolean.TRUE.equals( registered );
+	}
+
+	/**
+	 * Remove a single hold of the owner.
+	 *
+	 * @return {@code true} if the last hold was removed
+	 */
+	boolean release( String lockId, String ownerId ) {
+		if ( jdbcTemplate.update( sqlRemoveReader, lockId, ownerId ) == 1 ) {
+			return true;
+		}
+
+		jdbcTemplate.update( sqlDecreaseHold, lockId, ownerId );
+		return false;
+	}
+
+	/**
+	 * Remove the reader record of the owner, regardless of the number of holds.
+	 *
+	 * @return {@code true} if the owner had a reader record
+	 */
+	boolean releaseAllHolds( String lockId, String ownerId ) {
+		return jdbcTemplate.update( sqlRemoveAllHolds, lockId, ownerId ) == 1;
+	}
+
+	/**
+	 * @return last updated timestamps of the reader records of all other owners
+	 */
+	List<Long> getOtherReaders( String lockId, String ownerId ) {
+		return jdbcTemplate.queryForList( sqlSelectOtherReaders, Long.class, lockId, ownerId );
+	}
+
+	/**
+	 * Remove the reader records that have not been updated since the timestamp.
+	 *
+	 * @return number of records removed
+	 */
+	int removeStaleReaders( String lockId, long staleReadersTimestamp ) {
+		return jdbcTemplate.update( sqlRemoveStaleReaders, lockId, staleReadersTimestamp );
+	}
+
+	/**
+	 * @return number of owners that have updated their reader record since the timestamp
+	 */
+	int countReaders( String lockId, long liveReadersTimestamp ) {
+		Integer count = jdbcTemplate.queryForObject( sqlCountReaders, Integer.class, lockId, liveReadersTimestamp );
+		return count != null ? count : 0;
+	}
+
+	boolean isReader( String lockId, String ownerId, long liveReadersTimestamp ) {
+		Integer count = jdbcTemplate.queryForObject( sqlCountOwnerReaders, Integer.class, lockId, ownerId,
+		                                             liveReadersTimestamp );
+		return count != null && count > 0;
+	}
+
+	/**
+	 * Acquire permits of a semaphore for the owner if enough permits are available.  Permit records that have
+	 * not been updated since the stale timestamp are removed first, their permits are no longer in use.
+	 * The semaphore record in the lock table must exist.
+	 *
+	 * @return {@code null} if the semaphore record is missing or held as a regular lock, otherwise the number
+	 * of permits in use by other owners and whether the permits were acquired
+	 */
+	PermitsResult acquirePermits( String lockId,
+	                              String ownerId,
+	                              int permits,
+	                              int maxPermits,
+	                              long timestamp,
+	                              long stalePermitsTimestamp ) {
+		return jdbcTemplate.execute( (ConnectionCallback<PermitsResult>) connection -> {
+			// Only manage the transaction if not participating in one already
+			boolean autoCommit = connection.getAutoCommit();
+
+			if ( autoCommit ) {
+				connection.setAutoCommit( false );
+			}
+
+			try {
+				PermitsResult result = null;
+
+				try (PreparedStatement guard = connection.prepareStatement( sqlGuardSemaphore )) {
+					guard.setLong( 1, timestamp );
+					guard.setString( 2, lockId );
+
+					if ( guard.executeUpdate() == 1 ) {
+						result = acquirePermits( connection, lockId, ownerId, permits, maxPermits, timestamp,
+						                         stalePermitsTimestamp );
+					}
+				}
+
+				if ( autoCommit ) {
+					connection.commit();
+				}
+
+				return result;
+			}
+			catch ( SQLException | RuntimeException e ) {
+				if ( autoCommit ) {
+					connection.rollback();
+				}
+				throw e;
+			}
+			finally {
+				if ( autoCommit ) {
+					connection.setAutoCommit( true );
+				}
+			}
+		} );
+	}
+
+	private PermitsResult acquirePermits( Connection connection,
+	                                      String lockId,
+	                                      String ownerId,
+	                                      int permits,
+	                                      int maxPermits,
+	                                      long timestamp,
+	                                      long stalePermitsTimestamp ) throws SQLException {
+		int removed;
+
+		try (PreparedStatement remove = connection.prepareStatement( sqlRemoveStaleReaders )) {
+			remove.setString( 1, lockId );
+			remove.setLong( 2, stalePermitsTimestamp );
+			removed = remove.executeUpdate();
+		}
+
+		int inUse;
+
+		try (PreparedStatement sum = connection.prepareStatement( sqlSumPermits )) {
+			sum.setString( 1, lockId );
+			sum.setLong( 2, stalePermitsTimestamp );
+
+			try (ResultSet rs = sum.executeQuery()) {
+				inUse = rs.next() ? rs.getInt( 1 ) : 0;
+			}
+		}
+
+		if ( inUse + permits > maxPermits ) {
+			return new PermitsResult( false, inUse, removed );
+		}
+
+		try (PreparedStatement add = connection.prepareStatement( sqlAddPermits )) {
+			add.setInt( 1, permits );
+			add.setLong( 2, timestamp );
+			add.setString( 3, lockId );
+			add.setString( 4, ownerId );
+
+			if ( add.executeUpdate() == 0 ) {
+				try (PreparedStatement insert = connection.prepareStatement( sqlInsertPermits )) {
+					insert.setString( 1, lockId );
+					insert.setString( 2, ownerId );
+					insert.setLong( 3, timestamp );
+					insert.setLong( 4, timestamp );
+					insert.setInt( 5, permits );
+					insert.executeUpdate();
+				}
+			}
+		}
+
+		return new PermitsResult( true, inUse, removed );
+	}
+
+	/**
+	 * Release permits of a semaphore held by the owner.
+	 *
+	 * @return {@code true} if the owner no longer holds any permits
+	 */
+	boolean releasePermits( String lockId, String ownerId, int permits ) {
+		if ( jdbcTemplate.update( sqlRemovePermits, lockId, ownerId, permits ) == 1 ) {
+			return true;
+		}
+
+		jdbcTemplate.update( sqlDecreasePermits, permits, lockId, ownerId, permits );
+		return false;
+	}
+
+	/**
+	 * @return number of permits held by owners that have updated their record since the timestamp
+	 */
+	int countPermits( String lockId, long livePermitsTimestamp ) {
+		Integer count = jdbcTemplate.queryForObject( sqlSumPermits, Integer.class, lockId, livePermitsTimestamp );
+		return count != null ? count : 0;
+	}
+
+	/**
+	 * Remove all reader records that have not been updated since the timestamp.
+	 *
+	 * @return number of records removed
+	 */
+	int cleanup( long staleReadersTimestamp ) {
+		return jdbcTemplate.update( sqlCleanup, staleReadersTimestamp );
+	}
+
+	/**
+	 * Outcome of an attempt to acquire permits.
+	 */
+	static final class PermitsResult
+	{
+		private final boolean acquired;
+		private final int permitsInUse;
+		private final int stalePermitsRemoved;
+
+		PermitsResult( boolean acquired, int permitsInUse, int stalePermitsRemoved ) {
+			this.acquired = acquired;
+			this.permitsInUse = permitsInUse;
+			this.stalePermitsRemoved = stalePermitsRemoved;
+		}
+
+		boolean isAcquired() {
+			return acquired;
+		}
+
+		/**
+		 * @return number of permits held by other owners (or by the same owner before acquiring)
+		 */
+		int getPermitsInUse() {
+			return permitsInUse;
+		}
+
+		/**
+		 * @return number of stale permit records that were removed
+		 */
+		int getStalePermitsRemoved() {
+			return stalePermitsRemoved;
+		}
+	}
+}
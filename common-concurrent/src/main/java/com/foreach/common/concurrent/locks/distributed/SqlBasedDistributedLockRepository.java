@@ -0,0 +1,79 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link DistributedLockRepositoryImpl} for a {@link SqlBasedDistributedLockManager}, which also creates the
+ * distributed read/write locks, semaphores and rate limiters that only the SQL based lock manager supports.
+ *
+ * @see SqlBasedDistributedLockConfiguration
+ */
+public class SqlBasedDistributedLockRepository extends DistributedLockRepositoryImpl
+		implements DistributedReadWriteLockRepository, DistributedPermitRepository
+{
+	private static final AtomicLong SEMAPHORE_SEQUENCE = new AtomicLong();
+
+	private final SqlBasedDistributedLockManager lockManager;
+
+	public SqlBasedDistributedLockRepository( SqlBasedDistributedLockManager lockManager ) {
+		super( lockManager );
+		this.lockManager = lockManager;
+	}
+
+	public SqlBasedDistributedLockRepository( SqlBasedDistributedLockManager lockManager, String defaultOwnerName ) {
+		super( lockManager, defaultOwnerName );
+		this.lockManager = lockManager;
+	}
+
+	@Override
+	public DistributedReadWriteLock getReadWriteLock( String key ) {
+		return new DistributedReadWriteLockImpl( lockManager, getLock( key ) );
+	}
+
+	@Override
+	public DistributedReadWriteLock getReadWriteLock( String ownerName, String key ) {
+		return new DistributedReadWriteLockImpl( lockManager, getLock( ownerName, key ) );
+	}
+
+	@Override
+	public DistributedReadWriteLock createSharedReadWriteLock( String ownerId, String key ) {
+		return new DistributedReadWriteLockImpl( lockManager, createSharedLock( ownerId, key ) );
+	}
+
+	@Override
+	public DistributedSemaphore getSemaphore( String key, int permits ) {
+		return createSharedSemaphore( getDefaultOwnerName() + "[semaphore-" + SEMAPHORE_SEQUENCE.incrementAndGet() + "]",
+		                              key, permits );
+	}
+
+	@Override
+	public DistributedSemaphore createSharedSemaphore( String ownerId, String key, int permits ) {
+		Assert.isTrue( StringUtils.hasText( key ), "key must not be empty" );
+		Assert.isTrue( StringUtils.hasText( ownerId ), "ownerId must not be empty" );
+
+		return new DistributedSemaphore( lockManager, ownerId, key, permits );
+	}
+
+	@Override
+	public DistributedRateLimiter getRateLimiter( String key, double permitsPerSecond, int burst ) {
+		return new DistributedRateLimiter( lockManager, key, permitsPerSecond, burst );
+	}
+}
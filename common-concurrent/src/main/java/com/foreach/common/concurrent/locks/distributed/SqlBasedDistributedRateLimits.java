@@ -0,0 +1,104 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcOperations;
+
+/**
+ * Token buckets used by a {@link SqlBasedDistributedLockManager} for a {@link DistributedRateLimiter}.  Every bucket
+ * is a record without owner in the lock table, so it is never mistaken for a held lock and is removed by the
+ * regular cleanup once it has not been used for a while - which is the same as a full bucket.
+ * <p/>
+ * The bucket is implemented using the generic cell rate algorithm: instead of a number of tokens, the record
+ * holds the theoretical arrival time (in microseconds, in the {@code created} column) at which the bucket will be
+ * full again.  Taking tokens moves that time forward by the emission interval per token, which is only allowed
+ * if it does not get further ahead of the current time than the burst capacity allows.  Taking tokens is a
+ * single conditional update, without reading the record first.
+ */
+class SqlBasedDistributedRateLimits
+{
+	private static final String SQL_NEXT_ARRIVAL = "CASE WHEN created < ? THEN ? ELSE created END + ?";
+
+	private static final String SQL_TAKE_TOKENS = "UPDATE %1$s " +
+			"SET created = " + SQL_NEXT_ARRIVAL + ", updated = ? " +
+			"WHERE lock_id = ? AND owner_id IS NULL AND " + SQL_NEXT_ARRIVAL + " <= ?";
+	private static final String SQL_INSERT_BUCKET = "INSERT INTO %s (lock_id, owner_id, created, updated, holds) " +
+			"VALUES (?,NULL,?,?,0)";
+	private static final String SQL_SELECT_ARRIVAL = "SELECT created FROM %s WHERE lock_id = ? AND owner_id IS NULL";
+
+	private final String sqlTakeTokens, sqlInsertBucket, sqlSelectArrival;
+
+	private final JdbcOperations jdbcTemplate;
+
+	SqlBasedDistributedRateLimits( JdbcOperations jdbcTemplate, String tableName ) {
+		this.jdbcTemplate = jdbcTemplate;
+
+		sqlTakeTokens = String.format( SQL_TAKE_TOKENS, tableName );
+		sqlInsertBucket = String.format( SQL_INSERT_BUCKET, tableName );
+		sqlSelectArrival = String.format( SQL_SELECT_ARRIVAL, tableName );
+	}
+
+	/**
+	 * Try to take tokens from the bucket, creating the bucket if it does not exist.
+	 *
+	 * @param lockId           key of the bucket
+	 * @param tokens           number of tokens to take
+	 * @param emissionInterval number of microseconds it takes to add a single token to the bucket
+	 * @param capacity         maximum number of tokens in the bucket
+	 * @param timestamp        current time in milliseconds
+	 * @return 0 if the tokens were taken, otherwise the number of microseconds to wait before enough tokens
+	 * will be available
+	 */
+	long takeTokens( String lockId, int tokens, long emissionInterval, int capacity, long timestamp ) {
+		long now = timestamp * 1000;
+		long increment = emissionInterval * tokens;
+		long limit = now + emissionInterval * capacity;
+
+		if ( jdbcTemplate.update( sqlTakeTokens, now, now, increment, timestamp, lockId, now, now, increment,
+		                          limit ) == 1 ) {
+			return 0;
+		}
+
+		Long arrival = selectArrival( lockId );
+
+		if ( arrival == null ) {
+			try {
+				jdbcTemplate.update( sqlInsertBucket, lockId, now, timestamp );
+			}
+			catch ( DataIntegrityViolationException dive ) {
+				// created in the meantime
+			}
+
+			if ( jdbcTemplate.update( sqlTakeTokens, now, now, increment, timestamp, lockId, now, now, increment,
+			                          limit ) == 1 ) {
+				return 0;
+			}
+
+			arrival = selectArrival( lockId );
+
+			if ( arrival == null ) {
+				throw new DistributedLockException( "Rate limiter key " + lockId + " is held as a regular lock" );
+			}
+		}
+
+		return Math.max( 1, Math.max( arrival, now ) + increment - limit );
+	}
+
+	private Long selectArrival( String lockId ) {
+		return jdbcTemplate.query( sqlSelectArrival, rs -> rs.next() ? rs.getLong( 1 ) : null, lockId );
+	}
+}
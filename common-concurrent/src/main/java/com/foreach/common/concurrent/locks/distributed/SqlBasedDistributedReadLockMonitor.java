@@ -0,0 +1,238 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Monitor for the read locks held through a {@link SqlBasedDistributedLockManager}, the equivalent of the
+ * {@link SqlBasedDistributedLockMonitor} for regular locks.  Unlike regular locks, several owners can hold the
+ * read lock with the same key, so the active read locks are indexed by both lock id and owner id.
+ * <p/>
+ * Every run the reader records of all active read locks are updated, a read lock that no longer has a reader
+ * record has been stolen by a writer.  If the records cannot be updated for too long, the read lock is considered
+ * unstable.  Stolen and unstable callbacks are executed the same way as for regular locks.
+ * <p/>
+ * The permits of a {@link DistributedSemaphore} are monitored as read locks, with the number of permits as holds.
+ */
+class SqlBasedDistributedReadLockMonitor implements Runnable
+{
+	private static final Logger LOG = LoggerFactory.getLogger( SqlBasedDistributedReadLockMonitor.class );
+
+	private final SqlBasedDistributedLockManager lockManager;
+	private final ConcurrentMap<ReadHold, ActiveReadLock> activeLocks = new ConcurrentHashMap<>();
+	private final long maxTimeBeforeUnstable;
+	private final long maxCacheTime;
+
+	SqlBasedDistributedReadLockMonitor( SqlBasedDistributedLockManager lockManager,
+	                                    long maxTimeBeforeUnstable,
+	                                    long maxCacheTime ) {
+		this.lockManager = lockManager;
+		this.maxTimeBeforeUnstable = maxTimeBeforeUnstable;
+		this.maxCacheTime = maxCacheTime;
+	}
+
+	/**
+	 * Register a successful acquire of the read lock by the owner.
+	 */
+	void addLock( String ownerId, DistributedLock lock ) {
+		addLock( ownerId, lock, 1 );
+	}
+
+	/**
+	 * Register a number of holds acquired at once, used for the permits of a {@link DistributedSemaphore}.
+	 */
+	void addLock( String ownerId, DistributedLock lock, int holds ) {
+		activeLocks.compute( new ReadHold( lock.getKey(), ownerId ), ( readHold, activeLock ) -> {
+			if ( activeLock != null ) {
+				activeLock.holds += holds;
+				return activeLock;
+			}
+			ActiveReadLock newLock = new ActiveReadLock( readHold, lock );
+			newLock.holds = holds;
+			return newLock;
+		} );
+	}
+
+	/**
+	 * Removes a single local hold of the owner on the read lock.
+	 */
+	void removeLock( String ownerId, String lockId ) {
+		removeLock( ownerId, lockId, 1 );
+	}
+
+	/**
+	 * Removes a number of local holds of the owner on the read lock.
+	 */
+	void removeLock( String ownerId, String lockId, int holds ) {
+		activeLocks.computeIfPresent( new ReadHold( lockId, ownerId ), ( readHold, activeLock ) -> {
+			activeLock.holds -= holds;
+			return activeLock.holds > 0 ? activeLock : null;
+		} );
+	}
+
+	/**
+	 * Removes all local holds of the owner on the read lock, without executing any callback.
+	 */
+	void removeAllHolds( String ownerId, String lockId ) {
+		activeLocks.remove( new ReadHold( lockId, ownerId ) );
+	}
+
+	/**
+	 * @return {@code true} if the owner has acquired the read lock through this manager and not yet released it
+	 */
+	boolean hasLocalHold( String ownerId, String lockId ) {
+		return activeLocks.containsKey( new ReadHold( lockId, ownerId ) );
+	}
+
+	/**
+	 * @return {@code true} if the owner holds the read lock according to the monitor, {@code false} if the
+	 * monitor cannot reliably tell
+	 */
+	boolean isHeldBy( String ownerId, String lockId ) {
+		ActiveReadLock activeLock = activeLocks.get( new ReadHold( lockId, ownerId ) );
+		return activeLock != null && System.currentTimeMillis() - activeLock.lastVerified <= maxCacheTime;
+	}
+
+	/**
+	 * @return snapshot of the lock id and owner id of all active read locks
+	 */
+	List<Map.Entry<String, String>> getActiveLocks() {
+		List<Map.Entry<String, String>> snapshot = new ArrayList<>( activeLocks.size() );
+		for ( ReadHold readHold : activeLocks.keySet() ) {
+			snapshot.add( new AbstractMap.SimpleImmutableEntry<>( readHold.lockId, readHold.ownerId ) );
+		}
+		return snapshot;
+	}
+
+	/**
+	 * @return number of currently active read locks
+	 */
+	int getActiveLockCount() {
+		return activeLocks.size();
+	}
+
+	@Override
+	public void run() {
+		try {
+			Map<String, List<ActiveReadLock>> locksByOwner = new HashMap<>();
+
+			for ( ActiveReadLock activeLock : activeLocks.values() ) {
+				locksByOwner.computeIfAbsent( activeLock.readHold.ownerId, ownerId -> new ArrayList<>() )
+				            .add( activeLock );
+			}
+
+			for ( Map.Entry<String, List<ActiveReadLock>> ownerLocks : locksByOwner.entrySet() ) {
+				verifyStillLocked( ownerLocks.getKey(), ownerLocks.getValue() );
+			}
+		}
+		catch ( Exception e ) {
+			LOG.warn( "Exception executing read lock monitor", e );
+		}
+	}
+
+	private void verifyStillLocked( String ownerId, List<ActiveReadLock> ownerLocks ) {
+		List<String> lockIds = new ArrayList<>( ownerLocks.size() );
+		for ( ActiveReadLock activeLock : ownerLocks ) {
+			lockIds.add( activeLock.readHold.lockId );
+		}
+
+		LOG.trace( "Verifying {} read locks are still owned by {}", lockIds.size(), ownerId );
+
+		Set<String> lockedByOwner;
+		long start = System.nanoTime();
+
+		try {
+			lockedByOwner = lockManager.verifyReadLocksByOwner( ownerId, lockIds );
+			lockManager.getMetricsListener().locksVerified( lockIds.size(), System.nanoTime() - start, true );
+		}
+		catch ( DistributedLockException dle ) {
+			lockManager.getMetricsListener().locksVerified( lockIds.size(), System.nanoTime() - start, false );
+			LOG.warn( "Unable to update {} read locks of owner {} - locks might be unstable", lockIds.size(),
+			          ownerId );
+
+			for ( ActiveReadLock activeLock : ownerLocks ) {
+				if ( System.currentTimeMillis() - activeLock.lastVerified > maxTimeBeforeUnstable ) {
+					LOG.error( "Read lock {} verification failed too many times - triggering lock unstable callback",
+					           activeLock.readHold.lockId );
+					SqlBasedDistributedLockMonitor.reportUnstable( lockManager, activeLock.lastVerified,
+					                                               activeLock.lock, dle );
+				}
+			}
+
+			return;
+		}
+
+		long verified = System.currentTimeMillis();
+
+		for ( ActiveReadLock activeLock : ownerLocks ) {
+			if ( lockedByOwner.contains( activeLock.readHold.lockId ) ) {
+				activeLock.lastVerified = verified;
+			}
+			else if ( activeLocks.remove( activeLock.readHold, activeLock ) ) {
+				SqlBasedDistributedLockMonitor.reportStolen( lockManager, activeLock.readHold.lockId, ownerId,
+				                                             activeLock.lock );
+			}
+		}
+	}
+
+	private static final class ReadHold
+	{
+		private final String lockId, ownerId;
+
+		ReadHold( String lockId, String ownerId ) {
+			this.lockId = lockId;
+			this.ownerId = ownerId;
+		}
+
+		@Override
+		public boolean equals( Object o ) {
+			if ( this == o ) {
+				return true;
+			}
+			if ( o == null || getClass() != o.getClass() ) {
+				return false;
+			}
+			ReadHold readHold = (ReadHold) o;
+			return lockId.equals( readHold.lockId ) && ownerId.equals( readHold.ownerId );
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash( lockId, ownerId );
+		}
+	}
+
+	private static final class ActiveReadLock
+	{
+		private final ReadHold readHold;
+		private final DistributedLock lock;
+		private volatile long lastVerified = System.currentTimeMillis();
+
+		// only modified while holding the map entry
+		private int holds = 1;
+
+		ActiveReadLock( ReadHold readHold, DistributedLock lock ) {
+			this.readHold = readHold;
+			this.lock = lock;
+		}
+	}
+}
@@ -15,7 +15,10 @@
  */
 package com.foreach.common.concurrent.locks.distributed;
 
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Condition;
 
 /**
@@ -25,6 +28,11 @@ import java.util.concurrent.locks.Condition;
  * The owner id of this lock is dynamic, based on the thread that it is operating on.
  * In most scenarios this is probably the implementation you want to use.
  * <p/>
+ * Every thread is identified by a sequence number that is assigned the first time the thread uses a lock and
+ * is never reused within the same JVM.  The owner id does not depend on the thread id, making it safe to use
+ * on short-lived threads such as virtual threads.  The sequence is prefixed with a random id generated per JVM,
+ * so a restarted node using the same owner name never takes over the ids of the locks it held before.
+ * <p/>
  * For an alternative implementation and use case see the {@link SharedDistributedLock}.
  *
  * @author Arne Vandamme
@@ -32,6 +40,9 @@ import java.util.concurrent.locks.Condition;
  */
 public class ThreadBasedDistributedLock implements DistributedLock
 {
+	private static final OwnerSequence THREAD_SEQUENCE = new OwnerSequence();
+	private static final ThreadLocal<String> THREAD_SUFFIX = ThreadLocal.withInitial( THREAD_SEQUENCE::next );
+
 	private final String ownerId, key;
 	private final DistributedLockManager lockManager;
 
@@ -46,8 +57,7 @@ public class ThreadBasedDistributedLock implements DistributedLock
 
 	@Override
 	public String getOwnerId() {
-		Thread currentThread = Thread.currentThread();
-		return String.format( "%s[%s@%s])", ownerId, currentThread.getId(), System.identityHashCode( currentThread ) );
+		return ownerId + THREAD_SUFFIX.get();
 	}
 
 	@Override
@@ -70,6 +80,26 @@ public class ThreadBasedDistributedLock implements DistributedLock
 		return lockManager.tryAcquire( this, time, unit );
 	}
 
+	@Override
+	public CompletableFuture<DistributedLock> acquireAsync() {
+		return lockManager.acquireAsync( withCurrentOwner() );
+	}
+
+	/**
+	 * @return lock instance with the same key, but with a fixed owner id: the current owner of this lock
+	 */
+	DistributedLock withCurrentOwner() {
+		SharedDistributedLock lock = new SharedDistributedLock( lockManager, getOwnerId(), key );
+		lock.setStolenCallback( stolenCallback );
+		lock.setUnstableCallback( unstableCallback );
+		return lock;
+	}
+
+	@Override
+	public long getFencingToken() {
+		return lockManager.getFencingToken( this );
+	}
+
 	@Override
 	public boolean isLocked() {
 		return lockManager.isLocked( getKey() );
@@ -115,4 +145,17 @@ public class ThreadBasedDistributedLock implements DistributedLock
 	public void setUnstableCallback( LockUnstableCallback unstableCallback ) {
 		this.unstableCallback = unstableCallback;
 	}
+
+	/**
+	 * Generates the owner id suffixes, unique across JVMs: a random instance id followed by a sequence number.
+	 */
+	static class OwnerSequence
+	{
+		private final String instanceId = UUID.randomUUID().toString();
+		private final AtomicLong sequence = new AtomicLong();
+
+		String next() {
+			return "[" + instanceId + "-" + sequence.incrementAndGet() + "]";
+		}
+	}
 }
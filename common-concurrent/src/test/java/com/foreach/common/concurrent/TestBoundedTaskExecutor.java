@@ -0,0 +1,265 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.foreach.common.concurrent.BoundedTaskExecutor.OverflowPolicy;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestBoundedTaskExecutor
+{
+	private final CountDownLatch release = new CountDownLatch( 1 );
+
+	private BoundedTaskExecutor executor;
+
+	@AfterEach
+	public void closeExecutor() {
+		release.countDown();
+		if ( executor != null ) {
+			executor.close();
+		}
+	}
+
+	@Test
+	public void tasksAreExecutedAsynchronously() throws Exception {
+		executor = new BoundedTaskExecutor( "test", 2, 10 );
+
+		Future<String> future = executor.submit( () -> {
+			release.await();
+			return Thread.currentThread().getName();
+		} );
+
+		assertFalse( future.isDone() );
+		release.countDown();
+		assertTrue( future.get( 1, TimeUnit.SECONDS ).startsWith( "test-" ) );
+	}
+
+	@Test
+	public void callerRunsIfTheQueueIsFull() throws Exception {
+		executor = new BoundedTaskExecutor( "test", 1, 1, OverflowPolicy.CALLER_RUNS );
+		occupyThreadAndQueue();
+
+		AtomicReference<Thread> executedBy = new AtomicReference<>();
+		executor.execute( () -> executedBy.set( Thread.currentThread() ) );
+
+		assertSame( Thread.currentThread(), executedBy.get() );
+		assertEquals( 1, executor.getCallerRunsCount() );
+	}
+
+	@Test
+	public void dropCancelsTheNewTask() throws Exception {
+		executor = new BoundedTaskExecutor( "test", 1, 1, OverflowPolicy.DROP );
+		Future<?> queued = occupyThreadAndQueue();
+
+		Future<?> dropped = executor.submit( () -> fail( "task should have been dropped" ) );
+
+		assertTrue( dropped.isCancelled() );
+		assertFalse( queued.isDone() );
+		assertEquals( 1, executor.getDroppedTaskCount() );
+	}
+
+	@Test
+	public void dropOldestCancelsTheQueuedTask() throws Exception {
+		executor = new BoundedTaskExecutor( "test", 1, 1, OverflowPolicy.DROP_OLDEST );
+		Future<?> queued = occupyThreadAndQueue();
+
+		Future<String> newest = executor.submit( () -> "newest" );
+
+		assertTrue( queued.isCancelled() );
+		release.countDown();
+		assertEquals( "newest", newest.get( 1, TimeUnit.SECONDS ) );
+		assertEquals( 1, executor.getDroppedTaskCount() );
+	}
+
+	@Test
+	public void abortThrowsRejectedExecutionException() throws Exception {
+		executor = new BoundedTaskExecutor( "test", 1, 1, OverflowPolicy.ABORT );
+		occupyThreadAndQueue();
+
+		assertThrows( RejectedExecutionException.class, () -> executor.execute( () -> {
+		} ) );
+	}
+
+	@Test
+	public void tasksAreRejectedAfterShutdown() {
+		executor = new BoundedTaskExecutor( "test", 1, 1, OverflowPolicy.CALLER_RUNS );
+		executor.shutdown();
+
+		assertThrows( RejectedExecutionException.class, () -> executor.execute( () -> {
+		} ) );
+	}
+
+	@Test
+	public void closeExecutesTheQueuedTasks() {
+		executor = new BoundedTaskExecutor( "test", 1, 10 );
+		AtomicInteger executed = new AtomicInteger();
+
+		for ( int i = 0; i < 5; i++ ) {
+			executor.execute( () -> {
+				sleep( 10 );
+				executed.incrementAndGet();
+			} );
+		}
+
+		executor.close();
+
+		assertTrue( executor.isTerminated() );
+		assertEquals( 5, executed.get() );
+	}
+
+	@Test
+	public void closeInterruptsTasksAfterTheShutdownTimeout() throws Exception {
+		executor = new BoundedTaskExecutor( "test", 1, 10 );
+		executor.setShutdownTimeout( 50 );
+
+		AtomicBoolean interrupted = new AtomicBoolean();
+		CountDownLatch started = new CountDownLatch( 1 );
+		executor.execute( () -> {
+			started.countDown();
+			try {
+				release.await();
+			}
+			catch ( InterruptedException ie ) {
+				interrupted.set( true );
+			}
+		} );
+		Future<?> queued = executor.submit( () -> {
+		} );
+
+		started.await();
+		executor.close();
+
+		assertTrue( executor.awaitTermination( 1, TimeUnit.SECONDS ) );
+		assertTrue( interrupted.get() );
+		assertTrue( queued.isCancelled() );
+	}
+
+	@Test
+	public void failingTaskDoesNotStopTheExecutor() throws Exception {
+		executor = new BoundedTaskExecutor( "test", 1, 10 );
+		AtomicInteger failures = new AtomicInteger();
+		executor.setMetricsListener( new BoundedTaskExecutor.MetricsListener()
+		{
+			@Override
+			public void taskExecuted( long waitNanos, long runNanos, boolean failed ) {
+				if ( failed ) {
+					failures.incrementAndGet();
+				}
+			}
+		} );
+
+		executor.execute( () -> {
+			throw new IllegalStateException( "expected" );
+		} );
+		Future<?> failed = executor.submit( () -> {
+			throw new IllegalStateException( "expected" );
+		} );
+
+		ExecutionException ee = assertThrows( ExecutionException.class, () -> failed.get( 1, TimeUnit.SECONDS ) );
+		assertTrue( ee.getCause() instanceof IllegalStateException );
+		assertEquals( "ok", executor.submit( () -> "ok" ).get( 1, TimeUnit.SECONDS ) );
+		assertEquals( 2, failures.get() );
+	}
+
+	@Test
+	public void metricsListenerReceivesWaitAndRunTime() throws Exception {
+		executor = new BoundedTaskExecutor( "test", 1, 10 );
+		List<long[]> measurements = new CopyOnWriteArrayList<>();
+		AtomicInteger queueFull = new AtomicInteger();
+		executor.setMetricsListener( new BoundedTaskExecutor.MetricsListener()
+		{
+			@Override
+			public void taskExecuted( long waitNanos, long runNanos, boolean failed ) {
+				measurements.add( new long[] { waitNanos, runNanos } );
+			}
+
+			@Override
+			public void queueFull( OverflowPolicy policy ) {
+				queueFull.incrementAndGet();
+			}
+		} );
+
+		executor.execute( () -> sleep( 50 ) );
+		Future<?> waiting = executor.submit( () -> {
+		} );
+		assertEquals( 1, executor.getQueueDepth() );
+
+		waiting.get( 1, TimeUnit.SECONDS );
+		executor.close();
+
+		assertEquals( 2, measurements.size() );
+		assertTrue( measurements.get( 0 )[1] >= TimeUnit.MILLISECONDS.toNanos( 50 ) );
+		assertTrue( measurements.get( 1 )[0] >= TimeUnit.MILLISECONDS.toNanos( 40 ) );
+		assertEquals( 0, queueFull.get() );
+	}
+
+	@Test
+	public void virtualThreadsAreUsedIfSupported() throws Exception {
+		ThreadFactory threadFactory;
+
+		try {
+			threadFactory = BoundedTaskExecutor.virtualThreadFactory( "virtual" );
+		}
+		catch ( UnsupportedOperationException uoe ) {
+			// JVM older than Java 21
+			return;
+		}
+
+		executor = new BoundedTaskExecutor( "test", 1, 1, OverflowPolicy.CALLER_RUNS, threadFactory );
+		Thread thread = executor.submit( Thread::currentThread ).get( 1, TimeUnit.SECONDS );
+
+		assertTrue( (Boolean) Thread.class.getMethod( "isVirtual" ).invoke( thread ) );
+		assertTrue( thread.getName().startsWith( "virtual-" ) );
+	}
+
+	/**
+	 * Blocks the single thread of the executor and fills its queue of one task.
+	 *
+	 * @return the queued task
+	 */
+	private Future<?> occupyThreadAndQueue() throws InterruptedException {
+		CountDownLatch started = new CountDownLatch( 1 );
+		executor.execute( () -> {
+			started.countDown();
+			try {
+				release.await();
+			}
+			catch ( InterruptedException ignore ) {
+			}
+		} );
+		started.await();
+
+		return executor.submit( () -> {
+		} );
+	}
+
+	private static void sleep( long millis ) {
+		try {
+			Thread.sleep( millis );
+		}
+		catch ( InterruptedException ie ) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
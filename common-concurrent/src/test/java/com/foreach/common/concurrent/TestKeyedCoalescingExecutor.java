@@ -0,0 +1,203 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestKeyedCoalescingExecutor
+{
+	private final ExecutorService threads = Executors.newFixedThreadPool( 4 );
+	private final CountDownLatch release = new CountDownLatch( 1 );
+
+	@AfterEach
+	public void shutdown() {
+		release.countDown();
+		threads.shutdownNow();
+	}
+
+	@Test
+	public void tasksWaitingToBeStartedAreMerged() throws Exception {
+		KeyedCoalescingExecutor<String> executor = new KeyedCoalescingExecutor<>( threads );
+		List<String> executed = new CopyOnWriteArrayList<>();
+
+		CompletableFuture<Void> running = submitBlocking( executor, "group", executed );
+
+		CompletableFuture<Void> second = executor.submit( "group", () -> executed.add( "second" ) );
+		CompletableFuture<Void> third = executor.submit( "group", () -> executed.add( "third" ) );
+		assertSame( second, third );
+		assertFalse( second.isDone() );
+
+		release.countDown();
+		running.get( 1, TimeUnit.SECONDS );
+		third.get( 1, TimeUnit.SECONDS );
+
+		assertEquals( 1, executor.getCoalescedTaskCount() );
+		assertEquals( 2, executed.size() );
+		assertEquals( "group", executed.get( 0 ) );
+		assertEquals( "third", executed.get( 1 ) );
+		awaitNoActiveKeys( executor );
+	}
+
+	@Test
+	public void differentKeysAreExecutedConcurrently() throws Exception {
+		KeyedCoalescingExecutor<String> executor = new KeyedCoalescingExecutor<>( threads );
+		List<String> executed = new CopyOnWriteArrayList<>();
+
+		CompletableFuture<Void> blocked = submitBlocking( executor, "one", executed );
+		executor.submit( "two", () -> executed.add( "two" ) ).get( 1, TimeUnit.SECONDS );
+
+		assertFalse( blocked.isDone() );
+		assertTrue( executed.contains( "two" ) );
+
+		release.countDown();
+		blocked.get( 1, TimeUnit.SECONDS );
+	}
+
+	@Test
+	public void debounceWindowMergesABurstOfTasks() throws Exception {
+		KeyedCoalescingExecutor<String> executor = new KeyedCoalescingExecutor<>( threads, 100, TimeUnit.MILLISECONDS );
+		AtomicInteger executed = new AtomicInteger();
+
+		long start = System.nanoTime();
+		CompletableFuture<Void> future = null;
+		for ( int i = 0; i < 50; i++ ) {
+			future = executor.submit( "group", executed::incrementAndGet );
+		}
+
+		future.get( 1, TimeUnit.SECONDS );
+
+		assertTrue( System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos( 100 ) );
+		assertEquals( 1, executed.get() );
+		assertEquals( 49, executor.getCoalescedTaskCount() );
+	}
+
+	@Test
+	public void synchronousExecutorExecutesEveryTask() {
+		KeyedCoalescingExecutor<String> executor = new KeyedCoalescingExecutor<>( new SynchronousTaskExecutor() );
+		AtomicInteger executed = new AtomicInteger();
+
+		assertTrue( executor.submit( "group", executed::incrementAndGet ).isDone() );
+		assertTrue( executor.submit( "group", executed::incrementAndGet ).isDone() );
+
+		assertEquals( 2, executed.get() );
+		assertEquals( 0, executor.getActiveKeyCount() );
+	}
+
+	@Test
+	public void exceptionCompletesTheFuture() throws Exception {
+		KeyedCoalescingExecutor<String> executor = new KeyedCoalescingExecutor<>( threads );
+
+		CompletableFuture<Void> failed = executor.submit( "group", () -> {
+			throw new IllegalStateException( "expected" );
+		} );
+
+		ExecutionException ee = assertThrows( ExecutionException.class, () -> failed.get( 1, TimeUnit.SECONDS ) );
+		assertTrue( ee.getCause() instanceof IllegalStateException );
+
+		executor.submit( "group", () -> {
+		} ).get( 1, TimeUnit.SECONDS );
+	}
+
+	@Test
+	public void rejectedTaskCompletesTheFuture() {
+		SynchronousTaskExecutor rejecting = new SynchronousTaskExecutor();
+		rejecting.shutdown();
+		KeyedCoalescingExecutor<String> executor = new KeyedCoalescingExecutor<>( rejecting );
+
+		CompletableFuture<Void> future = executor.submit( "group", () -> fail( "should not be executed" ) );
+
+		assertTrue( future.isCompletedExceptionally() );
+		assertEquals( 0, executor.getActiveKeyCount() );
+	}
+
+	@Test
+	public void droppedTaskDoesNotBlockTheKey() throws Exception {
+		BoundedTaskExecutor bounded = new BoundedTaskExecutor( "dropping", 1, 1,
+		                                                       BoundedTaskExecutor.OverflowPolicy.DROP );
+		try {
+			KeyedCoalescingExecutor<String> executor = new KeyedCoalescingExecutor<>( bounded );
+			List<String> executed = new CopyOnWriteArrayList<>();
+
+			CompletableFuture<Void> running = submitBlocking( executor, "running", executed );
+			CompletableFuture<Void> queued = executor.submit( "queued", () -> executed.add( "queued" ) );
+			CompletableFuture<Void> dropped = executor.submit( "dropped", () -> executed.add( "dropped" ) );
+
+			assertThrows( CancellationException.class, () -> dropped.get( 1, TimeUnit.SECONDS ) );
+
+			release.countDown();
+			running.get( 1, TimeUnit.SECONDS );
+			queued.get( 1, TimeUnit.SECONDS );
+
+			executor.submit( "dropped", () -> executed.add( "dropped" ) ).get( 1, TimeUnit.SECONDS );
+			assertEquals( Arrays.asList( "running", "queued", "dropped" ), executed );
+			awaitNoActiveKeys( executor );
+		}
+		finally {
+			bounded.close();
+		}
+	}
+
+	@Test
+	public void taskCancelledOnShutdownCompletesTheFuture() throws Exception {
+		ExecutorService single = Executors.newSingleThreadExecutor();
+		KeyedCoalescingExecutor<String> executor = new KeyedCoalescingExecutor<>( single );
+
+		submitBlocking( executor, "running", new CopyOnWriteArrayList<>() );
+		CompletableFuture<Void> queued = executor.submit( "queued", () -> fail( "should not be executed" ) );
+
+		single.shutdownNow().forEach( task -> ( (Future<?>) task ).cancel( false ) );
+
+		assertTrue( queued.isCompletedExceptionally() );
+		awaitNoActiveKeys( executor );
+	}
+
+	/**
+	 * Submits a task that blocks until released and waits for it to be started.
+	 */
+	private CompletableFuture<Void> submitBlocking( KeyedCoalescingExecutor<String> executor,
+	                                                String key,
+	                                                List<String> executed ) throws InterruptedException {
+		CountDownLatch started = new CountDownLatch( 1 );
+		CompletableFuture<Void> future = executor.submit( key, () -> {
+			started.countDown();
+			try {
+				release.await();
+			}
+			catch ( InterruptedException ignore ) {
+			}
+			executed.add( key );
+		} );
+
+		assertTrue( started.await( 1, TimeUnit.SECONDS ) );
+		return future;
+	}
+
+	private void awaitNoActiveKeys( KeyedCoalescingExecutor<String> executor ) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 1000;
+		while ( executor.getActiveKeyCount() > 0 && System.currentTimeMillis() < deadline ) {
+			Thread.sleep( 5 );
+		}
+		assertEquals( 0, executor.getActiveKeyCount() );
+	}
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestSingleFlight
+{
+	private final ExecutorService threads = Executors.newFixedThreadPool( 8 );
+	private final CountDownLatch started = new CountDownLatch( 1 );
+	private final CountDownLatch release = new CountDownLatch( 1 );
+	private final AtomicInteger loads = new AtomicInteger();
+
+	private final SingleFlight<String, String> flights = new SingleFlight<>();
+
+	@AfterEach
+	public void shutdown() {
+		release.countDown();
+		threads.shutdownNow();
+	}
+
+	@Test
+	public void concurrentCallersShareASingleComputation() throws Exception {
+		Future<String> leader = threads.submit( () -> flights.get( "key", blockingLoader( () -> "value" ) ) );
+		assertTrue( started.await( 1, TimeUnit.SECONDS ) );
+
+		List<Future<String>> followers = new ArrayList<>();
+		for ( int i = 0; i < 5; i++ ) {
+			followers.add( threads.submit( () -> flights.get( "key", () -> "other" ) ) );
+		}
+		awaitSharedCalls( 5 );
+		release.countDown();
+
+		assertEquals( "value", leader.get( 1, TimeUnit.SECONDS ) );
+		for ( Future<String> follower : followers ) {
+			assertEquals( "value", follower.get( 1, TimeUnit.SECONDS ) );
+		}
+		assertEquals( 1, loads.get() );
+		assertEquals( 0, flights.getInFlightCount() );
+	}
+
+	@Test
+	public void finishedComputationIsNotReused() {
+		assertEquals( "one", flights.get( "key", () -> "one" ) );
+		assertEquals( "two", flights.get( "key", () -> "two" ) );
+
+		assertEquals( 0, flights.getSharedCallCount() );
+		assertEquals( 0, flights.getInFlightCount() );
+	}
+
+	@Test
+	public void exceptionIsPassedToAllCallers() throws Exception {
+		IllegalStateException failure = new IllegalStateException( "load failed" );
+		Future<String> leader = threads.submit( () -> flights.get( "key", blockingLoader( () -> {
+			throw failure;
+		} ) ) );
+		assertTrue( started.await( 1, TimeUnit.SECONDS ) );
+
+		Future<String> follower = threads.submit( () -> flights.get( "key", () -> "other" ) );
+		awaitSharedCalls( 1 );
+		release.countDown();
+
+		ExecutionException leaderException = assertThrows( ExecutionException.class,
+		                                                    () -> leader.get( 1, TimeUnit.SECONDS ) );
+		ExecutionException followerException = assertThrows( ExecutionException.class,
+		                                                      () -> follower.get( 1, TimeUnit.SECONDS ) );
+		assertSame( failure, leaderException.getCause() );
+		assertSame( failure, followerException.getCause() );
+
+		assertEquals( "retry", flights.get( "key", () -> "retry" ) );
+	}
+
+	@Test
+	public void callerWaitingForAnotherComputationCanTimeOut() throws Exception {
+		Future<String> leader = threads.submit( () -> flights.get( "key", blockingLoader( () -> "value" ) ) );
+		assertTrue( started.await( 1, TimeUnit.SECONDS ) );
+
+		assertThrows( TimeoutException.class,
+		              () -> flights.get( "key", () -> "other", 50, TimeUnit.MILLISECONDS ) );
+
+		release.countDown();
+		assertEquals( "value", leader.get( 1, TimeUnit.SECONDS ) );
+		assertEquals( "value", flights.get( "key", () -> "value", 50, TimeUnit.MILLISECONDS ) );
+	}
+
+	@Test
+	public void differentKeysAreComputedConcurrently() throws Exception {
+		Future<String> blocked = threads.submit( () -> flights.get( "one", blockingLoader( () -> "one" ) ) );
+		assertTrue( started.await( 1, TimeUnit.SECONDS ) );
+
+		assertEquals( "two", flights.get( "two", () -> "two", 1, TimeUnit.SECONDS ) );
+		assertFalse( blocked.isDone() );
+
+		release.countDown();
+		assertEquals( "one", blocked.get( 1, TimeUnit.SECONDS ) );
+	}
+
+	@Test
+	public void asyncCallersShareASingleComputation() throws Exception {
+		CompletableFuture<String> first = flights.getAsync( "key", blockingLoader( () -> "value" ), threads );
+		assertTrue( started.await( 1, TimeUnit.SECONDS ) );
+
+		CompletableFuture<String> second = flights.getAsync( "key", () -> "other", threads );
+		CompletableFuture<String> third = flights.getAsync( "key", () -> "other", threads );
+		assertNotSame( second, third );
+
+		// cancelling one of the futures does not affect the others
+		second.cancel( false );
+		release.countDown();
+
+		assertEquals( "value", first.get( 1, TimeUnit.SECONDS ) );
+		assertEquals( "value", third.get( 1, TimeUnit.SECONDS ) );
+		assertTrue( second.isCancelled() );
+		assertEquals( 1, loads.get() );
+	}
+
+	@Test
+	public void rejectedAsyncComputationFailsTheFuture() {
+		CompletableFuture<String> future = flights.getAsync( "key", () -> "value", task -> {
+			throw new RejectedExecutionException();
+		} );
+
+		ExecutionException ee = assertThrows( ExecutionException.class, future::get );
+		assertTrue( ee.getCause() instanceof RejectedExecutionException );
+		assertEquals( 0, flights.getInFlightCount() );
+	}
+
+	@Test
+	public void loaderRequestingItsOwnKeyFails() {
+		assertThrows( IllegalStateException.class,
+		              () -> flights.get( "key", () -> flights.get( "key", () -> "nested" ) ) );
+		assertEquals( 0, flights.getInFlightCount() );
+	}
+
+	private Supplier<String> blockingLoader( Supplier<String> value ) {
+		return () -> {
+			loads.incrementAndGet();
+			started.countDown();
+			try {
+				release.await();
+			}
+			catch ( InterruptedException ie ) {
+				Thread.currentThread().interrupt();
+			}
+			return value.get();
+		};
+	}
+
+	private void awaitSharedCalls( long count ) throws InterruptedException {
+		long timeout = System.currentTimeMillis() + 1000;
+		while ( flights.getSharedCallCount() < count && System.currentTimeMillis() < timeout ) {
+			Thread.sleep( 5 );
+		}
+		assertEquals( count, flights.getSharedCallCount() );
+	}
+}
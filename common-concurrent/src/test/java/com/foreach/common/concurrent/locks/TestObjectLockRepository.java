@@ -18,14 +18,17 @@ package com.foreach.common.concurrent.locks;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
-import java.lang.reflect.Field;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 public class TestObjectLockRepository
 {
-	private ObjectLockRepository<String> repository;
+	private ObjectReadWriteLockRepository<String> repository;
 
 	@BeforeEach
 	public void setUp() {
@@ -78,20 +81,20 @@ public class TestObjectLockRepository
 
 	@Test
 	public void internalCheckThatGCRemovesTheLockKey() {
-		assertTrue( internalLocksMap().isEmpty() );
+		assertTrue( internalLockCount() == 0 );
 
 		ObjectLock<String> lock = fetch( "1" );
-		assertFalse( internalLocksMap().isEmpty() );
+		assertFalse( internalLockCount() == 0 );
 
 		gc();
 
-		assertFalse( internalLocksMap().isEmpty() );
+		assertFalse( internalLockCount() == 0 );
 
 		lock = null;
 
 		gc();
 
-		assertTrue( internalLocksMap().isEmpty() );
+		assertTrue( internalLockCount() == 0 );
 	}
 
 	/**
@@ -110,16 +113,8 @@ public class TestObjectLockRepository
 		runtime.runFinalization();
 	}
 
-	private Map internalLocksMap() {
-		try {
-			Field fld = ReentrantObjectLockRepository.class.getDeclaredField( "locks" );
-			fld.setAccessible( true );
-
-			return (WeakHashMap) fld.get( repository );
-		}
-		catch ( Exception e ) {
-			throw new RuntimeException( e );
-		}
+	private int internalLockCount() {
+		return ( (ReentrantObjectLockRepository<String>) repository ).size();
 	}
 
 	@Test
@@ -162,6 +157,80 @@ public class TestObjectLockRepository
 		assertFalse( otherLock.isHeldByCurrentThread() );
 	}
 
+	@Test
+	public void sameReadWriteLockInstanceShouldBeReturned() {
+		ObjectReadWriteLock<String> lock = repository.getReadWriteLock( "1" );
+
+		assertNotNull( lock );
+		assertEquals( "1", lock.getKey() );
+		assertEquals( "1", lock.readLock().getKey() );
+		assertEquals( "1", lock.writeLock().getKey() );
+		assertSame( lock, repository.getReadWriteLock( "1" ) );
+		assertNotSame( repository.getLock( "1" ), lock.writeLock() );
+	}
+
+	@Test
+	public void readLockIsSharedAndWriteLockIsExclusive() throws Exception {
+		ObjectReadWriteLock<String> lock = repository.getReadWriteLock( "1" );
+
+		lock.readLock().lock();
+		assertTrue( lock.readLock().isLocked() );
+		assertTrue( lock.readLock().isHeldByCurrentThread() );
+		assertFalse( lock.writeLock().isLocked() );
+
+		assertTrue( inOtherThread( () -> lock.readLock().tryLock() && unlock( lock.readLock() ) ) );
+		assertFalse( inOtherThread( () -> lock.writeLock().tryLock() ) );
+
+		lock.readLock().unlock();
+		assertFalse( lock.readLock().isLocked() );
+
+		lock.writeLock().lock();
+		assertTrue( lock.writeLock().isLocked() );
+		assertTrue( lock.writeLock().isHeldByCurrentThread() );
+		assertFalse( inOtherThread( () -> lock.readLock().tryLock() ) );
+
+		lock.writeLock().unlock();
+		assertFalse( lock.writeLock().isLocked() );
+	}
+
+	private boolean unlock( ObjectLock<String> lock ) {
+		lock.unlock();
+		return true;
+	}
+
+	private boolean inOtherThread( Callable<Boolean> callable ) throws Exception {
+		ExecutorService executorService = Executors.newSingleThreadExecutor();
+		try {
+			return executorService.submit( callable ).get();
+		}
+		finally {
+			executorService.shutdown();
+		}
+	}
+
+	@Test
+	public void concurrentFetchingReturnsTheSameLock() throws Exception {
+		ExecutorService executorService = Executors.newFixedThreadPool( 8 );
+
+		try {
+			for ( int i = 0; i < 100; i++ ) {
+				String key = "concurrent-" + i;
+				List<Future<ObjectLock<String>>> fetched = new ArrayList<>();
+				for ( int j = 0; j < 8; j++ ) {
+					fetched.add( executorService.submit( () -> repository.getLock( new String( key ) ) ) );
+				}
+
+				ObjectLock<String> lock = fetched.get( 0 ).get();
+				for ( Future<ObjectLock<String>> other : fetched ) {
+					assertSame( lock, other.get() );
+				}
+			}
+		}
+		finally {
+			executorService.shutdown();
+		}
+	}
+
 	@Test
 	public void multiThreadLocking() throws Exception {
 		// Execute thread batches
@@ -169,7 +238,7 @@ public class TestObjectLockRepository
 
 		// After a GC, locks should be empty
 		gc();
-		assertTrue( internalLocksMap().isEmpty() );
+		assertTrue( internalLockCount() == 0 );
 	}
 
 	private void executeBatches() throws Exception {
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestStripedObjectLockRepository
+{
+	@Test
+	public void numberOfStripesIsRoundedUpToPowerOfTwo() {
+		assertEquals( 1, new StripedObjectLockRepository<String>( 1 ).getStripes() );
+		assertEquals( 16, new StripedObjectLockRepository<String>( 16 ).getStripes() );
+		assertEquals( 32, new StripedObjectLockRepository<String>( 17 ).getStripes() );
+		assertEquals( StripedObjectLockRepository.DEFAULT_STRIPES,
+		              new StripedObjectLockRepository<String>().getStripes() );
+
+		assertThrows( IllegalArgumentException.class, () -> new StripedObjectLockRepository<String>( 0 ) );
+	}
+
+	@Test
+	public void sameKeyUsesTheSameStripe() throws Exception {
+		ObjectLockRepository<String> repository = new StripedObjectLockRepository<>( 64 );
+
+		ObjectLock<String> lock = repository.getLock( "1" );
+		assertEquals( "1", lock.getKey() );
+
+		lock.lock();
+		lock.lock();
+
+		ObjectLock<String> other = repository.getLock( new String( "1" ) );
+		assertTrue( other.isLocked() );
+		assertTrue( other.isHeldByCurrentThread() );
+		assertFalse( inOtherThread( other ) );
+
+		lock.unlock();
+		assertTrue( other.isLocked() );
+		other.unlock();
+		assertFalse( lock.isLocked() );
+	}
+
+	@Test
+	public void keysSharingAStripeShareTheLock() {
+		ObjectLockRepository<String> repository = new StripedObjectLockRepository<>( 1 );
+
+		try (CloseableObjectLock<String> lock = repository.lock( "1" )) {
+			assertTrue( repository.getLock( "2" ).isHeldByCurrentThread() );
+			assertEquals( "1", lock.getKey() );
+		}
+
+		assertFalse( repository.getLock( "2" ).isLocked() );
+	}
+
+	@Test
+	public void readWriteLockUsesTheSameStripe() {
+		ObjectReadWriteLockRepository<String> repository = new StripedObjectLockRepository<>( 64 );
+
+		ObjectReadWriteLock<String> lock = repository.getReadWriteLock( "1" );
+		lock.writeLock().lock();
+
+		assertTrue( repository.getReadWriteLock( "1" ).writeLock().isHeldByCurrentThread() );
+		assertFalse( repository.getLock( "1" ).isLocked() );
+
+		lock.writeLock().unlock();
+		assertFalse( repository.getReadWriteLock( "1" ).writeLock().isLocked() );
+	}
+
+	@Test
+	public void multiThreadLocking() throws Exception {
+		Map<String, Integer> resultValues = new HashMap<>();
+
+		Collection<ExecutorBatch.Status> results = ExecutorBatch.execute(
+				Collections.singletonList( new StripedObjectLockRepository<>( 4 ) ),
+				resultValues,
+				5,
+				5,
+				300
+		);
+
+		for ( ExecutorBatch.Status status : results ) {
+			assertEquals( 5 * 300, status.getSucceeded() );
+		}
+
+		assertEquals( 5, resultValues.size() );
+		for ( Integer resultValue : resultValues.values() ) {
+			assertEquals( Integer.valueOf( 300 ), resultValue );
+		}
+	}
+
+	private boolean inOtherThread( ObjectLock<String> lock ) throws Exception {
+		ExecutorService executorService = Executors.newSingleThreadExecutor();
+		try {
+			return executorService.submit( () -> lock.tryLock() ).get();
+		}
+		finally {
+			executorService.shutdown();
+		}
+	}
+}
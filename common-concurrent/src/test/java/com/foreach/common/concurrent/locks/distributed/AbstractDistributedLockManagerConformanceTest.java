@@ -0,0 +1,395 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Behaviour every {@link DistributedLockManager} implementation should have.  An implementation is tested by
+ * extending this class.  Lock managers created for a single test should share the same lock store, verify their
+ * locks every 100 milliseconds and allow idle locks to be stolen after 500 milliseconds.
+ */
+public abstract class AbstractDistributedLockManagerConformanceTest
+{
+	private static final AtomicInteger OWNER_COUNTER = new AtomicInteger();
+
+	private final List<DistributedLockManager> lockManagers = new ArrayList<>();
+	private final ExecutorService executorService = Executors.newCachedThreadPool();
+
+	/**
+	 * @return new lock manager using the same lock store as the other managers created in this test
+	 */
+	protected abstract DistributedLockManager createLockManager() throws Exception;
+
+	/**
+	 * Release all locks of the lock manager and stop it.
+	 */
+	protected abstract void close( DistributedLockManager lockManager ) throws Exception;
+
+	/**
+	 * Take the lock away from its owner directly in the lock store, without going through the lock manager.
+	 */
+	protected abstract void loseLock( DistributedLockManager lockManager, DistributedLock lock ) throws Exception;
+
+	/**
+	 * Make the lock store unreachable for the lock manager.
+	 */
+	protected abstract void disconnect( DistributedLockManager lockManager ) throws Exception;
+
+	/**
+	 * Make the lock store reachable again for the lock manager.
+	 */
+	protected abstract void reconnect( DistributedLockManager lockManager ) throws Exception;
+
+	/**
+	 * Set the default stolen callback on the lock manager.
+	 */
+	protected abstract void setDefaultLockStolenCallback( DistributedLockManager lockManager,
+	                                                      DistributedLock.LockStolenCallback callback );
+
+	@AfterEach
+	public void closeLockManagers() throws Exception {
+		executorService.shutdownNow();
+
+		for ( DistributedLockManager lockManager : lockManagers ) {
+			reconnect( lockManager );
+			close( lockManager );
+		}
+	}
+
+	@Test
+	public void lockIsExclusiveBetweenOwners() throws Exception {
+		DistributedLockRepository repository = repository();
+		DistributedLockRepository otherRepository = repository();
+
+		DistributedLock lock = repository.createSharedLock( owner(), key() );
+		DistributedLock otherLock = otherRepository.createSharedLock( owner(), lock.getKey() );
+
+		assertFalse( lock.isLocked() );
+		assertTrue( lock.tryLock() );
+
+		assertFalse( otherLock.tryLock() );
+		assertTrue( otherLock.isLocked() );
+		assertTrue( lock.isHeldByCurrentThread() );
+		assertFalse( otherLock.isHeldByCurrentThread() );
+
+		lock.unlock();
+
+		assertFalse( lock.isLocked() );
+		assertTrue( otherLock.tryLock() );
+		assertTrue( lock.isLocked() );
+		assertFalse( lock.isHeldByCurrentThread() );
+		otherLock.unlock();
+	}
+
+	@Test
+	public void lockIsReentrant() throws Exception {
+		DistributedLockRepository repository = repository();
+		DistributedLock lock = repository.createSharedLock( owner(), key() );
+		DistributedLock otherLock = repository().createSharedLock( owner(), lock.getKey() );
+
+		lock.lock();
+		assertTrue( lock.tryLock() );
+
+		lock.unlock();
+		assertTrue( lock.isHeldByCurrentThread() );
+		assertFalse( otherLock.tryLock() );
+
+		lock.unlock();
+		assertFalse( lock.isLocked() );
+	}
+
+	@Test
+	public void sameOwnerIdIsTheSameOwnerOnEveryManager() throws Exception {
+		String ownerId = owner();
+		DistributedLock lock = repository().createSharedLock( ownerId, key() );
+		DistributedLock sameOwnerLock = repository().createSharedLock( ownerId, lock.getKey() );
+
+		assertTrue( lock.tryLock() );
+		assertTrue( sameOwnerLock.tryLock() );
+
+		lock.unlock();
+		assertTrue( sameOwnerLock.isHeldByCurrentThread() );
+
+		sameOwnerLock.unlock();
+		assertFalse( lock.isLocked() );
+	}
+
+	@Test
+	public void waitingOwnerAcquiresLockOnceReleased() throws Exception {
+		DistributedLock lock = repository().createSharedLock( owner(), key() );
+		DistributedLock otherLock = repository().createSharedLock( owner(), lock.getKey() );
+
+		lock.lock();
+
+		Future<Boolean> acquired = executorService.submit( () -> otherLock.tryLock( 5, TimeUnit.SECONDS ) );
+		Thread.sleep( 100 );
+		assertFalse( acquired.isDone() );
+
+		lock.unlock();
+		assertTrue( acquired.get( 5, TimeUnit.SECONDS ) );
+		assertTrue( otherLock.isHeldByCurrentThread() );
+		otherLock.unlock();
+	}
+
+	@Test
+	public void tryLockGivesUpAfterWaitingTime() throws Exception {
+		DistributedLock lock = repository().createSharedLock( owner(), key() );
+		DistributedLock otherLock = repository().createSharedLock( owner(), lock.getKey() );
+
+		lock.lock();
+
+		long start = System.nanoTime();
+		assertFalse( otherLock.tryLock( 200, TimeUnit.MILLISECONDS ) );
+		assertTrue( TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start ) >= 200 );
+
+		lock.unlock();
+	}
+
+	@Test
+	public void acquireAsyncCompletesOnceReleased() throws Exception {
+		DistributedLock lock = repository().createSharedLock( owner(), key() );
+		DistributedLock otherLock = repository().createSharedLock( owner(), lock.getKey() );
+
+		lock.lock();
+
+		CompletableFuture<DistributedLock> acquired = otherLock.acquireAsync();
+		Thread.sleep( 100 );
+		assertFalse( acquired.isDone() );
+
+		lock.unlock();
+		assertSame( otherLock, acquired.get( 5, TimeUnit.SECONDS ) );
+		assertFalse( lock.tryLock() );
+
+		otherLock.unlock();
+		assertTrue( lock.tryLock() );
+		lock.unlock();
+	}
+
+	@Test
+	public void cancelledAcquireAsyncStopsWaiting() throws Exception {
+		DistributedLock lock = repository().createSharedLock( owner(), key() );
+		DistributedLock otherLock = repository().createSharedLock( owner(), lock.getKey() );
+
+		lock.lock();
+
+		CompletableFuture<DistributedLock> acquired = otherLock.acquireAsync();
+		assertTrue( acquired.cancel( false ) );
+
+		lock.unlock();
+		Thread.sleep( 200 );
+
+		assertTrue( lock.tryLock() );
+		lock.unlock();
+	}
+
+	@Test
+	public void locksSynchronizeThreadsOfAllManagers() throws Exception {
+		int[] counter = new int[1];
+		List<Future<?>> futures = new ArrayList<>();
+		String key = key();
+
+		for ( int i = 0; i < 3; i++ ) {
+			DistributedLockRepository repository = repository();
+
+			for ( int j = 0; j < 4; j++ ) {
+				futures.add( executorService.submit( () -> {
+					DistributedLock lock = repository.getLock( key );
+					for ( int k = 0; k < 10; k++ ) {
+						lock.lock();
+						try {
+							int value = counter[0];
+							Thread.yield();
+							counter[0] = value + 1;
+						}
+						finally {
+							lock.unlock();
+						}
+					}
+					return null;
+				} ) );
+			}
+		}
+
+		for ( Future<?> future : futures ) {
+			future.get( 60, TimeUnit.SECONDS );
+		}
+
+		assertEquals( 120, counter[0] );
+	}
+
+	@Test
+	public void tryAcquireAllAcquiresAllLocksOrNone() throws Exception {
+		DistributedLockManager lockManager = lockManager();
+		DistributedLockManager otherLockManager = lockManager();
+		DistributedLockRepository repository = new DistributedLockRepositoryImpl( lockManager );
+		DistributedLockRepository otherRepository = new DistributedLockRepositoryImpl( otherLockManager );
+
+		String ownerId = owner();
+		List<DistributedLock> locks = Arrays.asList(
+				repository.createSharedLock( ownerId, key() ), repository.createSharedLock( ownerId, key() )
+		);
+		DistributedLock blocking = otherRepository.createSharedLock( owner(), locks.get( 1 ).getKey() );
+
+		blocking.lock();
+		assertFalse( lockManager.tryAcquireAll( locks, 100, TimeUnit.MILLISECONDS ) );
+		assertFalse( locks.get( 0 ).isLocked() );
+
+		blocking.unlock();
+		assertTrue( lockManager.tryAcquireAll( locks, 1, TimeUnit.SECONDS ) );
+		assertTrue( locks.get( 0 ).isHeldByCurrentThread() );
+		assertTrue( locks.get( 1 ).isHeldByCurrentThread() );
+
+		lockManager.releaseAll( locks );
+		assertFalse( locks.get( 0 ).isLocked() );
+		assertFalse( locks.get( 1 ).isLocked() );
+	}
+
+	@Test
+	public void fencingTokenIncreasesForEveryNewOwner() throws Exception {
+		DistributedLock lock = repository().createSharedLock( owner(), key() );
+		DistributedLock otherLock = repository().createSharedLock( owner(), lock.getKey() );
+
+		assertThrows( IllegalStateException.class, lock::getFencingToken );
+
+		lock.lock();
+		long token = lock.getFencingToken();
+		lock.lock();
+		assertEquals( token, lock.getFencingToken() );
+		assertThrows( IllegalStateException.class, otherLock::getFencingToken );
+		lock.unlock();
+		lock.unlock();
+
+		otherLock.lock();
+		long otherToken = otherLock.getFencingToken();
+		assertTrue( otherToken > token );
+		otherLock.unlock();
+
+		lock.lock();
+		assertTrue( lock.getFencingToken() > otherToken );
+		lock.unlock();
+	}
+
+	@Test
+	public void stolenCallbackIsExecutedWhenTheLockIsLost() throws Exception {
+		DistributedLockManager lockManager = lockManager();
+		DistributedLock lock = new DistributedLockRepositoryImpl( lockManager ).createSharedLock( owner(), key() );
+
+		AtomicReference<DistributedLock> stolen = new AtomicReference<>();
+		lock.setStolenCallback( ( lockKey, ownerId, stolenLock ) -> {
+			assertEquals( lock.getKey(), lockKey );
+			assertEquals( lock.getOwnerId(), ownerId );
+			stolen.set( stolenLock );
+		} );
+
+		lock.lock();
+		Thread.sleep( 300 );
+		assertNull( stolen.get(), "lock should not be reported stolen while it is held" );
+
+		loseLock( lockManager, lock );
+
+		awaitTrue( () -> stolen.get() != null );
+		assertSame( lock, stolen.get() );
+		assertFalse( lock.isHeldByCurrentThread() );
+		assertThrows( IllegalStateException.class, lock::getFencingToken );
+	}
+
+	@Test
+	public void unstableCallbackIsExecutedWhenTheLockCannotBeVerified() throws Exception {
+		DistributedLockManager lockManager = lockManager();
+		DistributedLock lock = new DistributedLockRepositoryImpl( lockManager ).createSharedLock( owner(), key() );
+
+		AtomicReference<Throwable> unstable = new AtomicReference<>();
+		lock.setUnstableCallback( ( lockKey, ownerId, unstableLock, lastVerified, t ) -> {
+			assertEquals( lock.getKey(), lockKey );
+			assertSame( lock, unstableLock );
+			assertTrue( lastVerified <= System.currentTimeMillis() );
+			unstable.compareAndSet( null, t );
+		} );
+
+		lock.lock();
+		Thread.sleep( 300 );
+		assertNull( unstable.get(), "lock should not be unstable while it can be verified" );
+
+		disconnect( lockManager );
+
+		awaitTrue( () -> unstable.get() != null );
+		assertTrue( unstable.get() instanceof DistributedLockException );
+	}
+
+	@Test
+	public void defaultStolenCallbackIsUsedIfLockHasNone() throws Exception {
+		DistributedLockManager lockManager = lockManager();
+		DistributedLock lock = new DistributedLockRepositoryImpl( lockManager ).createSharedLock( owner(), key() );
+
+		AtomicReference<String> stolen = new AtomicReference<>();
+		setDefaultLockStolenCallback( lockManager, ( lockKey, ownerId, stolenLock ) -> stolen.set( lockKey ) );
+
+		lock.lock();
+		loseLock( lockManager, lock );
+
+		awaitTrue( () -> stolen.get() != null );
+		assertEquals( lock.getKey(), stolen.get() );
+	}
+
+	@Test
+	public void closingTheManagerReleasesItsLocks() throws Exception {
+		DistributedLockManager lockManager = lockManager();
+		DistributedLock lock = new DistributedLockRepositoryImpl( lockManager ).createSharedLock( owner(), key() );
+		DistributedLock otherLock = repository().createSharedLock( owner(), lock.getKey() );
+
+		lock.lock();
+		close( lockManager );
+
+		assertTrue( otherLock.tryLock() );
+		otherLock.unlock();
+	}
+
+	protected DistributedLockManager lockManager() throws Exception {
+		DistributedLockManager lockManager = createLockManager();
+		lockManagers.add( lockManager );
+		return lockManager;
+	}
+
+	private DistributedLockRepository repository() throws Exception {
+		return new DistributedLockRepositoryImpl( lockManager(), owner() );
+	}
+
+	private static String owner() {
+		return "owner-" + OWNER_COUNTER.incrementAndGet();
+	}
+
+	private static String key() {
+		return UUID.randomUUID().toString();
+	}
+
+	private static void awaitTrue( BooleanSupplier condition ) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while ( !condition.getAsBoolean() ) {
+			assertTrue( System.currentTimeMillis() < deadline, "condition not met within 5 seconds" );
+			Thread.sleep( 10 );
+		}
+	}
+}
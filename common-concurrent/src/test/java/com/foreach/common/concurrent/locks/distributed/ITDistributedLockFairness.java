@@ -0,0 +1,183 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import liquibase.integration.spring.SpringLiquibase;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.sql.DataSource;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies that fair mode grants a contended lock in order of arrival across several nodes.  Every node is
+ * simulated by a separate lock manager with a number of waiting owners.  An owner that acquires the lock again
+ * right after releasing it, has to wait for all owners that were already in line, so no owner gets a second turn
+ * before every owner has had its first.
+ * <p/>
+ * Throughput and wait times of fair and default mode are compared by the {@code DistributedLockFairnessBenchmark}
+ * in the {@code common-concurrent-benchmarks} module.
+ */
+@ExtendWith(SpringExtension.class)
+@DirtiesContext
+@ContextConfiguration(classes = ITDistributedLockFairness.Config.class)
+public class ITDistributedLockFairness
+{
+	private static final int NODES = 3;
+	private static final int OWNERS_PER_NODE = 3;
+	private static final int OWNERS = NODES * OWNERS_PER_NODE;
+	private static final int TURNS = 2;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private final List<SqlBasedDistributedLockManager> lockManagers = new ArrayList<>();
+
+	@AfterEach
+	public void shutdown() {
+		lockManagers.forEach( SqlBasedDistributedLockManager::close );
+		lockManagers.clear();
+		jdbcTemplate.update( "TRUNCATE TABLE test_locks" );
+		jdbcTemplate.update( "TRUNCATE TABLE test_locks_queue" );
+	}
+
+	@Test
+	public void ownersOfAllNodesTakeTurnsInOrderOfArrival() throws Exception {
+		SqlBasedDistributedLockConfiguration configuration = new SqlBasedDistributedLockConfiguration( "test_locks" );
+		configuration.setRetryInterval( 50 );
+		configuration.setVerifyInterval( 1000 );
+		configuration.setFair( true );
+
+		List<DistributedLockRepository> repositories = new ArrayList<>();
+		for ( int node = 0; node < NODES; node++ ) {
+			SqlBasedDistributedLockManager lockManager = new SqlBasedDistributedLockManager( jdbcTemplate,
+			                                                                                 configuration );
+			lockManagers.add( lockManager );
+			repositories.add( new DistributedLockRepositoryImpl( lockManager ) );
+		}
+
+		String lockKey = "fairness-" + UUID.randomUUID();
+		DistributedLock holder = repositories.get( 0 ).createSharedLock( "holder", lockKey );
+		assertTrue( holder.tryLock() );
+
+		ExecutorService owners = Executors.newFixedThreadPool( OWNERS );
+		List<Integer> acquisitionOrder = Collections.synchronizedList( new ArrayList<>() );
+		List<Future<?>> results = new ArrayList<>();
+
+		try {
+			for ( int i = 0; i < OWNERS; i++ ) {
+				final int owner = i;
+				DistributedLock lock = repositories.get( i % NODES ).createSharedLock( "owner-" + i, lockKey );
+				results.add( owners.submit( () -> {
+					for ( int turn = 0; turn < TURNS; turn++ ) {
+						lock.lock();
+						try {
+							acquisitionOrder.add( owner );
+							Thread.sleep( 10 );
+						}
+						finally {
+							lock.unlock();
+						}
+					}
+					return null;
+				} ) );
+
+				while ( ticketCount( lockKey ) <= i ) {
+					Thread.sleep( 5 );
+				}
+			}
+
+			for ( DistributedLockRepository repository : repositories ) {
+				assertFalse( repository.createSharedLock( "barging", lockKey ).tryLock(),
+				             "Lock should not be granted while others are waiting in line" );
+			}
+
+			holder.unlock();
+
+			for ( Future<?> result : results ) {
+				result.get( 30, TimeUnit.SECONDS );
+			}
+		}
+		finally {
+			owners.shutdownNow();
+		}
+
+		List<Integer> arrivalOrder = new ArrayList<>();
+		for ( int owner = 0; owner < OWNERS; owner++ ) {
+			arrivalOrder.add( owner );
+		}
+
+		// every owner had its first turn before any owner could have a second one
+		assertEquals( OWNERS * TURNS, acquisitionOrder.size() );
+		for ( int turn = 0; turn < TURNS; turn++ ) {
+			List<Integer> turns = acquisitionOrder.subList( turn * OWNERS, ( turn + 1 ) * OWNERS );
+			if ( turn == 0 ) {
+				assertEquals( arrivalOrder, turns );
+			}
+			else {
+				assertEquals( new HashSet<>( arrivalOrder ), new HashSet<>( turns ) );
+			}
+		}
+		assertEquals( 0, ticketCount( lockKey ) );
+	}
+
+	private int ticketCount( String lockKey ) {
+		return jdbcTemplate.queryForObject( "SELECT count(*) FROM test_locks_queue WHERE lock_id = ?",
+		                                    Integer.class, lockKey );
+	}
+
+	@Configuration
+	protected static class Config
+	{
+		@Bean
+		public DataSource dataSource() {
+			BasicDataSource dataSource = new BasicDataSource();
+			dataSource.setDriverClassName( "org.hsqldb.jdbc.JDBCDriver" );
+			dataSource.setUrl( "jdbc:hsqldb:mem:/hsql-mem/distributed-lock-fairness" );
+			dataSource.setUsername( "sa" );
+			dataSource.setPassword( "" );
+			dataSource.setMaxTotal( OWNERS + NODES + 1 );
+
+			return dataSource;
+		}
+
+		@Bean
+		public JdbcTemplate jdbcTemplate() {
+			return new JdbcTemplate( dataSource() );
+		}
+
+		@Bean
+		public SpringLiquibase createSchema() {
+			SpringLiquibase springLiquibase = new SpringLiquibase();
+			springLiquibase.setDataSource( dataSource() );
+			springLiquibase.setChangeLog( "classpath:TestSchemaDistributedLocking.xml" );
+
+			return springLiquibase;
+		}
+	}
+}
@@ -225,6 +225,705 @@ public class ITDistributedLockRepository
 		assertTrue( stopWatch.getTime() >= 3000 );
 	}
 
+	@Test
+	public void releaseWakesUpWaitersOnTheSameManager() throws Exception {
+		configuration.setRetryInterval( 5000 );
+
+		DistributedLockRepository lockRepository = createRepository( "local-" + REPOSITORY_COUNTER.incrementAndGet() );
+		DistributedLock lock = lockRepository.getLock( UUID.randomUUID().toString() );
+
+		lock.lock();
+
+		CountDownLatch waiting = new CountDownLatch( 1 );
+		Future<Long> waitTime = singleThread.submit( () -> {
+			waiting.countDown();
+			lock.lock();
+
+			long acquired = System.currentTimeMillis();
+			lock.unlock();
+
+			return acquired;
+		} );
+
+		waiting.await();
+		Thread.sleep( 200 );
+
+		long released = System.currentTimeMillis();
+		lock.unlock();
+
+		assertTrue( waitTime.get() - released < 1000 );
+	}
+
+	@Test
+	public void fairModeGrantsLockInOrderOfArrival() throws Exception {
+		configuration.setFair( true );
+
+		DistributedLockRepository lockRepository = createRepository( "local-" + REPOSITORY_COUNTER.incrementAndGet() );
+		String lockKey = UUID.randomUUID().toString();
+
+		DistributedLock holder = lockRepository.createSharedLock( "holder", lockKey );
+		assertTrue( holder.tryLock() );
+
+		ExecutorService waiters = Executors.newFixedThreadPool( 3 );
+		List<Integer> acquisitionOrder = Collections.synchronizedList( new ArrayList<>() );
+		List<Future<?>> results = new ArrayList<>();
+
+		try {
+			for ( int i = 0; i < 3; i++ ) {
+				final int waiter = i;
+				DistributedLock lock = lockRepository.createSharedLock( "waiter-" + i, lockKey );
+				results.add( waiters.submit( () -> {
+					lock.lock();
+					acquisitionOrder.add( waiter );
+					Thread.sleep( 20 );
+					lock.unlock();
+					return null;
+				} ) );
+
+				while ( ticketCount( lockKey ) <= i ) {
+					Thread.sleep( 5 );
+				}
+			}
+
+			assertFalse( lockRepository.createSharedLock( "barging", lockKey ).tryLock(),
+			             "Lock should not be granted while others are waiting in line" );
+
+			holder.unlock();
+
+			for ( Future<?> result : results ) {
+				result.get( 10, TimeUnit.SECONDS );
+			}
+		}
+		finally {
+			waiters.shutdownNow();
+		}
+
+		assertEquals( Arrays.asList( 0, 1, 2 ), acquisitionOrder );
+		assertEquals( 0, ticketCount( lockKey ) );
+	}
+
+	@Test
+	public void fairModeIgnoresStaleTickets() {
+		configuration.setFair( true );
+
+		DistributedLockRepository lockRepository = createRepository( "local-" + REPOSITORY_COUNTER.incrementAndGet() );
+		DistributedLock lock = lockRepository.createSharedLock( "owner", UUID.randomUUID().toString() );
+
+		realJdbcTemplate.update( "INSERT INTO test_locks_queue (lock_id, ticket, owner_id, updated) VALUES (?,?,?,?)",
+		                         lock.getKey(), 1, "crashed-waiter",
+		                         System.currentTimeMillis() - configuration.getMaxIdleBeforeSteal() - 1000 );
+
+		assertTrue( lock.tryLock() );
+		assertTrue( lock.isHeldByCurrentThread() );
+		lock.unlock();
+	}
+
+	@Test
+	public void remoteOwnerCacheAvoidsDatabaseLookups() {
+		configuration.setRemoteOwnerCacheTime( 60000 );
+
+		DistributedLockRepository lockRepository = createRepository( "local-" + REPOSITORY_COUNTER.incrementAndGet() );
+		DistributedLockRepository externalRepository = createRepository(
+				"external-" + REPOSITORY_COUNTER.incrementAndGet() );
+
+		DistributedLock lock = lockRepository.createSharedLock( "local-owner", UUID.randomUUID().toString() );
+		DistributedLock externalLock = externalRepository.createSharedLock( "external-owner", lock.getKey() );
+
+		assertTrue( externalLock.tryLock() );
+
+		SqlBasedDistributedLockManager manager = (SqlBasedDistributedLockManager) ReflectionTestUtils.getField(
+				lock, ThreadBasedDistributedLock.class, "lockManager" );
+		assertNotNull( manager );
+
+		assertTrue( lock.isLocked() );
+		assertEquals( 0, manager.getRemoteOwnerCacheHitCount() );
+		assertEquals( 1, manager.getRemoteOwnerCacheMissCount() );
+
+		assertTrue( lock.isLocked() );
+		assertFalse( lock.isHeldByCurrentThread() );
+		assertEquals( 2, manager.getRemoteOwnerCacheHitCount() );
+		assertEquals( 1, manager.getRemoteOwnerCacheMissCount() );
+
+		externalLock.unlock();
+
+		// Still cached, but trying to acquire bypasses the cache
+		assertTrue( lock.isLocked() );
+		assertTrue( lock.tryLock() );
+		assertTrue( lock.isHeldByCurrentThread() );
+
+		lock.unlock();
+		assertFalse( lock.isLocked() );
+	}
+
+	@Test
+	public void tryAcquireAllTakesAllLocksOrNone() {
+		DistributedLockRepository lockRepository = createRepository( "local-" + REPOSITORY_COUNTER.incrementAndGet() );
+		DistributedLockRepository externalRepository = createRepository(
+				"external-" + REPOSITORY_COUNTER.incrementAndGet() );
+
+		List<DistributedLock> locks = Arrays.asList(
+				lockRepository.createSharedLock( "owner", "multi-c-" + UUID.randomUUID() ),
+				lockRepository.createSharedLock( "owner", "multi-a-" + UUID.randomUUID() ),
+				lockRepository.createSharedLock( "owner", "multi-b-" + UUID.randomUUID() )
+		);
+		DistributedLock externalLock = externalRepository.createSharedLock( "otherOwner", locks.get( 2 ).getKey() );
+		DistributedLockManager manager = lockManager( locks.get( 0 ) );
+
+		// Existing hold on one of the locks should be kept
+		assertTrue( locks.get( 1 ).tryLock() );
+		assertTrue( externalLock.tryLock() );
+
+		assertFalse( manager.tryAcquireAll( locks, 0, TimeUnit.MILLISECONDS ) );
+		assertFalse( locks.get( 0 ).isLocked() );
+		assertTrue( locks.get( 1 ).isHeldByCurrentThread() );
+		assertEquals( 1, holds( locks.get( 1 ) ) );
+		assertTrue( externalLock.isHeldByCurrentThread() );
+
+		externalLock.unlock();
+
+		reset( spyJdbcTemplate );
+		assertTrue( manager.tryAcquireAll( locks, 0, TimeUnit.MILLISECONDS ) );
+		verify( spyJdbcTemplate, times( 1 ) ).update( contains( "WHERE (owner_id IS NULL OR owner_id = ?) AND lock_id IN" ),
+		                                              any( PreparedStatementSetter.class ) );
+
+		for ( DistributedLock lock : locks ) {
+			assertTrue( lock.isHeldByCurrentThread() );
+		}
+		assertEquals( 2, holds( locks.get( 1 ) ) );
+		assertFalse( externalLock.tryLock() );
+
+		manager.releaseAll( locks );
+		assertFalse( locks.get( 0 ).isLocked() );
+		assertFalse( locks.get( 2 ).isLocked() );
+		assertTrue( locks.get( 1 ).isHeldByCurrentThread() );
+
+		locks.get( 1 ).unlock();
+		assertFalse( locks.get( 1 ).isLocked() );
+	}
+
+	@Test
+	public void tryAcquireAllWaitsForTheBlockingLock() throws Exception {
+		configuration.setRetryInterval( 5000 );
+
+		DistributedLockRepository lockRepository = createRepository( "local-" + REPOSITORY_COUNTER.incrementAndGet() );
+
+		List<DistributedLock> locks = Arrays.asList(
+				lockRepository.createSharedLock( "owner", UUID.randomUUID().toString() ),
+				lockRepository.createSharedLock( "owner", UUID.randomUUID().toString() )
+		);
+		DistributedLock otherLock = lockRepository.createSharedLock( "otherOwner", locks.get( 1 ).getKey() );
+		DistributedLockManager manager = lockManager( locks.get( 0 ) );
+
+		assertTrue( otherLock.tryLock() );
+
+		Future<Boolean> acquired = singleThread.submit(
+				() -> manager.tryAcquireAll( locks, 10, TimeUnit.SECONDS ) );
+
+		Thread.sleep( 200 );
+		assertFalse( acquired.isDone() );
+
+		long released = System.currentTimeMillis();
+		otherLock.unlock();
+
+		assertTrue( acquired.get() );
+		assertTrue( System.currentTimeMillis() - released < 1000 );
+		assertTrue( locks.get( 0 ).isHeldByCurrentThread() );
+		assertTrue( locks.get( 1 ).isHeldByCurrentThread() );
+
+		manager.releaseAll( locks );
+	}
+
+	@Test
+	public void tryAcquireAllInFairMode() {
+		configuration.setFair( true );
+
+		DistributedLockRepository lockRepository = createRepository( "local-" + REPOSITORY_COUNTER.incrementAndGet() );
+
+		List<DistributedLock> locks = Arrays.asList(
+				lockRepository.createSharedLock( "owner", UUID.randomUUID().toString() ),
+				lockRepository.createSharedLock( "owner", UUID.randomUUID().toString() )
+		);
+		DistributedLock otherLock = lockRepository.createSharedLock( "otherOwner", locks.get( 1 ).getKey() );
+		DistributedLockManager manager = lockManager( locks.get( 0 ) );
+
+		assertTrue( otherLock.tryLock() );
+		assertFalse( manager.tryAcquireAll( locks, 100, TimeUnit.MILLISECONDS ) );
+		assertFalse( locks.get( 0 ).isLocked() );
+
+		otherLock.unlock();
+		assertTrue( manager.tryAcquireAll( locks, 100, TimeUnit.MILLISECONDS ) );
+		assertTrue( locks.get( 0 ).isHeldByCurrentThread() );
+		assertTrue( locks.get( 1 ).isHeldByCurrentThread() );
+
+		manager.releaseAll( locks );
+		assertFalse( locks.get( 0 ).isLocked() );
+		assertFalse( locks.get( 1 ).isLocked() );
+	}
+
+	@Test
+	public void unusedLocksAreDeletedInChunks() throws Exception {
+		configuration.setCleanupChunkSize( 10 );
+		configuration.setCleanupChunkPause( 10 );
+
+		long stale = System.currentTimeMillis() - 120000;
+		for ( int i = 0; i < 25; i++ ) {
+			insertLock( "unused-" + i, null, stale );
+		}
+		insertLock( "held", "owner-one", stale );
+		insertLock( "recent", null, System.currentTimeMillis() );
+
+		createRepository( "local-" + REPOSITORY_COUNTER.incrementAndGet() );
+
+		long deadline = System.currentTimeMillis() + 5000;
+		while ( lockCount() > 2 && System.currentTimeMillis() < deadline ) {
+			Thread.sleep( 10 );
+		}
+
+		assertEquals( 2, lockCount() );
+		assertEquals( Arrays.asList( "held", "recent" ),
+		              realJdbcTemplate.queryForList( "SELECT lock_id FROM test_locks ORDER BY lock_id", String.class ) );
+	}
+
+	@Test
+	public void leaseModeIssuesIncreasingFencingTokens() throws Exception {
+		configuration.setLeaseMode( true );
+
+		DistributedLockRepository lockRepository = createRepository( "local-" + REPOSITORY_COUNTER.incrementAndGet() );
+
+		DistributedLock lock = lockRepository.createSharedLock( "owner-one", UUID.randomUUID().toString() );
+		DistributedLock otherLock = lockRepository.createSharedLock( "owner-two", lock.getKey() );
+
+		assertThrows( IllegalStateException.class, lock::getFencingToken );
+
+		lock.lock();
+		long token = lock.getFencingToken();
+		assertTrue( token > 0 );
+
+		// reentrant acquiring keeps the token
+		lock.lock();
+		assertEquals( token, lock.getFencingToken() );
+		lock.unlock();
+		lock.unlock();
+
+		otherLock.lock();
+		long otherToken = otherLock.getFencingToken();
+		assertTrue( otherToken > token );
+
+		// stealing issues a new token
+		updateIdleTime( otherLock, lastUpdated( otherLock ) - 30000 );
+		assertTrue( lock.tryLock() );
+		long stolenToken = lock.getFencingToken();
+		assertTrue( stolenToken > otherToken );
+		assertThrows( IllegalStateException.class, otherLock::getFencingToken );
+		lock.unlock();
+
+		// a new record continues with higher tokens
+		realJdbcTemplate.update( "DELETE FROM test_locks WHERE lock_id = ?", lock.getKey() );
+		Thread.sleep( 5 );
+
+		List<DistributedLock> locks = Arrays.asList(
+				lock, lockRepository.createSharedLock( "owner-one", UUID.randomUUID().toString() )
+		);
+		assertTrue( lockManager( lock ).tryAcquireAll( locks, 1, TimeUnit.SECONDS ) );
+		assertTrue( lock.getFencingToken() > stolenToken );
+		assertTrue( locks.get( 1 ).getFencingToken() > 0 );
+		lockManager( lock ).releaseAll( locks );
+	}
+
+	@Test
+	public void leaseModeUsesTheDatabaseClock() {
+		configuration.setLeaseMode( true );
+		configuration.setDatabaseTimeQuery( "VALUES UNIX_MILLIS() - 3600000" );
+
+		DistributedLockRepository lockRepository = createRepository( "local-" + REPOSITORY_COUNTER.incrementAndGet() );
+		DistributedLock lock = lockRepository.createSharedLock( "owner-one", UUID.randomUUID().toString() );
+		DistributedLock otherLock = lockRepository.createSharedLock( "owner-two", lock.getKey() );
+
+		assertTrue( lock.tryLock() );
+
+		long expected = System.currentTimeMillis() - 3600000;
+		assertTrue( Math.abs( lastUpdated( lock ) - expected ) < 5000 );
+
+		// the lock is not considered idle although the timestamp is an hour in the past
+		assertFalse( otherLock.tryLock() );
+		lock.unlock();
+	}
+
+	@Test
+	public void acquireAsyncCompletesOnceTheLockIsReleased() throws Exception {
+		DistributedLockRepository lockRepository = createRepository( "local-" + REPOSITORY_COUNTER.incrementAndGet() );
+
+		DistributedLock lock = lockRepository.getLock( UUID.randomUUID().toString() );
+		DistributedLock otherLock = lockRepository.createSharedLock( "other-owner", lock.getKey() );
+
+		CompletableFuture<DistributedLock> immediate = otherLock.acquireAsync();
+		assertTrue( immediate.isDone() );
+		assertSame( otherLock, immediate.get() );
+
+		CompletableFuture<DistributedLock> acquired = lock.acquireAsync();
+
+		Thread.sleep( 200 );
+		assertFalse( acquired.isDone() );
+
+		otherLock.unlock();
+
+		DistributedLock acquiredLock = acquired.get( 5, TimeUnit.SECONDS );
+		assertEquals( lock.getOwnerId(), acquiredLock.getOwnerId() );
+		assertTrue( lock.isHeldByCurrentThread() );
+
+		// the acquired lock can be released from any thread
+		singleThread.submit( acquiredLock::unlock ).get();
+		assertFalse( lock.isLocked() );
+	}
+
+	@Test
+	public void releaseWakesUpAsyncWaitersOnTheSameManager() throws Exception {
+		configuration.setRetryInterval( 5000 );
+
+		DistributedLockRepository lockRepository = createRepository( "local-" + REPOSITORY_COUNTER.incrementAndGet() );
+
+		DistributedLock lock = lockRepository.getLock( UUID.randomUUID().toString() );
+		DistributedLock otherLock = lockRepository.createSharedLock( "other-owner", lock.getKey() );
+
+		assertTrue( otherLock.tryLock() );
+
+		CompletableFuture<Long> acquired = lock.acquireAsync().thenApply( l -> System.currentTimeMillis() );
+		Thread.sleep( 200 );
+
+		long released = System.currentTimeMillis();
+		otherLock.unlock();
+
+		assertTrue( acquired.get( 5, TimeUnit.SECONDS ) - released < 1000 );
+		singleThread.submit( lock::unlock ).get();
+	}
+
+	@Test
+	public void acquireAsyncStopsWhenCancelled() throws Exception {
+		DistributedLockRepository lockRepository = createRepository( "local-" + REPOSITORY_COUNTER.incrementAndGet() );
+
+		DistributedLock lock = lockRepository.createSharedLock( "owner", UUID.randomUUID().toString() );
+		DistributedLock otherLock = lockRepository.createSharedLock( "other-owner", lock.getKey() );
+
+		assertTrue( otherLock.tryLock() );
+
+		CompletableFuture<DistributedLock> acquired = lock.acquireAsync();
+		assertFalse( acquired.isDone() );
+		assertTrue( acquired.cancel( false ) );
+
+		otherLock.unlock();
+		Thread.sleep( 300 );
+
+		assertFalse( lock.isLocked() );
+	}
+
+	@Test
+	public void readLockIsSharedBetweenOwners() {
+		DistributedReadWriteLockRepository lockRepository = createRepository( "local-" + REPOSITORY_COUNTER.incrementAndGet() );
+
+		DistributedReadWriteLock lock = lockRepository.createSharedReadWriteLock( "owner-one",
+		                                                                          UUID.randomUUID().toString() );
+		DistributedReadWriteLock otherLock = lockRepository.createSharedReadWriteLock( "owner-two", lock.getKey() );
+
+		assertTrue( lock.readLock().tryLock() );
+		assertTrue( otherLock.readLock().tryLock() );
+		assertTrue( lock.readLock().isLocked() );
+		assertTrue( lock.readLock().isHeldByCurrentThread() );
+		assertTrue( otherLock.readLock().isHeldByCurrentThread() );
+		assertFalse( lock.writeLock().isLocked() );
+
+		DistributedReadWriteLock writer = lockRepository.createSharedReadWriteLock( "owner-three", lock.getKey() );
+		assertFalse( writer.writeLock().tryLock() );
+		assertFalse( lock.writeLock().isLocked() );
+
+		// the write lock can be downgraded to a read lock
+		otherLock.readLock().unlock();
+		lock.readLock().unlock();
+		assertTrue( lock.writeLock().tryLock() );
+		assertTrue( lock.readLock().tryLock() );
+		assertTrue( lock.writeLock().isHeldByCurrentThread() );
+		assertFalse( otherLock.readLock().tryLock() );
+
+		lock.writeLock().unlock();
+		assertTrue( otherLock.readLock().tryLock() );
+		otherLock.readLock().unlock();
+		lock.readLock().unlock();
+
+		assertFalse( lock.readLock().isLocked() );
+		assertFalse( lock.writeLock().isLocked() );
+		assertEquals( 0, readerCount( lock.getKey() ) );
+	}
+
+	@Test
+	public void readLockCannotBeUpgraded() throws Exception {
+		DistributedReadWriteLockRepository lockRepository = createRepository( "local-" + REPOSITORY_COUNTER.incrementAndGet() );
+
+		DistributedReadWriteLock lock = lockRepository.createSharedReadWriteLock( "owner-one",
+		                                                                          UUID.randomUUID().toString() );
+		DistributedReadWriteLock otherLock = lockRepository.createSharedReadWriteLock( "owner-two", lock.getKey() );
+
+		assertTrue( lock.readLock().tryLock() );
+		assertTrue( otherLock.readLock().tryLock() );
+
+		// two readers upgrading at the same time would wait for each other forever
+		Future<?> otherUpgrade = singleThread.submit( () -> otherLock.writeLock().lock() );
+		assertThrows( IllegalStateException.class, () -> lock.writeLock().lock() );
+		ExecutionException otherFailure = assertThrows( ExecutionException.class,
+		                                                () -> otherUpgrade.get( 10, TimeUnit.SECONDS ) );
+		assertTrue( otherFailure.getCause() instanceof IllegalStateException );
+
+		// also a sole reader cannot upgrade
+		otherLock.readLock().unlock();
+		assertThrows( IllegalStateException.class, () -> lock.writeLock().tryLock() );
+		assertThrows( IllegalStateException.class, () -> lock.writeLock().tryLock( 1, TimeUnit.SECONDS ) );
+		assertFalse( lock.writeLock().isLocked() );
+		assertTrue( lock.readLock().isHeldByCurrentThread() );
+
+		lock.readLock().unlock();
+		assertTrue( lock.writeLock().tryLock() );
+		lock.writeLock().unlock();
+		assertEquals( 0, readerCount( lock.getKey() ) );
+	}
+
+	@Test
+	public void writeLockWaitsForReadersAndBlocksNewReaders() throws Exception {
+		DistributedReadWriteLockRepository lockRepository = createRepository( "local-" + REPOSITORY_COUNTER.incrementAndGet() );
+
+		DistributedReadWriteLock reader = lockRepository.createSharedReadWriteLock( "reader",
+		                                                                            UUID.randomUUID().toString() );
+		DistributedReadWriteLock writer = lockRepository.createSharedReadWriteLock( "writer", reader.getKey() );
+		DistributedReadWriteLock newReader = lockRepository.createSharedReadWriteLock( "new-reader",
+		                                                                               reader.getKey() );
+
+		assertTrue( reader.readLock().tryLock() );
+
+		Future<Boolean> acquired = singleThread.submit(
+				() -> writer.writeLock().tryLock( 10, TimeUnit.SECONDS ) );
+
+		long timeout = System.currentTimeMillis() + 2000;
+		while ( !writer.writeLock().isLocked() && System.currentTimeMillis() < timeout ) {
+			Thread.sleep( 10 );
+		}
+
+		assertTrue( writer.writeLock().isLocked() );
+		assertFalse( acquired.isDone() );
+		assertFalse( newReader.readLock().tryLock() );
+
+		reader.readLock().unlock();
+
+		assertTrue( acquired.get() );
+		assertTrue( writer.writeLock().isHeldByCurrentThread() );
+		assertFalse( newReader.readLock().tryLock() );
+
+		writer.writeLock().unlock();
+		assertTrue( newReader.readLock().tryLock() );
+		newReader.readLock().unlock();
+	}
+
+	@Test
+	public void idleReaderIsRemovedByWriter() throws Exception {
+		configuration.setVerifyInterval( 1000 );
+
+		DistributedReadWriteLockRepository lockRepository = createRepository( "local-" + REPOSITORY_COUNTER.incrementAndGet() );
+
+		DistributedReadWriteLock reader = lockRepository.createSharedReadWriteLock( "reader",
+		                                                                            UUID.randomUUID().toString() );
+		DistributedReadWriteLock writer = lockRepository.createSharedReadWriteLock( "writer", reader.getKey() );
+
+		CountDownLatch stolen = new CountDownLatch( 1 );
+		reader.readLock().setStolenCallback( ( lockId, ownerId, lock ) -> {
+			assertEquals( "reader", ownerId );
+			stolen.countDown();
+		} );
+
+		assertTrue( reader.readLock().tryLock() );
+		assertFalse( writer.writeLock().tryLock() );
+
+		realJdbcTemplate.update( "UPDATE test_locks_readers SET updated = ? WHERE lock_id = ?",
+		                         System.currentTimeMillis() - 30000, reader.getKey() );
+
+		assertTrue( writer.writeLock().tryLock() );
+		assertEquals( 0, readerCount( reader.getKey() ) );
+		assertTrue( stolen.await( 3, TimeUnit.SECONDS ) );
+		assertFalse( reader.readLock().isHeldByCurrentThread() );
+
+		writer.writeLock().unlock();
+	}
+
+	@Test
+	public void semaphoreLimitsPermitsAcrossManagers() throws Exception {
+		DistributedPermitRepository one = createRepository( "local-" + REPOSITORY_COUNTER.incrementAndGet() );
+		DistributedPermitRepository two = createRepository( "local-" + REPOSITORY_COUNTER.incrementAndGet() );
+
+		String key = UUID.randomUUID().toString();
+		DistributedSemaphore first = one.getSemaphore( key, 3 );
+		DistributedSemaphore second = two.getSemaphore( key, 3 );
+		assertNotEquals( first.getOwnerId(), second.getOwnerId() );
+
+		assertTrue( first.tryAcquire( 2 ) );
+		assertTrue( second.tryAcquire() );
+		assertFalse( second.tryAcquire() );
+		assertFalse( first.tryAcquire() );
+		assertEquals( 0, first.getAvailablePermits() );
+		assertEquals( 2, first.getHeldPermits() );
+
+		first.release();
+		assertEquals( 1, second.getAvailablePermits() );
+		assertFalse( second.tryAcquire( 2 ) );
+		assertTrue( second.tryAcquire() );
+		assertEquals( 2, second.getHeldPermits() );
+
+		first.release();
+		second.release( 2 );
+		assertEquals( 3, first.getAvailablePermits() );
+		assertEquals( 0, readerCount( key ) );
+	}
+
+	@Test
+	public void semaphoreReleaseWakesUpWaitingOwner() throws Exception {
+		DistributedPermitRepository lockRepository = createRepository( "local-" + REPOSITORY_COUNTER.incrementAndGet() );
+
+		String key = UUID.randomUUID().toString();
+		DistributedSemaphore holder = lockRepository.createSharedSemaphore( "holder", key, 2 );
+		DistributedSemaphore waiter = lockRepository.createSharedSemaphore( "waiter", key, 2 );
+
+		assertTrue( holder.tryAcquire( 2 ) );
+		Future<Boolean> acquired = singleThread.submit( () -> waiter.tryAcquire( 1, 10, TimeUnit.SECONDS ) );
+
+		Thread.sleep( 200 );
+		assertFalse( acquired.isDone() );
+
+		holder.release();
+		assertTrue( acquired.get( 5, TimeUnit.SECONDS ) );
+		assertEquals( 1, waiter.getHeldPermits() );
+		assertFalse( waiter.tryAcquire( 1, 100, TimeUnit.MILLISECONDS ) );
+
+		holder.release();
+		waiter.release();
+	}
+
+	@Test
+	public void idlePermitsAreRemovedByNextOwner() throws Exception {
+		configuration.setVerifyInterval( 1000 );
+
+		DistributedPermitRepository lockRepository = createRepository( "local-" + REPOSITORY_COUNTER.incrementAndGet() );
+
+		String key = UUID.randomUUID().toString();
+		DistributedSemaphore idle = lockRepository.createSharedSemaphore( "idle", key, 1 );
+		DistributedSemaphore other = lockRepository.createSharedSemaphore( "other", key, 1 );
+
+		CountDownLatch stolen = new CountDownLatch( 1 );
+		idle.setStolenCallback( ( lockId, ownerId, lock ) -> {
+			assertEquals( "idle", ownerId );
+			stolen.countDown();
+		} );
+
+		assertTrue( idle.tryAcquire() );
+		assertFalse( other.tryAcquire() );
+
+		realJdbcTemplate.update( "UPDATE test_locks_readers SET updated = ? WHERE lock_id = ?",
+		                         System.currentTimeMillis() - 30000, key );
+
+		assertTrue( other.tryAcquire() );
+		assertEquals( 1, readerCount( key ) );
+		assertTrue( stolen.await( 3, TimeUnit.SECONDS ) );
+
+		other.release();
+	}
+
+	@Test
+	public void permitsAreKeptAlive() throws Exception {
+		DistributedPermitRepository lockRepository = createRepository( "local-" + REPOSITORY_COUNTER.incrementAndGet() );
+
+		String key = UUID.randomUUID().toString();
+		DistributedSemaphore semaphore = lockRepository.createSharedSemaphore( "holder", key, 1 );
+		DistributedSemaphore other = lockRepository.createSharedSemaphore( "other", key, 1 );
+
+		assertTrue( semaphore.tryAcquire() );
+
+		// longer than the max idle time
+		Thread.sleep( 1000 );
+		assertFalse( other.tryAcquire() );
+		assertEquals( 1, semaphore.getHeldPermits() );
+
+		semaphore.release();
+		assertTrue( other.tryAcquire() );
+		other.release();
+	}
+
+	@Test
+	public void semaphoreKeyCannotBeUsedAsLock() {
+		DistributedPermitRepository lockRepository = createRepository( "local-" + REPOSITORY_COUNTER.incrementAndGet() );
+
+		DistributedLock lock = lockRepository.createSharedLock( "owner", UUID.randomUUID().toString() );
+		assertTrue( lock.tryLock() );
+
+		DistributedSemaphore semaphore = lockRepository.getSemaphore( lock.getKey(), 1 );
+		assertThrows( DistributedLockException.class, semaphore::tryAcquire );
+
+		lock.unlock();
+	}
+
+	@Test
+	public void rateLimiterAllowsBurstAndThenLimits() throws Exception {
+		DistributedPermitRepository one = createRepository( "local-" + REPOSITORY_COUNTER.incrementAndGet() );
+		DistributedPermitRepository two = createRepository( "local-" + REPOSITORY_COUNTER.incrementAndGet() );
+
+		String key = UUID.randomUUID().toString();
+		DistributedRateLimiter first = one.getRateLimiter( key, 10, 5 );
+		DistributedRateLimiter second = two.getRateLimiter( key, 10, 5 );
+
+		assertTrue( first.tryAcquire( 3 ) );
+		assertTrue( second.tryAcquire( 2 ) );
+		assertFalse( first.tryAcquire() );
+		assertFalse( second.tryAcquire() );
+
+		// a permit is added every 100 ms
+		assertFalse( first.tryAcquire( 1, 10, TimeUnit.MILLISECONDS ) );
+		assertTrue( second.tryAcquire( 1, 1, TimeUnit.SECONDS ) );
+
+		StopWatch stopWatch = StopWatch.createStarted();
+		first.acquire( 2 );
+		stopWatch.stop();
+		assertTrue( stopWatch.getTime() >= 100, "waited " + stopWatch.getTime() + " ms" );
+	}
+
+	@Test
+	public void rateLimiterTakesPermitsInBatches() throws Exception {
+		DistributedPermitRepository lockRepository = createRepository( "local-" + REPOSITORY_COUNTER.incrementAndGet() );
+
+		String key = UUID.randomUUID().toString();
+		DistributedRateLimiter batching = lockRepository.getRateLimiter( key, 1, 10 );
+		DistributedRateLimiter other = lockRepository.getRateLimiter( key, 1, 10 );
+		batching.setBatchSize( 4 );
+
+		assertTrue( batching.tryAcquire() );
+		assertEquals( 3, batching.getLocalPermits() );
+		for ( int i = 0; i < 3; i++ ) {
+			assertTrue( batching.tryAcquire() );
+		}
+		assertEquals( 0, batching.getLocalPermits() );
+
+		assertTrue( other.tryAcquire( 5 ) );
+
+		// a full batch is no longer available, only the permit requested is taken
+		assertTrue( batching.tryAcquire() );
+		assertEquals( 0, batching.getLocalPermits() );
+		assertFalse( batching.tryAcquire() );
+	}
+
+	@Test
+	public void rateLimiterKeyCannotBeUsedAsLock() {
+		DistributedPermitRepository lockRepository = createRepository( "local-" + REPOSITORY_COUNTER.incrementAndGet() );
+
+		DistributedLock lock = lockRepository.createSharedLock( "owner", UUID.randomUUID().toString() );
+		assertTrue( lock.tryLock() );
+
+		DistributedRateLimiter rateLimiter = lockRepository.getRateLimiter( lock.getKey(), 10, 1 );
+		assertThrows( DistributedLockException.class, rateLimiter::tryAcquire );
+
+		lock.unlock();
+	}
+
 	@Test
 	public void lockIsStolenIfIdleForTooLong() {
 		DistributedLockRepository lockRepository = createRepository( "local-" + REPOSITORY_COUNTER.incrementAndGet() );
@@ -282,6 +981,80 @@ public class ITDistributedLockRepository
 		assertTrue( callbackExecuted.get() );
 	}
 
+	@Test
+	public void metricsListenerReceivesLockMeasurements() throws InterruptedException {
+		DistributedLockRepository lockRepository = createRepository( "local-" + REPOSITORY_COUNTER.incrementAndGet() );
+
+		DistributedLock lock = lockRepository.createSharedLock( "owner-one", "metrics:" + UUID.randomUUID() );
+		DistributedLock otherLock = lockRepository.createSharedLock( "owner-two", lock.getKey() );
+
+		List<String> events = new CopyOnWriteArrayList<>();
+		AtomicInteger maxAttempts = new AtomicInteger();
+		AtomicInteger verifiedLocks = new AtomicInteger();
+		AtomicInteger cleanupRuns = new AtomicInteger();
+
+		SqlBasedDistributedLockManager lockManager = (SqlBasedDistributedLockManager) lockManager( lock );
+		lockManager.setMetricsListener( new DistributedLockMetricsListener()
+		{
+			@Override
+			public void lockAcquired( String lockKey, long waitNanos, int attempts ) {
+				events.add( "acquired " + DistributedLockMetricsListener.keyPrefix( lockKey ) );
+			}
+
+			@Override
+			public void lockNotAcquired( String lockKey, long waitNanos, int attempts ) {
+				events.add( "not acquired " + DistributedLockMetricsListener.keyPrefix( lockKey ) );
+				maxAttempts.accumulateAndGet( attempts, Math::max );
+			}
+
+			@Override
+			public void lockStolen( String lockKey ) {
+				events.add( "stolen " + DistributedLockMetricsListener.keyPrefix( lockKey ) );
+			}
+
+			@Override
+			public void lockLost( String lockKey ) {
+				events.add( "lost " + DistributedLockMetricsListener.keyPrefix( lockKey ) );
+			}
+
+			@Override
+			public void locksVerified( int lockCount, long durationNanos, boolean success ) {
+				if ( success ) {
+					verifiedLocks.addAndGet( lockCount );
+				}
+			}
+
+			@Override
+			public void cleanupCompleted( long recordsDeleted, int chunks, long durationMillis, boolean success ) {
+				cleanupRuns.incrementAndGet();
+			}
+		} );
+
+		assertTrue( lock.tryLock() );
+		assertEquals( 1, lockManager.getHeldLockCount() );
+		assertFalse( otherLock.tryLock() );
+		assertFalse( otherLock.tryLock( 200, TimeUnit.MILLISECONDS ) );
+		assertTrue( maxAttempts.get() > 1 );
+
+		updateIdleTime( lock, System.currentTimeMillis() - 30000 );
+
+		assertTrue( otherLock.tryLock() );
+		assertEquals( 1, lockManager.getHeldLockCount() );
+		assertEquals( Arrays.asList( "acquired metrics", "not acquired metrics", "not acquired metrics",
+		                             "stolen metrics", "lost metrics", "acquired metrics" ), events );
+
+		long deadline = System.currentTimeMillis() + 2000;
+		while ( ( verifiedLocks.get() == 0 || cleanupRuns.get() == 0 ) && System.currentTimeMillis() < deadline ) {
+			Thread.sleep( 10 );
+		}
+
+		assertTrue( verifiedLocks.get() > 0 );
+		assertTrue( cleanupRuns.get() > 0 );
+
+		otherLock.unlock();
+		assertEquals( 0, lockManager.getHeldLockCount() );
+	}
+
 	@Test
 	public void lockBecomesUnstableIfDatabaseConnectionIsLost() throws InterruptedException {
 		DistributedLockRepository lockRepository = createRepository( "local-" + REPOSITORY_COUNTER.incrementAndGet() );
@@ -375,6 +1148,50 @@ public class ITDistributedLockRepository
 		assertTrue( lastUpdated( lock ) > creation );
 	}
 
+	@Test
+	public void lockMonitorVerifiesAllLocksOfAnOwnerInBatch() throws InterruptedException {
+		configuration.setVerifyBatchSize( 2 );
+
+		DistributedLockRepository lockRepository = createRepository( "local-" + REPOSITORY_COUNTER.incrementAndGet() );
+
+		List<DistributedLock> locks = new ArrayList<>();
+		for ( int i = 0; i < 5; i++ ) {
+			DistributedLock lock = lockRepository.createSharedLock( "batch-owner", UUID.randomUUID().toString() );
+			assertTrue( lock.tryLock() );
+			locks.add( lock );
+		}
+
+		DistributedLock stolenLock = locks.get( 3 );
+		DistributedLock thief = lockRepository.createSharedLock( "thief", stolenLock.getKey() );
+
+		final AtomicBoolean callbackExecuted = new AtomicBoolean( false );
+		stolenLock.setStolenCallback( ( lockId, ownerId, lock ) -> {
+			assertEquals( stolenLock.getKey(), lockId );
+			assertEquals( "batch-owner", ownerId );
+			callbackExecuted.set( true );
+		} );
+
+		Map<String, Long> creation = new HashMap<>();
+		for ( DistributedLock lock : locks ) {
+			creation.put( lock.getKey(), lastUpdated( lock ) );
+		}
+
+		stealLock( thief );
+		Thread.sleep( configuration.getVerifyInterval() + 50 );
+
+		assertTrue( callbackExecuted.get() );
+
+		for ( DistributedLock lock : locks ) {
+			if ( lock != stolenLock ) {
+				assertTrue( lastUpdated( lock ) > creation.get( lock.getKey() ) );
+				assertTrue( lock.isHeldByCurrentThread() );
+			}
+		}
+
+		String sqlVerifyLock = (String) ReflectionTestUtils.getField( lockManagers.iterator().next(), "sqlVerifyLock" );
+		verify( spyJdbcTemplate, never() ).update( eq( sqlVerifyLock ), anyLong(), anyString(), anyString() );
+	}
+
 	@Test
 	public void distributedLockIsReentrant() {
 		DistributedLockRepository lockRepository = createRepository();
@@ -408,12 +1225,35 @@ public class ITDistributedLockRepository
 		assertFalse( lock.isHeldByCurrentThread() );
 	}
 
+	@Test
+	public void reentrantLockIsKeptAliveUntilTheLastHoldIsReleased() throws InterruptedException {
+		DistributedLockRepository lockRepository = createRepository( "local-" + REPOSITORY_COUNTER.incrementAndGet() );
+		DistributedLock lock = lockRepository.getLock( UUID.randomUUID().toString() );
+
+		lock.lock();
+		lock.lock();
+		lock.unlock();
+
+		long updated = lastUpdated( lock );
+		Thread.sleep( configuration.getVerifyInterval() + 50 );
+
+		assertTrue( lastUpdated( lock ) > updated, "Lock with remaining hold should still be kept alive" );
+		assertTrue( lock.isHeldByCurrentThread() );
+
+		lock.unlock();
+		assertFalse( lock.isLocked() );
+	}
+
 	//a variant on the stolenLockCallback callback above, that steals the lock via direct database access, and initially causes some errors during stolen lock verification
 	@Test()
 	@Timeout(500L)
 	public void lockMonitorShouldHandleDatabaseExceptionsGracefully() throws InterruptedException {
 		configuration.setVerifyInterval( 10L );
 
+		// stub before the lock monitor starts using the template
+		DelegatingJdcbUpdateAnswer answer = new DelegatingJdcbUpdateAnswer( false );
+		doAnswer( answer ).when( spyJdbcTemplate ).update( anyString(), anyLong(), anyString(), anyString() );
+
 		DistributedLockRepository lockRepository = createRepository( "local-" + REPOSITORY_COUNTER.incrementAndGet() );
 
 		final DistributedLock lock = lockRepository.createSharedLock( "owner-one", UUID.randomUUID().toString() );
@@ -436,16 +1276,12 @@ public class ITDistributedLockRepository
 		assertTrue( lock.tryLock() );
 		assertFalse( otherLock.tryLock() );
 
-		DelegatingJdcbUpdateAnswer answer = new DelegatingJdcbUpdateAnswer( true );
-
-		String sqlVerifyLock = (String) ReflectionTestUtils.getField( lockManagers.iterator().next(), "sqlVerifyLock" );
-		assertNotNull( sqlVerifyLock );
-		String lockId = lock.getKey();
-
-		doAnswer( answer ).when( spyJdbcTemplate ).update( eq( sqlVerifyLock ), anyLong(), eq( lockId ), anyString() );
-
-		//Thread.sleep( 100 );
-		doAnswer( answer ).when( spyJdbcTemplate ).update( anyString(), anyLong(), anyString(), anyString() );
+		// a failed attempt ensures no verification that started before is still updating the real table
+		answer.setShouldFail( true );
+		int attemptsBeforeFailing = answer.getNrAttempts();
+		while ( answer.getNrAttempts() == attemptsBeforeFailing ) {
+			Thread.sleep( 10 );
+		}
 
 		assertFalse( otherLock.isHeldByCurrentThread(),
 		             "otherLock shouldn't be active before we start messing with the data" );
@@ -484,18 +1320,19 @@ public class ITDistributedLockRepository
 		configuration.setCleanupInterval( 30 );
 		configuration.setVerifyInterval( 15 );
 
-		DistributedLockRepository lockRepository = createRepository( "local-" + REPOSITORY_COUNTER.incrementAndGet() );
-
-		final DistributedLock lock = lockRepository.createSharedLock( "owner", UUID.randomUUID().toString() );
-		lock.tryLock();
-
+		// stub before the cleanup monitor starts using the template
 		DelegatingJdcbUpdateAnswer answer = new DelegatingJdcbUpdateAnswer( true );
-		String sqlCleanup = (String) ReflectionTestUtils.getField( lockManagers.iterator().next(), "sqlCleanup" );
-		assertNotNull( sqlCleanup );
+		String sqlCleanup = SqlBasedDistributedLockCleanup.cleanupStatement( "HSQL Database Engine", "test_locks",
+		                                                                    configuration.getCleanupChunkSize() );
 		doAnswer( answer ).when( spyJdbcTemplate ).update(
 				eq( sqlCleanup ), anyLong()
 		);
 
+		DistributedLockRepository lockRepository = createRepository( "local-" + REPOSITORY_COUNTER.incrementAndGet() );
+
+		final DistributedLock lock = lockRepository.createSharedLock( "owner", UUID.randomUUID().toString() );
+		lock.tryLock();
+
 		assertEquals( 1, lockCount( lock ), "should have 1 lock before we start messing with the data" );
 
 		releaseLock( lock.getKey(), System.currentTimeMillis() - 2 * configuration.getCleanupAge() );
@@ -522,8 +1359,8 @@ public class ITDistributedLockRepository
 
 	private class DelegatingJdcbUpdateAnswer implements Answer<Integer>
 	{
-		private int nrAttempts = 0;
-		private boolean shouldFail;
+		private volatile int nrAttempts = 0;
+		private volatile boolean shouldFail;
 
 		public DelegatingJdcbUpdateAnswer( boolean shouldFail ) {
 			setShouldFail( shouldFail );
@@ -578,21 +1415,48 @@ public class ITDistributedLockRepository
 		                                        lock.getKey() );
 	}
 
+	private int holds( DistributedLock lock ) {
+		return realJdbcTemplate.queryForObject( "SELECT holds FROM test_locks WHERE lock_id = ?", Integer.class,
+		                                        lock.getKey() );
+	}
+
+	private DistributedLockManager lockManager( DistributedLock lock ) {
+		return (DistributedLockManager) ReflectionTestUtils.getField( lock, ThreadBasedDistributedLock.class,
+		                                                              "lockManager" );
+	}
+
+	private void insertLock( String lockKey, String ownerId, long updated ) {
+		realJdbcTemplate.update( "INSERT INTO test_locks (lock_id, owner_id, created, updated, holds) VALUES (?,?,?,?,?)",
+		                         lockKey, ownerId, updated, updated, ownerId != null ? 1 : 0 );
+	}
+
+	private int ticketCount( String lockKey ) {
+		return realJdbcTemplate.queryForObject( "SELECT count(*) FROM test_locks_queue WHERE lock_id = ?",
+		                                        Integer.class, lockKey );
+	}
+
+	private int readerCount( String lockKey ) {
+		return realJdbcTemplate.queryForObject( "SELECT count(*) FROM test_locks_readers WHERE lock_id = ?",
+		                                        Integer.class, lockKey );
+	}
+
 	private void cleanupTable() {
 		realJdbcTemplate.update( "TRUNCATE TABLE test_locks" );
+		realJdbcTemplate.update( "TRUNCATE TABLE test_locks_queue" );
+		realJdbcTemplate.update( "TRUNCATE TABLE test_locks_readers" );
 	}
 
-	private DistributedLockRepository createRepository() {
+	private SqlBasedDistributedLockRepository createRepository() {
 		return createRepository( "local" );
 	}
 
-	private DistributedLockRepository createRepository( String defaultOwnerName ) {
+	private SqlBasedDistributedLockRepository createRepository( String defaultOwnerName ) {
 		SqlBasedDistributedLockManager lockManager =
 				new SqlBasedDistributedLockManager( spyJdbcTemplate, configuration );
 		lockManagers.add( lockManager );
 
-		return new DistributedLockRepositoryImpl( lockManager,
-		                                          defaultOwnerName );
+		return new SqlBasedDistributedLockRepository( lockManager,
+		                                              defaultOwnerName );
 	}
 
 	@Configuration
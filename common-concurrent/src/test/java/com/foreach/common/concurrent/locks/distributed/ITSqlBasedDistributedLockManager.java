@@ -0,0 +1,119 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import liquibase.integration.spring.SpringLiquibase;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Runs the conformance tests against a {@link SqlBasedDistributedLockManager} in lease mode.
+ */
+public class ITSqlBasedDistributedLockManager extends AbstractDistributedLockManagerConformanceTest
+{
+	private static BasicDataSource dataSource;
+
+	private final Map<DistributedLockManager, DisconnectableDataSource> managerDataSources = new HashMap<>();
+
+	@BeforeAll
+	public static void createSchema() throws Exception {
+		dataSource = new BasicDataSource();
+		dataSource.setDriverClassName( "org.hsqldb.jdbc.JDBCDriver" );
+		dataSource.setUrl( "jdbc:hsqldb:mem:/hsql-mem/distributed-lock-conformance" );
+		dataSource.setUsername( "sa" );
+		dataSource.setPassword( "" );
+
+		SpringLiquibase springLiquibase = new SpringLiquibase();
+		springLiquibase.setDataSource( dataSource );
+		springLiquibase.setResourceLoader( new DefaultResourceLoader() );
+		springLiquibase.setChangeLog( "classpath:TestSchemaDistributedLocking.xml" );
+		springLiquibase.afterPropertiesSet();
+	}
+
+	@AfterEach
+	public void cleanupTable() {
+		new JdbcTemplate( dataSource ).update( "TRUNCATE TABLE test_locks" );
+	}
+
+	@Override
+	protected DistributedLockManager createLockManager() {
+		SqlBasedDistributedLockConfiguration configuration = new SqlBasedDistributedLockConfiguration( "test_locks" );
+		configuration.setVerifyInterval( 100 );
+		configuration.setMaxIdleBeforeSteal( 500 );
+		configuration.setRetryInterval( 50 );
+		configuration.setLeaseMode( true );
+
+		DisconnectableDataSource managerDataSource = new DisconnectableDataSource( dataSource );
+		SqlBasedDistributedLockManager lockManager = new SqlBasedDistributedLockManager( managerDataSource, configuration );
+		managerDataSources.put( lockManager, managerDataSource );
+
+		return lockManager;
+	}
+
+	@Override
+	protected void close( DistributedLockManager lockManager ) {
+		( (SqlBasedDistributedLockManager) lockManager ).close();
+	}
+
+	@Override
+	protected void setDefaultLockStolenCallback( DistributedLockManager lockManager,
+	                                             DistributedLock.LockStolenCallback callback ) {
+		( (SqlBasedDistributedLockManager) lockManager ).setDefaultLockStolenCallback( callback );
+	}
+
+	@Override
+	protected void loseLock( DistributedLockManager lockManager, DistributedLock lock ) {
+		new JdbcTemplate( dataSource ).update( "UPDATE test_locks SET owner_id = 'thief' WHERE lock_id = ?",
+		                                       lock.getKey() );
+	}
+
+	@Override
+	protected void disconnect( DistributedLockManager lockManager ) {
+		managerDataSources.get( lockManager ).connected = false;
+	}
+
+	@Override
+	protected void reconnect( DistributedLockManager lockManager ) {
+		managerDataSources.get( lockManager ).connected = true;
+	}
+
+	private static final class DisconnectableDataSource extends DelegatingDataSource
+	{
+		private volatile boolean connected = true;
+
+		DisconnectableDataSource( DataSource targetDataSource ) {
+			super( targetDataSource );
+		}
+
+		@Override
+		public Connection getConnection() throws SQLException {
+			if ( !connected ) {
+				throw new SQLException( "Database is unreachable" );
+			}
+			return super.getConnection();
+		}
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestClusterSingletonScheduler
+{
+	private final InMemoryDistributedLockCluster cluster = new InMemoryDistributedLockCluster( 50, 300 );
+	private final List<DistributedLeaderElection> elections = new CopyOnWriteArrayList<>();
+	private final List<ExecutorService> executors = new CopyOnWriteArrayList<>();
+
+	private final ClusterSingletonScheduler one = createScheduler( "one" );
+	private final ClusterSingletonScheduler two = createScheduler( "two" );
+
+	@AfterEach
+	public void shutdown() {
+		one.close();
+		two.close();
+		elections.forEach( DistributedLeaderElection::close );
+		executors.forEach( ExecutorService::shutdownNow );
+		cluster.close();
+	}
+
+	@Test
+	public void jobsOnlyRunOnTheLeader() throws Exception {
+		AtomicInteger runsOnOne = new AtomicInteger();
+		AtomicInteger runsOnTwo = new AtomicInteger();
+
+		one.scheduleAtFixedRate( runsOnOne::incrementAndGet, 0, 10, TimeUnit.MILLISECONDS );
+		two.scheduleAtFixedRate( runsOnTwo::incrementAndGet, 0, 10, TimeUnit.MILLISECONDS );
+
+		awaitLeader();
+		runsOnOne.set( 0 );
+		runsOnTwo.set( 0 );
+		Thread.sleep( 200 );
+
+		ClusterSingletonScheduler leader = one.isLeader() ? one : two;
+		ClusterSingletonScheduler follower = one.isLeader() ? two : one;
+
+		assertTrue( ( leader == one ? runsOnOne : runsOnTwo ).get() > 0 );
+		assertEquals( 0, ( follower == one ? runsOnOne : runsOnTwo ).get() );
+		assertTrue( follower.getSkippedRunCount() > 0 );
+	}
+
+	@Test
+	public void jobsMoveToTheNewLeaderWhenTheLeaderStepsDown() throws Exception {
+		AtomicInteger runsOnOne = new AtomicInteger();
+		AtomicInteger runsOnTwo = new AtomicInteger();
+
+		one.scheduleWithFixedDelay( runsOnOne::incrementAndGet, 0, 10, TimeUnit.MILLISECONDS );
+		two.scheduleWithFixedDelay( runsOnTwo::incrementAndGet, 0, 10, TimeUnit.MILLISECONDS );
+
+		awaitLeader();
+		ClusterSingletonScheduler leader = one.isLeader() ? one : two;
+		ClusterSingletonScheduler follower = one.isLeader() ? two : one;
+		AtomicInteger followerRuns = follower == one ? runsOnOne : runsOnTwo;
+
+		leader.getLeaderElection().close();
+
+		long timeout = System.currentTimeMillis() + 5000;
+		while ( followerRuns.get() == 0 && System.currentTimeMillis() < timeout ) {
+			Thread.sleep( 10 );
+		}
+		assertTrue( follower.isLeader() );
+		assertTrue( followerRuns.get() > 0 );
+	}
+
+	@Test
+	public void failingJobKeepsRunning() throws Exception {
+		AtomicInteger runs = new AtomicInteger();
+
+		one.scheduleAtFixedRate( () -> {
+			runs.incrementAndGet();
+			throw new IllegalStateException( "job failed" );
+		}, 0, 10, TimeUnit.MILLISECONDS );
+		two.getLeaderElection().close();
+
+		long timeout = System.currentTimeMillis() + 5000;
+		while ( runs.get() < 3 && System.currentTimeMillis() < timeout ) {
+			Thread.sleep( 10 );
+		}
+		assertTrue( runs.get() >= 3 );
+	}
+
+	@Test
+	public void closingSchedulerWithItsOwnElectionStepsDown() throws Exception {
+		ClusterSingletonScheduler scheduler = new ClusterSingletonScheduler(
+				new DistributedLockRepositoryImpl( cluster.createNode( "standalone" ) ), "standalone" );
+		AtomicInteger runs = new AtomicInteger();
+		scheduler.scheduleWithFixedDelay( runs::incrementAndGet, 0, 10, TimeUnit.MILLISECONDS );
+
+		long timeout = System.currentTimeMillis() + 5000;
+		while ( runs.get() == 0 && System.currentTimeMillis() < timeout ) {
+			Thread.sleep( 10 );
+		}
+		assertTrue( scheduler.isLeader() );
+
+		scheduler.close();
+		assertFalse( scheduler.isLeader() );
+	}
+
+	private ClusterSingletonScheduler createScheduler( String name ) {
+		DistributedLeaderElection election = new DistributedLeaderElection(
+				new DistributedLockRepositoryImpl( cluster.createNode( name ) ), name, "scheduler" );
+		election.setElectionInterval( 20 );
+		election.start();
+		elections.add( election );
+
+		ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+		executors.add( executor );
+
+		return new ClusterSingletonScheduler( election, executor );
+	}
+
+	private void awaitLeader() throws InterruptedException {
+		long timeout = System.currentTimeMillis() + 5000;
+		while ( !one.isLeader() && !two.isLeader() && System.currentTimeMillis() < timeout ) {
+			Thread.sleep( 10 );
+		}
+		assertTrue( one.isLeader() || two.isLeader() );
+	}
+}
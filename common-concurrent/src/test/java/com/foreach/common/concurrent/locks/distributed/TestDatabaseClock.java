@@ -0,0 +1,62 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class TestDatabaseClock
+{
+	private static final long MILLIS = 1_700_000_000_123L;
+
+	@Test
+	public void timeValuesAreConvertedToMillis() {
+		Instant instant = Instant.ofEpochMilli( MILLIS );
+
+		assertEquals( MILLIS, DatabaseClock.toMillis( MILLIS ) );
+		assertEquals( MILLIS, DatabaseClock.toMillis( new Timestamp( MILLIS ) ) );
+		assertEquals( MILLIS, DatabaseClock.toMillis( instant ) );
+		assertEquals( MILLIS, DatabaseClock.toMillis( instant.atOffset( ZoneOffset.ofHours( 2 ) ) ) );
+		assertEquals( MILLIS, DatabaseClock.toMillis( instant.atZone( ZoneId.of( "Europe/Brussels" ) ) ) );
+		assertEquals( MILLIS, DatabaseClock.toMillis( LocalDateTime.ofInstant( instant, ZoneId.systemDefault() ) ) );
+		assertThrows( IllegalArgumentException.class, () -> DatabaseClock.toMillis( "now" ) );
+	}
+
+	@Test
+	public void vendorSpecificTimeValueIsConvertedByTheDriver() throws Exception {
+		ResultSet rs = mock( ResultSet.class );
+		when( rs.getObject( 1 ) ).thenReturn( new Object() );
+		when( rs.getObject( 1, OffsetDateTime.class ) ).thenReturn(
+				Instant.ofEpochMilli( MILLIS ).atOffset( ZoneOffset.UTC ) );
+
+		assertEquals( MILLIS, DatabaseClock.readMillis( rs ) );
+	}
+
+	@Test
+	public void defaultTimeQueryReturnsMillisForDriversWithoutStandardTimestamps() {
+		assertTrue( DatabaseClock.defaultTimeQuery( "Oracle" ).contains( "86400000" ) );
+		assertTrue( DatabaseClock.defaultTimeQuery( "MySQL" ).contains( "UNIX_TIMESTAMP" ) );
+		assertTrue( DatabaseClock.defaultTimeQuery( "MariaDB" ).contains( "UNIX_TIMESTAMP" ) );
+		assertEquals( "VALUES CURRENT_TIMESTAMP", DatabaseClock.defaultTimeQuery( "HSQL Database Engine" ) );
+		assertEquals( "SELECT CURRENT_TIMESTAMP", DatabaseClock.defaultTimeQuery( "H2" ) );
+	}
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class TestDistributedLeaderElection
+{
+	private static final String KEY = "leadership";
+
+	private final InMemoryDistributedLockCluster cluster = new InMemoryDistributedLockCluster( 50, 300 );
+	private final List<DistributedLeaderElection> elections = new CopyOnWriteArrayList<>();
+
+	@AfterEach
+	public void shutdown() {
+		elections.forEach( DistributedLeaderElection::close );
+		cluster.close();
+	}
+
+	@Test
+	public void singleLeaderIsElected() throws Exception {
+		List<String> events = new CopyOnWriteArrayList<>();
+		DistributedLeaderElection one = startElection( "one", events );
+		DistributedLeaderElection two = startElection( "two", events );
+
+		await( () -> one.isLeader() || two.isLeader() );
+		Thread.sleep( 200 );
+
+		assertNotEquals( one.isLeader(), two.isLeader() );
+		assertEquals( 1, events.size() );
+		assertEquals( "elected:" + ( one.isLeader() ? "one" : "two" ), events.get( 0 ) );
+	}
+
+	@Test
+	public void leadershipIsHandedOverWhenTheLeaderCloses() throws Exception {
+		List<String> events = new CopyOnWriteArrayList<>();
+		DistributedLeaderElection one = startElection( "one", events );
+		await( one::isLeader );
+
+		DistributedLeaderElection two = startElection( "two", events );
+		Thread.sleep( 100 );
+		assertFalse( two.isLeader() );
+
+		one.close();
+		assertFalse( one.isLeader() );
+		await( two::isLeader );
+
+		assertEquals( 3, events.size() );
+		assertEquals( "elected:one", events.get( 0 ) );
+		assertEquals( "revoked:one", events.get( 1 ) );
+		assertEquals( "elected:two", events.get( 2 ) );
+	}
+
+	@Test
+	public void closingWhileCampaigningReleasesTheLock() throws Exception {
+		CountDownLatch campaigning = new CountDownLatch( 1 );
+		CountDownLatch closed = new CountDownLatch( 1 );
+
+		// an attempt that is not interrupted by closing the election, like a database statement
+		DistributedLock lock = mock( DistributedLock.class );
+		when( lock.getKey() ).thenReturn( KEY );
+		when( lock.tryLock() ).thenAnswer( invocation -> {
+			campaigning.countDown();
+			while ( closed.getCount() > 0 ) {
+				try {
+					closed.await();
+				}
+				catch ( InterruptedException ignore ) {
+				}
+			}
+			return true;
+		} );
+		DistributedLockRepository lockRepository = mock( DistributedLockRepository.class );
+		when( lockRepository.createSharedLock( anyString(), eq( KEY ) ) ).thenReturn( lock );
+
+		List<String> events = new CopyOnWriteArrayList<>();
+		DistributedLeaderElection election = new DistributedLeaderElection( lockRepository, "one", KEY );
+		election.addListener( new DistributedLeaderElection.LeadershipListener()
+		{
+			@Override
+			public void elected( String leadershipKey ) {
+				events.add( "elected" );
+			}
+
+			@Override
+			public void revoked( String leadershipKey ) {
+				events.add( "revoked" );
+			}
+		} );
+		election.start();
+
+		assertTrue( campaigning.await( 1, TimeUnit.SECONDS ) );
+		election.close();
+		closed.countDown();
+
+		verify( lock, timeout( 1000 ) ).unlock();
+		assertFalse( election.isLeader() );
+		assertTrue( events.isEmpty() );
+	}
+
+	@Test
+	public void leaderStepsDownWhenLockBecomesUnstable() throws Exception {
+		List<String> events = new CopyOnWriteArrayList<>();
+		InMemoryDistributedLockManager partitioned = cluster.createNode( "partitioned" );
+		DistributedLeaderElection one = startElection( partitioned, "one", events );
+		await( one::isLeader );
+
+		DistributedLeaderElection two = startElection( "two", events );
+
+		partitioned.setConnected( false );
+		await( () -> !one.isLeader() );
+		assertTrue( events.contains( "revoked:one" ) );
+
+		// the lock could not be released, so the other node takes over once it can be stolen
+		await( two::isLeader );
+		partitioned.setConnected( true );
+
+		Thread.sleep( 200 );
+		assertFalse( one.isLeader() );
+		assertTrue( two.isLeader() );
+	}
+
+	@Test
+	public void leaderStepsDownWhenLockIsStolen() throws Exception {
+		List<String> events = new CopyOnWriteArrayList<>();
+		DistributedLeaderElection one = startElection( "one", events );
+		await( one::isLeader );
+
+		// another owner forcibly takes the lock
+		DistributedLock thief = new DistributedLockRepositoryImpl( cluster.createNode( "thief" ) )
+				.createSharedLock( "thief", KEY );
+		InMemoryDistributedLockManager node = (InMemoryDistributedLockManager) cluster.getNodes().get( 0 );
+		node.setConnected( false );
+		assertTrue( thief.tryLock( 5, TimeUnit.SECONDS ) );
+		node.setConnected( true );
+
+		await( () -> !one.isLeader() );
+		assertTrue( events.contains( "revoked:one" ) );
+	}
+
+	private DistributedLeaderElection startElection( String name, List<String> events ) {
+		return startElection( cluster.createNode( name ), name, events );
+	}
+
+	private DistributedLeaderElection startElection( DistributedLockManager lockManager,
+	                                                 String name,
+	                                                 List<String> events ) {
+		DistributedLeaderElection election = new DistributedLeaderElection(
+				new DistributedLockRepositoryImpl( lockManager ), name, KEY );
+		election.setElectionInterval( 20 );
+		election.addListener( new DistributedLeaderElection.LeadershipListener()
+		{
+			@Override
+			public void elected( String leadershipKey ) {
+				events.add( "elected:" + name );
+			}
+
+			@Override
+			public void revoked( String leadershipKey ) {
+				events.add( "revoked:" + name );
+			}
+		} );
+		election.start();
+		elections.add( election );
+		return election;
+	}
+
+	private void await( BooleanSupplier condition ) throws InterruptedException {
+		long timeout = System.currentTimeMillis() + 5000;
+		while ( !condition.getAsBoolean() && System.currentTimeMillis() < timeout ) {
+			Thread.sleep( 10 );
+		}
+		assertTrue( condition.getAsBoolean() );
+	}
+}
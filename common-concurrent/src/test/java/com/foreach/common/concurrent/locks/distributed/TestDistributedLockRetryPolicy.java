@@ -0,0 +1,73 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import com.foreach.common.concurrent.locks.distributed.DistributedLockRetryPolicy.FailedAttempt;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestDistributedLockRetryPolicy
+{
+	private static final long MAX_IDLE = 15000;
+
+	@Test
+	public void fixedPolicyAlwaysReturnsTheSameInterval() {
+		DistributedLockRetryPolicy policy = DistributedLockRetryPolicy.fixed( 500 );
+
+		assertEquals( 500, policy.getRetryDelay( attempt( 1, 0 ) ) );
+		assertEquals( 500, policy.getRetryDelay( attempt( 10, 500 ) ) );
+	}
+
+	@Test
+	public void exponentialPolicyDoublesUntilMaxDelay() {
+		DistributedLockRetryPolicy policy = DistributedLockRetryPolicy.exponential( 10, 1000 );
+
+		assertEquals( 10, policy.getRetryDelay( attempt( 1, 0 ) ) );
+		assertEquals( 20, policy.getRetryDelay( attempt( 2, 10 ) ) );
+		assertEquals( 40, policy.getRetryDelay( attempt( 3, 20 ) ) );
+		assertEquals( 1000, policy.getRetryDelay( attempt( 8, 640 ) ) );
+		assertEquals( 1000, policy.getRetryDelay( attempt( 200, 1000 ) ) );
+	}
+
+	@Test
+	public void decorrelatedJitterStaysWithinBounds() {
+		DistributedLockRetryPolicy policy = DistributedLockRetryPolicy.decorrelatedJitter( 10, 300 );
+
+		long previous = 0;
+		for ( int i = 1; i < 100; i++ ) {
+			long delay = policy.getRetryDelay( attempt( i, previous ) );
+			assertTrue( delay >= 10 && delay <= 300, "Delay out of bounds: " + delay );
+			assertTrue( delay <= Math.max( 10, previous ) * 3 );
+			previous = delay;
+		}
+	}
+
+	@Test
+	public void delayIsLimitedToTheMomentTheLockCanBeStolen() {
+		FailedAttempt almostStealable = new FailedAttempt( 1, 0, 20000, MAX_IDLE - 100, MAX_IDLE );
+
+		assertEquals( 101, DistributedLockRetryPolicy.fixed( 500 ).getRetryDelay( almostStealable ) );
+		assertEquals( 101, DistributedLockRetryPolicy.exponential( 200, 1000 ).getRetryDelay( almostStealable ) );
+
+		FailedAttempt activeHolder = new FailedAttempt( 1, 0, 20000, 100, MAX_IDLE );
+		assertEquals( 500, DistributedLockRetryPolicy.fixed( 500 ).getRetryDelay( activeHolder ) );
+	}
+
+	private FailedAttempt attempt( int attempts, long previousDelay ) {
+		return new FailedAttempt( attempts, previousDelay, -1, -1, MAX_IDLE );
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class TestDistributedRateLimiter
+{
+	private final DistributedPermitManager lockManager = mock( DistributedPermitManager.class );
+	private final DistributedRateLimiter rateLimiter = new DistributedRateLimiter( lockManager, "rate", 10, 10 );
+
+	@Test
+	public void localCallersAreNotBlockedByTheLockManager() throws Exception {
+		CountDownLatch inLockManager = new CountDownLatch( 2 );
+		when( lockManager.tryAcquireTokens( eq( "rate" ), anyInt(), anyDouble(), anyInt() ) ).thenAnswer( invocation -> {
+			inLockManager.countDown();
+			assertTrue( inLockManager.await( 1, TimeUnit.SECONDS ) );
+			return 0L;
+		} );
+		rateLimiter.setBatchSize( 4 );
+
+		CompletableFuture<Boolean> first = CompletableFuture.supplyAsync( rateLimiter::tryAcquire );
+		CompletableFuture<Boolean> second = CompletableFuture.supplyAsync( rateLimiter::tryAcquire );
+
+		assertTrue( first.get( 2, TimeUnit.SECONDS ) );
+		assertTrue( second.get( 2, TimeUnit.SECONDS ) );
+		assertEquals( 6, rateLimiter.getLocalPermits() );
+	}
+
+	@Test
+	public void localPermitsAreGivenBackIfNotEnoughCanBeTaken() {
+		when( lockManager.tryAcquireTokens( "rate", 4, 10, 10 ) ).thenReturn( 0L );
+		rateLimiter.setBatchSize( 4 );
+		assertTrue( rateLimiter.tryAcquire() );
+		assertEquals( 3, rateLimiter.getLocalPermits() );
+
+		when( lockManager.tryAcquireTokens( "rate", 4, 10, 10 ) ).thenReturn( 1000L );
+		when( lockManager.tryAcquireTokens( "rate", 2, 10, 10 ) ).thenReturn( 1000L );
+		assertFalse( rateLimiter.tryAcquire( 5 ) );
+		assertEquals( 3, rateLimiter.getLocalPermits() );
+
+		when( lockManager.tryAcquireTokens( "rate", 2, 10, 10 ) ).thenReturn( 0L );
+		assertTrue( rateLimiter.tryAcquire( 5 ) );
+		assertEquals( 0, rateLimiter.getLocalPermits() );
+	}
+}
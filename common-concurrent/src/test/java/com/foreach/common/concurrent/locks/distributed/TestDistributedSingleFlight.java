@@ -0,0 +1,107 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestDistributedSingleFlight
+{
+	private final InMemoryDistributedLockCluster cluster = new InMemoryDistributedLockCluster( 100, 5000 );
+	private final ExecutorService threads = Executors.newFixedThreadPool( 2 );
+	private final CountDownLatch started = new CountDownLatch( 1 );
+	private final CountDownLatch release = new CountDownLatch( 1 );
+
+	private final Map<String, String> sharedStorage = new ConcurrentHashMap<>();
+
+	private final DistributedSingleFlight<String> one = createNode( "one" );
+	private final DistributedSingleFlight<String> two = createNode( "two" );
+
+	@AfterEach
+	public void shutdown() {
+		release.countDown();
+		threads.shutdownNow();
+		cluster.close();
+	}
+
+	@Test
+	public void valueIsComputedOnASingleNode() throws Exception {
+		Future<String> first = threads.submit( () -> one.get( "key", lookup( "key" ), blockingLoader( "key" ) ) );
+		assertTrue( started.await( 1, TimeUnit.SECONDS ) );
+
+		Future<String> second = threads.submit( () -> two.get( "key", lookup( "key" ), () -> {
+			throw new IllegalStateException( "value should not be computed twice" );
+		} ) );
+		Thread.sleep( 100 );
+		assertFalse( second.isDone() );
+
+		release.countDown();
+
+		assertEquals( "computed", first.get( 1, TimeUnit.SECONDS ) );
+		assertEquals( "computed", second.get( 1, TimeUnit.SECONDS ) );
+		assertEquals( 1, one.getLoadCount() );
+		assertEquals( 0, two.getLoadCount() );
+	}
+
+	@Test
+	public void storedValueIsReturnedWithoutLocking() {
+		sharedStorage.put( "key", "stored" );
+
+		assertEquals( "stored", one.get( "key", lookup( "key" ), () -> "computed" ) );
+		assertEquals( 0, one.getLoadCount() );
+	}
+
+	@Test
+	public void waitingForTheLockCanTimeOut() throws Exception {
+		Future<String> first = threads.submit( () -> one.get( "key", lookup( "key" ), blockingLoader( "key" ) ) );
+		assertTrue( started.await( 1, TimeUnit.SECONDS ) );
+
+		assertThrows( TimeoutException.class,
+		              () -> two.get( "key", lookup( "key" ), () -> "other", 100, TimeUnit.MILLISECONDS ) );
+
+		release.countDown();
+		assertEquals( "computed", first.get( 1, TimeUnit.SECONDS ) );
+		assertEquals( "computed", two.get( "key", lookup( "key" ), () -> "other", 1, TimeUnit.SECONDS ) );
+	}
+
+	private DistributedSingleFlight<String> createNode( String name ) {
+		return new DistributedSingleFlight<>( new DistributedLockRepositoryImpl( cluster.createNode( name ) ) );
+	}
+
+	private Supplier<String> lookup( String key ) {
+		return () -> sharedStorage.get( key );
+	}
+
+	private Supplier<String> blockingLoader( String key ) {
+		return () -> {
+			started.countDown();
+			try {
+				release.await();
+			}
+			catch ( InterruptedException ie ) {
+				Thread.currentThread().interrupt();
+			}
+			sharedStorage.put( key, "computed" );
+			return "computed";
+		};
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestFileBasedDistributedLockManager extends AbstractDistributedLockManagerConformanceTest
+{
+	@TempDir
+	Path tempDir;
+
+	private Path lockDirectory() {
+		return tempDir.resolve( "locks" );
+	}
+
+	@Override
+	protected DistributedLockManager createLockManager() {
+		return new FileBasedDistributedLockManager( lockDirectory(), 100 );
+	}
+
+	@Override
+	protected void close( DistributedLockManager lockManager ) {
+		( (FileBasedDistributedLockManager) lockManager ).close();
+	}
+
+	@Override
+	protected void setDefaultLockStolenCallback( DistributedLockManager lockManager,
+	                                             DistributedLock.LockStolenCallback callback ) {
+		( (FileBasedDistributedLockManager) lockManager ).setDefaultLockStolenCallback( callback );
+	}
+
+	@Override
+	protected void loseLock( DistributedLockManager lockManager, DistributedLock lock ) throws Exception {
+		// another process could now create and lock a new file
+		Files.delete( ( (FileBasedDistributedLockManager) lockManager ).getLockFile( lock.getKey() ) );
+	}
+
+	/**
+	 * Replaces the lock directory by a regular file: checking the lock files fails without them being deleted.
+	 */
+	@Override
+	protected void disconnect( DistributedLockManager lockManager ) throws Exception {
+		deleteLockDirectory();
+		Files.createFile( lockDirectory() );
+	}
+
+	@Override
+	protected void reconnect( DistributedLockManager lockManager ) throws Exception {
+		if ( Files.isRegularFile( lockDirectory() ) ) {
+			Files.delete( lockDirectory() );
+			Files.createDirectories( lockDirectory() );
+		}
+	}
+
+	private void deleteLockDirectory() throws Exception {
+		try (Stream<Path> files = Files.list( lockDirectory() )) {
+			for ( Path file : (Iterable<Path>) files::iterator ) {
+				Files.delete( file );
+			}
+		}
+		Files.delete( lockDirectory() );
+	}
+
+	@Test
+	public void lockFileContainsTokenAndOwner() throws Exception {
+		FileBasedDistributedLockManager lockManager = (FileBasedDistributedLockManager) lockManager();
+		DistributedLock lock = new DistributedLockRepositoryImpl( lockManager ).createSharedLock( "owner", "some/key" );
+
+		Path lockFile = lockManager.getLockFile( "some/key" );
+		assertEquals( lockDirectory().toAbsolutePath(), lockFile.getParent() );
+		assertTrue( lockFile.getFileName().toString().matches( "[0-9a-f]{64}\\.lock" ) );
+
+		lock.lock();
+		List<String> content = Files.readAllLines( lockFile, StandardCharsets.UTF_8 );
+		assertEquals( String.valueOf( lock.getFencingToken() ), content.get( 0 ) );
+		assertEquals( "owner", content.get( 1 ) );
+		assertEquals( "some/key", content.get( 2 ) );
+
+		long token = lock.getFencingToken();
+		lock.unlock();
+
+		content = Files.readAllLines( lockFile, StandardCharsets.UTF_8 );
+		assertEquals( String.valueOf( token ), content.get( 0 ) );
+		assertEquals( "", content.get( 1 ) );
+		assertTrue( Files.exists( lockFile ) );
+	}
+
+	@Test
+	public void lockIsExclusiveBetweenProcesses() throws Exception {
+		FileBasedDistributedLockManager lockManager = (FileBasedDistributedLockManager) lockManager();
+		DistributedLock lock = new DistributedLockRepositoryImpl( lockManager ).createSharedLock( "owner", "shared" );
+
+		Process process = new ProcessBuilder(
+				Paths.get( System.getProperty( "java.home" ), "bin", "java" ).toString(),
+				"-cp", System.getProperty( "java.class.path" ),
+				LockHolder.class.getName(), lockDirectory().toString(), "shared"
+		).redirectErrorStream( true ).start();
+
+		try {
+			BufferedReader output = new BufferedReader(
+					new InputStreamReader( process.getInputStream(), StandardCharsets.UTF_8 ) );
+			String line;
+			do {
+				line = output.readLine();
+				assertNotNull( line, "lock holder process ended before acquiring the lock" );
+			}
+			while ( !"locked".equals( line ) );
+
+			assertTrue( lock.isLocked() );
+			assertTrue( lockManager.isLockedByOwner( "other-process", "shared" ) );
+			assertFalse( lock.tryLock() );
+
+			// the operating system releases the lock when the process ends
+			process.destroyForcibly().waitFor();
+			assertTrue( lock.tryLock( 5, TimeUnit.SECONDS ) );
+			lock.unlock();
+		}
+		finally {
+			process.destroyForcibly();
+		}
+	}
+
+	/**
+	 * Holds a lock in a separate process until killed.
+	 */
+	public static class LockHolder
+	{
+		public static void main( String[] args ) throws Exception {
+			FileBasedDistributedLockManager lockManager = new FileBasedDistributedLockManager( Paths.get( args[0] ) );
+			new DistributedLockRepositoryImpl( lockManager ).createSharedLock( "other-process", args[1] ).lock();
+			System.out.println( "locked" );
+			Thread.sleep( Long.MAX_VALUE );
+		}
+	}
+}
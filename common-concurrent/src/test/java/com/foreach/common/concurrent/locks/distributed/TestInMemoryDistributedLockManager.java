@@ -0,0 +1,124 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestInMemoryDistributedLockManager extends AbstractDistributedLockManagerConformanceTest
+{
+	private final InMemoryDistributedLockCluster cluster = new InMemoryDistributedLockCluster( 100, 500 );
+
+	@Override
+	protected DistributedLockManager createLockManager() {
+		return cluster.createNode( "node-" + ( cluster.getNodes().size() + 1 ) );
+	}
+
+	@Override
+	protected void close( DistributedLockManager lockManager ) {
+		( (InMemoryDistributedLockManager) lockManager ).close();
+	}
+
+	@Override
+	protected void setDefaultLockStolenCallback( DistributedLockManager lockManager,
+	                                             DistributedLock.LockStolenCallback callback ) {
+		( (InMemoryDistributedLockManager) lockManager ).setDefaultLockStolenCallback( callback );
+	}
+
+	@Override
+	protected void loseLock( DistributedLockManager lockManager, DistributedLock lock ) throws Exception {
+		// partition the node until another node steals the lock
+		disconnect( lockManager );
+		DistributedLock thief = new DistributedLockRepositoryImpl( lockManager() ).createSharedLock( "thief",
+		                                                                                             lock.getKey() );
+		assertTrue( thief.tryLock( 5, TimeUnit.SECONDS ) );
+		reconnect( lockManager );
+	}
+
+	@Override
+	protected void disconnect( DistributedLockManager lockManager ) {
+		( (InMemoryDistributedLockManager) lockManager ).setConnected( false );
+	}
+
+	@Override
+	protected void reconnect( DistributedLockManager lockManager ) {
+		( (InMemoryDistributedLockManager) lockManager ).setConnected( true );
+	}
+
+	@Test
+	public void disconnectedNodeCannotAcquireLocks() {
+		InMemoryDistributedLockManager node = cluster.createNode( "disconnected" );
+		DistributedLock lock = new DistributedLockRepositoryImpl( node ).createSharedLock( "owner", "key" );
+
+		node.setConnected( false );
+		assertThrows( DistributedLockException.class, lock::tryLock );
+
+		node.setConnected( true );
+		assertTrue( lock.tryLock() );
+		lock.unlock();
+		node.close();
+	}
+
+	@Test
+	public void cancelledAsyncWaiterDoesNotDelayTheNextWaiter() throws Exception {
+		InMemoryDistributedLockManager node = cluster.createNode( "notified" );
+		node.setRetryPolicy( DistributedLockRetryPolicy.fixed( 5000 ) );
+		DistributedLockRepository repository = new DistributedLockRepositoryImpl( node );
+
+		String key = UUID.randomUUID().toString();
+		DistributedLock holder = repository.createSharedLock( "holder", key );
+		DistributedLock async = repository.createSharedLock( "async", key );
+		DistributedLock blocking = repository.createSharedLock( "blocking", key );
+
+		holder.lock();
+		CompletableFuture<DistributedLock> asyncAcquired = async.acquireAsync();
+		CompletableFuture<Boolean> blockingAcquired =
+				CompletableFuture.supplyAsync( () -> blocking.tryLock( 10, TimeUnit.SECONDS ) );
+		Thread.sleep( 100 );
+
+		assertTrue( asyncAcquired.cancel( false ) );
+
+		long start = System.nanoTime();
+		holder.unlock();
+		assertTrue( blockingAcquired.get( 5, TimeUnit.SECONDS ) );
+		assertTrue( System.nanoTime() - start < TimeUnit.SECONDS.toNanos( 1 ) );
+
+		blocking.unlock();
+		node.close();
+	}
+
+	@Test
+	public void latencyIsAddedToEveryAccess() {
+		InMemoryDistributedLockManager node = cluster.createNode( "slow" );
+		node.setLatency( 20, TimeUnit.MILLISECONDS );
+		assertEquals( TimeUnit.MILLISECONDS.toNanos( 20 ), node.getLatencyNanos() );
+
+		DistributedLock lock = new DistributedLockRepositoryImpl( node ).createSharedLock( "owner",
+		                                                                                  UUID.randomUUID().toString() );
+
+		long start = System.nanoTime();
+		assertTrue( lock.tryLock() );
+		assertTrue( System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos( 20 ) );
+
+		lock.unlock();
+		node.close();
+	}
+}
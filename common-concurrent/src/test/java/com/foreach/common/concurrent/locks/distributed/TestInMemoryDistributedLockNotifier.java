@@ -0,0 +1,111 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestInMemoryDistributedLockNotifier
+{
+	private final InMemoryDistributedLockNotifier notifier = new InMemoryDistributedLockNotifier();
+
+	@Test
+	public void releaseWakesUpOnlyTheOldestSubscriber() throws InterruptedException {
+		try (DistributedLockNotifier.Subscription first = notifier.subscribe( "lock" );
+		     DistributedLockNotifier.Subscription second = notifier.subscribe( "lock" );
+		     DistributedLockNotifier.Subscription other = notifier.subscribe( "other-lock" )) {
+			notifier.lockReleased( "lock" );
+
+			assertFalse( second.awaitRelease( 10, TimeUnit.MILLISECONDS ) );
+			assertFalse( other.awaitRelease( 10, TimeUnit.MILLISECONDS ) );
+			assertTrue( first.awaitRelease( 0, TimeUnit.MILLISECONDS ) );
+			assertFalse( first.awaitRelease( 10, TimeUnit.MILLISECONDS ) );
+
+			notifier.lockReleased( "lock" );
+			notifier.lockReleased( "lock" );
+
+			assertTrue( first.awaitRelease( 0, TimeUnit.MILLISECONDS ) );
+			assertTrue( second.awaitRelease( 0, TimeUnit.MILLISECONDS ) );
+		}
+	}
+
+	@Test
+	public void unusedNotificationIsPassedOnWhenClosing() throws InterruptedException {
+		DistributedLockNotifier.Subscription closing = notifier.subscribe( "lock" );
+
+		try (DistributedLockNotifier.Subscription waiting = notifier.subscribe( "lock" )) {
+			notifier.lockReleased( "lock" );
+			closing.close();
+
+			assertTrue( waiting.awaitRelease( 0, TimeUnit.MILLISECONDS ) );
+		}
+	}
+
+	@Test
+	public void releaseCallbackIsExecutedInsteadOfWakingUpTheSubscriber() throws InterruptedException {
+		AtomicInteger callbacks = new AtomicInteger();
+
+		try (DistributedLockNotifier.Subscription first = notifier.subscribe( "lock" );
+		     DistributedLockNotifier.Subscription second = notifier.subscribe( "lock" )) {
+			notifier.lockReleased( "lock" );
+			first.onRelease( callbacks::incrementAndGet );
+			assertEquals( 1, callbacks.get() );
+			assertTrue( first.awaitRelease( 0, TimeUnit.MILLISECONDS ) );
+
+			notifier.lockReleased( "lock" );
+			assertEquals( 2, callbacks.get() );
+			assertFalse( second.awaitRelease( 10, TimeUnit.MILLISECONDS ) );
+			assertTrue( first.awaitRelease( 0, TimeUnit.MILLISECONDS ) );
+			assertFalse( first.awaitRelease( 0, TimeUnit.MILLISECONDS ) );
+		}
+	}
+
+	@Test
+	public void callbackSubscriberPassesOnTheNotificationItDidNotConsume() throws InterruptedException {
+		AtomicInteger callbacks = new AtomicInteger();
+		DistributedLockNotifier.Subscription async = notifier.subscribe( "lock" );
+		async.onRelease( callbacks::incrementAndGet );
+
+		try (DistributedLockNotifier.Subscription blocking = notifier.subscribe( "lock" )) {
+			notifier.lockReleased( "lock" );
+			assertEquals( 1, callbacks.get() );
+
+			// the callback subscriber has not used its notification, the next one goes to the blocking subscriber
+			notifier.lockReleased( "lock" );
+			assertEquals( 1, callbacks.get() );
+			assertTrue( blocking.awaitRelease( 0, TimeUnit.MILLISECONDS ) );
+
+			// the callback subscriber stops waiting, for example because it was cancelled
+			async.close();
+			assertTrue( blocking.awaitRelease( 0, TimeUnit.MILLISECONDS ) );
+		}
+	}
+
+	@Test
+	public void waitingSubscriberIsWokenUp() throws InterruptedException {
+		try (DistributedLockNotifier.Subscription subscription = notifier.subscribe( "lock" )) {
+			Thread releasing = new Thread( () -> notifier.lockReleased( "lock" ) );
+			releasing.start();
+
+			assertTrue( subscription.awaitRelease( 5, TimeUnit.SECONDS ) );
+			releasing.join();
+		}
+	}
+}
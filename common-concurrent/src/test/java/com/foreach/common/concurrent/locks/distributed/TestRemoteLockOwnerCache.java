@@ -0,0 +1,56 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestRemoteLockOwnerCache
+{
+	@Test
+	public void fullCacheIsEvictedInBatches() {
+		RemoteLockOwnerCache cache = new RemoteLockOwnerCache( 60000, 100 );
+		for ( int i = 0; i < 100; i++ ) {
+			cache.put( "lock-" + i, "owner" );
+		}
+		assertEquals( 100, cache.size() );
+
+		cache.put( "lock-100", "owner" );
+		assertEquals( 76, cache.size() );
+		assertEquals( "owner", cache.getOwner( "lock-100" ) );
+
+		// no eviction until the cache is full again
+		for ( int i = 101; i < 125; i++ ) {
+			cache.put( "lock-" + i, "owner" );
+		}
+		assertEquals( 100, cache.size() );
+	}
+
+	@Test
+	public void overwritingAnEntryDoesNotEvict() {
+		RemoteLockOwnerCache cache = new RemoteLockOwnerCache( 60000, 4 );
+		for ( int i = 0; i < 4; i++ ) {
+			cache.put( "lock-" + i, "owner" );
+		}
+
+		cache.put( "lock-2", "other-owner" );
+
+		assertEquals( 4, cache.size() );
+		assertEquals( "other-owner", cache.getOwner( "lock-2" ) );
+		assertEquals( "owner", cache.getOwner( "lock-0" ) );
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import org.junit.jupiter.api.Test;
+
+import static com.foreach.common.concurrent.locks.distributed.SqlBasedDistributedLockCleanup.cleanupStatement;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TestSqlBasedDistributedLockCleanup
+{
+	@Test
+	public void cleanupStatementDependsOnDatabaseProduct() {
+		assertEquals( "DELETE FROM locks WHERE owner_id IS NULL AND updated < ? LIMIT 500",
+		              cleanupStatement( "MySQL", "locks", 500 ) );
+		assertEquals( "DELETE FROM locks WHERE owner_id IS NULL AND updated < ? LIMIT 500",
+		              cleanupStatement( "MariaDB", "locks", 500 ) );
+		assertEquals( "DELETE FROM locks WHERE owner_id IS NULL AND updated < ? LIMIT 500",
+		              cleanupStatement( "HSQL Database Engine", "locks", 500 ) );
+		assertEquals( "DELETE FROM locks WHERE owner_id IS NULL AND updated < ? LIMIT 500",
+		              cleanupStatement( "H2", "locks", 500 ) );
+		assertEquals( "DELETE TOP (500) FROM locks WITH (READPAST) WHERE owner_id IS NULL AND updated < ?",
+		              cleanupStatement( "Microsoft SQL Server", "locks", 500 ) );
+		assertEquals( "DELETE FROM locks WHERE owner_id IS NULL AND updated < ? AND ROWNUM <= 500",
+		              cleanupStatement( "Oracle", "locks", 500 ) );
+		assertEquals( "DELETE FROM locks WHERE owner_id IS NULL AND lock_id IN (SELECT lock_id FROM locks " +
+				              "WHERE owner_id IS NULL AND updated < ? LIMIT 500 FOR UPDATE SKIP LOCKED)",
+		              cleanupStatement( "PostgreSQL", "locks", 500 ) );
+		assertEquals( "DELETE FROM locks WHERE owner_id IS NULL AND updated < ?",
+		              cleanupStatement( "Apache Derby", "locks", 500 ) );
+	}
+}
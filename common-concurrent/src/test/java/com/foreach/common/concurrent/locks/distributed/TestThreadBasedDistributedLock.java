@@ -0,0 +1,111 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.concurrent.locks.distributed;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class TestThreadBasedDistributedLock
+{
+	private final DistributedLockManager lockManager = mock( DistributedLockManager.class );
+
+	@Test
+	public void ownerIdIsStablePerThreadAndUniqueAcrossThreads() throws Exception {
+		ThreadBasedDistributedLock lock = new ThreadBasedDistributedLock( lockManager, "owner", "key" );
+		ThreadBasedDistributedLock otherLock = new ThreadBasedDistributedLock( lockManager, "owner", "other-key" );
+
+		String ownerId = lock.getOwnerId();
+		assertTrue( ownerId.startsWith( "owner[" ) );
+		assertEquals( ownerId, lock.getOwnerId() );
+		assertEquals( ownerId, otherLock.getOwnerId() );
+
+		ExecutorService executorService = Executors.newSingleThreadExecutor();
+		try {
+			String otherThreadOwnerId = executorService.submit( lock::getOwnerId ).get();
+			assertNotEquals( ownerId, otherThreadOwnerId );
+			assertEquals( otherThreadOwnerId, executorService.submit( otherLock::getOwnerId ).get() );
+		}
+		finally {
+			executorService.shutdown();
+		}
+
+		// short-lived threads never share an owner id, even if the thread id would be reused
+		assertNotEquals( ownerId, runOn( lock ) );
+		assertNotEquals( runOn( lock ), runOn( lock ) );
+	}
+
+	@Test
+	public void ownerIdsAreNotReusedByAnotherSequence() {
+		// a restarted JVM starts a new sequence, it should never produce the ids of the previous one
+		ThreadBasedDistributedLock.OwnerSequence crashed = new ThreadBasedDistributedLock.OwnerSequence();
+		ThreadBasedDistributedLock.OwnerSequence restarted = new ThreadBasedDistributedLock.OwnerSequence();
+
+		Set<String> ownerIds = new HashSet<>();
+		for ( int i = 0; i < 100; i++ ) {
+			assertTrue( ownerIds.add( crashed.next() ) );
+		}
+		for ( int i = 0; i < 100; i++ ) {
+			assertTrue( ownerIds.add( restarted.next() ) );
+		}
+	}
+
+	@Test
+	public void acquireAsyncUsesTheOwnerOfTheCallingThread() {
+		ThreadBasedDistributedLock lock = new ThreadBasedDistributedLock( lockManager, "owner", "key" );
+		DistributedLock.LockStolenCallback stolenCallback = ( lockId, ownerId, stolenLock ) -> {
+		};
+		lock.setStolenCallback( stolenCallback );
+
+		when( lockManager.acquireAsync( any() ) ).then(
+				invocation -> CompletableFuture.completedFuture( invocation.getArgument( 0 ) ) );
+
+		DistributedLock acquired = lock.acquireAsync().join();
+
+		assertTrue( acquired instanceof SharedDistributedLock );
+		assertEquals( lock.getOwnerId(), acquired.getOwnerId() );
+		assertEquals( "key", acquired.getKey() );
+		assertSame( stolenCallback, acquired.getStolenCallback() );
+
+		SharedDistributedLock sharedLock = new SharedDistributedLock( lockManager, "shared", "key" );
+		assertSame( sharedLock, sharedLock.acquireAsync().join() );
+	}
+
+	@Test
+	public void managerWithoutAsyncOrFencingSupportRejectsThem() {
+		// only implements the methods that existed before acquireAsync and fencing tokens were added
+		DistributedLockManager legacyManager = mock( DistributedLockManager.class, CALLS_REAL_METHODS );
+		ThreadBasedDistributedLock lock = new ThreadBasedDistributedLock( legacyManager, "owner", "key" );
+
+		assertThrows( UnsupportedOperationException.class, lock::acquireAsync );
+		assertThrows( UnsupportedOperationException.class, lock::getFencingToken );
+	}
+
+	private String runOn( DistributedLock lock ) throws InterruptedException {
+		String[] ownerId = new String[1];
+		Thread thread = new Thread( () -> ownerId[0] = lock.getOwnerId() );
+		thread.start();
+		thread.join();
+		return ownerId[0];
+	}
+}
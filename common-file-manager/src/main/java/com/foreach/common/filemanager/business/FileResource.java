@@ -103,6 +103,9 @@ public interface FileResource extends WritableResource, FileRepositoryResource
 	/**
 	 * Copy the file data from another file resource into this resource.
 	 * Optionally deletes the original file resource when done (useful for temporary files).
+	 * <p/>
+	 * The default implementation streams the data through the application.  Implementations can copy
+	 * or move the file within the backend instead, if the original resource is stored in the same backend.
 	 *
 	 * @param originalFileResource whose data to copy
 	 * @param deleteOriginal       true if the original file resources should be deleted when copy is done
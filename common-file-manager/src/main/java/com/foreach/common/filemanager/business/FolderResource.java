@@ -23,6 +23,7 @@ import java.util.Collection;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Represents a single {@link FileRepository} folder,
@@ -170,11 +171,9 @@ public interface FolderResource extends FileRepositoryResource
 	 * @return resources
 	 */
 	default <U extends FileRepositoryResource> Collection<U> findResources( @NonNull String pattern, Class<U> resourceType ) {
-		return findResources( pattern )
-				.stream()
-				.filter( resourceType::isInstance )
-				.map( resourceType::cast )
-				.collect( Collectors.toList() );
+		try (Stream<U> resources = streamResources( pattern, resourceType )) {
+			return resources.collect( Collectors.toList() );
+		}
 	}
 
 	/**
@@ -185,6 +184,36 @@ public interface FolderResource extends FileRepositoryResource
 	 */
 	Collection<FileRepositoryResource> findResources( @NonNull String pattern );
 
+	/**
+	 * Stream all resources matching the given ANT pattern.
+	 * Unlike {@link #findResources(String)}, implementations can fetch the resources on demand,
+	 * so terminating the stream early (for example using {@code findFirst()} or {@code limit()})
+	 * also stops the search. Because the stream might hold on to underlying resources,
+	 * it should be closed if it is not fully consumed.
+	 * <p/>
+	 * The default implementation streams the result of {@link #findResources(String)}.
+	 *
+	 * @param pattern to match
+	 * @return stream of resources
+	 */
+	default Stream<FileRepositoryResource> streamResources( @NonNull String pattern ) {
+		return findResources( pattern ).stream();
+	}
+
+	/**
+	 * Stream all resources of a given type matching the given ANT pattern.
+	 * Equivalent of {@link #streamResources(String)} with a type filter.
+	 *
+	 * @param pattern      to match
+	 * @param resourceType type of resources to return
+	 * @return stream of resources
+	 */
+	default <U extends FileRepositoryResource> Stream<U> streamResources( @NonNull String pattern, Class<U> resourceType ) {
+		return streamResources( pattern )
+				.filter( resourceType::isInstance )
+				.map( resourceType::cast );
+	}
+
 	/**
 	 * Delete this folder. The parameter value indicates if non-empty folders should be
 	 * deleted after first deleting all children ({@code true}) or if the folder should
@@ -29,6 +29,7 @@ import java.net.URI;
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Base class for a file repository which tracks its file resources and expires them
@@ -330,6 +331,11 @@ public abstract class AbstractExpiringFileRepository<T extends ExpiringFileResou
 			return wrap( target.findResources( pattern ) );
 		}
 
+		@Override
+		public Stream<FileRepositoryResource> streamResources( String pattern ) {
+			return target.streamResources( pattern ).map( this::wrap );
+		}
+
 		@Override
 		public boolean delete( boolean deleteChildren ) {
 			if ( deleteChildren ) {
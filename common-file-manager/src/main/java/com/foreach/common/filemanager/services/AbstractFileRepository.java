@@ -55,6 +55,14 @@ public abstract class AbstractFileRepository implements FileRepository, FileMana
 	@Setter
 	private FileManager fileManager;
 
+	/**
+	 * Set the {@link FileResourceMetadataCache} that should be used for the metadata of the file resources.
+	 * Only used by repositories storing their files remotely, if not set every file resource retrieves its own metadata.
+	 * Resources that have already been created keep using the cache that was set at that time.
+	 */
+	@Setter
+	private FileResourceMetadataCache metadataCache;
+
 	@Override
 	public FileResource createFileResource( boolean allocateImmediately ) {
 		FileDescriptor descriptor = generateFileDescriptor();
@@ -149,8 +157,8 @@ public abstract class AbstractFileRepository implements FileRepository, FileMana
 		FileResource sourceResource = getFileResource( source );
 
 		try {
-			targetResource.copyFrom( sourceResource );
-			return sourceResource.delete();
+			targetResource.copyFrom( sourceResource, true );
+			return !sourceResource.exists();
 		}
 		catch ( IOException ioe ) {
 			throw new FileStorageException( ioe );
@@ -228,6 +236,13 @@ public abstract class AbstractFileRepository implements FileRepository, FileMana
 		}
 	}
 
+	/**
+	 * @return the metadata cache that resources should use, never {@code null}
+	 */
+	protected FileResourceMetadataCache getMetadataCache() {
+		return metadataCache != null ? metadataCache : FileResourceMetadataCache.NONE;
+	}
+
 	private File createTempFile() throws IOException {
 		return fileManager != null ? fileManager.createTempFile() : File.createTempFile( UUID.randomUUID().toString(), "" );
 	}
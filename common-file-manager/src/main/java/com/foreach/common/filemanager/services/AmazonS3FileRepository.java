@@ -32,6 +32,15 @@ import java.nio.file.Paths;
 /**
  * FileRepository which stores its files in an Amazon S3 bucket.
  * Optionally takes a {@link PathGenerator} for generating a folder structure when uploading a non-named file.
+ * <p/>
+ * When searching for resources, the sub-folders matching a pattern are listed concurrently on the
+ * {@link TaskExecutor}, with at most {@code listingFanOut} listings running at the same time.  With the
+ * default {@link SyncTaskExecutor} all listings are done in the calling thread, one after another.
+ * <p/>
+ * Files larger than {@code multipartPartSize} are uploaded using a multipart upload and downloaded by
+ * {@link FileResource#copyTo(java.io.File)} using ranged requests, with at most {@code multipartParallelism}
+ * parts being transferred at the same time on the same {@link TaskExecutor}.  The part size must be at least
+ * 5 MB, and every upload stream buffers a single part in memory.
  *
  * @author Sander Van Loock, Arne Vandamme
  * @since 1.4.0
@@ -39,32 +48,64 @@ import java.nio.file.Paths;
 @Slf4j
 public class AmazonS3FileRepository extends AbstractFileRepository
 {
+	/**
+	 * Default maximum number of folder listings that run at the same time during a search.
+	 */
+	public static final int DEFAULT_LISTING_FAN_OUT = 8;
+
+	/**
+	 * Default size in bytes of a single part when uploading or downloading a large file.
+	 */
+	public static final int DEFAULT_MULTIPART_PART_SIZE = 8 * 1024 * 1024;
+
+	/**
+	 * Default maximum number of parts of a single file that are transferred at the same time.
+	 */
+	public static final int DEFAULT_MULTIPART_PARALLELISM = 4;
+
 	private final String bucketName;
 	private final AmazonS3 amazonS3Client;
 	private final TaskExecutor taskExecutor;
+	private final int listingFanOut;
+	private final AmazonS3MultipartTransfer multipartTransfer;
 
 	@Builder
 	AmazonS3FileRepository( @NonNull String repositoryId,
 	                        @NonNull AmazonS3 amazonS3,
 	                        @NonNull String bucketName,
 	                        PathGenerator pathGenerator,
-	                        TaskExecutor taskExecutor ) {
+	                        TaskExecutor taskExecutor,
+	                        Integer listingFanOut,
+	                        Integer multipartPartSize,
+	                        Integer multipartParallelism ) {
 		super( repositoryId );
 		setPathGenerator( pathGenerator );
 		this.amazonS3Client = amazonS3;
 		this.bucketName = bucketName;
 		this.taskExecutor = taskExecutor != null ? taskExecutor : new SyncTaskExecutor();
+		this.listingFanOut = listingFanOut != null ? listingFanOut : DEFAULT_LISTING_FAN_OUT;
+
+		if ( this.listingFanOut < 1 ) {
+			throw new IllegalArgumentException( "listingFanOut must be at least 1" );
+		}
+
+		this.multipartTransfer = new AmazonS3MultipartTransfer(
+				amazonS3, this.taskExecutor,
+				multipartPartSize != null ? multipartPartSize : DEFAULT_MULTIPART_PART_SIZE,
+				multipartParallelism != null ? multipartParallelism : DEFAULT_MULTIPART_PARALLELISM
+		);
 	}
 
 	@Override
 	protected FileResource buildFileResource( FileDescriptor descriptor ) {
-		return new AmazonS3FileResource( descriptor, amazonS3Client, bucketName, createObjectName( descriptor ), taskExecutor );
+		return new AmazonS3FileResource( descriptor, amazonS3Client, bucketName, createObjectName( descriptor ), taskExecutor, listingFanOut, getMetadataCache(),
+		                                 multipartTransfer );
 	}
 
 	@Override
 	protected FolderResource buildFolderResource( FolderDescriptor descriptor ) {
 		String objectName = descriptor.getFolderId() != null ? descriptor.getFolderId() + "/" : "";
-		return new AmazonS3FolderResource( descriptor, amazonS3Client, bucketName, objectName, taskExecutor );
+		return new AmazonS3FolderResource( descriptor, amazonS3Client, bucketName, objectName, taskExecutor, listingFanOut, getMetadataCache(), multipartTransfer );
 	}
 
 	private String createObjectName( FileDescriptor descriptor ) {
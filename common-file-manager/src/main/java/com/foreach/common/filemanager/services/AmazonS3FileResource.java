@@ -17,11 +17,11 @@ package com.foreach.common.filemanager.services;
 
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.AmazonS3Exception;
-import com.amazonaws.services.s3.model.GetObjectRequest;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
 import com.foreach.common.filemanager.business.FileDescriptor;
 import com.foreach.common.filemanager.business.FileResource;
+import com.foreach.common.filemanager.business.FileStorageException;
 import com.foreach.common.filemanager.business.FolderResource;
 import lombok.Getter;
 import lombok.NonNull;
@@ -63,25 +63,35 @@ class AmazonS3FileResource extends SimpleStorageResource implements FileResource
 	private final String bucketName;
 	private final String objectName;
 	private final TaskExecutor taskExecutor;
+	private final int listingFanOut;
+	private final FileResourceMetadataCache metadataCache;
+	private final AmazonS3MultipartTransfer multipartTransfer;
 
 	AmazonS3FileResource( @NonNull FileDescriptor fileDescriptor,
 	                      @NonNull AmazonS3 amazonS3,
 	                      @NonNull String bucketName,
 	                      @NonNull String objectName,
-	                      @NonNull TaskExecutor taskExecutor ) {
+	                      @NonNull TaskExecutor taskExecutor,
+	                      int listingFanOut,
+	                      @NonNull FileResourceMetadataCache metadataCache,
+	                      @NonNull AmazonS3MultipartTransfer multipartTransfer ) {
 		super( amazonS3, bucketName, objectName, taskExecutor );
 		this.descriptor = fileDescriptor;
 		this.amazonS3 = amazonS3;
 		this.bucketName = bucketName;
 		this.objectName = objectName;
 		this.taskExecutor = taskExecutor;
+		this.listingFanOut = listingFanOut;
+		this.metadataCache = metadataCache;
+		this.multipartTransfer = multipartTransfer;
 	}
 
 	@Override
 	public FolderResource getFolderResource() {
 		int ix = objectName.lastIndexOf( '/' );
 		String folderObjectName = ix > 0 ? objectName.substring( 0, ix + 1 ) : "";
-		return new AmazonS3FolderResource( descriptor.getFolderDescriptor(), amazonS3, bucketName, folderObjectName, taskExecutor );
+		return new AmazonS3FolderResource( descriptor.getFolderDescriptor(), amazonS3, bucketName, folderObjectName, taskExecutor, listingFanOut,
+		                                   metadataCache, multipartTransfer );
 	}
 
 	@Override
@@ -104,24 +114,19 @@ class AmazonS3FileResource extends SimpleStorageResource implements FileResource
 		return "axfs [" + descriptor.toString() + "] -> " + super.getDescription();
 	}
 
+	@Override
+	public boolean exists() {
+		return getMetadata().exists();
+	}
+
 	@Override
 	public long contentLength() throws IOException {
-		try {
-			return super.contentLength();
-		}
-		catch ( FileNotFoundException fnfe ) {
-			throw fileNotFound( descriptor, fnfe );
-		}
+		return getRequiredMetadata().getContentLength();
 	}
 
 	@Override
 	public long lastModified() throws IOException {
-		try {
-			return super.lastModified();
-		}
-		catch ( FileNotFoundException fnfe ) {
-			throw fileNotFound( descriptor, fnfe );
-		}
+		return getRequiredMetadata().getLastModified();
 	}
 
 	@Override
@@ -135,7 +140,58 @@ class AmazonS3FileResource extends SimpleStorageResource implements FileResource
 	public OutputStream getOutputStream() throws IOException {
 		// reset metadata - assume data will actually be written to the underlying resource
 		resetObjectMetadata();
-		return super.getOutputStream();
+		return metadataCache.evictOnClose( descriptor, multipartTransfer.openOutputStream( bucketName, objectName ) );
+	}
+
+	@Override
+	public void copyFrom( @NonNull File originalFile, boolean deleteOriginal ) throws IOException {
+		resetObjectMetadata();
+		try {
+			multipartTransfer.upload( bucketName, objectName, originalFile );
+		}
+		finally {
+			metadataCache.evict( descriptor );
+		}
+
+		if ( deleteOriginal ) {
+			FileUtils.deleteQuietly( originalFile );
+		}
+	}
+
+	/**
+	 * Copies the object within S3 if the original resource uses the same {@link AmazonS3} client,
+	 * without transferring the data through the application.
+	 */
+	@Override
+	public void copyFrom( @NonNull FileResource originalFileResource, boolean deleteOriginal ) throws IOException {
+		if ( !( originalFileResource instanceof AmazonS3FileResource ) || ( (AmazonS3FileResource) originalFileResource ).amazonS3 != amazonS3 ) {
+			FileResource.super.copyFrom( originalFileResource, deleteOriginal );
+			return;
+		}
+
+		AmazonS3FileResource original = (AmazonS3FileResource) originalFileResource;
+
+		if ( original.bucketName.equals( bucketName ) && original.objectName.equals( objectName ) ) {
+			return;
+		}
+
+		resetObjectMetadata();
+		try {
+			multipartTransfer.copy( original.bucketName, original.objectName, bucketName, objectName );
+		}
+		catch ( AmazonS3Exception s3e ) {
+			if ( s3e.getStatusCode() == 404 ) {
+				throw fileNotFound( original.descriptor, s3e );
+			}
+			throw s3e;
+		}
+		finally {
+			metadataCache.evict( descriptor );
+		}
+
+		if ( deleteOriginal ) {
+			original.delete();
+		}
 	}
 
 	@Override
@@ -147,6 +203,7 @@ class AmazonS3FileResource extends SimpleStorageResource implements FileResource
 		if ( metadataField != null ) {
 			ReflectionUtils.setField( metadataField, this, null );
 		}
+		metadataCache.evict( descriptor );
 	}
 
 	void loadMetadata( S3ObjectSummary summary ) {
@@ -156,6 +213,33 @@ class AmazonS3FileResource extends SimpleStorageResource implements FileResource
 			metadata.setLastModified( summary.getLastModified() );
 			ReflectionUtils.setField( metadataField, this, metadata );
 		}
+		if ( summary.getLastModified() != null ) {
+			metadataCache.put( descriptor, FileResourceMetadata.of( summary.getSize(), summary.getLastModified().getTime() ) );
+		}
+	}
+
+	private FileResourceMetadata getRequiredMetadata() throws FileNotFoundException {
+		FileResourceMetadata metadata = getMetadata();
+		if ( !metadata.exists() ) {
+			throw fileNotFound( descriptor, null );
+		}
+		return metadata;
+	}
+
+	private FileResourceMetadata getMetadata() {
+		return metadataCache.get( descriptor, this::fetchMetadata );
+	}
+
+	private FileResourceMetadata fetchMetadata() {
+		try {
+			return super.exists() ? FileResourceMetadata.of( super.contentLength(), super.lastModified() ) : FileResourceMetadata.NOT_FOUND;
+		}
+		catch ( FileNotFoundException fnfe ) {
+			return FileResourceMetadata.NOT_FOUND;
+		}
+		catch ( IOException ioe ) {
+			throw new FileStorageException( ioe );
+		}
 	}
 
 	@Override
@@ -167,7 +251,7 @@ class AmazonS3FileResource extends SimpleStorageResource implements FileResource
 	public void copyTo( File file ) throws IOException {
 		try {
 			FileUtils.forceMkdirParent( file );
-			amazonS3.getObject( new GetObjectRequest( bucketName, objectName ), file );
+			multipartTransfer.download( bucketName, objectName, file );
 		}
 		catch ( AmazonS3Exception s3e ) {
 			if ( s3e.getStatusCode() == 404 ) {
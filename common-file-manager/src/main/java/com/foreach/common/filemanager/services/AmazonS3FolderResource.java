@@ -22,6 +22,7 @@ import lombok.Getter;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.core.task.SyncTaskExecutor;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.util.AntPathMatcher;
 
@@ -30,7 +31,14 @@ import java.io.InputStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Represents a folder resource on Amazon S3 storage.
@@ -58,11 +66,15 @@ class AmazonS3FolderResource implements FolderResource
 	private final String bucketName;
 	private final String objectName;
 	private final TaskExecutor taskExecutor;
+	private final int listingFanOut;
+	private final FileResourceMetadataCache metadataCache;
+	private final AmazonS3MultipartTransfer multipartTransfer;
 
 	@Override
 	public Optional<FolderResource> getParentFolderResource() {
 		return descriptor.getParentFolderDescriptor()
-		                 .map( fd -> new AmazonS3FolderResource( fd, amazonS3, bucketName, extractParentObjectName(), taskExecutor ) );
+		                 .map( fd -> new AmazonS3FolderResource( fd, amazonS3, bucketName, extractParentObjectName(), taskExecutor, listingFanOut, metadataCache,
+		                                                         multipartTransfer ) );
 	}
 
 	private String extractParentObjectName() {
@@ -80,13 +92,13 @@ class AmazonS3FolderResource implements FolderResource
 			FolderDescriptor folderDescriptor = descriptor.createFolderDescriptor( relativePath );
 			String childPath = stripCurrentFolderId( folderDescriptor.getFolderId() );
 			String childObjectName = Paths.get( objectName, childPath ).toString() + "/";
-			return new AmazonS3FolderResource( folderDescriptor, amazonS3, bucketName, childObjectName, taskExecutor );
+			return new AmazonS3FolderResource( folderDescriptor, amazonS3, bucketName, childObjectName, taskExecutor, listingFanOut, metadataCache, multipartTransfer );
 		}
 
 		FileDescriptor fileDescriptor = descriptor.createFileDescriptor( relativePath );
 		String childPath = stripCurrentFolderId( fileDescriptor.getFolderId() );
 		String childObjectName = Paths.get( this.objectName, childPath, fileDescriptor.getFileId() ).toString();
-		return new AmazonS3FileResource( fileDescriptor, amazonS3, bucketName, childObjectName, taskExecutor );
+		return new AmazonS3FileResource( fileDescriptor, amazonS3, bucketName, childObjectName, taskExecutor, listingFanOut, metadataCache, multipartTransfer );
 	}
 
 	private String stripCurrentFolderId( String folderId ) {
@@ -95,8 +107,16 @@ class AmazonS3FolderResource implements FolderResource
 
 	@Override
 	public Collection<FileRepositoryResource> findResources( String pattern ) {
+		return streamResources( pattern ).collect( Collectors.toList() );
+	}
+
+	/**
+	 * Lists the matching objects one page at a time: the next page is only requested once all
+	 * resources of the previous page have been consumed.
+	 */
+	@Override
+	public Stream<FileRepositoryResource> streamResources( @NonNull String pattern ) {
 		if ( exists() ) {
-			Set<FileRepositoryResource> resources = new LinkedHashSet<>();
 			AntPathMatcher pathMatcher = new AntPathMatcher( "/" );
 			String p = StringUtils.startsWith( pattern, "/" ) ? pattern.substring( 1 ) : pattern;
 			boolean matchOnlyDirectories = StringUtils.endsWith( p, "/" );
@@ -112,56 +132,16 @@ class AmazonS3FolderResource implements FolderResource
 				return false;
 			};
 
-			findResourcesWithMatchingKeys( keyMatcher, resources, objectName + getValidPrefix( p ), objectName + p );
-
-			return resources;
-		}
-
-		return Collections.emptyList();
-	}
-
-	private void findResourcesWithMatchingKeys( BiPredicate<String, String> keyMatcher,
-	                                            Set<FileRepositoryResource> resources,
-	                                            String prefix,
-	                                            String keyPattern ) {
-		String remainingPatternPart = getRemainingPatternPart( keyPattern, prefix );
-		if ( remainingPatternPart != null && remainingPatternPart.startsWith( "**" ) ) {
-			findAllResourcesThatMatches( keyMatcher, resources, prefix, keyPattern );
-		}
-		else {
-			findProgressivelyWithPartialMatch( keyMatcher, resources, prefix, keyPattern );
+			MatchingResourcesIterator iterator = new MatchingResourcesIterator( keyMatcher, objectName + p, objectName + getValidPrefix( p ) );
+			return StreamSupport.stream( Spliterators.spliteratorUnknownSize( iterator, Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL ),
+			                             false );
 		}
-	}
-
-	private void findAllResourcesThatMatches( BiPredicate<String, String> keyMatcher,
-	                                          Set<FileRepositoryResource> resources,
-	                                          String prefix,
-	                                          String keyPattern ) {
-		ListObjectsRequest listObjectsRequest = new ListObjectsRequest().withBucketName( bucketName ).withPrefix( prefix );
-		ObjectListing objectListing = null;
 
-		do {
-			try {
-				if ( objectListing == null ) {
-					objectListing = this.amazonS3.listObjects( listObjectsRequest );
-				}
-				else {
-					objectListing = this.amazonS3.listNextBatchOfObjects( objectListing );
-				}
-				addResourcesFromObjectSummaries( keyMatcher, keyPattern, objectListing.getObjectSummaries(), resources );
-				extractFolderResources( keyMatcher, keyPattern, prefix, objectListing, resources );
-			}
-			catch ( AmazonS3Exception e ) {
-				if ( 301 != e.getStatusCode() ) {
-					throw e;
-				}
-			}
-		}
-		while ( objectListing != null && objectListing.isTruncated() );
+		return Stream.empty();
 	}
 
 	private void extractFolderResources( BiPredicate<String, String> keyMatcher,
-	                                     String keyPattern, String prefix, ObjectListing objectListing, Set<FileRepositoryResource> resources ) {
+	                                     String keyPattern, String prefix, ObjectListing objectListing, Consumer<FileRepositoryResource> resources ) {
 		objectListing.getObjectSummaries().forEach( objectSummary -> {
 			String resultObjectName = StringUtils.removeEnd( objectSummary.getKey(), "/" );
 
@@ -172,7 +152,7 @@ class AmazonS3FolderResource implements FolderResource
 				while ( delim != -1 && delim <= last ) {
 					String partial = resultObjectName.substring( 0, delim + 1 );
 					if ( partial.length() > 0 && keyMatcher.test( partial, keyPattern ) ) {
-						resources.add( toFileRepositoryResource( partial, null ) );
+						resources.accept( toFileRepositoryResource( partial, null ) );
 					}
 					delim = resultObjectName.indexOf( '/', delim + 1 );
 				}
@@ -180,36 +160,6 @@ class AmazonS3FolderResource implements FolderResource
 		} );
 	}
 
-	private void findProgressivelyWithPartialMatch( BiPredicate<String, String> keyMatcher,
-	                                                Set<FileRepositoryResource> resources,
-	                                                String prefix,
-	                                                String keyPattern ) {
-		ListObjectsRequest listObjectsRequest = new ListObjectsRequest().withBucketName( bucketName ).withDelimiter( "/" ).withPrefix( prefix );
-		ObjectListing objectListing = null;
-
-		do {
-			if ( objectListing == null ) {
-				objectListing = amazonS3.listObjects( listObjectsRequest );
-			}
-			else {
-				objectListing = amazonS3.listNextBatchOfObjects( objectListing );
-			}
-
-			addResourcesFromObjectSummaries( keyMatcher, keyPattern, objectListing.getObjectSummaries(), resources );
-
-			for ( String commonPrefix : objectListing.getCommonPrefixes() ) {
-				if ( keyMatcher.test( commonPrefix, keyPattern ) ) {
-					resources.add( toFileRepositoryResource( commonPrefix, null ) );
-				}
-
-				if ( isKeyPathMatchesPartially( keyMatcher, keyPattern, commonPrefix ) ) {
-					findResourcesWithMatchingKeys( keyMatcher, resources, commonPrefix, keyPattern );
-				}
-			}
-		}
-		while ( objectListing.isTruncated() );
-	}
-
 	private String getRemainingPatternPart( String keyPattern, String path ) {
 		int numberOfSlashes = org.springframework.util.StringUtils.countOccurrencesOf( path, "/" );
 		int indexOfNthSlash = getIndexOfNthOccurrence( keyPattern, numberOfSlashes );
@@ -246,11 +196,11 @@ class AmazonS3FolderResource implements FolderResource
 	private void addResourcesFromObjectSummaries( BiPredicate<String, String> keyMatcher,
 	                                              String keyPattern,
 	                                              List<S3ObjectSummary> objectSummaries,
-	                                              Set<FileRepositoryResource> resources ) {
+	                                              Consumer<FileRepositoryResource> resources ) {
 		objectSummaries.forEach( candidate -> {
 			String candidateObjectName = candidate.getKey();
 			if ( !candidateObjectName.equals( objectName ) && keyMatcher.test( candidateObjectName, keyPattern ) ) {
-				resources.add( toFileRepositoryResource( candidateObjectName, candidate ) );
+				resources.accept( toFileRepositoryResource( candidateObjectName, candidate ) );
 			}
 		} );
 	}
@@ -258,11 +208,12 @@ class AmazonS3FolderResource implements FolderResource
 	private FileRepositoryResource toFileRepositoryResource( String childObjectName, S3ObjectSummary childObjectSummary ) {
 		String childPath = StringUtils.removeStart( childObjectName, objectName );
 		if ( childObjectName.endsWith( "/" ) ) {
-			return new AmazonS3FolderResource( descriptor.createFolderDescriptor( childPath ), amazonS3, bucketName, childObjectName, taskExecutor );
+			return new AmazonS3FolderResource( descriptor.createFolderDescriptor( childPath ), amazonS3, bucketName, childObjectName, taskExecutor, listingFanOut,
+			                                   metadataCache, multipartTransfer );
 		}
 
 		AmazonS3FileResource fileResource = new AmazonS3FileResource( descriptor.createFileDescriptor( childPath ), amazonS3, bucketName,
-		                                                              childObjectName, taskExecutor );
+		                                                              childObjectName, taskExecutor, listingFanOut, metadataCache, multipartTransfer );
 		if ( childObjectSummary != null ) {
 			fileResource.loadMetadata( childObjectSummary );
 		}
@@ -362,4 +313,163 @@ class AmazonS3FolderResource implements FolderResource
 	public int hashCode() {
 		return descriptor.hashCode();
 	}
+
+	/**
+	 * Lists the objects under every prefix that (partially) matches the pattern.  If the remainder of the
+	 * pattern starts with **, all objects under the prefix are listed at once, otherwise the common prefixes
+	 * (sub-folders) are queued and listed separately.  Only a single page of results is held at any time,
+	 * apart from the folders already returned.  Because the same folder can be found through several objects,
+	 * those are kept to avoid returning them twice.
+	 * <p/>
+	 * The first page of the queued prefixes is requested ahead on the task executor, for at most
+	 * {@code listingFanOut} prefixes at a time.  Every time a listing is taken from the queue, the next one
+	 * is started.  The listings are still consumed in the order the prefixes were queued, so the results
+	 * do not depend on which listing completes first.
+	 */
+	private class MatchingResourcesIterator implements Iterator<FileRepositoryResource>
+	{
+		private final BiPredicate<String, String> keyMatcher;
+		private final String keyPattern;
+		private final Deque<PendingListing> pendingListings = new ArrayDeque<>();
+		private final Deque<FileRepositoryResource> resources = new ArrayDeque<>();
+		private final Set<FileRepositoryResource> folders = new HashSet<>();
+
+		private String prefix;
+		private boolean recursive;
+		private ObjectListing objectListing;
+
+		MatchingResourcesIterator( BiPredicate<String, String> keyMatcher, String keyPattern, String prefix ) {
+			this.keyMatcher = keyMatcher;
+			this.keyPattern = keyPattern;
+			pendingListings.add( new PendingListing( prefix ) );
+		}
+
+		@Override
+		public boolean hasNext() {
+			while ( resources.isEmpty() && ( hasNextPage() || !pendingListings.isEmpty() ) ) {
+				fetchNextPage();
+			}
+			return !resources.isEmpty();
+		}
+
+		@Override
+		public FileRepositoryResource next() {
+			if ( !hasNext() ) {
+				throw new NoSuchElementException();
+			}
+			return resources.poll();
+		}
+
+		private boolean hasNextPage() {
+			return objectListing != null && objectListing.isTruncated();
+		}
+
+		private void fetchNextPage() {
+			try {
+				if ( hasNextPage() ) {
+					objectListing = amazonS3.listNextBatchOfObjects( objectListing );
+				}
+				else {
+					PendingListing pendingListing = pendingListings.poll();
+					prefix = pendingListing.prefix;
+					recursive = pendingListing.recursive;
+					startPendingListings();
+					objectListing = pendingListing.getObjectListing();
+				}
+			}
+			catch ( AmazonS3Exception e ) {
+				if ( !recursive || 301 != e.getStatusCode() ) {
+					throw e;
+				}
+				objectListing = null;
+				return;
+			}
+
+			addResourcesFromObjectSummaries( keyMatcher, keyPattern, objectListing.getObjectSummaries(), this::add );
+
+			if ( recursive ) {
+				extractFolderResources( keyMatcher, keyPattern, prefix, objectListing, this::add );
+			}
+			else {
+				for ( String commonPrefix : objectListing.getCommonPrefixes() ) {
+					if ( keyMatcher.test( commonPrefix, keyPattern ) ) {
+						add( toFileRepositoryResource( commonPrefix, null ) );
+					}
+
+					if ( isKeyPathMatchesPartially( keyMatcher, keyPattern, commonPrefix ) ) {
+						pendingListings.add( new PendingListing( commonPrefix ) );
+					}
+				}
+
+				startPendingListings();
+			}
+		}
+
+		/**
+		 * Start listing the first queued prefixes, no more than the fan-out limit.  Listings are only started
+		 * ahead if the executor is asynchronous, a synchronous executor would list all prefixes right away.
+		 */
+		private void startPendingListings() {
+			if ( listingFanOut > 1 && !( taskExecutor instanceof SyncTaskExecutor ) ) {
+				pendingListings.stream().limit( listingFanOut ).forEach( PendingListing::start );
+			}
+		}
+
+		private void add( FileRepositoryResource resource ) {
+			if ( !( resource instanceof FolderResource ) || folders.add( resource ) ) {
+				resources.add( resource );
+			}
+		}
+
+		/**
+		 * First page of the listing of a single prefix, either requested ahead on the task executor
+		 * or in the calling thread when it is needed.
+		 */
+		private class PendingListing
+		{
+			private final String prefix;
+			private final boolean recursive;
+
+			private CompletableFuture<ObjectListing> listing;
+
+			PendingListing( String prefix ) {
+				this.prefix = prefix;
+
+				String remainingPatternPart = getRemainingPatternPart( keyPattern, prefix );
+				recursive = remainingPatternPart != null && remainingPatternPart.startsWith( "**" );
+			}
+
+			void start() {
+				if ( listing == null ) {
+					try {
+						listing = CompletableFuture.supplyAsync( this::listObjects, taskExecutor );
+					}
+					catch ( RejectedExecutionException ree ) {
+						// listed in the calling thread when needed
+					}
+				}
+			}
+
+			ObjectListing getObjectListing() {
+				if ( listing == null ) {
+					return listObjects();
+				}
+
+				try {
+					return listing.join();
+				}
+				catch ( CompletionException ce ) {
+					if ( ce.getCause() instanceof RuntimeException ) {
+						throw (RuntimeException) ce.getCause();
+					}
+					throw ce;
+				}
+			}
+
+			private ObjectListing listObjects() {
+				ListObjectsRequest listObjectsRequest = new ListObjectsRequest().withBucketName( bucketName ).withPrefix( prefix );
+				return amazonS3.listObjects( recursive ? listObjectsRequest : listObjectsRequest.withDelimiter( "/" ) );
+			}
+		}
+	}
 }
@@ -0,0 +1,449 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.filemanager.services;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.*;
+import com.foreach.common.filemanager.business.FileStorageException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskExecutor;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Transfers the data of Amazon S3 objects in parts, with at most {@code parallelism} parts being transferred
+ * at the same time on the {@link TaskExecutor}.  With a {@link org.springframework.core.task.SyncTaskExecutor}
+ * the parts are transferred in the calling thread, one after another.
+ * <p/>
+ * Data larger than a single part is uploaded using a multipart upload, which is aborted if any of the parts fails.
+ * Objects larger than a single part are downloaded using ranged GET requests that only match the ETag the object
+ * had when the download started, every part being written directly at its own position in a preallocated file.
+ * Anything smaller is transferred with a single request.
+ * <p/>
+ * Copying an object within S3 never transfers the data through the application: objects up to a single part
+ * are copied with a single CopyObject request, larger ones using a multipart upload with UploadPartCopy parts.
+ *
+ * @see AmazonS3FileRepository
+ */
+@Slf4j
+class AmazonS3MultipartTransfer
+{
+	/**
+	 * Minimum size of a part in a multipart upload, only the last part can be smaller.
+	 */
+	static final int MINIMUM_PART_SIZE = 5 * 1024 * 1024;
+
+	/**
+	 * Maximum number of parts in a multipart upload.
+	 */
+	static final int MAXIMUM_PART_COUNT = 10_000;
+
+	private static final int DOWNLOAD_BUFFER_SIZE = 64 * 1024;
+
+	private final AmazonS3 amazonS3;
+	private final TaskExecutor taskExecutor;
+	private final int partSize;
+	private final int parallelism;
+
+	AmazonS3MultipartTransfer( AmazonS3 amazonS3, TaskExecutor taskExecutor, int partSize, int parallelism ) {
+		if ( partSize < MINIMUM_PART_SIZE ) {
+			throw new IllegalArgumentException( "partSize must be at least " + MINIMUM_PART_SIZE + " bytes" );
+		}
+		if ( parallelism < 1 ) {
+			throw new IllegalArgumentException( "parallelism must be at least 1" );
+		}
+
+		this.amazonS3 = amazonS3;
+		this.taskExecutor = taskExecutor;
+		this.partSize = partSize;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Open a stream for writing an object.  Data is buffered in memory up to the part size, the object
+	 * is only available once the stream has been closed.
+	 */
+	OutputStream openOutputStream( String bucketName, String objectName ) {
+		return new MultipartOutputStream( bucketName, objectName );
+	}
+
+	/**
+	 * Upload the contents of a file as an object, reading the parts directly from the file.
+	 */
+	void upload( String bucketName, String objectName, File file ) throws IOException {
+		if ( !file.isFile() ) {
+			throw new FileNotFoundException( "File [" + file + "] not found!" );
+		}
+
+		long length = file.length();
+
+		if ( length <= partSize ) {
+			amazonS3.putObject( bucketName, objectName, file );
+			return;
+		}
+
+		// a larger part size is required if the file does not fit in the maximum number of parts
+		long uploadPartSize = maximumPartSize( length );
+		MultipartUpload upload = new MultipartUpload( new InitiateMultipartUploadRequest( bucketName, objectName ) );
+
+		try {
+			for ( long position = 0; position < length; position += uploadPartSize ) {
+				upload.uploadPart( new UploadPartRequest().withFile( file )
+				                                          .withFileOffset( position )
+				                                          .withPartSize( Math.min( uploadPartSize, length - position ) ) );
+			}
+			upload.complete();
+		}
+		catch ( IOException | RuntimeException e ) {
+			upload.abort();
+			throw e;
+		}
+	}
+
+	/**
+	 * Copy an object to another location, replacing the target object if it exists.
+	 * The target keeps the content type and user metadata of the source.
+	 */
+	void copy( String sourceBucketName, String sourceObjectName, String bucketName, String objectName ) throws IOException {
+		ObjectMetadata metadata = amazonS3.getObjectMetadata( sourceBucketName, sourceObjectName );
+		long length = metadata.getContentLength();
+
+		if ( length <= partSize ) {
+			amazonS3.copyObject( new CopyObjectRequest( sourceBucketName, sourceObjectName, bucketName, objectName ) );
+			return;
+		}
+
+		ObjectMetadata targetMetadata = new ObjectMetadata();
+		targetMetadata.setUserMetadata( metadata.getUserMetadata() );
+		if ( metadata.getContentType() != null ) {
+			targetMetadata.setContentType( metadata.getContentType() );
+		}
+
+		// a larger part size is required if the object does not fit in the maximum number of parts
+		long copyPartSize = maximumPartSize( length );
+		MultipartUpload upload = new MultipartUpload( new InitiateMultipartUploadRequest( bucketName, objectName, targetMetadata ) );
+
+		try {
+			for ( long position = 0; position < length; position += copyPartSize ) {
+				upload.copyPart( new CopyPartRequest().withSourceBucketName( sourceBucketName )
+				                                      .withSourceKey( sourceObjectName )
+				                                      .withFirstByte( position )
+				                                      .withLastByte( Math.min( position + copyPartSize, length ) - 1 )
+				                                      .withMatchingETagConstraint( metadata.getETag() ) );
+			}
+			upload.complete();
+		}
+		catch ( IOException | RuntimeException e ) {
+			upload.abort();
+			throw e;
+		}
+	}
+
+	private long maximumPartSize( long length ) {
+		return Math.max( partSize, ( length + MAXIMUM_PART_COUNT - 1 ) / MAXIMUM_PART_COUNT );
+	}
+
+	/**
+	 * Download an object into a file, replacing the file if it exists.
+	 * A partially downloaded file is not removed if a part fails.
+	 */
+	void download( String bucketName, String objectName, File file ) throws IOException {
+		ObjectMetadata metadata = amazonS3.getObjectMetadata( bucketName, objectName );
+		long length = metadata.getContentLength();
+
+		if ( length <= partSize ) {
+			amazonS3.getObject( new GetObjectRequest( bucketName, objectName ), file );
+			return;
+		}
+
+		try (RandomAccessFile randomAccessFile = new RandomAccessFile( file, "rw" )) {
+			randomAccessFile.setLength( length );
+			FileChannel channel = randomAccessFile.getChannel();
+			PartTransfers<Void> parts = new PartTransfers<>();
+
+			try {
+				for ( long position = 0; position < length; position += partSize ) {
+					long start = position;
+					GetObjectRequest request = new GetObjectRequest( bucketName, objectName )
+							.withRange( start, Math.min( start + partSize, length ) - 1 )
+							.withMatchingETagConstraint( metadata.getETag() );
+					parts.submit( () -> downloadPart( request, channel, start ) );
+				}
+				parts.awaitAll();
+			}
+			catch ( IOException | RuntimeException e ) {
+				// wait for the running parts before the channel is closed
+				parts.awaitQuietly();
+				throw e;
+			}
+		}
+	}
+
+	private Void downloadPart( GetObjectRequest request, FileChannel channel, long position ) {
+		S3Object object = amazonS3.getObject( request );
+
+		if ( object == null ) {
+			throw modified( request.getBucketName(), request.getKey(), "download" );
+		}
+
+		try (ReadableByteChannel input = Channels.newChannel( object.getObjectContent() )) {
+			ByteBuffer buffer = ByteBuffer.allocate( DOWNLOAD_BUFFER_SIZE );
+			long offset = position;
+
+			while ( input.read( buffer ) != -1 ) {
+				buffer.flip();
+				while ( buffer.hasRemaining() ) {
+					offset += channel.write( buffer, offset );
+				}
+				buffer.clear();
+			}
+		}
+		catch ( IOException ioe ) {
+			throw new UncheckedIOException( ioe );
+		}
+
+		return null;
+	}
+
+	private FileStorageException modified( String bucketName, String objectName, String transfer ) {
+		return new FileStorageException( "Object [" + objectName + "] in bucket [" + bucketName + "] was modified during " + transfer );
+	}
+
+	/**
+	 * Runs part transfers on the task executor, waiting for the oldest transfer if the maximum
+	 * number of parallel transfers has been reached.  Results are returned in submission order,
+	 * and the failure of a finished transfer is thrown when submitting the next one.
+	 */
+	private class PartTransfers<T>
+	{
+		private final Deque<CompletableFuture<T>> running = new ArrayDeque<>();
+		private final List<T> results = new ArrayList<>();
+
+		void submit( Supplier<T> transfer ) throws IOException {
+			while ( !running.isEmpty() && ( running.size() >= parallelism || running.peek().isDone() ) ) {
+				results.add( await( running.poll() ) );
+			}
+			running.add( CompletableFuture.supplyAsync( transfer, taskExecutor ) );
+		}
+
+		List<T> awaitAll() throws IOException {
+			while ( !running.isEmpty() ) {
+				results.add( await( running.poll() ) );
+			}
+			return results;
+		}
+
+		void awaitQuietly() {
+			while ( !running.isEmpty() ) {
+				try {
+					running.poll().join();
+				}
+				catch ( RuntimeException ignore ) {
+					// the first failure has already been thrown
+				}
+			}
+		}
+
+		private T await( CompletableFuture<T> transfer ) throws IOException {
+			try {
+				return transfer.join();
+			}
+			catch ( CompletionException ce ) {
+				Throwable cause = ce.getCause();
+				if ( cause instanceof UncheckedIOException ) {
+					throw ( (UncheckedIOException) cause ).getCause();
+				}
+				if ( cause instanceof RuntimeException ) {
+					throw (RuntimeException) cause;
+				}
+				if ( cause instanceof Error ) {
+					throw (Error) cause;
+				}
+				throw ce;
+			}
+		}
+	}
+
+	private class MultipartUpload
+	{
+		private final String bucketName;
+		private final String objectName;
+		private final String uploadId;
+		private final PartTransfers<PartETag> parts = new PartTransfers<>();
+
+		private int partNumber;
+
+		MultipartUpload( InitiateMultipartUploadRequest request ) {
+			this.bucketName = request.getBucketName();
+			this.objectName = request.getKey();
+			this.uploadId = amazonS3.initiateMultipartUpload( request ).getUploadId();
+		}
+
+		void uploadPart( byte[] data ) throws IOException {
+			uploadPart( new UploadPartRequest().withInputStream( new ByteArrayInputStream( data ) ).withPartSize( data.length ) );
+		}
+
+		void uploadPart( UploadPartRequest request ) throws IOException {
+			request.withBucketName( bucketName )
+			       .withKey( objectName )
+			       .withUploadId( uploadId )
+			       .withPartNumber( nextPartNumber() );
+			parts.submit( () -> amazonS3.uploadPart( request ).getPartETag() );
+		}
+
+		void copyPart( CopyPartRequest request ) throws IOException {
+			request.withDestinationBucketName( bucketName )
+			       .withDestinationKey( objectName )
+			       .withUploadId( uploadId )
+			       .withPartNumber( nextPartNumber() );
+			parts.submit( () -> {
+				CopyPartResult result = amazonS3.copyPart( request );
+				if ( result == null ) {
+					throw modified( request.getSourceBucketName(), request.getSourceKey(), "copy" );
+				}
+				return result.getPartETag();
+			} );
+		}
+
+		/**
+		 * The size of a stream is not known up front, its upload fails before sending a part
+		 * beyond the maximum number of parts.
+		 */
+		private int nextPartNumber() throws IOException {
+			if ( partNumber >= MAXIMUM_PART_COUNT ) {
+				throw new IOException( "Object [" + objectName + "] in bucket [" + bucketName + "] exceeds the maximum of "
+						                       + MAXIMUM_PART_COUNT + " parts of " + partSize + " bytes, a larger part size is required" );
+			}
+			return ++partNumber;
+		}
+
+		void complete() throws IOException {
+			amazonS3.completeMultipartUpload( new CompleteMultipartUploadRequest( bucketName, objectName, uploadId, parts.awaitAll() ) );
+		}
+
+		void abort() {
+			parts.awaitQuietly();
+			try {
+				amazonS3.abortMultipartUpload( new AbortMultipartUploadRequest( bucketName, objectName, uploadId ) );
+			}
+			catch ( RuntimeException e ) {
+				LOG.warn( "Unable to abort multipart upload {} of object [{}] in bucket [{}]", uploadId, objectName, bucketName, e );
+			}
+		}
+	}
+
+	/**
+	 * Buffers the data in memory and uploads every full part as soon as it is available.
+	 * The stream can hold at most {@link #MAXIMUM_PART_COUNT} parts, writing more fails and aborts the upload.
+	 */
+	private class MultipartOutputStream extends OutputStream
+	{
+		private final String bucketName;
+		private final String objectName;
+		private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+		private MultipartUpload upload;
+		private boolean closed;
+
+		MultipartOutputStream( String bucketName, String objectName ) {
+			this.bucketName = bucketName;
+			this.objectName = objectName;
+		}
+
+		@Override
+		public void write( int b ) throws IOException {
+			ensureOpen();
+			buffer.write( b );
+			if ( buffer.size() >= partSize ) {
+				uploadBufferedPart();
+			}
+		}
+
+		@Override
+		public void write( byte[] b, int off, int len ) throws IOException {
+			ensureOpen();
+			while ( len > 0 ) {
+				int count = Math.min( len, partSize - buffer.size() );
+				buffer.write( b, off, count );
+				off += count;
+				len -= count;
+				if ( buffer.size() >= partSize ) {
+					uploadBufferedPart();
+				}
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			if ( closed ) {
+				return;
+			}
+			closed = true;
+
+			if ( upload == null ) {
+				ObjectMetadata metadata = new ObjectMetadata();
+				metadata.setContentLength( buffer.size() );
+				amazonS3.putObject( bucketName, objectName, new ByteArrayInputStream( buffer.toByteArray() ), metadata );
+				return;
+			}
+
+			try {
+				if ( buffer.size() > 0 ) {
+					upload.uploadPart( buffer.toByteArray() );
+				}
+				upload.complete();
+			}
+			catch ( IOException | RuntimeException e ) {
+				upload.abort();
+				throw e;
+			}
+		}
+
+		private void uploadBufferedPart() throws IOException {
+			try {
+				if ( upload == null ) {
+					upload = new MultipartUpload( new InitiateMultipartUploadRequest( bucketName, objectName ) );
+				}
+				upload.uploadPart( buffer.toByteArray() );
+				buffer.reset();
+			}
+			catch ( IOException | RuntimeException e ) {
+				closed = true;
+				if ( upload != null ) {
+					upload.abort();
+				}
+				throw e;
+			}
+		}
+
+		private void ensureOpen() throws IOException {
+			if ( closed ) {
+				throw new IOException( "Stream closed" );
+			}
+		}
+	}
+}
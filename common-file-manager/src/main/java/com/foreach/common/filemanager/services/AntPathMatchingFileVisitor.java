@@ -19,16 +19,18 @@ import lombok.SneakyThrows;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.util.AntPathMatcher;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.FileVisitResult;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
 import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * @author Arne Vandamme
@@ -41,6 +43,7 @@ class AntPathMatchingFileVisitor extends SimpleFileVisitor<Path>
 	private final AntPathMatcher pathMatcher;
 	private final String pattern;
 	private final boolean matchOnlyDirectories;
+	private final Path basedir;
 	private final String absolutePathPrefix;
 	private final Consumer<Path> matchedPathConsumer;
 	private final boolean recursive;
@@ -56,6 +59,7 @@ class AntPathMatchingFileVisitor extends SimpleFileVisitor<Path>
 		this.pattern = "/" + pattern;
 		this.matchOnlyDirectories = matchOnlyDirectories;
 		this.matchedPathConsumer = matchedPathConsumer;
+		this.basedir = basedir;
 
 		absolutePathPrefix = StringUtils.replace( basedir.toAbsolutePath().toString(), "\\", "/" );
 		recursive = pattern.contains( "**" );
@@ -127,6 +131,40 @@ class AntPathMatchingFileVisitor extends SimpleFileVisitor<Path>
 
 	@SneakyThrows
 	static int walkFileTree( Path directory, String searchPattern, Consumer<Path> matchedPathConsumer ) {
+		AntPathMatchingFileVisitor visitor = createVisitor( directory, searchPattern, matchedPathConsumer );
+
+		if ( visitor != null ) {
+			Files.walkFileTree( visitor.basedir, visitor );
+			return visitor.filesVisited;
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Lazy version of {@link #walkFileTree(Path, String, Consumer)}: a directory is only read when the
+	 * stream requires the next matching path. Terminating the stream early stops walking the tree.
+	 * The stream should be closed if it is not fully consumed, as it holds open directory streams.
+	 */
+	static Stream<Path> streamFileTree( Path directory, String searchPattern ) {
+		Deque<Path> matchedPaths = new ArrayDeque<>();
+		AntPathMatchingFileVisitor visitor = createVisitor( directory, searchPattern, matchedPaths::add );
+
+		if ( visitor != null ) {
+			LazyFileTreeWalker walker = new LazyFileTreeWalker( visitor, matchedPaths );
+			return StreamSupport.stream( Spliterators.spliteratorUnknownSize( walker, Spliterator.ORDERED | Spliterator.NONNULL ), false )
+			                    .onClose( walker::close );
+		}
+
+		return matchedPaths.stream();
+	}
+
+	/**
+	 * Creates the visitor for walking the tree, or returns {@code null} if no tree should be walked.
+	 * If the search pattern is not an actual pattern, the consumer is called immediately with the target
+	 * path if it exists.
+	 */
+	private static AntPathMatchingFileVisitor createVisitor( Path directory, String searchPattern, Consumer<Path> matchedPathConsumer ) {
 		AntPathMatcher pathMatcher = new AntPathMatcher();
 
 		validatePattern( searchPattern );
@@ -144,26 +182,22 @@ class AntPathMatchingFileVisitor extends SimpleFileVisitor<Path>
 			if ( file.exists() && ( !matchOnlyDirectories || file.isDirectory() ) ) {
 				matchedPathConsumer.accept( targetPath );
 			}
+			return null;
 		}
-		else {
-			String prefix = getFixedPrefix( pattern );
-			Path basedir = directory;
 
-			if ( !prefix.isEmpty() ) {
-				basedir = basedir.resolve( prefix );
-				File file = basedir.toFile();
-				if ( !file.exists() || !file.isDirectory() ) {
-					return 0;
-				}
-				pattern = StringUtils.removeStart( pattern, prefix );
-			}
+		String prefix = getFixedPrefix( pattern );
+		Path basedir = directory;
 
-			AntPathMatchingFileVisitor visitor = new AntPathMatchingFileVisitor( pathMatcher, pattern, matchOnlyDirectories, basedir, matchedPathConsumer );
-			Files.walkFileTree( basedir, visitor );
-			return visitor.filesVisited;
+		if ( !prefix.isEmpty() ) {
+			basedir = basedir.resolve( prefix );
+			File file = basedir.toFile();
+			if ( !file.exists() || !file.isDirectory() ) {
+				return null;
+			}
+			pattern = StringUtils.removeStart( pattern, prefix );
 		}
 
-		return 0;
+		return new AntPathMatchingFileVisitor( pathMatcher, pattern, matchOnlyDirectories, basedir, matchedPathConsumer );
 	}
 
 	@SuppressWarnings("Duplicates")
@@ -184,4 +218,119 @@ class AntPathMatchingFileVisitor extends SimpleFileVisitor<Path>
 			throw new IllegalArgumentException( "Search pattern may not contain dot-only path segments" );
 		}
 	}
+
+	/**
+	 * Walks the file tree depth-first in the same order as {@link Files#walkFileTree(Path, java.nio.file.FileVisitor)},
+	 * using the visitor to decide which paths match and which directories should be entered.
+	 * Only the directories on the current path are open at any time.
+	 */
+	private static class LazyFileTreeWalker implements Iterator<Path>, Closeable
+	{
+		private final AntPathMatchingFileVisitor visitor;
+		private final Deque<Path> matchedPaths;
+		private final Deque<DirectoryStream<Path>> openDirectories = new ArrayDeque<>();
+		private final Deque<Iterator<Path>> directoryEntries = new ArrayDeque<>();
+
+		LazyFileTreeWalker( AntPathMatchingFileVisitor visitor, Deque<Path> matchedPaths ) {
+			this.visitor = visitor;
+			this.matchedPaths = matchedPaths;
+
+			try {
+				if ( visitor.preVisitDirectory( visitor.basedir, null ) == FileVisitResult.CONTINUE ) {
+					openDirectory( visitor.basedir );
+				}
+			}
+			catch ( IOException ioe ) {
+				throw new UncheckedIOException( ioe );
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			try {
+				while ( matchedPaths.isEmpty() && !directoryEntries.isEmpty() ) {
+					visitNextEntry();
+				}
+			}
+			catch ( IOException ioe ) {
+				close();
+				throw new UncheckedIOException( ioe );
+			}
+			return !matchedPaths.isEmpty();
+		}
+
+		@Override
+		public Path next() {
+			if ( !hasNext() ) {
+				throw new NoSuchElementException();
+			}
+			return matchedPaths.poll();
+		}
+
+		private void visitNextEntry() throws IOException {
+			Path entry;
+
+			try {
+				Iterator<Path> entries = directoryEntries.peek();
+				if ( !entries.hasNext() ) {
+					closeDirectory();
+					return;
+				}
+				entry = entries.next();
+			}
+			catch ( DirectoryIteratorException die ) {
+				closeDirectory();
+				return;
+			}
+
+			BasicFileAttributes attributes;
+
+			try {
+				attributes = Files.readAttributes( entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS );
+			}
+			catch ( IOException ioe ) {
+				visitor.visitFileFailed( entry, ioe );
+				return;
+			}
+
+			if ( attributes.isDirectory() ) {
+				if ( visitor.preVisitDirectory( entry, attributes ) == FileVisitResult.CONTINUE ) {
+					openDirectory( entry );
+				}
+			}
+			else {
+				visitor.visitFile( entry, attributes );
+			}
+		}
+
+		private void openDirectory( Path directory ) throws IOException {
+			try {
+				DirectoryStream<Path> directoryStream = Files.newDirectoryStream( directory );
+				openDirectories.push( directoryStream );
+				directoryEntries.push( directoryStream.iterator() );
+			}
+			catch ( IOException ioe ) {
+				visitor.visitFileFailed( directory, ioe );
+			}
+		}
+
+		private void closeDirectory() throws IOException {
+			directoryEntries.pop();
+			openDirectories.pop().close();
+		}
+
+		@Override
+		public void close() {
+			directoryEntries.clear();
+
+			while ( !openDirectories.isEmpty() ) {
+				try {
+					openDirectories.pop().close();
+				}
+				catch ( IOException ignore ) {
+					// nothing to do, the directory is no longer used
+				}
+			}
+		}
+	}
 }
@@ -44,7 +44,7 @@ public class AzureFileRepository extends AbstractFileRepository
 
 	@Override
 	protected AzureFileResource buildFileResource( FileDescriptor descriptor ) {
-		return new AzureFileResource( descriptor, blobServiceClient, containerName, createObjectName( descriptor ) );
+		return new AzureFileResource( descriptor, blobServiceClient, containerName, createObjectName( descriptor ), getMetadataCache() );
 	}
 
 	private String createObjectName( FileDescriptor descriptor ) {
@@ -62,6 +62,6 @@ public class AzureFileRepository extends AbstractFileRepository
 	@Override
 	protected FolderResource buildFolderResource( FolderDescriptor descriptor ) {
 		String objectName = descriptor.getFolderId() != null ? descriptor.getFolderId() + "/" : "";
-		return new AzureFolderResource( descriptor, blobServiceClient, containerName, objectName );
+		return new AzureFolderResource( descriptor, blobServiceClient, containerName, objectName, getMetadataCache() );
 	}
 }
@@ -15,8 +15,12 @@
  */
 package com.foreach.common.filemanager.services;
 
+import com.azure.core.util.polling.LongRunningOperationStatus;
+import com.azure.core.util.polling.PollResponse;
 import com.azure.storage.blob.BlobClient;
 import com.azure.storage.blob.BlobServiceClient;
+import com.azure.storage.blob.models.BlobCopyInfo;
+import com.azure.storage.blob.models.BlobItemProperties;
 import com.azure.storage.blob.models.BlobProperties;
 import com.azure.storage.blob.models.BlobStorageException;
 import com.foreach.common.filemanager.business.FileDescriptor;
@@ -34,16 +38,21 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
 import java.net.URL;
+import java.time.Duration;
 
 @Getter
 public class AzureFileResource implements FileResource
 {
 	public static final int NOT_FOUND = 404;
 
+	private static final Duration COPY_POLL_INTERVAL = Duration.ofSeconds( 1 );
+
 	private final FileDescriptor descriptor;
 	private final BlobServiceClient blobServiceClient;
 	private final String containerName;
 	private final String fileName;
+	@Getter(AccessLevel.NONE)
+	private final FileResourceMetadataCache metadataCache;
 
 	private final BlobClient blobClient;
 
@@ -52,11 +61,13 @@ public class AzureFileResource implements FileResource
 	AzureFileResource( @NonNull FileDescriptor descriptor,
 	                   @NonNull BlobServiceClient blobServiceClient,
 	                   @NonNull String containerName,
-	                   @NonNull String fileName ) {
+	                   @NonNull String fileName,
+	                   @NonNull FileResourceMetadataCache metadataCache ) {
 		this.descriptor = descriptor;
 		this.blobServiceClient = blobServiceClient;
 		this.containerName = containerName;
 		this.fileName = fileName;
+		this.metadataCache = metadataCache;
 		try {
 			this.blobClient = blobServiceClient
 					.getBlobContainerClient( containerName )
@@ -76,7 +87,7 @@ public class AzureFileResource implements FileResource
 	public FolderResource getFolderResource() {
 		int ix = fileName.lastIndexOf( '/' );
 		String folderObjectName = ix > 0 ? fileName.substring( 0, ix + 1 ) : "";
-		return new AzureFolderResource( descriptor.getFolderDescriptor(), blobServiceClient, containerName, folderObjectName );
+		return new AzureFolderResource( descriptor.getFolderDescriptor(), blobServiceClient, containerName, folderObjectName, metadataCache );
 	}
 
 	@Override
@@ -96,15 +107,7 @@ public class AzureFileResource implements FileResource
 
 	@Override
 	public boolean exists() {
-		try {
-			return getBlobProperties() != null;
-		}
-		catch ( FileStorageException fse ) {
-			if ( fse.getCause() instanceof FileNotFoundException ) {
-				return false;
-			}
-			throw fse;
-		}
+		return getMetadata().exists();
 	}
 
 	@Override
@@ -116,13 +119,50 @@ public class AzureFileResource implements FileResource
 	public OutputStream getOutputStream() {
 		try {
 			resetBlobProperties();
-			return new LazyOutputStream( blobClient.getBlockBlobClient().getBlobOutputStream( true ) );
+			return metadataCache.evictOnClose( descriptor, new LazyOutputStream( blobClient.getBlockBlobClient().getBlobOutputStream( true ) ) );
 		}
 		catch ( BlobStorageException e ) {
 			throw handleStorageException( e );
 		}
 	}
 
+	/**
+	 * Copies the blob within the storage account if the original resource uses the same {@link BlobServiceClient},
+	 * without transferring the data through the application.  The client must be authorized to read the source blob
+	 * by its URL, which is the case for shared key or Azure AD credentials.
+	 */
+	@Override
+	public void copyFrom( @NonNull FileResource originalFileResource, boolean deleteOriginal ) throws IOException {
+		if ( !( originalFileResource instanceof AzureFileResource ) || ( (AzureFileResource) originalFileResource ).blobServiceClient != blobServiceClient ) {
+			FileResource.super.copyFrom( originalFileResource, deleteOriginal );
+			return;
+		}
+
+		AzureFileResource original = (AzureFileResource) originalFileResource;
+
+		if ( original.containerName.equals( containerName ) && original.fileName.equals( fileName ) ) {
+			return;
+		}
+
+		resetBlobProperties();
+		try {
+			PollResponse<BlobCopyInfo> response = blobClient.beginCopy( original.blobClient.getBlobUrl(), COPY_POLL_INTERVAL ).waitForCompletion();
+			if ( response.getStatus() != LongRunningOperationStatus.SUCCESSFULLY_COMPLETED ) {
+				throw new FileStorageException( "Copying blob [" + original.fileName + "] to [" + fileName + "] ended with status " + response.getStatus() );
+			}
+		}
+		catch ( BlobStorageException e ) {
+			throw original.handleStorageException( e );
+		}
+		finally {
+			resetBlobProperties();
+		}
+
+		if ( deleteOriginal ) {
+			original.delete();
+		}
+	}
+
 	@Override
 	public URI getURI() {
 		return descriptor.toResourceURI();
@@ -135,12 +175,12 @@ public class AzureFileResource implements FileResource
 
 	@Override
 	public long contentLength() {
-		return getBlobProperties().getBlobSize();
+		return getRequiredMetadata().getContentLength();
 	}
 
 	@Override
 	public long lastModified() {
-		return getBlobProperties().getLastModified().toInstant().toEpochMilli();
+		return getRequiredMetadata().getLastModified();
 	}
 
 	@Override
@@ -179,6 +219,7 @@ public class AzureFileResource implements FileResource
 
 	public void resetBlobProperties() {
 		this.blobProperties = null;
+		metadataCache.evict( descriptor );
 	}
 
 	public BlobProperties getBlobProperties() {
@@ -193,6 +234,37 @@ public class AzureFileResource implements FileResource
 		return blobProperties;
 	}
 
+	void loadMetadata( BlobItemProperties properties ) {
+		if ( properties != null && properties.getContentLength() != null && properties.getLastModified() != null ) {
+			metadataCache.put( descriptor, FileResourceMetadata.of( properties.getContentLength(), properties.getLastModified().toInstant().toEpochMilli() ) );
+		}
+	}
+
+	private FileResourceMetadata getRequiredMetadata() {
+		FileResourceMetadata metadata = getMetadata();
+		if ( !metadata.exists() ) {
+			throw fileNotFound( null );
+		}
+		return metadata;
+	}
+
+	private FileResourceMetadata getMetadata() {
+		return metadataCache.get( descriptor, this::fetchMetadata );
+	}
+
+	private FileResourceMetadata fetchMetadata() {
+		try {
+			BlobProperties properties = getBlobProperties();
+			return FileResourceMetadata.of( properties.getBlobSize(), properties.getLastModified().toInstant().toEpochMilli() );
+		}
+		catch ( FileStorageException fse ) {
+			if ( fse.getCause() instanceof FileNotFoundException ) {
+				return FileResourceMetadata.NOT_FOUND;
+			}
+			throw fse;
+		}
+	}
+
 	@Override
 	public String toString() {
 		return getDescription();
@@ -200,15 +272,19 @@ public class AzureFileResource implements FileResource
 
 	private FileStorageException handleStorageException( BlobStorageException e ) {
 		if ( e.getStatusCode() == NOT_FOUND ) {
-			FileNotFoundException exception = new FileNotFoundException( "File resource with descriptor [" + descriptor.toString() + "] not found!" );
-			exception.initCause( e );
-			return new FileStorageException( exception );
+			return fileNotFound( e );
 		}
 		else {
 			return new FileStorageException( e );
 		}
 	}
 
+	private FileStorageException fileNotFound( Throwable cause ) {
+		FileNotFoundException exception = new FileNotFoundException( "File resource with descriptor [" + descriptor.toString() + "] not found!" );
+		exception.initCause( cause );
+		return new FileStorageException( exception );
+	}
+
 	@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
 	private static class LazyOutputStream extends OutputStream
 	{
@@ -20,17 +20,16 @@ import com.azure.storage.blob.models.BlobItem;
 import com.azure.storage.blob.specialized.BlockBlobClient;
 import com.foreach.common.filemanager.business.*;
 import lombok.NonNull;
-import lombok.SneakyThrows;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.util.AntPathMatcher;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Collection;
-import java.util.LinkedHashSet;
-import java.util.Optional;
-import java.util.Set;
+import java.util.*;
 import java.util.function.BiPredicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class AzureFolderResource implements FolderResource
 {
@@ -38,15 +37,25 @@ public class AzureFolderResource implements FolderResource
 	private final BlobServiceClient blobServiceClient;
 	private final String containerName;
 	private final String directoryName;
+	private final FileResourceMetadataCache metadataCache;
 
 	public AzureFolderResource( @NonNull FolderDescriptor descriptor,
 	                            @NonNull BlobServiceClient blobServiceClient,
 	                            @NonNull String containerName,
 	                            @NonNull String directoryName ) {
+		this( descriptor, blobServiceClient, containerName, directoryName, FileResourceMetadataCache.NONE );
+	}
+
+	AzureFolderResource( @NonNull FolderDescriptor descriptor,
+	                     @NonNull BlobServiceClient blobServiceClient,
+	                     @NonNull String containerName,
+	                     @NonNull String directoryName,
+	                     @NonNull FileResourceMetadataCache metadataCache ) {
 		this.descriptor = descriptor;
 		this.blobServiceClient = blobServiceClient;
 		this.containerName = containerName;
 		this.directoryName = directoryName;
+		this.metadataCache = metadataCache;
 	}
 
 	@Override
@@ -57,7 +66,7 @@ public class AzureFolderResource implements FolderResource
 	@Override
 	public Optional<FolderResource> getParentFolderResource() {
 		return descriptor.getParentFolderDescriptor()
-		                 .map( fd -> new AzureFolderResource( fd, blobServiceClient, containerName, extractParentObjectName() ) );
+		                 .map( fd -> new AzureFolderResource( fd, blobServiceClient, containerName, extractParentObjectName(), metadataCache ) );
 	}
 
 	@Override
@@ -71,19 +80,26 @@ public class AzureFolderResource implements FolderResource
 			String childPath = stripCurrentFolderId( descriptor.getFolderId() );
 			String childObjectName = Paths.get( directoryName, childPath ) + "/";
 
-			return new AzureFolderResource( descriptor, blobServiceClient, containerName, childObjectName );
+			return new AzureFolderResource( descriptor, blobServiceClient, containerName, childObjectName, metadataCache );
 		}
 
 		FileDescriptor descriptor = this.descriptor.createFileDescriptor( relativePath );
 		String childPath = stripCurrentFolderId( descriptor.getFolderId() );
 		String childObjectName = Paths.get( directoryName, childPath, descriptor.getFileId() ).toString();
 
-		return new AzureFileResource( descriptor, blobServiceClient, containerName, childObjectName );
+		return new AzureFileResource( descriptor, blobServiceClient, containerName, childObjectName, metadataCache );
 	}
 
 	@Override
 	public Collection<FileRepositoryResource> findResources( @NonNull String pattern ) {
-		Set<FileRepositoryResource> resources = new LinkedHashSet<>();
+		return streamResources( pattern ).collect( Collectors.toCollection( LinkedHashSet::new ) );
+	}
+
+	/**
+	 * Lists the blobs one page at a time and only lists a virtual directory when the stream reaches it.
+	 */
+	@Override
+	public Stream<FileRepositoryResource> streamResources( @NonNull String pattern ) {
 		AntPathMatcher pathMatcher = new AntPathMatcher( "/" );
 		String p = StringUtils.startsWith( pattern, "/" ) ? pattern.substring( 1 ) : pattern;
 		boolean matchOnlyDirectories = StringUtils.endsWith( p, "/" );
@@ -99,34 +115,8 @@ public class AzureFolderResource implements FolderResource
 			return false;
 		};
 
-		addAllMatchingResources( directoryName, resources, keyMatcher, p );
-		return resources;
-	}
-
-	@SneakyThrows
-	private void addAllMatchingResources( String prefix,
-	                                      Collection<FileRepositoryResource> resources,
-	                                      BiPredicate<String, String> keyMatcher,
-	                                      String pattern ) {
-		for ( BlobItem candidate : blobServiceClient.getBlobContainerClient( containerName ).listBlobsByHierarchy( prefix ) ) {
-			BlockBlobClient listedBlob = blobServiceClient.getBlobContainerClient( containerName )
-			                                              .getBlobClient( candidate.getName() )
-			                                              .getBlockBlobClient();
-			String objectName = listedBlob.getBlobName();
-			if ( candidate.isPrefix() ) {
-				if ( keyMatcher.test( objectName, directoryName + pattern ) ) {
-					resources.add( buildResourceFromListBlobItem( candidate, objectName ) );
-				}
-				if ( keyMatcher.test( objectName, directoryName + getRootPattern( pattern ) ) ) {
-					addAllMatchingResources( objectName, resources, keyMatcher, pattern );
-				}
-			}
-			else {
-				if ( !objectName.equals( directoryName ) && !objectName.endsWith( "/" ) && keyMatcher.test( objectName, directoryName + pattern ) ) {
-					resources.add( buildResourceFromListBlobItem( candidate, objectName ) );
-				}
-			}
-		}
+		MatchingResourcesIterator iterator = new MatchingResourcesIterator( keyMatcher, p );
+		return StreamSupport.stream( Spliterators.spliteratorUnknownSize( iterator, Spliterator.ORDERED | Spliterator.NONNULL ), false );
 	}
 
 	private String getRootPattern( String pattern ) {
@@ -139,10 +129,13 @@ public class AzureFolderResource implements FolderResource
 	private FileRepositoryResource buildResourceFromListBlobItem( BlobItem candidate, String objectName ) {
 		String path = StringUtils.removeStart( objectName, directoryName );
 		if ( candidate.isPrefix() ) {
-			return new AzureFolderResource( descriptor.createFolderDescriptor( path ), blobServiceClient, containerName, objectName );
+			return new AzureFolderResource( descriptor.createFolderDescriptor( path ), blobServiceClient, containerName, objectName, metadataCache );
 		}
 		else {
-			return new AzureFileResource( descriptor.createFileDescriptor( path ), blobServiceClient, containerName, objectName );
+			AzureFileResource fileResource = new AzureFileResource( descriptor.createFileDescriptor( path ), blobServiceClient, containerName, objectName,
+			                                                        metadataCache );
+			fileResource.loadMetadata( candidate.getProperties() );
+			return fileResource;
 		}
 	}
 
@@ -218,4 +211,71 @@ public class AzureFolderResource implements FolderResource
 	private boolean isNotRootFolder() {
 		return !"".equals( directoryName );
 	}
+
+	/**
+	 * Walks the virtual directories depth-first, keeping a (paged) listing open for every directory
+	 * on the current path.
+	 */
+	private class MatchingResourcesIterator implements Iterator<FileRepositoryResource>
+	{
+		private final BiPredicate<String, String> keyMatcher;
+		private final String pattern;
+		private final Deque<Iterator<BlobItem>> listings = new ArrayDeque<>();
+
+		private FileRepositoryResource nextResource;
+
+		MatchingResourcesIterator( BiPredicate<String, String> keyMatcher, String pattern ) {
+			this.keyMatcher = keyMatcher;
+			this.pattern = pattern;
+			listings.push( listBlobs( directoryName ) );
+		}
+
+		@Override
+		public boolean hasNext() {
+			while ( nextResource == null && !listings.isEmpty() ) {
+				Iterator<BlobItem> listing = listings.peek();
+				if ( listing.hasNext() ) {
+					visit( listing.next() );
+				}
+				else {
+					listings.pop();
+				}
+			}
+			return nextResource != null;
+		}
+
+		@Override
+		public FileRepositoryResource next() {
+			if ( !hasNext() ) {
+				throw new NoSuchElementException();
+			}
+			FileRepositoryResource resource = nextResource;
+			nextResource = null;
+			return resource;
+		}
+
+		private void visit( BlobItem candidate ) {
+			BlockBlobClient listedBlob = blobServiceClient.getBlobContainerClient( containerName )
+			                                              .getBlobClient( candidate.getName() )
+			                                              .getBlockBlobClient();
+			String objectName = listedBlob.getBlobName();
+			if ( candidate.isPrefix() ) {
+				if ( keyMatcher.test( objectName, directoryName + pattern ) ) {
+					nextResource = buildResourceFromListBlobItem( candidate, objectName );
+				}
+				if ( keyMatcher.test( objectName, directoryName + getRootPattern( pattern ) ) ) {
+					listings.push( listBlobs( objectName ) );
+				}
+			}
+			else {
+				if ( !objectName.equals( directoryName ) && !objectName.endsWith( "/" ) && keyMatcher.test( objectName, directoryName + pattern ) ) {
+					nextResource = buildResourceFromListBlobItem( candidate, objectName );
+				}
+			}
+		}
+
+		private Iterator<BlobItem> listBlobs( String prefix ) {
+			return blobServiceClient.getBlobContainerClient( containerName ).listBlobsByHierarchy( prefix ).iterator();
+		}
+	}
 }
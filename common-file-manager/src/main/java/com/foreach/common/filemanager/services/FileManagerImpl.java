@@ -199,8 +199,14 @@ public class FileManagerImpl implements FileManager, FileRepositoryRegistry
 			return sourceRep.move( source, target );
 		}
 		else {
-			save( target, sourceRep.getInputStream( source ), true );
-			return delete( source );
+			try {
+				FileResource sourceResource = sourceRep.getFileResource( source );
+				getFileResource( target ).copyFrom( sourceResource, true );
+				return !sourceResource.exists();
+			}
+			catch ( IOException ioe ) {
+				throw new FileStorageException( ioe );
+			}
 		}
 	}
 
@@ -270,8 +276,29 @@ public class FileManagerImpl implements FileManager, FileRepositoryRegistry
 		return findResources( pattern, FileRepository::findResources );
 	}
 
+	@Override
+	public Stream<FileRepositoryResource> streamResources( @NonNull String pattern ) {
+		return streamResources( pattern, FileRepository::streamResources );
+	}
+
+	@Override
+	public <U extends FileRepositoryResource> Stream<U> streamResources( String pattern, Class<U> resourceType ) {
+		BiFunction<FileRepository, String, Stream<U>> searchFunction = ( repository, p ) -> repository.streamResources( p, resourceType );
+		return streamResources( pattern, searchFunction );
+	}
+
 	private <U extends FileRepositoryResource> Collection<U> findResources( @NonNull String pattern,
 	                                                                        BiFunction<FileRepository, String, Collection<U>> searchFunction ) {
+		BiFunction<FileRepository, String, Stream<U>> streamFunction = ( repository, p ) -> searchFunction.apply( repository, p ).stream();
+		return streamResources( pattern, streamFunction ).collect( Collectors.toList() );
+	}
+
+	/**
+	 * The matching repositories are determined immediately, the repositories themselves are only searched
+	 * when the stream is consumed.
+	 */
+	private <U extends FileRepositoryResource> Stream<U> streamResources( @NonNull String pattern,
+	                                                                      BiFunction<FileRepository, String, Stream<U>> searchFunction ) {
 		String withoutProtocol = StringUtils.removeStart( pattern, FileDescriptor.PROTOCOL );
 		boolean protocolWasPresent = withoutProtocol.length() < pattern.length();
 		int repositoryDelimiter = withoutProtocol.indexOf( ':' );
@@ -284,9 +311,10 @@ public class FileManagerImpl implements FileManager, FileRepositoryRegistry
 		String repositoryPattern = repositoryDelimiter > 0 ? withoutProtocol.substring( 0, repositoryDelimiter ) : DEFAULT_REPOSITORY;
 		String resourcesPattern = StringUtils.replaceOnce( withoutProtocol.substring( repositoryDelimiter + 1 ), ":", "/" );
 
-		return matchingRepositories( pathMatcher, repositoryPattern )
-				.flatMap( repository -> searchFunction.apply( repository, resourcesPattern ).stream() )
-				.collect( Collectors.toList() );
+		List<FileRepository> matchingRepositories = matchingRepositories( pathMatcher, repositoryPattern ).collect( Collectors.<FileRepository>toList() );
+
+		return matchingRepositories.stream()
+		                           .flatMap( repository -> searchFunction.apply( repository, resourcesPattern ) );
 	}
 
 	private Stream<? extends FileRepository> matchingRepositories( AntPathMatcher matcher, String pattern ) {
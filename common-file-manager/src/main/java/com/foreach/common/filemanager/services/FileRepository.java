@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Collection;
+import java.util.stream.Stream;
 
 /**
  * Interface for a single file repository, allowing storing and getting of a single file.
@@ -153,6 +154,28 @@ public interface FileRepository
 		return getRootFolderResource().findResources( pattern );
 	}
 
+	/**
+	 * Stream all resources matching the given ANT pattern in this repository.
+	 * The resources are fetched on demand, see {@link FolderResource#streamResources(String)}.
+	 *
+	 * @param pattern to match
+	 * @return stream of resources
+	 */
+	default Stream<FileRepositoryResource> streamResources( @NonNull String pattern ) {
+		return getRootFolderResource().streamResources( pattern );
+	}
+
+	/**
+	 * Stream all resources of a given type matching the given ANT pattern in this repository.
+	 *
+	 * @param pattern      to match
+	 * @param resourceType type of resources to return
+	 * @return stream of resources
+	 */
+	default <U extends FileRepositoryResource> Stream<U> streamResources( @NonNull String pattern, Class<U> resourceType ) {
+		return getRootFolderResource().streamResources( pattern, resourceType );
+	}
+
 	/**
 	 * Get the {@link FolderResource} representing the root of this repository.
 	 *
@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Collection;
+import java.util.stream.Stream;
 
 /**
  * A FileRepository implementation that delegates its calls to an underlying implementation.
@@ -157,6 +158,16 @@ public class FileRepositoryDelegate implements FileRepository
 		return repository().findResources( pattern );
 	}
 
+	@Override
+	public Stream<FileRepositoryResource> streamResources( String pattern ) {
+		return repository().streamResources( pattern );
+	}
+
+	@Override
+	public <U extends FileRepositoryResource> Stream<U> streamResources( String pattern, Class<U> resourceType ) {
+		return repository().streamResources( pattern, resourceType );
+	}
+
 	private FileRepository repository() {
 		return actualImplementation;
 	}
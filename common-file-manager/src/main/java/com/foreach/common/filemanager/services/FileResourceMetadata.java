@@ -0,0 +1,54 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.filemanager.services;
+
+/**
+ * Metadata of a single file as held by the {@link FileResourceMetadataCache}.
+ * A file that does not exist is represented by {@link #NOT_FOUND}.
+ */
+final class FileResourceMetadata
+{
+	static final FileResourceMetadata NOT_FOUND = new FileResourceMetadata( false, -1, -1 );
+
+	private final boolean exists;
+	private final long contentLength;
+	private final long lastModified;
+
+	private FileResourceMetadata( boolean exists, long contentLength, long lastModified ) {
+		this.exists = exists;
+		this.contentLength = contentLength;
+		this.lastModified = lastModified;
+	}
+
+	boolean exists() {
+		return exists;
+	}
+
+	long getContentLength() {
+		return contentLength;
+	}
+
+	/**
+	 * @return last modified timestamp in milliseconds
+	 */
+	long getLastModified() {
+		return lastModified;
+	}
+
+	static FileResourceMetadata of( long contentLength, long lastModified ) {
+		return new FileResourceMetadata( true, contentLength, lastModified );
+	}
+}
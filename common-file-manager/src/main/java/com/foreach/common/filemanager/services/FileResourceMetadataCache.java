@@ -0,0 +1,199 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.filemanager.services;
+
+import com.foreach.common.filemanager.business.FileDescriptor;
+import lombok.NonNull;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache for the metadata of remote file resources: whether the file exists, its content length and
+ * its last modified timestamp.  Entries expire after a fixed time to live, and the least recently used entry
+ * is removed once the maximum size has been reached.
+ * <p/>
+ * A cache is attached to a repository using {@link AbstractFileRepository#setMetadataCache(FileResourceMetadataCache)}.
+ * It is filled by the file resources of that repository when their metadata is requested, and for free when
+ * folders are listed.  Writing or deleting a file through its resource evicts the entry of that file, but changes
+ * done directly on the backend - or by another application node - are only visible once the entry has expired.
+ * <p/>
+ * A cache should not be shared between repositories.
+ */
+public class FileResourceMetadataCache
+{
+	/**
+	 * Cache that never holds any entries, used by repositories without a metadata cache.
+	 */
+	static final FileResourceMetadataCache NONE = new FileResourceMetadataCache( 0, Duration.ZERO );
+
+	private final int maximumSize;
+	private final long timeToLive;
+	private final Clock clock;
+	private final Map<FileDescriptor, Entry> entries;
+
+	// incremented on every eviction, so a value loaded in the meantime is not stored
+	private long generation;
+
+	/**
+	 * @param maximumSize maximum number of files held in the cache
+	 * @param timeToLive  duration after which an entry expires
+	 */
+	public FileResourceMetadataCache( int maximumSize, @NonNull Duration timeToLive ) {
+		this( maximumSize, timeToLive, Clock.systemUTC() );
+	}
+
+	FileResourceMetadataCache( int maximumSize, Duration timeToLive, Clock clock ) {
+		if ( maximumSize < 0 ) {
+			throw new IllegalArgumentException( "maximumSize cannot be negative" );
+		}
+		if ( timeToLive.isNegative() ) {
+			throw new IllegalArgumentException( "timeToLive cannot be negative" );
+		}
+
+		this.maximumSize = maximumSize;
+		this.timeToLive = timeToLive.toMillis();
+		this.clock = clock;
+
+		entries = new LinkedHashMap<FileDescriptor, Entry>( 16, 0.75f, true )
+		{
+			@Override
+			protected boolean removeEldestEntry( Map.Entry<FileDescriptor, Entry> eldest ) {
+				return size() > FileResourceMetadataCache.this.maximumSize;
+			}
+		};
+	}
+
+	/**
+	 * @return number of entries in the cache, including expired entries that have not yet been removed
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Remove the metadata of a single file.
+	 *
+	 * @param descriptor of the file
+	 */
+	public synchronized void evict( @NonNull FileDescriptor descriptor ) {
+		entries.remove( descriptor );
+		generation++;
+	}
+
+	/**
+	 * Remove all entries.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		generation++;
+	}
+
+	/**
+	 * Get the metadata of a file, loading it if there is no valid entry.
+	 * The loader is executed without holding a lock on the cache.
+	 */
+	FileResourceMetadata get( FileDescriptor descriptor, Supplier<FileResourceMetadata> loader ) {
+		if ( !isEnabled() ) {
+			return loader.get();
+		}
+
+		long loadingGeneration;
+
+		synchronized ( this ) {
+			Entry entry = entries.get( descriptor );
+			if ( entry != null ) {
+				if ( entry.expires > clock.millis() ) {
+					return entry.metadata;
+				}
+				entries.remove( descriptor );
+			}
+			loadingGeneration = generation;
+		}
+
+		FileResourceMetadata metadata = loader.get();
+
+		synchronized ( this ) {
+			if ( loadingGeneration == generation ) {
+				store( descriptor, metadata );
+			}
+		}
+
+		return metadata;
+	}
+
+	/**
+	 * Store metadata that was retrieved some other way, for example when listing a folder.
+	 */
+	synchronized void put( FileDescriptor descriptor, FileResourceMetadata metadata ) {
+		store( descriptor, metadata );
+	}
+
+	/**
+	 * Wrap the output stream for writing a file, so the entry of the file is evicted when the stream is
+	 * closed as well.  Metadata that was requested while writing is not kept.
+	 */
+	OutputStream evictOnClose( FileDescriptor descriptor, OutputStream outputStream ) {
+		if ( !isEnabled() ) {
+			return outputStream;
+		}
+
+		return new FilterOutputStream( outputStream )
+		{
+			@Override
+			public void write( byte[] b, int off, int len ) throws IOException {
+				out.write( b, off, len );
+			}
+
+			@Override
+			public void close() throws IOException {
+				try {
+					super.close();
+				}
+				finally {
+					evict( descriptor );
+				}
+			}
+		};
+	}
+
+	private boolean isEnabled() {
+		return maximumSize > 0 && timeToLive > 0;
+	}
+
+	private void store( FileDescriptor descriptor, FileResourceMetadata metadata ) {
+		if ( isEnabled() ) {
+			entries.put( descriptor, new Entry( metadata, clock.millis() + timeToLive ) );
+		}
+	}
+
+	private static final class Entry
+	{
+		private final FileResourceMetadata metadata;
+		private final long expires;
+
+		Entry( FileResourceMetadata metadata, long expires ) {
+			this.metadata = metadata;
+			this.expires = expires;
+		}
+	}
+}
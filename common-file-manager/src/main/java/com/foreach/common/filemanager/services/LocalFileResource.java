@@ -25,6 +25,7 @@ import org.apache.commons.io.FileUtils;
 import org.springframework.core.io.PathResource;
 
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URI;
@@ -144,6 +145,7 @@ class LocalFileResource extends PathResource implements FileResource, FileResour
 			boolean fileMoved = true;
 
 			try {
+				FileUtils.forceMkdirParent( getTargetFile() );
 				Files.move( originalFile.toPath(), getTargetFile().toPath(), ATOMIC_MOVE, REPLACE_EXISTING );
 			}
 			catch ( IOException ignore ) {
@@ -157,6 +159,27 @@ class LocalFileResource extends PathResource implements FileResource, FileResour
 		}
 	}
 
+	/**
+	 * Moves or copies the physical file directly if the original resource is a local file as well.
+	 */
+	@Override
+	public void copyFrom( @NonNull FileResource originalFileResource, boolean deleteOriginal ) throws IOException {
+		if ( !( originalFileResource instanceof LocalFileResource ) ) {
+			FileResource.super.copyFrom( originalFileResource, deleteOriginal );
+			return;
+		}
+
+		File originalFile = ( (LocalFileResource) originalFileResource ).getTargetFile();
+
+		if ( !originalFile.isFile() ) {
+			throw new FileNotFoundException( "File resource with descriptor [" + originalFileResource.getDescriptor() + "] not found!" );
+		}
+
+		if ( !originalFile.getAbsoluteFile().equals( getTargetFile().getAbsoluteFile() ) ) {
+			copyFrom( originalFile, deleteOriginal );
+		}
+	}
+
 	@Override
 	public boolean equals( Object obj ) {
 		return obj == this || ( obj instanceof FileResource && descriptor.equals( ( (FileResource) obj ).getDescriptor() ) );
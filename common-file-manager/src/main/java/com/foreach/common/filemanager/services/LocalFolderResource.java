@@ -33,6 +33,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.stream.Stream;
 
 /**
  * Represents a single folder (directory) on a {@link LocalFileRepository}.
@@ -95,6 +96,24 @@ class LocalFolderResource implements FolderResource
 		return Collections.emptyList();
 	}
 
+	/**
+	 * Walks the directory tree lazily, a directory is only read when the stream reaches it.
+	 */
+	@Override
+	public Stream<FileRepositoryResource> streamResources( @NonNull String pattern ) {
+		if ( exists() ) {
+			String pathPrefix = StringUtils.replace( directory.toAbsolutePath().toString(), "\\", "/" );
+
+			return AntPathMatchingFileVisitor.streamFileTree( directory, pattern )
+			                                 .map( candidate -> {
+				                                 String relativePath = StringUtils.substring( candidate.toAbsolutePath().toString(), pathPrefix.length() );
+				                                 return toFileRepositoryResource( candidate, relativePath );
+			                                 } );
+		}
+
+		return Stream.empty();
+	}
+
 	private FileRepositoryResource toFileRepositoryResource( Path candidate, String childPath ) {
 		if ( candidate.toFile().isDirectory() ) {
 			return new LocalFolderResource( descriptor.createFolderDescriptor( childPath ), candidate );
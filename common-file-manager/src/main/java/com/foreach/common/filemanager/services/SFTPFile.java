@@ -16,6 +16,7 @@
 package com.foreach.common.filemanager.services;
 
 import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.SftpATTRS;
 import com.jcraft.jsch.SftpException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.integration.sftp.session.SftpRemoteFileTemplate;
@@ -82,7 +83,7 @@ public class SFTPFile
 
 	}
 
-	// epochmilli
+	// epoch seconds
 	public long getLastModified() {
 		return remoteFileTemplate.<Long, ChannelSftp>executeWithClient( client -> {
 			try {
@@ -94,4 +95,25 @@ public class SFTPFile
 			return -1L;
 		} );
 	}
+
+	/**
+	 * Retrieve existence, size and last modified timestamp using a single {@code stat} call.
+	 */
+	FileResourceMetadata getMetadata() {
+		return remoteFileTemplate.<FileResourceMetadata, ChannelSftp>executeWithClient( client -> {
+			try {
+				return toMetadata( client.stat( path ) );
+			}
+			catch ( SftpException e ) {
+				if ( e.id != ChannelSftp.SSH_FX_NO_SUCH_FILE ) {
+					LOG.error( "Unexpected error when retrieving the attributes of {}", path, e );
+				}
+				return FileResourceMetadata.NOT_FOUND;
+			}
+		} );
+	}
+
+	static FileResourceMetadata toMetadata( SftpATTRS attributes ) {
+		return FileResourceMetadata.of( attributes.getSize(), attributes.getMTime() * 1000L );
+	}
 }
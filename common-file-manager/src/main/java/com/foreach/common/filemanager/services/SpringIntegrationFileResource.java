@@ -17,10 +17,14 @@ package com.foreach.common.filemanager.services;
 
 import com.foreach.common.filemanager.business.FileDescriptor;
 import com.foreach.common.filemanager.business.FileResource;
+import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.integration.file.remote.RemoteFileTemplate;
+import org.springframework.messaging.MessagingException;
 
+import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.Arrays;
 
 @RequiredArgsConstructor
@@ -47,6 +51,47 @@ public abstract class SpringIntegrationFileResource implements FileResource
 		return remoteFileTemplate.exists( getPath() );
 	}
 
+	/**
+	 * Renames the remote file if the original resource should be deleted and uses the same
+	 * {@link RemoteFileTemplate}, instead of transferring the data through the application.
+	 */
+	@Override
+	public void copyFrom( @NonNull FileResource originalFileResource, boolean deleteOriginal ) throws IOException {
+		if ( !deleteOriginal
+				|| !( originalFileResource instanceof SpringIntegrationFileResource )
+				|| ( (SpringIntegrationFileResource) originalFileResource ).remoteFileTemplate != remoteFileTemplate ) {
+			FileResource.super.copyFrom( originalFileResource, deleteOriginal );
+			return;
+		}
+
+		SpringIntegrationFileResource original = (SpringIntegrationFileResource) originalFileResource;
+
+		if ( !original.exists() ) {
+			throw new FileNotFoundException( "Unable to locate file " + original.getDescriptor() );
+		}
+
+		if ( original.getPath().equals( getPath() ) ) {
+			return;
+		}
+
+		try {
+			remoteFileTemplate.rename( original.getPath(), getPath() );
+		}
+		catch ( MessagingException me ) {
+			throw new IOException( "Unable to rename " + original.getPath() + " to " + getPath(), me );
+		}
+		finally {
+			original.resetFileMetadata();
+			resetFileMetadata();
+		}
+	}
+
+	/**
+	 * Clear the metadata held for this file, called after the file has been renamed.
+	 */
+	void resetFileMetadata() {
+	}
+
 	@Override
 	public String getFilename() {
 		return fileDescriptor.getFileId();
@@ -21,12 +21,8 @@ import com.foreach.common.filemanager.business.FolderDescriptor;
 import com.foreach.common.filemanager.business.FolderResource;
 import lombok.Builder;
 import lombok.NonNull;
-import org.apache.commons.net.ftp.FTPClient;
-import org.apache.commons.net.ftp.FTPFile;
 import org.springframework.integration.ftp.session.FtpRemoteFileTemplate;
 
-import java.io.IOException;
-
 public class SpringIntegrationFtpFileRepository extends AbstractFileRepository
 {
 	private final FtpRemoteFileTemplate remoteFileTemplate;
@@ -41,25 +37,16 @@ public class SpringIntegrationFtpFileRepository extends AbstractFileRepository
 
 	}
 
+	/**
+	 * The file information is only retrieved once it is needed, possibly from the metadata cache.
+	 */
 	@Override
 	protected FileResource buildFileResource( FileDescriptor descriptor ) {
-		String path = SpringIntegrationFtpFileResource.getPath( descriptor );
-		FTPFile file = null;
-		if ( remoteFileTemplate.exists( path ) ) {
-			file = remoteFileTemplate.<FTPFile, FTPClient>executeWithClient( client -> {
-				try {
-					return client.mdtmFile( path );
-				}
-				catch ( IOException e ) {
-					return null;
-				}
-			} );
-		}
-		return new SpringIntegrationFtpFileResource( descriptor, file, remoteFileTemplate );
+		return new SpringIntegrationFtpFileResource( descriptor, null, remoteFileTemplate, getMetadataCache() );
 	}
 
 	@Override
 	protected FolderResource buildFolderResource( FolderDescriptor descriptor ) {
-		return new SpringIntegrationFtpFolderResource( descriptor, remoteFileTemplate );
+		return new SpringIntegrationFtpFolderResource( descriptor, remoteFileTemplate, getMetadataCache() );
 	}
 }
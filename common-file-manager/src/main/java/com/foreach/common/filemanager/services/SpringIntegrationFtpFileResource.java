@@ -35,25 +35,28 @@ public class SpringIntegrationFtpFileResource extends SpringIntegrationFileResou
 {
 	private final FileDescriptor fileDescriptor;
 	private final FtpRemoteFileTemplate remoteFileTemplate;
+	private final FileResourceMetadataCache metadataCache;
 	private FTPFile file;
 
 	SpringIntegrationFtpFileResource( FileDescriptor fileDescriptor,
 	                                  FTPFile file,
-	                                  FtpRemoteFileTemplate remoteFileTemplate ) {
+	                                  FtpRemoteFileTemplate remoteFileTemplate,
+	                                  FileResourceMetadataCache metadataCache ) {
 		super( fileDescriptor, remoteFileTemplate );
 		this.fileDescriptor = fileDescriptor;
 		this.file = file;
 		this.remoteFileTemplate = remoteFileTemplate;
+		this.metadataCache = metadataCache;
 	}
 
 	@Override
 	public FolderResource getFolderResource() {
-		return new SpringIntegrationFtpFolderResource( fileDescriptor.getFolderDescriptor(), remoteFileTemplate );
+		return new SpringIntegrationFtpFolderResource( fileDescriptor.getFolderDescriptor(), remoteFileTemplate, metadataCache );
 	}
 
 	@Override
 	public boolean exists() {
-		return getFtpFile() != null;
+		return getMetadata().exists();
 	}
 
 	@Override
@@ -70,20 +73,12 @@ public class SpringIntegrationFtpFileResource extends SpringIntegrationFileResou
 
 	@Override
 	public long contentLength() throws IOException {
-		FTPFile file = getFtpFile();
-		if ( file == null ) {
-			throw new FileNotFoundException( "Unable to locate file " + fileDescriptor );
-		}
-		return file.getSize();
+		return getRequiredMetadata().getContentLength();
 	}
 
 	@Override
 	public long lastModified() throws IOException {
-		FTPFile file = getFtpFile();
-		if ( file == null ) {
-			throw new FileNotFoundException( "Unable to locate file " + fileDescriptor );
-		}
-		return file.getTimestamp().toInstant().toEpochMilli();
+		return getRequiredMetadata().getLastModified();
 	}
 
 	@Override
@@ -106,11 +101,36 @@ public class SpringIntegrationFtpFileResource extends SpringIntegrationFileResou
 			instantiateAsEmptyFile( client );
 		}
 		resetFileMetadata();
-		return new FtpFileOutputStream( client.storeFileStream( getPath() ), client, session );
+		return metadataCache.evictOnClose( fileDescriptor, new FtpFileOutputStream( client.storeFileStream( getPath() ), client, session ) );
 	}
 
+	@Override
 	void resetFileMetadata() {
 		this.file = null;
+		metadataCache.evict( fileDescriptor );
+	}
+
+	void loadMetadata( FTPFile listedFile ) {
+		metadataCache.put( fileDescriptor, toMetadata( listedFile ) );
+	}
+
+	private FileResourceMetadata getRequiredMetadata() throws FileNotFoundException {
+		FileResourceMetadata metadata = getMetadata();
+		if ( !metadata.exists() ) {
+			throw new FileNotFoundException( "Unable to locate file " + fileDescriptor );
+		}
+		return metadata;
+	}
+
+	private FileResourceMetadata getMetadata() {
+		return metadataCache.get( fileDescriptor, () -> {
+			FTPFile ftpFile = getFtpFile();
+			return ftpFile != null ? toMetadata( ftpFile ) : FileResourceMetadata.NOT_FOUND;
+		} );
+	}
+
+	private FileResourceMetadata toMetadata( FTPFile ftpFile ) {
+		return FileResourceMetadata.of( ftpFile.getSize(), ftpFile.getTimestamp() != null ? ftpFile.getTimestamp().toInstant().toEpochMilli() : 0 );
 	}
 
 	private Void instantiateAsEmptyFile( FTPClient client ) throws IOException {
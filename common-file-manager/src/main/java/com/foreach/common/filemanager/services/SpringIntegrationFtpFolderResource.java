@@ -36,12 +36,15 @@ public class SpringIntegrationFtpFolderResource extends SpringIntegrationFolderR
 {
 	private final FolderDescriptor folderDescriptor;
 	private final FtpRemoteFileTemplate remoteFileTemplate;
+	private final FileResourceMetadataCache metadataCache;
 
 	SpringIntegrationFtpFolderResource( @NonNull FolderDescriptor folderDescriptor,
-	                                    @NonNull FtpRemoteFileTemplate remoteFileTemplate ) {
+	                                    @NonNull FtpRemoteFileTemplate remoteFileTemplate,
+	                                    @NonNull FileResourceMetadataCache metadataCache ) {
 		super( folderDescriptor, remoteFileTemplate );
 		this.folderDescriptor = folderDescriptor;
 		this.remoteFileTemplate = remoteFileTemplate;
+		this.metadataCache = metadataCache;
 	}
 
 	@Override
@@ -56,7 +59,7 @@ public class SpringIntegrationFtpFolderResource extends SpringIntegrationFolderR
 	@Override
 	public Optional<FolderResource> getParentFolderResource() {
 		return folderDescriptor.getParentFolderDescriptor()
-		                       .map( fd -> new SpringIntegrationFtpFolderResource( fd, remoteFileTemplate ) );
+		                       .map( fd -> new SpringIntegrationFtpFolderResource( fd, remoteFileTemplate, metadataCache ) );
 	}
 
 	@Override
@@ -66,7 +69,7 @@ public class SpringIntegrationFtpFolderResource extends SpringIntegrationFolderR
 		}
 
 		if ( relativePath.endsWith( "/" ) ) {
-			return new SpringIntegrationFtpFolderResource( folderDescriptor.createFolderDescriptor( relativePath ), remoteFileTemplate );
+			return new SpringIntegrationFtpFolderResource( folderDescriptor.createFolderDescriptor( relativePath ), remoteFileTemplate, metadataCache );
 		}
 
 		FileDescriptor fileDescriptor = folderDescriptor.createFileDescriptor( relativePath );
@@ -75,7 +78,7 @@ public class SpringIntegrationFtpFolderResource extends SpringIntegrationFolderR
 				? retrieveRemoteFile( actualPath )
 				: null;
 
-		return new SpringIntegrationFtpFileResource( fileDescriptor, ftpFile, remoteFileTemplate );
+		return new SpringIntegrationFtpFileResource( fileDescriptor, ftpFile, remoteFileTemplate, metadataCache );
 	}
 
 	@Override
@@ -136,7 +139,7 @@ public class SpringIntegrationFtpFolderResource extends SpringIntegrationFolderR
 		if ( ftpFile.isDirectory() ) {
 			return Collections.singletonList(
 					new SpringIntegrationFtpFolderResource( FolderDescriptor.of( folderDescriptor.getRepositoryId(), pathToSearch ),
-					                                        remoteFileTemplate ) );
+					                                        remoteFileTemplate, metadataCache ) );
 		}
 		return Collections.singletonList( createFileResource( ftpFile, StringUtils.removeStart( pathToSearch, "/" ) ) );
 	}
@@ -289,7 +292,7 @@ public class SpringIntegrationFtpFolderResource extends SpringIntegrationFolderR
 		return Arrays.stream( ftpFiles )
 		             .map( file -> new SpringIntegrationFtpFolderResource(
 				             FolderDescriptor.of( folderDescriptor.getRepositoryId(), getPath() ).createFolderDescriptor( file.getName() ),
-				             remoteFileTemplate ) )
+				             remoteFileTemplate, metadataCache ) )
 		             .collect( Collectors.toList() );
 	}
 
@@ -320,9 +323,11 @@ public class SpringIntegrationFtpFolderResource extends SpringIntegrationFolderR
 			fileName = fileName.substring( lastIndexOfSlash + 1 );
 			folderName = fullPath.replace( fileName, "" );
 		}
-		return new SpringIntegrationFtpFileResource( FileDescriptor.of( folderDescriptor.getRepositoryId(), folderName, fileName ),
-		                                             file,
-		                                             remoteFileTemplate );
+		SpringIntegrationFtpFileResource fileResource = new SpringIntegrationFtpFileResource(
+				FileDescriptor.of( folderDescriptor.getRepositoryId(), folderName, fileName ), file, remoteFileTemplate, metadataCache
+		);
+		fileResource.loadMetadata( file );
+		return fileResource;
 	}
 
 }
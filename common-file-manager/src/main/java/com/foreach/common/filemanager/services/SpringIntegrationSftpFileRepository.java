@@ -19,7 +19,6 @@ import com.foreach.common.filemanager.business.FileDescriptor;
 import com.foreach.common.filemanager.business.FileResource;
 import com.foreach.common.filemanager.business.FolderDescriptor;
 import com.foreach.common.filemanager.business.FolderResource;
-import com.jcraft.jsch.ChannelSftp;
 import lombok.Builder;
 import lombok.NonNull;
 import org.springframework.integration.sftp.session.SftpRemoteFileTemplate;
@@ -42,18 +41,16 @@ public class SpringIntegrationSftpFileRepository extends AbstractFileRepository
 
 	}
 
+	/**
+	 * The file information is only retrieved once it is needed, possibly from the metadata cache.
+	 */
 	@Override
 	protected FileResource buildFileResource( FileDescriptor descriptor ) {
-		String path = SpringIntegrationSftpFileResource.getPath( descriptor );
-		SFTPFile file = null;
-		if ( remoteFileTemplate.exists( path ) ) {
-			file = remoteFileTemplate.<SFTPFile, ChannelSftp>executeWithClient( client -> new SFTPFile( remoteFileTemplate, path ) );
-		}
-		return new SpringIntegrationSftpFileResource( descriptor, file, remoteFileTemplate );
+		return new SpringIntegrationSftpFileResource( descriptor, null, remoteFileTemplate, getMetadataCache() );
 	}
 
 	@Override
 	protected FolderResource buildFolderResource( FolderDescriptor descriptor ) {
-		return new SpringIntegrationSftpFolderResource( descriptor, remoteFileTemplate );
+		return new SpringIntegrationSftpFolderResource( descriptor, remoteFileTemplate, getMetadataCache() );
 	}
 }
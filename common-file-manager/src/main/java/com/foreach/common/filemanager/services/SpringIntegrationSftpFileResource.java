@@ -19,6 +19,7 @@ import com.foreach.common.filemanager.business.FileDescriptor;
 import com.foreach.common.filemanager.business.FileResource;
 import com.foreach.common.filemanager.business.FolderResource;
 import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.SftpATTRS;
 import com.jcraft.jsch.SftpException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.integration.file.remote.session.Session;
@@ -36,25 +37,28 @@ public class SpringIntegrationSftpFileResource extends SpringIntegrationFileReso
 {
 	private final FileDescriptor fileDescriptor;
 	private final SftpRemoteFileTemplate remoteFileTemplate;
+	private final FileResourceMetadataCache metadataCache;
 	private SFTPFile file;
 
 	SpringIntegrationSftpFileResource( FileDescriptor fileDescriptor,
 	                                   SFTPFile file,
-	                                   SftpRemoteFileTemplate remoteFileTemplate ) {
+	                                   SftpRemoteFileTemplate remoteFileTemplate,
+	                                   FileResourceMetadataCache metadataCache ) {
 		super( fileDescriptor, remoteFileTemplate );
 		this.fileDescriptor = fileDescriptor;
 		this.file = file;
 		this.remoteFileTemplate = remoteFileTemplate;
+		this.metadataCache = metadataCache;
 	}
 
 	@Override
 	public FolderResource getFolderResource() {
-		return new SpringIntegrationSftpFolderResource( fileDescriptor.getFolderDescriptor(), remoteFileTemplate );
+		return new SpringIntegrationSftpFolderResource( fileDescriptor.getFolderDescriptor(), remoteFileTemplate, metadataCache );
 	}
 
 	@Override
 	public boolean exists() {
-		return getSftpFile().exists();
+		return getMetadata().exists();
 	}
 
 	@Override
@@ -71,20 +75,12 @@ public class SpringIntegrationSftpFileResource extends SpringIntegrationFileReso
 
 	@Override
 	public long contentLength() throws IOException {
-		SFTPFile file = getSftpFile();
-		if ( !file.exists() ) {
-			throw new FileNotFoundException( "Unable to locate file " + fileDescriptor );
-		}
-		return file.getSize();
+		return getRequiredMetadata().getContentLength();
 	}
 
 	@Override
 	public long lastModified() throws IOException {
-		SFTPFile file = getSftpFile();
-		if ( file == null ) {
-			throw new FileNotFoundException( "Unable to locate file " + fileDescriptor );
-		}
-		return file.getLastModified();
+		return getRequiredMetadata().getLastModified();
 	}
 
 	@Override
@@ -108,7 +104,7 @@ public class SpringIntegrationSftpFileResource extends SpringIntegrationFileReso
 		}
 		resetFileMetadata();
 		try {
-			return client.put( getPath() );
+			return metadataCache.evictOnClose( fileDescriptor, client.put( getPath() ) );
 		}
 		catch ( SftpException e ) {
 			LOG.error( "Unexpected error whilst opening an OutputStream for file {}", getPath() );
@@ -116,8 +112,29 @@ public class SpringIntegrationSftpFileResource extends SpringIntegrationFileReso
 		}
 	}
 
+	@Override
 	void resetFileMetadata() {
 		this.file = null;
+		metadataCache.evict( fileDescriptor );
+	}
+
+	void loadMetadata( SftpATTRS attributes ) {
+		metadataCache.put( fileDescriptor, SFTPFile.toMetadata( attributes ) );
+	}
+
+	private FileResourceMetadata getRequiredMetadata() throws FileNotFoundException {
+		FileResourceMetadata metadata = getMetadata();
+		if ( !metadata.exists() ) {
+			throw new FileNotFoundException( "Unable to locate file " + fileDescriptor );
+		}
+		return metadata;
+	}
+
+	/**
+	 * Retrieves all metadata with a single {@code stat} call.
+	 */
+	private FileResourceMetadata getMetadata() {
+		return metadataCache.get( fileDescriptor, () -> getSftpFile().getMetadata() );
 	}
 
 	private Void instantiateAsEmptyFile( ChannelSftp client ) throws IOException {
@@ -39,12 +39,15 @@ public class SpringIntegrationSftpFolderResource extends SpringIntegrationFolder
 {
 	private final FolderDescriptor folderDescriptor;
 	private final SftpRemoteFileTemplate remoteFileTemplate;
+	private final FileResourceMetadataCache metadataCache;
 
 	SpringIntegrationSftpFolderResource( @NonNull FolderDescriptor folderDescriptor,
-	                                     @NonNull SftpRemoteFileTemplate remoteFileTemplate ) {
+	                                     @NonNull SftpRemoteFileTemplate remoteFileTemplate,
+	                                     @NonNull FileResourceMetadataCache metadataCache ) {
 		super( folderDescriptor, remoteFileTemplate );
 		this.folderDescriptor = folderDescriptor;
 		this.remoteFileTemplate = remoteFileTemplate;
+		this.metadataCache = metadataCache;
 	}
 
 	@Override
@@ -59,7 +62,7 @@ public class SpringIntegrationSftpFolderResource extends SpringIntegrationFolder
 	@Override
 	public Optional<FolderResource> getParentFolderResource() {
 		return folderDescriptor.getParentFolderDescriptor()
-		                       .map( fd -> new SpringIntegrationSftpFolderResource( fd, remoteFileTemplate ) );
+		                       .map( fd -> new SpringIntegrationSftpFolderResource( fd, remoteFileTemplate, metadataCache ) );
 	}
 
 	@Override
@@ -69,7 +72,7 @@ public class SpringIntegrationSftpFolderResource extends SpringIntegrationFolder
 		}
 
 		if ( relativePath.endsWith( "/" ) ) {
-			return new SpringIntegrationSftpFolderResource( folderDescriptor.createFolderDescriptor( relativePath ), remoteFileTemplate );
+			return new SpringIntegrationSftpFolderResource( folderDescriptor.createFolderDescriptor( relativePath ), remoteFileTemplate, metadataCache );
 		}
 
 		FileDescriptor fileDescriptor = folderDescriptor.createFileDescriptor( relativePath );
@@ -78,7 +81,7 @@ public class SpringIntegrationSftpFolderResource extends SpringIntegrationFolder
 				? retrieveRemoteFile( actualPath )
 				: null;
 
-		return new SpringIntegrationSftpFileResource( fileDescriptor, ftpFile, remoteFileTemplate );
+		return new SpringIntegrationSftpFileResource( fileDescriptor, ftpFile, remoteFileTemplate, metadataCache );
 	}
 
 	@Override
@@ -139,7 +142,7 @@ public class SpringIntegrationSftpFolderResource extends SpringIntegrationFolder
 		if ( ftpFile.isDirectory() ) {
 			return Collections.singletonList(
 					new SpringIntegrationSftpFolderResource( FolderDescriptor.of( folderDescriptor.getRepositoryId(), pathToSearch ),
-					                                         remoteFileTemplate ) );
+					                                         remoteFileTemplate, metadataCache ) );
 		}
 		return Collections.singletonList( createFileResource( ftpFile, StringUtils.removeStart( pathToSearch, "/" ) ) );
 	}
@@ -293,19 +296,19 @@ public class SpringIntegrationSftpFolderResource extends SpringIntegrationFolder
 		return ftpFolderNames.stream()
 		                     .map( fileName -> new SpringIntegrationSftpFolderResource(
 				                     FolderDescriptor.of( folderDescriptor.getRepositoryId(), getPath() ).createFolderDescriptor( fileName ),
-				                     remoteFileTemplate ) )
+				                     remoteFileTemplate, metadataCache ) )
 		                     .collect( Collectors.toList() );
 	}
 
 	@SuppressWarnings("unchecked")
 	private List<SpringIntegrationSftpFileResource> retrieveFilesForPath( ChannelSftp client, String path ) {
-		List<String> ftpFileNames = new ArrayList<>();
+		List<ChannelSftp.LsEntry> ftpFiles = new ArrayList<>();
 
 		try {
 			Vector<ChannelSftp.LsEntry> files = client.ls( path );
 			for ( ChannelSftp.LsEntry entry : files ) {
 				if ( !entry.getAttrs().isDir() ) {
-					ftpFileNames.add( entry.getFilename() );
+					ftpFiles.add( entry );
 				}
 			}
 		}
@@ -313,9 +316,14 @@ public class SpringIntegrationSftpFolderResource extends SpringIntegrationFolder
 			LOG.error( "Unexpected error whilst listing files for path '{}'. Falling back to no directories found.", path, e );
 		}
 
-		return ftpFileNames.stream()
-		                   .map( fileName -> createFileResource( new SFTPFile( remoteFileTemplate, path + "/" + fileName ) ) ) // iffy full path creation maybe
-		                   .collect( Collectors.toList() );
+		return ftpFiles.stream()
+		               .map( entry -> {
+			               SpringIntegrationSftpFileResource fileResource
+					               = createFileResource( new SFTPFile( remoteFileTemplate, path + "/" + entry.getFilename() ) ); // iffy full path creation maybe
+			               fileResource.loadMetadata( entry.getAttrs() );
+			               return fileResource;
+		               } )
+		               .collect( Collectors.toList() );
 	}
 
 	private SpringIntegrationSftpFileResource createFileResource( SFTPFile file ) {
@@ -332,7 +340,8 @@ public class SpringIntegrationSftpFolderResource extends SpringIntegrationFolder
 		}
 		return new SpringIntegrationSftpFileResource( FileDescriptor.of( folderDescriptor.getRepositoryId(), folderName, fileName ),
 		                                              file,
-		                                              remoteFileTemplate );
+		                                              remoteFileTemplate,
+		                                              metadataCache );
 	}
 
 }
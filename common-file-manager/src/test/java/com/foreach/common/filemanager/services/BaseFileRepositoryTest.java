@@ -38,6 +38,8 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
@@ -299,6 +301,31 @@ abstract class BaseFileRepositoryTest
 		assertThat( fileRepository.findResources( "xx/" ) ).containsExactly( folder );
 	}
 
+	@Test
+	@SneakyThrows
+	void streamResources() {
+		FolderResource rootFolder = fileRepository.getRootFolderResource();
+		FolderResource folder = rootFolder.getFolderResource( "streamed" );
+		FileResource file = folder.getFileResource( "findme.txt" );
+		FileResource otherFile = folder.getFolderResource( "child" ).getFileResource( "findme.txt" );
+		file.copyFrom( RES_TEXTFILE );
+		otherFile.copyFrom( RES_TEXTFILE );
+
+		try (Stream<FileRepositoryResource> resources = fileRepository.streamResources( "streamed/**" )) {
+			assertThat( resources.collect( Collectors.toList() ) )
+					.containsExactlyInAnyOrderElementsOf( fileRepository.findResources( "streamed/**" ) );
+		}
+		try (Stream<FileResource> files = fileRepository.streamResources( "streamed/**/findme.txt", FileResource.class )) {
+			assertThat( files ).containsExactlyInAnyOrder( file, otherFile );
+		}
+		try (Stream<FileResource> files = folder.streamResources( "**", FileResource.class )) {
+			assertThat( files.findFirst() ).isPresent();
+		}
+		try (Stream<FileRepositoryResource> resources = fileRepository.streamResources( "unknown/**" )) {
+			assertThat( resources ).isEmpty();
+		}
+	}
+
 	@Test
 	@SneakyThrows
 	void findResourcesAndFilesWithHierarchySetup() {
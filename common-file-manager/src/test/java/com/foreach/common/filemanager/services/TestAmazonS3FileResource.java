@@ -16,6 +16,10 @@
 package com.foreach.common.filemanager.services;
 
 import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.CopyObjectRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.foreach.common.filemanager.business.FileDescriptor;
 import com.foreach.common.filemanager.business.FileResource;
 import com.foreach.common.filemanager.test.utils.AmazonS3Helper;
@@ -25,6 +29,7 @@ import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.task.SyncTaskExecutor;
@@ -36,8 +41,7 @@ import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 /**
  * @author Arne Vandamme
@@ -59,7 +63,8 @@ class TestAmazonS3FileResource
 	void createResource() {
 		objectName = UUID.randomUUID().toString();
 		descriptor = FileDescriptor.of( "my-repo", "123/456", objectName );
-		resource = new AmazonS3FileResource( descriptor, amazonS3, BUCKET_NAME, objectName, new SyncTaskExecutor() );
+		resource = new AmazonS3FileResource( descriptor, amazonS3, BUCKET_NAME, objectName, new SyncTaskExecutor(), 1, FileResourceMetadataCache.NONE,
+		                                     multipartTransfer() );
 	}
 
 	@AfterAll
@@ -78,8 +83,10 @@ class TestAmazonS3FileResource
 		assertThat( resource )
 				.isEqualTo( resource )
 				.isNotEqualTo( mock( Resource.class ) )
-				.isEqualTo( new AmazonS3FileResource( resource.getDescriptor(), amazonS3, "other", "objectName", new SyncTaskExecutor() ) )
-				.isNotEqualTo( new AmazonS3FileResource( FileDescriptor.of( "1:2:3" ), amazonS3, BUCKET_NAME, objectName, new SyncTaskExecutor() ) );
+				.isEqualTo( new AmazonS3FileResource( resource.getDescriptor(), amazonS3, "other", "objectName", new SyncTaskExecutor(), 1, FileResourceMetadataCache.NONE,
+				                                               multipartTransfer() ) )
+				.isNotEqualTo( new AmazonS3FileResource( FileDescriptor.of( "1:2:3" ), amazonS3, BUCKET_NAME, objectName, new SyncTaskExecutor(), 1, FileResourceMetadataCache.NONE,
+				                                               multipartTransfer() ) );
 	}
 
 	@Test
@@ -279,6 +286,54 @@ class TestAmazonS3FileResource
 		assertThat( other.exists() ).isFalse();
 	}
 
+	@Test
+	@SneakyThrows
+	void copyFromAmazonS3FileResourceCopiesObject() {
+		amazonS3.putObject( BUCKET_NAME, objectName, "some-data" );
+
+		String copyName = UUID.randomUUID().toString();
+		FileResource copy = new AmazonS3FileResource( FileDescriptor.of( "my-repo", "123/789", copyName ), amazonS3, BUCKET_NAME, copyName,
+		                                              new SyncTaskExecutor(), 1, FileResourceMetadataCache.NONE, multipartTransfer() );
+
+		copy.copyFrom( resource, false );
+		assertThat( resource.exists() ).isTrue();
+		assertThat( amazonS3.getObjectAsString( BUCKET_NAME, copyName ) ).isEqualTo( "some-data" );
+
+		amazonS3.putObject( BUCKET_NAME, objectName, "other-data" );
+		copy.copyFrom( resource, true );
+		assertThat( resource.exists() ).isFalse();
+		assertThat( amazonS3.getObjectAsString( BUCKET_NAME, copyName ) ).isEqualTo( "other-data" );
+
+		assertThatExceptionOfType( FileNotFoundException.class )
+				.isThrownBy( () -> copy.copyFrom( resource, true ) );
+	}
+
+	@Test
+	@SneakyThrows
+	void copyFromAmazonS3FileResourceDoesNotTransferData() {
+		AmazonS3 copyingAmazonS3 = mock( AmazonS3.class );
+		ObjectMetadata metadata = new ObjectMetadata();
+		metadata.setContentLength( 9 );
+		when( copyingAmazonS3.getObjectMetadata( BUCKET_NAME, "source" ) ).thenReturn( metadata );
+
+		AmazonS3MultipartTransfer transfer = new AmazonS3MultipartTransfer(
+				copyingAmazonS3, new SyncTaskExecutor(), AmazonS3FileRepository.DEFAULT_MULTIPART_PART_SIZE, 1 );
+		FileResource source = new AmazonS3FileResource( FileDescriptor.of( "my-repo", null, "source" ), copyingAmazonS3, BUCKET_NAME, "source",
+		                                                new SyncTaskExecutor(), 1, FileResourceMetadataCache.NONE, transfer );
+		FileResource target = new AmazonS3FileResource( FileDescriptor.of( "my-repo", null, "target" ), copyingAmazonS3, BUCKET_NAME, "target",
+		                                                new SyncTaskExecutor(), 1, FileResourceMetadataCache.NONE, transfer );
+
+		target.copyFrom( source, true );
+
+		ArgumentCaptor<CopyObjectRequest> request = ArgumentCaptor.forClass( CopyObjectRequest.class );
+		verify( copyingAmazonS3 ).copyObject( request.capture() );
+		assertThat( request.getValue().getSourceKey() ).isEqualTo( "source" );
+		assertThat( request.getValue().getDestinationKey() ).isEqualTo( "target" );
+		verify( copyingAmazonS3 ).deleteObject( BUCKET_NAME, "source" );
+		verify( copyingAmazonS3, never() ).getObject( any( GetObjectRequest.class ) );
+		verify( copyingAmazonS3, never() ).putObject( any( PutObjectRequest.class ) );
+	}
+
 	@SuppressWarnings("ResultOfMethodCallIgnored")
 	@Test
 	@SneakyThrows
@@ -358,4 +413,8 @@ class TestAmazonS3FileResource
 			return StreamUtils.copyToString( is, Charset.defaultCharset() );
 		}
 	}
+
+	private static AmazonS3MultipartTransfer multipartTransfer() {
+		return new AmazonS3MultipartTransfer( amazonS3, new SyncTaskExecutor(), AmazonS3FileRepository.DEFAULT_MULTIPART_PART_SIZE, 1 );
+	}
 }
@@ -16,6 +16,9 @@
 package com.foreach.common.filemanager.services;
 
 import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
 import com.foreach.common.filemanager.business.*;
 import com.foreach.common.filemanager.test.utils.AmazonS3Helper;
 import lombok.SneakyThrows;
@@ -23,14 +26,25 @@ import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.core.io.Resource;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.core.task.SyncTaskExecutor;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
-import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.*;
 
 /**
  * @author Arne Vandamme
@@ -183,6 +197,142 @@ class TestAmazonS3FolderResource
 				.containsExactlyInAnyOrder( childFile, childFolder, childFolderInChildFolder, childFileInChildFolder );
 	}
 
+	@Test
+	void streamResources() {
+		createFileTree();
+
+		try (Stream<FileRepositoryResource> resources = resource.streamResources( "**" )) {
+			assertThat( resources )
+					.containsExactlyInAnyOrder( childFile, childFolder, childFolderInChildFolder, childFileInChildFolder );
+		}
+		try (Stream<FolderResource> folders = resource.streamResources( "**", FolderResource.class )) {
+			assertThat( folders ).containsExactlyInAnyOrder( childFolder, childFolderInChildFolder );
+		}
+		try (Stream<FileRepositoryResource> resources = resource.streamResources( "*/*" )) {
+			assertThat( resources ).containsExactlyInAnyOrder( childFolderInChildFolder, childFileInChildFolder );
+		}
+	}
+
+	@Test
+	void streamResourcesOnlyFetchesPagesWhenNeeded() {
+		AmazonS3 pagedAmazonS3 = mock( AmazonS3.class );
+		ObjectListing firstPage = new ObjectListing();
+		firstPage.setTruncated( true );
+		S3ObjectSummary summary = new S3ObjectSummary();
+		summary.setKey( "paged/first.txt" );
+		firstPage.getObjectSummaries().add( summary );
+		when( pagedAmazonS3.listObjects( any( ListObjectsRequest.class ) ) ).thenReturn( firstPage );
+
+		AmazonS3FolderResource folder = new AmazonS3FolderResource( descriptor, pagedAmazonS3, BUCKET_NAME, "paged/", TASK_EXECUTOR, 1, FileResourceMetadataCache.NONE,
+		                                                            multipartTransfer( pagedAmazonS3 ) );
+
+		try (Stream<FileRepositoryResource> resources = folder.streamResources( "**" )) {
+			assertThat( resources.findFirst() ).contains( folder.getFileResource( "first.txt" ) );
+		}
+		verify( pagedAmazonS3 ).listObjects( any( ListObjectsRequest.class ) );
+		verify( pagedAmazonS3, never() ).listNextBatchOfObjects( any( ObjectListing.class ) );
+	}
+
+	@Test
+	void streamResourcesListsSubFoldersConcurrentlyInQueueOrder() {
+		AmazonS3 concurrentAmazonS3 = mock( AmazonS3.class );
+		Thread callingThread = Thread.currentThread();
+		List<String> listedInCallingThread = new CopyOnWriteArrayList<>();
+		AtomicReference<CountDownLatch> lastTenantListed = new AtomicReference<>();
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+
+		when( concurrentAmazonS3.listObjects( any( ListObjectsRequest.class ) ) ).thenAnswer( invocation -> {
+			String prefix = invocation.<ListObjectsRequest>getArgument( 0 ).getPrefix();
+			maxRunning.accumulateAndGet( running.incrementAndGet(), Math::max );
+			if ( Thread.currentThread() == callingThread ) {
+				listedInCallingThread.add( prefix );
+			}
+
+			try {
+				ObjectListing listing = new ObjectListing();
+				if ( "tenants/".equals( prefix ) ) {
+					listing.getCommonPrefixes().addAll(
+							Arrays.asList( "tenants/a/", "tenants/b/", "tenants/c/", "tenants/d/", "tenants/e/", "tenants/f/" )
+					);
+				}
+				else if ( prefix.endsWith( "/2023/" ) ) {
+					S3ObjectSummary summary = new S3ObjectSummary();
+					summary.setKey( prefix + "doc.pdf" );
+					listing.getObjectSummaries().add( summary );
+				}
+				else {
+					// the first tenant only completes once the third one has been listed
+					if ( "tenants/a/".equals( prefix ) ) {
+						assertThat( lastTenantListed.get().await( 5, TimeUnit.SECONDS ) ).isTrue();
+					}
+					else if ( "tenants/c/".equals( prefix ) ) {
+						lastTenantListed.get().countDown();
+					}
+					listing.getCommonPrefixes().add( prefix + "2023/" );
+				}
+				return listing;
+			}
+			finally {
+				running.decrementAndGet();
+			}
+		} );
+
+		AmazonS3FolderResource folder = new AmazonS3FolderResource(
+				FolderDescriptor.of( "my-repo", "tenants" ), concurrentAmazonS3, BUCKET_NAME, "tenants/", new SimpleAsyncTaskExecutor(), 3,
+				FileResourceMetadataCache.NONE, multipartTransfer( concurrentAmazonS3 )
+		);
+
+		// the sub-folders of the tenants are listed recursively for the ** pattern
+		for ( String pattern : Arrays.asList( "*/2023/*.pdf", "*/2023/**/*.pdf" ) ) {
+			lastTenantListed.set( new CountDownLatch( 1 ) );
+			listedInCallingThread.clear();
+			maxRunning.set( 0 );
+			clearInvocations( concurrentAmazonS3 );
+
+			try (Stream<FileRepositoryResource> resources = folder.streamResources( pattern )) {
+				assertThat( resources ).containsExactly(
+						folder.getFileResource( "a/2023/doc.pdf" ), folder.getFileResource( "b/2023/doc.pdf" ),
+						folder.getFileResource( "c/2023/doc.pdf" ), folder.getFileResource( "d/2023/doc.pdf" ),
+						folder.getFileResource( "e/2023/doc.pdf" ), folder.getFileResource( "f/2023/doc.pdf" )
+				);
+			}
+			assertThat( maxRunning.get() ).isBetween( 2, 3 );
+			assertThat( listedInCallingThread ).containsExactly( "tenants/" );
+			verify( concurrentAmazonS3, times( 13 ) ).listObjects( any( ListObjectsRequest.class ) );
+		}
+	}
+
+	@Test
+	@SneakyThrows
+	void listingFillsMetadataCache() {
+		AmazonS3 cachedAmazonS3 = mock( AmazonS3.class );
+		ObjectListing listing = new ObjectListing();
+		S3ObjectSummary summary = new S3ObjectSummary();
+		summary.setKey( "cached/file.txt" );
+		summary.setSize( 12 );
+		summary.setLastModified( new Date( 5000 ) );
+		listing.getObjectSummaries().add( summary );
+		when( cachedAmazonS3.listObjects( any( ListObjectsRequest.class ) ) ).thenReturn( listing );
+
+		FileResourceMetadataCache metadataCache = new FileResourceMetadataCache( 10, Duration.ofMinutes( 1 ) );
+		AmazonS3FolderResource folder = new AmazonS3FolderResource(
+				FolderDescriptor.of( "my-repo", "cached" ), cachedAmazonS3, BUCKET_NAME, "cached/", TASK_EXECUTOR, 1, metadataCache,
+				multipartTransfer( cachedAmazonS3 )
+		);
+		assertThat( folder.findResources( "*" ) ).hasSize( 1 );
+
+		FileResource file = folder.getFileResource( "file.txt" );
+		assertThat( file.exists() ).isTrue();
+		assertThat( file.contentLength() ).isEqualTo( 12 );
+		assertThat( file.lastModified() ).isEqualTo( 5000 );
+		verify( cachedAmazonS3 ).listObjects( any( ListObjectsRequest.class ) );
+		verifyNoMoreInteractions( cachedAmazonS3 );
+
+		file.delete();
+		assertThat( metadataCache.size() ).isZero();
+	}
+
 	@Test
 	void listChildren() {
 		assertThat( resource.listResources( false ) ).isEmpty();
@@ -382,10 +532,14 @@ class TestAmazonS3FolderResource
 	}
 
 	private AmazonS3FolderResource folderResource( FolderDescriptor descriptor, String objectName ) {
-		return new AmazonS3FolderResource( descriptor, amazonS3, BUCKET_NAME, objectName, TASK_EXECUTOR );
+		return new AmazonS3FolderResource( descriptor, amazonS3, BUCKET_NAME, objectName, TASK_EXECUTOR, 1, FileResourceMetadataCache.NONE, multipartTransfer( amazonS3 ) );
 	}
 
 	private AmazonS3FileResource fileResource( FileDescriptor descriptor, String objectName ) {
-		return new AmazonS3FileResource( descriptor, amazonS3, BUCKET_NAME, objectName, TASK_EXECUTOR );
+		return new AmazonS3FileResource( descriptor, amazonS3, BUCKET_NAME, objectName, TASK_EXECUTOR, 1, FileResourceMetadataCache.NONE, multipartTransfer( amazonS3 ) );
+	}
+
+	private static AmazonS3MultipartTransfer multipartTransfer( AmazonS3 client ) {
+		return new AmazonS3MultipartTransfer( client, TASK_EXECUTOR, AmazonS3FileRepository.DEFAULT_MULTIPART_PART_SIZE, 1 );
 	}
 }
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.filemanager.services;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.*;
+import com.foreach.common.filemanager.business.FileStorageException;
+import com.foreach.common.filemanager.test.utils.AmazonS3Helper;
+import lombok.SneakyThrows;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.SyncTaskExecutor;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.*;
+
+class TestAmazonS3MultipartTransfer
+{
+	private static final String BUCKET_NAME = "multipart-transfer-test";
+	private static final int PART_SIZE = AmazonS3MultipartTransfer.MINIMUM_PART_SIZE;
+
+	private static AmazonS3 amazonS3 = AmazonS3Helper.createClientWithBuckets( BUCKET_NAME );
+
+	@TempDir
+	File tempDir;
+
+	@AfterAll
+	static void tearDown() {
+		try {
+			AmazonS3Helper.deleteBuckets( amazonS3, BUCKET_NAME );
+		}
+		finally {
+			amazonS3.shutdown();
+		}
+		amazonS3 = null;
+	}
+
+	@Test
+	void invalidArguments() {
+		assertThatExceptionOfType( IllegalArgumentException.class )
+				.isThrownBy( () -> new AmazonS3MultipartTransfer( amazonS3, new SyncTaskExecutor(), PART_SIZE - 1, 1 ) );
+		assertThatExceptionOfType( IllegalArgumentException.class )
+				.isThrownBy( () -> new AmazonS3MultipartTransfer( amazonS3, new SyncTaskExecutor(), PART_SIZE, 0 ) );
+	}
+
+	@Test
+	@SneakyThrows
+	void outputStreamUploadsPartsInParallel() {
+		AmazonS3MultipartTransfer transfer = new AmazonS3MultipartTransfer( amazonS3, new SimpleAsyncTaskExecutor(), PART_SIZE, 3 );
+		byte[] data = randomData( 2 * PART_SIZE + 1024 );
+		String objectName = UUID.randomUUID().toString();
+
+		try (OutputStream outputStream = transfer.openOutputStream( BUCKET_NAME, objectName )) {
+			for ( int offset = 0; offset < data.length; offset += 100_000 ) {
+				outputStream.write( data, offset, Math.min( 100_000, data.length - offset ) );
+			}
+			assertThat( amazonS3.doesObjectExist( BUCKET_NAME, objectName ) ).isFalse();
+		}
+
+		assertThat( objectData( objectName ) ).isEqualTo( data );
+	}
+
+	@Test
+	@SneakyThrows
+	void smallDataIsUploadedInSingleRequest() {
+		AmazonS3MultipartTransfer transfer = new AmazonS3MultipartTransfer( amazonS3, new SyncTaskExecutor(), PART_SIZE, 3 );
+		String objectName = UUID.randomUUID().toString();
+
+		try (OutputStream outputStream = transfer.openOutputStream( BUCKET_NAME, objectName )) {
+			outputStream.write( "some data".getBytes() );
+		}
+		assertThat( objectData( objectName ) ).isEqualTo( "some data".getBytes() );
+
+		File file = new File( tempDir, "small.txt" );
+		transfer.download( BUCKET_NAME, objectName, file );
+		assertThat( file ).hasContent( "some data" );
+	}
+
+	@Test
+	@SneakyThrows
+	void fileIsUploadedAndDownloadedInParts() {
+		AmazonS3MultipartTransfer transfer = new AmazonS3MultipartTransfer( amazonS3, new SimpleAsyncTaskExecutor(), PART_SIZE, 2 );
+		byte[] data = randomData( 2 * PART_SIZE + 1024 );
+		String objectName = UUID.randomUUID().toString();
+
+		File original = new File( tempDir, "original.bin" );
+		FileUtils.writeByteArrayToFile( original, data );
+		transfer.upload( BUCKET_NAME, objectName, original );
+		assertThat( objectData( objectName ) ).isEqualTo( data );
+
+		File downloaded = new File( tempDir, "downloaded.bin" );
+		FileUtils.writeByteArrayToFile( downloaded, randomData( 3 * PART_SIZE ) );
+		transfer.download( BUCKET_NAME, objectName, downloaded );
+		assertThat( FileUtils.readFileToByteArray( downloaded ) ).isEqualTo( data );
+	}
+
+	@Test
+	@SneakyThrows
+	void objectIsCopiedInParts() {
+		AmazonS3MultipartTransfer transfer = new AmazonS3MultipartTransfer( amazonS3, new SimpleAsyncTaskExecutor(), PART_SIZE, 2 );
+		byte[] data = randomData( 2 * PART_SIZE + 1024 );
+		String objectName = UUID.randomUUID().toString();
+		String copyName = UUID.randomUUID().toString();
+
+		try (OutputStream outputStream = transfer.openOutputStream( BUCKET_NAME, objectName )) {
+			outputStream.write( data );
+		}
+
+		transfer.copy( BUCKET_NAME, objectName, BUCKET_NAME, copyName );
+		assertThat( objectData( copyName ) ).isEqualTo( data );
+		assertThat( objectData( objectName ) ).isEqualTo( data );
+	}
+
+	@Test
+	void copyFailsIfObjectIsModified() {
+		AmazonS3 modifiedAmazonS3 = mock( AmazonS3.class );
+		ObjectMetadata metadata = new ObjectMetadata();
+		metadata.setContentLength( PART_SIZE + 1L );
+		metadata.setHeader( "ETag", "original" );
+		when( modifiedAmazonS3.getObjectMetadata( BUCKET_NAME, "modified" ) ).thenReturn( metadata );
+		InitiateMultipartUploadResult initiated = new InitiateMultipartUploadResult();
+		initiated.setUploadId( "upload-id" );
+		when( modifiedAmazonS3.initiateMultipartUpload( any( InitiateMultipartUploadRequest.class ) ) ).thenReturn( initiated );
+
+		AmazonS3MultipartTransfer transfer = new AmazonS3MultipartTransfer( modifiedAmazonS3, new SyncTaskExecutor(), PART_SIZE, 2 );
+
+		assertThatExceptionOfType( FileStorageException.class )
+				.isThrownBy( () -> transfer.copy( BUCKET_NAME, "modified", BUCKET_NAME, "copy" ) );
+
+		ArgumentCaptor<CopyPartRequest> request = ArgumentCaptor.forClass( CopyPartRequest.class );
+		verify( modifiedAmazonS3 ).copyPart( request.capture() );
+		assertThat( request.getValue().getFirstByte() ).isZero();
+		assertThat( request.getValue().getLastByte() ).isEqualTo( PART_SIZE - 1L );
+		assertThat( request.getValue().getDestinationKey() ).isEqualTo( "copy" );
+		verify( modifiedAmazonS3 ).abortMultipartUpload( any( AbortMultipartUploadRequest.class ) );
+		verify( modifiedAmazonS3, never() ).copyObject( any( CopyObjectRequest.class ) );
+	}
+
+	@Test
+	void failedPartAbortsUpload() {
+		AmazonS3 failingAmazonS3 = mock( AmazonS3.class );
+		InitiateMultipartUploadResult initiated = new InitiateMultipartUploadResult();
+		initiated.setUploadId( "upload-id" );
+		when( failingAmazonS3.initiateMultipartUpload( any( InitiateMultipartUploadRequest.class ) ) ).thenReturn( initiated );
+		when( failingAmazonS3.uploadPart( any( UploadPartRequest.class ) ) ).thenThrow( new AmazonS3Exception( "part failed" ) );
+
+		AmazonS3MultipartTransfer transfer = new AmazonS3MultipartTransfer( failingAmazonS3, new SyncTaskExecutor(), PART_SIZE, 2 );
+		OutputStream outputStream = transfer.openOutputStream( BUCKET_NAME, "failing" );
+
+		assertThatExceptionOfType( AmazonS3Exception.class )
+				.isThrownBy( () -> outputStream.write( new byte[2 * PART_SIZE] ) );
+
+		ArgumentCaptor<AbortMultipartUploadRequest> abort = ArgumentCaptor.forClass( AbortMultipartUploadRequest.class );
+		verify( failingAmazonS3 ).abortMultipartUpload( abort.capture() );
+		assertThat( abort.getValue().getUploadId() ).isEqualTo( "upload-id" );
+		verify( failingAmazonS3, never() ).completeMultipartUpload( any( CompleteMultipartUploadRequest.class ) );
+	}
+
+	@Test
+	@SneakyThrows
+	void largeFileIsUploadedWithinMaximumPartCount() {
+		AmazonS3 largeAmazonS3 = mock( AmazonS3.class );
+		InitiateMultipartUploadResult initiated = new InitiateMultipartUploadResult();
+		initiated.setUploadId( "upload-id" );
+		when( largeAmazonS3.initiateMultipartUpload( any( InitiateMultipartUploadRequest.class ) ) ).thenReturn( initiated );
+		when( largeAmazonS3.uploadPart( any( UploadPartRequest.class ) ) ).thenReturn( new UploadPartResult() );
+
+		// sparse file, the parts are never read by the mock
+		File file = new File( tempDir, "large.bin" );
+		long length = (long) AmazonS3MultipartTransfer.MAXIMUM_PART_COUNT * PART_SIZE + 1;
+		try (RandomAccessFile randomAccessFile = new RandomAccessFile( file, "rw" )) {
+			randomAccessFile.setLength( length );
+		}
+
+		AmazonS3MultipartTransfer transfer = new AmazonS3MultipartTransfer( largeAmazonS3, new SyncTaskExecutor(), PART_SIZE, 2 );
+		transfer.upload( BUCKET_NAME, "large", file );
+
+		ArgumentCaptor<UploadPartRequest> request = ArgumentCaptor.forClass( UploadPartRequest.class );
+		verify( largeAmazonS3, times( AmazonS3MultipartTransfer.MAXIMUM_PART_COUNT ) ).uploadPart( request.capture() );
+		assertThat( request.getAllValues().get( 0 ).getPartSize() ).isEqualTo( PART_SIZE + 1L );
+		assertThat( request.getAllValues().stream().mapToLong( UploadPartRequest::getPartSize ).sum() ).isEqualTo( length );
+		verify( largeAmazonS3 ).completeMultipartUpload( any( CompleteMultipartUploadRequest.class ) );
+	}
+
+	@Test
+	void downloadFailsIfObjectIsModified() {
+		AmazonS3 modifiedAmazonS3 = mock( AmazonS3.class );
+		ObjectMetadata metadata = new ObjectMetadata();
+		metadata.setContentLength( PART_SIZE + 1L );
+		metadata.setHeader( "ETag", "original" );
+		when( modifiedAmazonS3.getObjectMetadata( BUCKET_NAME, "modified" ) ).thenReturn( metadata );
+
+		AmazonS3MultipartTransfer transfer = new AmazonS3MultipartTransfer( modifiedAmazonS3, new SyncTaskExecutor(), PART_SIZE, 2 );
+
+		assertThatExceptionOfType( FileStorageException.class )
+				.isThrownBy( () -> transfer.download( BUCKET_NAME, "modified", new File( tempDir, "modified.bin" ) ) );
+
+		ArgumentCaptor<GetObjectRequest> request = ArgumentCaptor.forClass( GetObjectRequest.class );
+		verify( modifiedAmazonS3 ).getObject( request.capture() );
+		assertThat( request.getValue().getRange() ).containsExactly( 0, PART_SIZE - 1 );
+		assertThat( request.getValue().getMatchingETagConstraints() ).containsExactly( "original" );
+	}
+
+	@SneakyThrows
+	private byte[] objectData( String objectName ) {
+		try (InputStream inputStream = amazonS3.getObject( BUCKET_NAME, objectName ).getObjectContent()) {
+			return IOUtils.toByteArray( inputStream );
+		}
+	}
+
+	private static byte[] randomData( int length ) {
+		byte[] data = new byte[length];
+		new Random().nextBytes( data );
+		return data;
+	}
+}
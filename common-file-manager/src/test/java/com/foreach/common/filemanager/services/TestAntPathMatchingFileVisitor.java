@@ -25,6 +25,7 @@ import java.io.File;
 import java.nio.file.Path;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -150,6 +151,22 @@ class TestAntPathMatchingFileVisitor
 		assertPattern( "childFolder/childFolderInChildFolder/**/" ).visits( 2 ).hasNoResults();
 	}
 
+	@Test
+	@SneakyThrows
+	void streamReadsDirectoriesOnDemand( @TempDir File directory ) {
+		File folder = new File( directory, "folder" );
+		assertThat( folder.mkdir() ).isTrue();
+		assertThat( new File( directory, "first.txt" ).createNewFile() ).isTrue();
+
+		try (Stream<Path> paths = AntPathMatchingFileVisitor.streamFileTree( directory.toPath(), "**/*.txt" )) {
+			// created after the stream, but before the folder is read
+			File late = new File( folder, "late.txt" );
+			assertThat( late.createNewFile() ).isTrue();
+
+			assertThat( paths.collect( Collectors.toSet() ) ).containsExactlyInAnyOrder( new File( directory, "first.txt" ).toPath(), late.toPath() );
+		}
+	}
+
 	private PatternTest assertPattern( String childFolder ) {
 		return new PatternTest( childFolder );
 	}
@@ -159,9 +176,14 @@ class TestAntPathMatchingFileVisitor
 	{
 		private final int visits;
 		private final Set<Path> matches = new HashSet<>();
+		private final Set<Path> streamed;
 
 		PatternTest( String pattern ) {
 			visits = AntPathMatchingFileVisitor.walkFileTree( tempDir.toPath(), pattern, matches::add );
+
+			try (Stream<Path> paths = AntPathMatchingFileVisitor.streamFileTree( tempDir.toPath(), pattern )) {
+				streamed = paths.collect( Collectors.toSet() );
+			}
 		}
 
 		PatternTest visits( int numberOfFilesVisited ) {
@@ -172,11 +194,13 @@ class TestAntPathMatchingFileVisitor
 		PatternTest matches( File... expectedResults ) {
 			assertThat( matches.size() ).isEqualTo( expectedResults.length );
 			Stream.of( expectedResults ).map( File::toPath ).forEach( p -> assertThat( matches ).contains( p ) );
+			assertThat( streamed ).isEqualTo( matches );
 			return this;
 		}
 
 		PatternTest hasNoResults() {
 			assertThat( matches ).isEmpty();
+			assertThat( streamed ).isEmpty();
 			return this;
 		}
 	}
@@ -62,7 +62,7 @@ class TestAzureFileResource
 		}
 		objectName = UUID.randomUUID().toString();
 		descriptor = FileDescriptor.of( "my-repo", "123/456", objectName );
-		resource = new AzureFileResource( descriptor, blobServiceClient, CONTAINER_NAME, objectName );
+		resource = new AzureFileResource( descriptor, blobServiceClient, CONTAINER_NAME, objectName, FileResourceMetadataCache.NONE );
 	}
 
 	@AfterEach
@@ -74,7 +74,7 @@ class TestAzureFileResource
 	@Test
 	@SneakyThrows
 	void equals() {
-		Resource actual = new AzureFileResource( descriptor, blobServiceClient, CONTAINER_NAME, objectName );
+		Resource actual = new AzureFileResource( descriptor, blobServiceClient, CONTAINER_NAME, objectName, FileResourceMetadataCache.NONE );
 		assertThat( resource )
 				.isEqualTo( resource )
 				.isEqualTo( actual );
@@ -289,6 +289,31 @@ class TestAzureFileResource
 		assertThat( other.exists() ).isFalse();
 	}
 
+	@Test
+	@SneakyThrows
+	void copyFromAzureFileResourceCopiesBlob() {
+		blobContainerClient.getBlobClient( objectName )
+		                   .upload( BinaryData.fromString( "some-data" ) );
+
+		String copyName = UUID.randomUUID().toString();
+		FileResource copy = new AzureFileResource( FileDescriptor.of( "my-repo", "123/789", copyName ), blobServiceClient, CONTAINER_NAME, copyName,
+		                                           FileResourceMetadataCache.NONE );
+
+		copy.copyFrom( resource, false );
+		assertThat( resource.exists() ).isTrue();
+		try (InputStream is = copy.getInputStream()) {
+			assertThat( StreamUtils.copyToString( is, Charset.defaultCharset() ) ).isEqualTo( "some-data" );
+		}
+
+		blobContainerClient.getBlobClient( objectName )
+		                   .upload( BinaryData.fromString( "other-data" ), true );
+		copy.copyFrom( resource, true );
+		assertThat( resource.exists() ).isFalse();
+		try (InputStream is = copy.getInputStream()) {
+			assertThat( StreamUtils.copyToString( is, Charset.defaultCharset() ) ).isEqualTo( "other-data" );
+		}
+	}
+
 	@SuppressWarnings("ResultOfMethodCallIgnored")
 	@Test
 	@SneakyThrows
@@ -393,7 +393,7 @@ public class TestAzureFolderResource
 	}
 
 	private AzureFileResource fileResource( FileDescriptor descriptor, String objectName ) throws IOException {
-		return new AzureFileResource( descriptor, blobServiceClient, CONTAINER_NAME, objectName );
+		return new AzureFileResource( descriptor, blobServiceClient, CONTAINER_NAME, objectName, FileResourceMetadataCache.NONE );
 	}
 
 }
@@ -33,6 +33,7 @@ import java.io.File;
 import java.io.InputStream;
 import java.util.Collections;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.junit.Assert.*;
@@ -94,6 +95,7 @@ class TestFileManager
 	}
 
 	@Test
+	@SneakyThrows
 	void correctRepositoryIsUsed() {
 		FileRepository one = mock( FileRepository.class );
 		when( one.getRepositoryId() ).thenReturn( "one" );
@@ -166,12 +168,15 @@ class TestFileManager
 		verify( two ).move( descriptorTwo, renameB );
 
 		FileDescriptor renameC = new FileDescriptor( "two", null, "e" );
-		InputStream streamA = mock( InputStream.class );
-		when( one.getInputStream( renameA ) ).thenReturn( streamA );
-		when( one.delete( renameA ) ).thenReturn( true );
-		fileManager.move( renameA, renameC );
-		verify( two ).save( renameC, streamA, true );
-		verify( one ).delete( renameA );
+		FileResource resourceA = mock( FileResource.class );
+		FileResource resourceC = mock( FileResource.class );
+		when( one.getFileResource( renameA ) ).thenReturn( resourceA );
+		when( two.getFileResource( renameC ) ).thenReturn( resourceC );
+		assertTrue( fileManager.move( renameA, renameC ) );
+		verify( resourceC ).copyFrom( resourceA, true );
+
+		when( resourceA.exists() ).thenReturn( true );
+		assertFalse( fileManager.move( renameA, renameC ) );
 
 		FileDescriptor fd = FileDescriptor.of( "one", "file" );
 		FileResource fr = mock( FileResource.class );
@@ -329,6 +334,34 @@ class TestFileManager
 		verify( otherRepository ).findFiles( "*" );
 	}
 
+	@Test
+	void streamResourcesInMatchingRepositoriesOnDemand() {
+		when( repository.getRepositoryId() ).thenReturn( "repository-1" );
+		fileManager.registerRepository( repository );
+
+		FileRepository otherRepository = mock( FileRepository.class );
+		when( otherRepository.getRepositoryId() ).thenReturn( "repository-2" );
+		fileManager.registerRepository( otherRepository );
+
+		FileResource one = mock( FileResource.class );
+		FileResource two = mock( FileResource.class );
+
+		when( repository.streamResources( any() ) ).thenAnswer( invocation -> Stream.of( one ) );
+		when( otherRepository.streamResources( any() ) ).thenAnswer( invocation -> Stream.of( two ) );
+
+		Assertions.assertThat( fileManager.streamResources( "repository-*:**/*" ) ).containsExactly( one, two );
+		verify( repository ).streamResources( "**/*" );
+		verify( otherRepository ).streamResources( "**/*" );
+
+		Assertions.assertThat( fileManager.streamResources( "repository-*:*" ).findFirst() ).contains( one );
+		verify( repository ).streamResources( "*" );
+		verify( otherRepository, never() ).streamResources( "*" );
+
+		when( otherRepository.streamResources( any(), any() ) ).thenAnswer( invocation -> Stream.of( two ) );
+		Assertions.assertThat( fileManager.streamResources( "repository-2:*", FileResource.class ) ).containsExactly( two );
+		verify( otherRepository ).streamResources( "*", FileResource.class );
+	}
+
 	private FileRepository delegate( String repositoryId ) {
 		return delegate( fileManager.getRepository( repositoryId ) );
 	}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2014 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.foreach.common.filemanager.services;
+
+import com.foreach.common.filemanager.business.FileDescriptor;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+class TestFileResourceMetadataCache
+{
+	private static final FileDescriptor ONE = FileDescriptor.of( "repo:folder:one.txt" );
+	private static final FileDescriptor TWO = FileDescriptor.of( "repo:folder:two.txt" );
+	private static final FileDescriptor THREE = FileDescriptor.of( "repo:folder:three.txt" );
+
+	private final MutableClock clock = new MutableClock();
+	private final FileResourceMetadataCache cache = new FileResourceMetadataCache( 2, Duration.ofSeconds( 10 ), clock );
+	private final AtomicInteger loads = new AtomicInteger();
+
+	@Test
+	void invalidArguments() {
+		assertThatExceptionOfType( IllegalArgumentException.class )
+				.isThrownBy( () -> new FileResourceMetadataCache( -1, Duration.ofSeconds( 1 ) ) );
+		assertThatExceptionOfType( IllegalArgumentException.class )
+				.isThrownBy( () -> new FileResourceMetadataCache( 10, Duration.ofSeconds( -1 ) ) );
+	}
+
+	@Test
+	void metadataIsLoadedOnceUntilExpired() {
+		FileResourceMetadata metadata = cache.get( ONE, loader( FileResourceMetadata.of( 10, 1000 ) ) );
+		assertThat( metadata.exists() ).isTrue();
+		assertThat( metadata.getContentLength() ).isEqualTo( 10 );
+		assertThat( metadata.getLastModified() ).isEqualTo( 1000 );
+
+		assertThat( cache.get( ONE, loader( FileResourceMetadata.of( 20, 2000 ) ) ) ).isSameAs( metadata );
+		assertThat( loads.get() ).isEqualTo( 1 );
+
+		clock.advance( Duration.ofSeconds( 10 ) );
+		assertThat( cache.get( ONE, loader( FileResourceMetadata.of( 20, 2000 ) ) ).getContentLength() ).isEqualTo( 20 );
+		assertThat( loads.get() ).isEqualTo( 2 );
+	}
+
+	@Test
+	void missingFileIsCachedAsWell() {
+		assertThat( cache.get( ONE, loader( FileResourceMetadata.NOT_FOUND ) ).exists() ).isFalse();
+		assertThat( cache.get( ONE, loader( FileResourceMetadata.of( 10, 1000 ) ) ).exists() ).isFalse();
+		assertThat( loads.get() ).isEqualTo( 1 );
+	}
+
+	@Test
+	void leastRecentlyUsedEntryIsRemoved() {
+		cache.put( ONE, FileResourceMetadata.of( 1, 1 ) );
+		cache.put( TWO, FileResourceMetadata.of( 2, 2 ) );
+		cache.get( ONE, loader( FileResourceMetadata.NOT_FOUND ) );
+		cache.put( THREE, FileResourceMetadata.of( 3, 3 ) );
+
+		assertThat( cache.size() ).isEqualTo( 2 );
+		assertThat( cache.get( ONE, loader( FileResourceMetadata.NOT_FOUND ) ).getContentLength() ).isEqualTo( 1 );
+		assertThat( cache.get( THREE, loader( FileResourceMetadata.NOT_FOUND ) ).getContentLength() ).isEqualTo( 3 );
+		assertThat( cache.get( TWO, loader( FileResourceMetadata.NOT_FOUND ) ).exists() ).isFalse();
+		assertThat( loads.get() ).isEqualTo( 1 );
+	}
+
+	@Test
+	void evictedEntryIsLoadedAgain() {
+		cache.put( ONE, FileResourceMetadata.of( 1, 1 ) );
+		cache.put( TWO, FileResourceMetadata.of( 2, 2 ) );
+
+		cache.evict( ONE );
+		assertThat( cache.size() ).isEqualTo( 1 );
+		assertThat( cache.get( ONE, loader( FileResourceMetadata.NOT_FOUND ) ).exists() ).isFalse();
+
+		cache.clear();
+		assertThat( cache.size() ).isZero();
+		assertThat( cache.get( TWO, loader( FileResourceMetadata.NOT_FOUND ) ).exists() ).isFalse();
+		assertThat( loads.get() ).isEqualTo( 2 );
+	}
+
+	@Test
+	void metadataLoadedDuringEvictionIsNotStored() {
+		FileResourceMetadata metadata = cache.get( ONE, () -> {
+			cache.evict( ONE );
+			return FileResourceMetadata.of( 1, 1 );
+		} );
+
+		assertThat( metadata.getContentLength() ).isEqualTo( 1 );
+		assertThat( cache.size() ).isZero();
+	}
+
+	@Test
+	void noneNeverStoresMetadata() {
+		FileResourceMetadataCache.NONE.put( ONE, FileResourceMetadata.of( 1, 1 ) );
+		FileResourceMetadataCache.NONE.get( ONE, loader( FileResourceMetadata.of( 1, 1 ) ) );
+		FileResourceMetadataCache.NONE.get( ONE, loader( FileResourceMetadata.of( 1, 1 ) ) );
+
+		assertThat( FileResourceMetadataCache.NONE.size() ).isZero();
+		assertThat( loads.get() ).isEqualTo( 2 );
+
+		OutputStream outputStream = new ByteArrayOutputStream();
+		assertThat( FileResourceMetadataCache.NONE.evictOnClose( ONE, outputStream ) ).isSameAs( outputStream );
+	}
+
+	@Test
+	void closingOutputStreamEvictsEntry() throws Exception {
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+		OutputStream outputStream = cache.evictOnClose( ONE, data );
+
+		cache.put( ONE, FileResourceMetadata.NOT_FOUND );
+		outputStream.write( new byte[] { 1, 2, 3 }, 1, 2 );
+		assertThat( cache.size() ).isEqualTo( 1 );
+
+		outputStream.close();
+		assertThat( cache.size() ).isZero();
+		assertThat( data.toByteArray() ).containsExactly( 2, 3 );
+	}
+
+	private Supplier<FileResourceMetadata> loader( FileResourceMetadata metadata ) {
+		return () -> {
+			loads.incrementAndGet();
+			return metadata;
+		};
+	}
+
+	private static class MutableClock extends Clock
+	{
+		private Instant now = Instant.now();
+
+		void advance( Duration duration ) {
+			now = now.plus( duration );
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone( ZoneId zone ) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Instant instant() {
+			return now;
+		}
+	}
+}
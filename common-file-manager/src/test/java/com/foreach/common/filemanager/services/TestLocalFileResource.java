@@ -273,6 +273,30 @@ class TestLocalFileResource
 		assertThat( other.exists() ).isFalse();
 	}
 
+	@Test
+	@SneakyThrows
+	void copyFromLocalFileResourceMovesPhysicalFile() {
+		File targetFolder = new File( tempFile.getParentFile(), UUID.randomUUID().toString() );
+		File targetFile = new File( targetFolder, "moved.txt" );
+		FileResource moved = new LocalFileResource( descriptor, targetFile.toPath() );
+		FileUtils.writeStringToFile( tempFile, "hello file", "UTF-8" );
+
+		try {
+			moved.copyFrom( resource, true );
+			assertThat( targetFile ).hasContent( "hello file" );
+			assertThat( resource.exists() ).isFalse();
+
+			moved.copyFrom( moved, true );
+			assertThat( targetFile ).hasContent( "hello file" );
+
+			assertThatExceptionOfType( FileNotFoundException.class )
+					.isThrownBy( () -> moved.copyFrom( resource, false ) );
+		}
+		finally {
+			FileUtils.deleteDirectory( targetFolder );
+		}
+	}
+
 	@Test
 	@SneakyThrows
 	void noFileCreatedIfExceptionOnInputStream() {
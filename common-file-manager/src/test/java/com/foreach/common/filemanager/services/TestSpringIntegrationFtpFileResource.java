@@ -92,7 +92,7 @@ class TestSpringIntegrationFtpFileResource
 	void createResource() {
 		objectName = UUID.randomUUID().toString();
 		descriptor = FileDescriptor.of( "my-repo", "123/456", objectName );
-		resource = new SpringIntegrationFtpFileResource( descriptor, null, getFtpRemoteFileTemplate() );
+		resource = new SpringIntegrationFtpFileResource( descriptor, null, getFtpRemoteFileTemplate(), FileResourceMetadataCache.NONE );
 		if ( !resource.getFolderResource().exists() ) {
 			resource.getFolderResource().create();
 		}
@@ -103,8 +103,8 @@ class TestSpringIntegrationFtpFileResource
 		assertThat( resource )
 				.isEqualTo( resource )
 				.isNotEqualTo( mock( Resource.class ) )
-				.isEqualTo( new SpringIntegrationFtpFileResource( resource.getDescriptor(), null, getFtpRemoteFileTemplate() ) )
-				.isNotEqualTo( new SpringIntegrationFtpFileResource( FileDescriptor.of( "1:2:3" ), null, getFtpRemoteFileTemplate() ) );
+				.isEqualTo( new SpringIntegrationFtpFileResource( resource.getDescriptor(), null, getFtpRemoteFileTemplate(), FileResourceMetadataCache.NONE ) )
+				.isNotEqualTo( new SpringIntegrationFtpFileResource( FileDescriptor.of( "1:2:3" ), null, getFtpRemoteFileTemplate(), FileResourceMetadataCache.NONE ) );
 	}
 
 	@Test
@@ -420,11 +420,11 @@ class TestSpringIntegrationFtpFolderResource
 	}
 
 	private SpringIntegrationFtpFolderResource folderResource( FolderDescriptor descriptor ) {
-		return new SpringIntegrationFtpFolderResource( descriptor, getFtpRemoteFileTemplate() );
+		return new SpringIntegrationFtpFolderResource( descriptor, getFtpRemoteFileTemplate(), FileResourceMetadataCache.NONE );
 	}
 
 	private SpringIntegrationFtpFileResource fileResource( FileDescriptor descriptor ) {
-		return new SpringIntegrationFtpFileResource( descriptor, null, getFtpRemoteFileTemplate() );
+		return new SpringIntegrationFtpFileResource( descriptor, null, getFtpRemoteFileTemplate(), FileResourceMetadataCache.NONE );
 	}
 
 	private void createResourceFolderViaFtp() {
@@ -89,7 +89,7 @@ class TestSpringIntegrationSftpFileResource
 	void createResource() {
 		objectName = UUID.randomUUID().toString();
 		descriptor = FileDescriptor.of( "my-repo", "123/456", objectName );
-		resource = new SpringIntegrationSftpFileResource( descriptor, null, getSftpRemoteFileTemplate() );
+		resource = new SpringIntegrationSftpFileResource( descriptor, null, getSftpRemoteFileTemplate(), FileResourceMetadataCache.NONE );
 		if ( !resource.getFolderResource().exists() ) {
 			resource.getFolderResource().create();
 		}
@@ -100,8 +100,8 @@ class TestSpringIntegrationSftpFileResource
 		assertThat( resource )
 				.isEqualTo( resource )
 				.isNotEqualTo( mock( Resource.class ) )
-				.isEqualTo( new SpringIntegrationSftpFileResource( resource.getDescriptor(), null, getSftpRemoteFileTemplate() ) )
-				.isNotEqualTo( new SpringIntegrationSftpFileResource( FileDescriptor.of( "1:2:3" ), null, getSftpRemoteFileTemplate() ) );
+				.isEqualTo( new SpringIntegrationSftpFileResource( resource.getDescriptor(), null, getSftpRemoteFileTemplate(), FileResourceMetadataCache.NONE ) )
+				.isNotEqualTo( new SpringIntegrationSftpFileResource( FileDescriptor.of( "1:2:3" ), null, getSftpRemoteFileTemplate(), FileResourceMetadataCache.NONE ) );
 	}
 
 	@Test
@@ -313,6 +313,24 @@ class TestSpringIntegrationSftpFileResource
 		assertThat( other.exists() ).isFalse();
 	}
 
+	@Test
+	@SneakyThrows
+	void copyFromSftpFileResourceRenamesFile() {
+		createFileViaFtp();
+		FileDescriptor renamedDescriptor = FileDescriptor.of( "my-repo", "123/789", UUID.randomUUID().toString() );
+		FileResource renamed = new SpringIntegrationSftpFileResource( renamedDescriptor, null, getSftpRemoteFileTemplate(), FileResourceMetadataCache.NONE );
+
+		renamed.copyFrom( resource, true );
+		assertThat( resource.exists() ).isFalse();
+		try (InputStream is = renamed.getInputStream()) {
+			assertThat( StreamUtils.copyToString( is, Charset.defaultCharset() ) ).isEqualTo( "some-data" );
+		}
+
+		assertThatExceptionOfType( FileNotFoundException.class )
+				.isThrownBy( () -> renamed.copyFrom( resource, true ) );
+		assertThat( renamed.delete() ).isTrue();
+	}
+
 	@SuppressWarnings("ResultOfMethodCallIgnored")
 	@Test
 	@SneakyThrows
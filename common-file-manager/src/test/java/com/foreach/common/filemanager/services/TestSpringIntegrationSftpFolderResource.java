@@ -418,11 +418,11 @@ class TestSpringIntegrationSftpFolderResource
 	}
 
 	private SpringIntegrationSftpFolderResource folderResource( FolderDescriptor descriptor ) {
-		return new SpringIntegrationSftpFolderResource( descriptor, getSftpRemoteFileTemplate() );
+		return new SpringIntegrationSftpFolderResource( descriptor, getSftpRemoteFileTemplate(), FileResourceMetadataCache.NONE );
 	}
 
 	private SpringIntegrationSftpFileResource fileResource( FileDescriptor descriptor ) {
-		return new SpringIntegrationSftpFileResource( descriptor, null, getSftpRemoteFileTemplate() );
+		return new SpringIntegrationSftpFileResource( descriptor, null, getSftpRemoteFileTemplate(), FileResourceMetadataCache.NONE );
 	}
 
 	private void createResourceFolderViaFtp() {
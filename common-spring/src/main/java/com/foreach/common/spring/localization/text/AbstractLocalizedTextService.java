@@ -15,10 +15,9 @@
  */
 package com.foreach.common.spring.localization.text;
 
+import com.foreach.common.concurrent.KeyedCoalescingExecutor;
+import com.foreach.common.concurrent.SingleFlight;
 import com.foreach.common.concurrent.SynchronousTaskExecutor;
-import com.foreach.common.concurrent.locks.ObjectLock;
-import com.foreach.common.concurrent.locks.ObjectLockRepository;
-import com.foreach.common.concurrent.locks.ReentrantObjectLockRepository;
 import com.foreach.common.spring.localization.Language;
 import com.foreach.common.spring.localization.LanguageConfigurator;
 import org.slf4j.Logger;
@@ -26,6 +25,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.*;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * <p>
@@ -41,7 +41,14 @@ import java.util.concurrent.ExecutorService;
  * The {@link #executorService} is the {@link java.util.concurrent.ExecutorService} that can be used to execute calls
  * in the background.  Calls to {@link #flagAsUsed(LocalizedText)}, {@link #saveLocalizedText(LocalizedText)} and
  * {@link #deleteLocalizedText(LocalizedText)} will put additional calls on the ExecutorService (cache reloads and
- * background updates).  If no executorService is specified, all calls are executed synchronously.
+ * background updates).  If no executorService is specified, all calls are executed synchronously.  Use a
+ * {@link com.foreach.common.concurrent.BoundedTaskExecutor} to execute them in the background.
+ * </p>
+ * <p>
+ * Cache reloads are done per text set: a save or delete in a text set that already has a reload waiting to be
+ * started does not trigger another reload.  A bulk update of a text set results in a single reload per burst
+ * when using an asynchronous executorService, or when delaying the reloads with
+ * {@link #setTextSetReloadDelay(long)}.
  * </p>
  * <p>
  * The {@link #textSetCache} is the {@link LocalizedTextSetCache} implementation that is used to cache all
@@ -56,10 +63,11 @@ public abstract class AbstractLocalizedTextService implements LocalizedTextServi
 	@SuppressWarnings("all")
 	protected final Logger LOG;
 
-	private final ObjectLockRepository<String> textSetFetchLocks = new ReentrantObjectLockRepository<String>();
+	private final SingleFlight<List<String>, LocalizedTextSet> textSetFetches = new SingleFlight<>();
 	private final LocalizedTextDataStore localizedTextDao;
 
 	private ExecutorService executorService = new SynchronousTaskExecutor();
+	private KeyedCoalescingExecutor<List<String>> textSetReloads = new KeyedCoalescingExecutor<>( this::submit );
 	private LocalizedTextSetCache textSetCache = new NoCachingLocalizedTextSetCache();
 
 	/**
@@ -73,6 +81,7 @@ public abstract class AbstractLocalizedTextService implements LocalizedTextServi
 
 	/**
 	 * @param executorService The ExecutorService to use for the {@link #flagAsUsed(LocalizedText)} calls.
+	 * @see com.foreach.common.concurrent.BoundedTaskExecutor
 	 */
 	public final void setExecutorService( ExecutorService executorService ) {
 		this.executorService = executorService;
@@ -82,6 +91,19 @@ public abstract class AbstractLocalizedTextService implements LocalizedTextServi
 		}
 	}
 
+	/**
+	 * @param reloadDelay Number of milliseconds the cache reload of a text set is delayed after a save or delete,
+	 *                    so all modifications done in the meantime result in a single reload.  Default is 0.
+	 *                    Note that a delayed reload is always executed in the background.
+	 */
+	public final void setTextSetReloadDelay( long reloadDelay ) {
+		textSetReloads = new KeyedCoalescingExecutor<>( this::submit, reloadDelay, TimeUnit.MILLISECONDS );
+	}
+
+	private void submit( Runnable task ) {
+		executorService.execute( task );
+	}
+
 	/**
 	 * @param textSetCache The LocalizedTextSetCache implementation to use for caching the textSet instances.
 	 */
@@ -107,22 +129,17 @@ public abstract class AbstractLocalizedTextService implements LocalizedTextServi
 		LocalizedTextSet textSet = textSetCache.getLocalizedTextSet( application, group );
 
 		if ( textSet == null ) {
-			ObjectLock<String> writeLock = textSetFetchLocks.getLock( application + group );
-			try {
-				writeLock.lock();
-
+			textSet = textSetFetches.get( Arrays.asList( application, group ), () -> {
 				// Fetch again from cache to avoid double querying
-				textSet = textSetCache.getLocalizedTextSet( application, group );
+				LocalizedTextSet fetched = textSetCache.getLocalizedTextSet( application, group );
 
-				if ( textSet == null ) {
-					textSet = new LocalizedTextSetImpl( application, group, this );
-					textSetCache.storeLocalizedTextSet( textSet );
+				if ( fetched == null ) {
+					fetched = new LocalizedTextSetImpl( application, group, this );
+					textSetCache.storeLocalizedTextSet( fetched );
 				}
 
-			}
-			finally {
-				writeLock.unlock();
-			}
+				return fetched;
+			} );
 		}
 
 		return textSet;
@@ -244,17 +261,7 @@ public abstract class AbstractLocalizedTextService implements LocalizedTextServi
 			}
 
 			// Reload cache asynchronously
-			executorService.submit( new Runnable()
-			{
-				public void run() {
-					try {
-						textSetCache.reload( text.getApplication(), text.getGroup() );
-					}
-					catch ( RuntimeException re ) {
-						LOG.error( "Failed to reload cache ", re );
-					}
-				}
-			} );
+			reloadTextSet( text.getApplication(), text.getGroup() );
 		}
 	}
 
@@ -294,20 +301,27 @@ public abstract class AbstractLocalizedTextService implements LocalizedTextServi
 			localizedTextDao.deleteLocalizedText( text );
 
 			// Reload cache asynchronously
-			executorService.submit( new Runnable()
-			{
-				public void run() {
-					try {
-						textSetCache.reload( text.getApplication(), text.getGroup() );
-					}
-					catch ( RuntimeException re ) {
-						LOG.error( "Failed to reload cache ", re );
-					}
-				}
-			} );
+			reloadTextSet( text.getApplication(), text.getGroup() );
 		}
 	}
 
+	/**
+	 * Submits a cache reload of the text set, unless a reload of the same text set is already waiting to be started.
+	 */
+	private void reloadTextSet( final String application, final String group ) {
+		textSetReloads.submit( Arrays.asList( application, group ), new Runnable()
+		{
+			public void run() {
+				try {
+					textSetCache.reload( application, group );
+				}
+				catch ( RuntimeException re ) {
+					LOG.error( "Failed to reload cache ", re );
+				}
+			}
+		} );
+	}
+
 	/**
 	 * <p>Converts all LocalizedTexts in the provided language to a Map.  The LocalizedTexts to be converted can be
 	 * found in the given LocalizedTextSet.</p>
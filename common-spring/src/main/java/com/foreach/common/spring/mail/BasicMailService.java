@@ -36,7 +36,9 @@ import java.util.concurrent.Future;
  * MailService sends smtp mails with optional attachments.
  * <p/>
  * By default, a MailService instance will send mails synchronously,
- * but you can alter this behaviour by changing the executorService.
+ * but you can alter this behaviour by changing the executorService.  A
+ * {@link com.foreach.common.concurrent.BoundedTaskExecutor} sends the mails in the background using a limited
+ * number of threads and a bounded queue.
  * <p/>
  * If you want the option of sending mails both synchronously and asynchronously,
  * you should create two MailService instances.
@@ -62,8 +64,10 @@ import java.util.concurrent.Future;
  *  <bean id="mailService" class="com.foreach.spring.mail.BasicMailService">
  *      <property name="originator" value="noreply@foo.bar"/>
  *      <property name="executorService">
- *          <bean class="java.util.concurrent.ScheduledThreadPoolExecutor" destroy-method="shutdown">
- *              <constructor-arg index="0" type="int" value="2"/>
+ *          <bean class="com.foreach.common.concurrent.BoundedTaskExecutor" destroy-method="close">
+ *              <constructor-arg index="0" value="mail"/>
+ *              <constructor-arg index="1" value="2"/>
+ *              <constructor-arg index="2" value="500"/>
  *          </bean>
  *      </property>
  *      <property name="javaMailSender" ref="sharedMailSender"/>
@@ -130,6 +134,7 @@ public class BasicMailService implements MailService
 	 * Set the executorService used to send messages through the javaMailSender.
 	 *
 	 * @param executorService By default, a synchronous TaskExecutoService is configured.
+	 * @see com.foreach.common.concurrent.BoundedTaskExecutor
 	 */
 	public final synchronized void setExecutorService( ExecutorService executorService ) {
 		this.executorService = executorService;
@@ -22,6 +22,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -246,14 +247,47 @@ public class TestLocalizedTextService extends AbstractLocalizationTest
 
 		// Cache interaction should have been suppressed
 		verifyNoInteractions( cache );
-		verify( executorService, times( 1 ) ).submit( any( Runnable.class ) );
+		verify( executorService, times( 1 ) ).execute( any( Runnable.class ) );
 
 		reset( cache, textDao, executorService );
 
 		saveItemThatDoesExist();
 
+		// The first reload has not been started, so no additional reload is submitted
 		verifyNoInteractions( cache );
-		verify( executorService, times( 1 ) ).submit( any( Runnable.class ) );
+		verify( executorService, never() ).execute( any( Runnable.class ) );
+	}
+
+	@Test
+	public void burstOfSavesResultsInASingleReloadPerGroup() throws InterruptedException {
+		LocalizedTextSetCache cache = mock( LocalizedTextSetCache.class );
+		textService.setTextSetCache( cache );
+
+		ExecutorService threads = Executors.newSingleThreadExecutor();
+		textService.setExecutorService( threads );
+
+		// Keep the reloads waiting while saving
+		CountDownLatch saved = new CountDownLatch( 1 );
+		threads.submit( () -> {
+			saved.await();
+			return null;
+		} );
+
+		for ( int i = 0; i < 500; i++ ) {
+			LocalizedText text = new LocalizedText();
+			text.setApplication( "myapp1" );
+			text.setGroup( i % 2 == 0 ? "mygroup" : "othergroup" );
+			text.setLabel( "label" + i );
+
+			textService.saveLocalizedText( text );
+		}
+
+		saved.countDown();
+		threads.shutdown();
+		assertTrue( threads.awaitTermination( 1, TimeUnit.SECONDS ) );
+
+		verify( cache, times( 1 ) ).reload( "myapp1", "mygroup" );
+		verify( cache, times( 1 ) ).reload( "myapp1", "othergroup" );
 	}
 
 	@Test
@@ -317,7 +351,7 @@ public class TestLocalizedTextService extends AbstractLocalizationTest
 
 		// Cache interaction should have been suppressed
 		verifyNoInteractions( cache );
-		verify( executorService, times( 1 ) ).submit( any( Runnable.class ) );
+		verify( executorService, times( 1 ) ).execute( any( Runnable.class ) );
 	}
 
 	@Test